@@ -0,0 +1,85 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.geo.GeoMath;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.NearestLearningCenter;
+import com.conectividadcba.services.CatchmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest learning center of a point through the catchment triangulation, against scanning every
+ * learning center per query; plus building all catchments and adding one center.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatchmentBenchmark {
+    private CatchmentService service;
+    private List<Entity> centers;
+    private int next;
+    private long nextId;
+    private final SplittableRandom random = new SplittableRandom(11);
+
+    @Setup(Level.Trial)
+    public void setUp(RepositoryState state) {
+        service = new CatchmentService(state.repository, SyntheticEntities.boundaryService());
+        centers = state.repository.findByType(Entity.EntityType.LEARNING_CENTER.name());
+        nextId = state.size + 1;
+    }
+
+    @Benchmark
+    public NearestLearningCenter nearest(RepositoryState state) {
+        double[] point = state.points[next++ & (RepositoryState.QUERIES - 1)];
+        return service.getNearest(point[0], point[1]).orElseThrow();
+    }
+
+    @Benchmark
+    public Entity nearestScan(RepositoryState state) {
+        double[] point = state.points[next++ & (RepositoryState.QUERIES - 1)];
+        Entity best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (Entity center : centers) {
+            double distance = GeoMath.haversine(point[0], point[1],
+                    center.getCoordinates().getLat(), center.getCoordinates().getLng());
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = center;
+            }
+        }
+        return best;
+    }
+
+    // Scattered around the query points, so every call adds a new vertex and recomputes its neighbours.
+    @Benchmark
+    public void insert(RepositoryState state) {
+        double[] point = state.points[next++ & (RepositoryState.QUERIES - 1)];
+        service.onEntityAdded(new LearningCenter(nextId++, "Centro", new Entity.Coordinates(
+                point[0] + random.nextDouble(-0.2, 0.2), point[1] + random.nextDouble(-0.2, 0.2)),
+                null, null, "Tecnológico", 100, "Fibra Optica"));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public CatchmentService build(RepositoryState state) {
+        return new CatchmentService(state.repository, SyntheticEntities.boundaryService());
+    }
+}
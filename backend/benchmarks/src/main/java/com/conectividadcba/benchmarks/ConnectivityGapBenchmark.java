@@ -0,0 +1,35 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.models.ConnectivityGapReport;
+import com.conectividadcba.services.ConnectivityGapService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full connectivity-gap analysis. Each call uses a new service so that no report is cached.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectivityGapBenchmark {
+    @Param({"1", "5"})
+    public int k;
+
+    @Benchmark
+    public ConnectivityGapReport analyze(RepositoryState state) {
+        return new ConnectivityGapService(state.repository).getConnectivityGaps(k, 100);
+    }
+}
@@ -0,0 +1,83 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.School;
+import com.conectividadcba.repositories.DurableEntityRepository;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import com.conectividadcba.repositories.SavedEntities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Single-entity updates from 16 concurrent writers, in memory only and through the write-ahead
+ * log with and without {@code fsync}, to see how much group commit leaves of the in-memory write
+ * rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class DurableWriteBenchmark {
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"memory", "wal", "wal-fsync"})
+    public String store;
+
+    private IndexedEntityRepository repository;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Entity> entities = SyntheticEntities.generate(size, 42);
+        if (store.equals("memory")) {
+            repository = new IndexedEntityRepository(entities);
+        } else {
+            directory = Files.createTempDirectory("wal-benchmark");
+            repository = DurableEntityRepository.open(directory, () -> new IndexedEntityRepository(entities),
+                    store.equals("wal-fsync"), 300, 64L << 20);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (directory != null) {
+            ((DurableEntityRepository) repository).close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public SavedEntities updateOne() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = 1 + random.nextInt(size);
+        return repository.saveAll(List.of(new School(id, "Escuela " + id, new Entity.Coordinates(-31.4, -64.2),
+                null, 1L, "Primario", random.nextInt(1000), "Fibra Optica")));
+    }
+}
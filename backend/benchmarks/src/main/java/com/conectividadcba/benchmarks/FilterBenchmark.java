@@ -0,0 +1,89 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.EntityQuery;
+import com.conectividadcba.repositories.EntitySort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The criteria combinations of {@code /api/entities/filter}, unpaged and as a sorted page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterBenchmark {
+    private int cursor;
+
+    private int next() {
+        return cursor++ & (RepositoryState.QUERIES - 1);
+    }
+
+    @Benchmark
+    public List<Entity> typeAndDepartment(RepositoryState state) {
+        EntityQuery query = new EntityQuery();
+        query.setType("SCHOOL");
+        query.setDepartmentId(state.departmentIds[next()]);
+        return state.repository.findByQuery(query);
+    }
+
+    @Benchmark
+    public List<Entity> connectionTypeAndLevel(RepositoryState state) {
+        int i = next();
+        EntityQuery query = new EntityQuery();
+        query.setConnectionType(state.connectionTypes[i]);
+        query.setLevel(state.levels[i]);
+        return state.repository.findByQuery(query);
+    }
+
+    @Benchmark
+    public List<Entity> studentCountRange(RepositoryState state) {
+        int i = next();
+        EntityQuery query = new EntityQuery();
+        query.setMinStudentCount(i);
+        query.setMaxStudentCount(i + 50);
+        return state.repository.findByQuery(query);
+    }
+
+    @Benchmark
+    public List<Entity> nameAndDepartment(RepositoryState state) {
+        EntityQuery query = new EntityQuery();
+        query.setName("N°1");
+        query.setDepartmentId(state.departmentIds[next()]);
+        return state.repository.findByQuery(query);
+    }
+
+    @Benchmark
+    public List<Entity> allCriteria(RepositoryState state) {
+        int i = next();
+        EntityQuery query = new EntityQuery();
+        query.setType("SCHOOL");
+        query.setDepartmentId(state.departmentIds[i]);
+        query.setConnectionType(state.connectionTypes[i]);
+        query.setLevel(state.levels[i]);
+        query.setMinStudentCount(100);
+        query.setMaxStudentCount(800);
+        return state.repository.findByQuery(query);
+    }
+
+    @Benchmark
+    public List<Entity> pageByNameAfterCursor(RepositoryState state) {
+        int i = next();
+        EntityQuery query = new EntityQuery();
+        query.setConnectionType(state.connectionTypes[i]);
+        return state.repository.findPage(query, EntitySort.NAME, false, state.nameCursors[i], 50);
+    }
+}
@@ -0,0 +1,109 @@
+package com.conectividadcba.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop HTTP load against a running backend: {@code concurrency} requests are kept in flight
+ * for {@code seconds}, each one a random viewport, filter, radius or NDJSON stream request, so the
+ * response cache is mostly missed. Prints throughput and latency percentiles; run it once against
+ * each execution mode to compare them.
+ *
+ * <pre>java -cp target/benchmarks.jar com.conectividadcba.benchmarks.LoadTest http://localhost:8080 1000 30</pre>
+ */
+public final class LoadTest {
+    private static final int MAX_SAMPLES = 1 << 22;
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long[] latencies = new long[MAX_SAMPLES];
+        AtomicInteger samples = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        AtomicInteger inFlight = new AtomicInteger();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        // Each completion starts the next request, keeping the concurrency constant.
+        Runnable[] loop = new Runnable[1];
+        loop[0] = () -> {
+            if (System.nanoTime() >= deadline) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            long start = System.nanoTime();
+            client.sendAsync(HttpRequest.newBuilder(URI.create(base + randomPath())).build(),
+                            HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            int i = samples.getAndIncrement();
+                            if (i < MAX_SAMPLES) {
+                                latencies[i] = System.nanoTime() - start;
+                            }
+                        }
+                        loop[0].run();
+                    });
+        };
+        long started = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            inFlight.incrementAndGet();
+            loop[0].run();
+        }
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(10_000_000L);
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        int n = Math.min(samples.get(), MAX_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "concurrency=%d requests=%d errors=%d throughput=%.0f req/s%n",
+                concurrency, samples.get(), errors.get(), samples.get() / elapsed);
+        System.out.printf(Locale.ROOT, "latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    private static String randomPath() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double lat = -35 + random.nextDouble() * 5;
+        double lng = -66 + random.nextDouble() * 4;
+        switch (random.nextInt(4)) {
+            case 0:
+                return String.format(Locale.ROOT, "/api/entities/bbox?minLat=%.4f&minLng=%.4f&maxLat=%.4f&maxLng=%.4f",
+                        lat, lng, lat + 0.5, lng + 0.5);
+            case 1:
+                return "/api/entities/filter?type=SCHOOL&departmentId=" + (1 + random.nextInt(26))
+                        + "&limit=" + (10 + random.nextInt(90));
+            case 2:
+                return String.format(Locale.ROOT, "/api/entities/near?lat=%.4f&lng=%.4f&radiusKm=%d",
+                        lat, lng, 5 + random.nextInt(50));
+            default:
+                return "/api/entities?stream=true&fields=id,name,coordinates";
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int rank = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 1e6;
+    }
+}
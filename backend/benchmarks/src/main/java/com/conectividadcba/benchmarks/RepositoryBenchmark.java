@@ -0,0 +1,56 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.models.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point lookups and the simple finders of the repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+    private int cursor;
+
+    private int next() {
+        return cursor++ & (RepositoryState.QUERIES - 1);
+    }
+
+    @Benchmark
+    public Optional<Entity> findById(RepositoryState state) {
+        return state.repository.findById(state.ids[next()]);
+    }
+
+    @Benchmark
+    public List<Entity> findByDepartmentId(RepositoryState state) {
+        return state.repository.findByDepartmentId(state.departmentIds[next()]);
+    }
+
+    /**
+     * Substring match on names, as the /filter name criterion does.
+     */
+    @Benchmark
+    public List<Entity> findByName(RepositoryState state) {
+        return state.repository.findByName("N°" + state.ids[next()]);
+    }
+
+    @Benchmark
+    public List<Entity> searchByName(RepositoryState state) {
+        return state.repository.searchByName("escuela " + state.departmentNames[next()].substring(0, 3), 10);
+    }
+}
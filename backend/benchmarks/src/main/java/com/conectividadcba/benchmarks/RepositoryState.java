@@ -0,0 +1,54 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.repositories.EntityCursor;
+import com.conectividadcba.repositories.EntitySort;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A repository over {@link SyntheticEntities} of each benchmarked size, plus pre-drawn query
+ * arguments so that the measured methods only index into arrays.
+ */
+@State(Scope.Benchmark)
+public class RepositoryState {
+    static final int QUERIES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    IndexedEntityRepository repository;
+    long[] ids = new long[QUERIES];
+    // Cursors after the entities of ids in name order
+    EntityCursor[] nameCursors = new EntityCursor[QUERIES];
+    Long[] departmentIds = new Long[QUERIES];
+    String[] departmentNames = new String[QUERIES];
+    String[] connectionTypes = new String[QUERIES];
+    String[] levels = new String[QUERIES];
+    // lat, lng of points inside the province
+    double[][] points = new double[QUERIES][];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new IndexedEntityRepository(SyntheticEntities.generate(size, 42));
+        List<DepartmentBoundary> departments = SyntheticEntities.boundaries();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < QUERIES; i++) {
+            ids[i] = 1 + random.nextInt(size);
+            nameCursors[i] = EntityCursor.after(EntitySort.NAME, repository.findById(ids[i]).orElseThrow());
+            DepartmentBoundary department = departments.get(random.nextInt(departments.size()));
+            departmentIds[i] = department.getDepartmentId();
+            departmentNames[i] = department.getName();
+            connectionTypes[i] = SyntheticEntities.CONNECTION_TYPES[random.nextInt(SyntheticEntities.CONNECTION_TYPES.length)];
+            levels[i] = SyntheticEntities.LEVELS[random.nextInt(SyntheticEntities.LEVELS.length)];
+            points[i] = new double[]{department.getCentroidLat(), department.getCentroidLng()};
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import com.conectividadcba.web.EntityProtobufEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of entity lists as the controllers write them, including the
+ * materialization of entities from the repository's columns, against the protobuf encoding that
+ * reads the columns directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int listSize;
+
+    private List<Entity> entities;
+    private ObjectWriter writer;
+    private ObjectWriter sparseWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        entities = new IndexedEntityRepository(SyntheticEntities.generate(listSize, 42)).findAll();
+        // Same filter setup as JacksonConfig and EntityFields.
+        ObjectMapper objectMapper = new ObjectMapper().setFilterProvider(new SimpleFilterProvider()
+                .addFilter(Entity.FIELDS_FILTER, SimpleBeanPropertyFilter.serializeAll()));
+        writer = objectMapper.writer();
+        sparseWriter = objectMapper.writer(new SimpleFilterProvider().addFilter(Entity.FIELDS_FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept(Set.of("id", "name", "coordinates"))));
+    }
+
+    @Benchmark
+    public byte[] fullEntities() throws JsonProcessingException {
+        return writer.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] sparseFieldset() throws JsonProcessingException {
+        return sparseWriter.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] protobuf() {
+        return new EntityProtobufEncoder().encode(entities).toByteArray();
+    }
+}
@@ -0,0 +1,56 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.models.Entity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounding-box and radius queries centered on department centroids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpatialBenchmark {
+    private int cursor;
+
+    private double[] nextPoint(RepositoryState state) {
+        return state.points[cursor++ & (RepositoryState.QUERIES - 1)];
+    }
+
+    /**
+     * About 5 km across: a city viewport.
+     */
+    @Benchmark
+    public List<Entity> boundingBoxSmall(RepositoryState state) {
+        double[] p = nextPoint(state);
+        return state.repository.findWithinBounds(p[0] - 0.025, p[1] - 0.025, p[0] + 0.025, p[1] + 0.025);
+    }
+
+    /**
+     * About 100 km across: a regional viewport.
+     */
+    @Benchmark
+    public List<Entity> boundingBoxLarge(RepositoryState state) {
+        double[] p = nextPoint(state);
+        return state.repository.findWithinBounds(p[0] - 0.5, p[1] - 0.5, p[0] + 0.5, p[1] + 0.5);
+    }
+
+    @Benchmark
+    public List<Entity> nearestWithin10Km(RepositoryState state) {
+        double[] p = nextPoint(state);
+        return state.repository.findNearest(p[0], p[1], 10, 50);
+    }
+}
@@ -0,0 +1,96 @@
+package com.conectividadcba.benchmarks;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.geo.PreparedPolygon;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.conectividadcba.services.DepartmentBoundaryService;
+import com.conectividadcba.services.DepartmentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic registry of any size. Points are drawn uniformly over the province's
+ * bounding box and kept only when they fall inside one of the real department polygons, so every
+ * department gets entities in proportion to its area and each entity carries the department that
+ * contains it.
+ */
+public final class SyntheticEntities {
+    static final String[] CONNECTION_TYPES = {"Fibra Optica", "Starlink", "Proveedor externo", "Satelital", "ADSL"};
+    static final String[] LEVELS = {"Inicial", "Primario", "Secundario", "Primario y Secundario",
+            "Inicial, Primario y Secundario", "Secundario Técnico", "Terciario"};
+    static final String[] SPECIALIZATIONS = {"Tecnológico", "Cultural", "Biblioteca", "Oficios", "Idiomas", "Rural"};
+
+    private static DepartmentBoundaryService boundaryService;
+
+    private SyntheticEntities() {}
+
+    /**
+     * The department polygons packaged with the backend.
+     */
+    public static List<DepartmentBoundary> boundaries() {
+        return boundaryService().getBoundaries();
+    }
+
+    public static synchronized DepartmentBoundaryService boundaryService() {
+        if (boundaryService == null) {
+            boundaryService = new DepartmentBoundaryService(new DepartmentService(), new ObjectMapper(),
+                    new ClassPathResource("geo/cordoba.json"));
+        }
+        return boundaryService;
+    }
+
+    /**
+     * {@code size} entities with ids {@code 1..size}: about one in twenty is a learning center,
+     * the rest are schools.
+     */
+    public static List<Entity> generate(int size, long seed) {
+        List<DepartmentBoundary> departments = boundaries();
+        double minLat = Double.POSITIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (DepartmentBoundary department : departments) {
+            PreparedPolygon polygon = department.getPolygon();
+            minLat = Math.min(minLat, polygon.getMinLat());
+            minLng = Math.min(minLng, polygon.getMinLng());
+            maxLat = Math.max(maxLat, polygon.getMaxLat());
+            maxLng = Math.max(maxLng, polygon.getMaxLng());
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Entity> entities = new ArrayList<>(size);
+        while (entities.size() < size) {
+            double lat = minLat + random.nextDouble() * (maxLat - minLat);
+            double lng = minLng + random.nextDouble() * (maxLng - minLng);
+            DepartmentBoundary department = null;
+            for (DepartmentBoundary candidate : departments) {
+                if (candidate.contains(lat, lng)) {
+                    department = candidate;
+                    break;
+                }
+            }
+            if (department == null) {
+                continue;
+            }
+            long id = entities.size() + 1;
+            Entity.Coordinates coordinates = new Entity.Coordinates(lat, lng);
+            String connectionType = CONNECTION_TYPES[random.nextInt(CONNECTION_TYPES.length)];
+            if (random.nextInt(20) == 0) {
+                String specialization = SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)];
+                entities.add(new LearningCenter(id, String.format("Centro %s N°%d - %s", specialization, id, department.getName()),
+                        coordinates, "Centro de aprendizaje en " + department.getName(), department.getDepartmentId(),
+                        specialization, 20 + random.nextInt(300), connectionType));
+            } else {
+                String level = LEVELS[random.nextInt(LEVELS.length)];
+                entities.add(new School(id, String.format("Escuela N°%d - %s", id, department.getName()),
+                        coordinates, "Escuela de nivel " + level.toLowerCase() + " en " + department.getName(),
+                        department.getDepartmentId(), level, 30 + random.nextInt(1200), connectionType));
+            }
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,21 @@
+package com.conectividadcba.config;
+
+import com.conectividadcba.models.Entity;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Serializes all entity properties by default; sparse fieldsets override the filter per write.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer entityFieldsFilter() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .addFilter(Entity.FIELDS_FILTER, SimpleBeanPropertyFilter.serializeAll()));
+    }
+}
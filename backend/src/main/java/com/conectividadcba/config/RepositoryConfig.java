@@ -0,0 +1,81 @@
+package com.conectividadcba.config;
+
+import com.conectividadcba.repositories.DurableEntityRepository;
+import com.conectividadcba.repositories.EntityRepository;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import com.conectividadcba.repositories.MeteredEntityRepository;
+import com.conectividadcba.repositories.MockEntityRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+public class RepositoryConfig {
+    private static final Logger log = LoggerFactory.getLogger(RepositoryConfig.class);
+
+    /**
+     * With {@code conectividad.wal.dir} set, the durable store in that directory, seeded on first
+     * use like the in-memory one. Otherwise starts from the snapshot at
+     * {@code conectividad.snapshot.path} when there is one, and from the sample data otherwise.
+     * A snapshot that exists but cannot be read fails the startup: starting from the sample data
+     * instead would overwrite it with them on shutdown.
+     */
+    @Bean
+    public IndexedEntityRepository entityRepository(@Value("${conectividad.snapshot.path:}") String snapshotPath,
+                                                    @Value("${conectividad.wal.dir:}") String walDir,
+                                                    @Value("${conectividad.wal.fsync:true}") boolean fsync,
+                                                    @Value("${conectividad.wal.compact-seconds:300}") long compactSeconds,
+                                                    @Value("${conectividad.wal.compact-bytes:67108864}") long compactBytes)
+            throws IOException {
+        if (walDir.isBlank()) {
+            return seed(snapshotPath);
+        }
+        long start = System.nanoTime();
+        DurableEntityRepository repository = DurableEntityRepository.open(Path.of(walDir), () -> {
+            try {
+                return seed(snapshotPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, fsync, compactSeconds, compactBytes);
+        log.info("Opened durable store in {} with {} entities (version {}) in {} ms", walDir,
+                repository.findAll().size(), repository.getDataVersion(), (System.nanoTime() - start) / 1_000_000);
+        return repository;
+    }
+
+    /**
+     * The repository the application reads and writes through, timing every call; the store
+     * itself stays available as {@link IndexedEntityRepository} for snapshots.
+     */
+    @Bean
+    @Primary
+    public EntityRepository meteredEntityRepository(IndexedEntityRepository entityRepository, MeterRegistry registry) {
+        return new MeteredEntityRepository(entityRepository, registry);
+    }
+
+    private static IndexedEntityRepository seed(String snapshotPath) throws IOException {
+        if (!snapshotPath.isBlank() && Files.exists(Path.of(snapshotPath))) {
+            long start = System.nanoTime();
+            IndexedEntityRepository repository;
+            try {
+                repository = IndexedEntityRepository.load(Path.of(snapshotPath));
+            } catch (IOException e) {
+                throw new IOException("Could not read snapshot " + snapshotPath
+                        + "; fix or remove it to start from the sample data", e);
+            }
+            log.info("Loaded {} entities (version {}) from {} in {} ms", repository.findAll().size(),
+                    repository.getDataVersion(), snapshotPath, (System.nanoTime() - start) / 1_000_000);
+            return repository;
+        }
+        return new MockEntityRepository();
+    }
+}
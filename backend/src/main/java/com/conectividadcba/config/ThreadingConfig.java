@@ -0,0 +1,46 @@
+package com.conectividadcba.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Reports the request execution mode. With {@code spring.threads.virtual.enabled=true} on Java 21
+ * or later, Spring Boot runs Tomcat requests and the application task executor (NDJSON streams and
+ * other async MVC work) on virtual threads; on older JVMs the property has no effect and requests
+ * stay on Tomcat's platform thread pool ({@code server.tomcat.threads.max}).
+ */
+@Configuration
+public class ThreadingConfig {
+    private static final Logger log = LoggerFactory.getLogger(ThreadingConfig.class);
+    private static final int VIRTUAL_THREADS_SINCE = 21;
+
+    private final boolean virtualRequested;
+    private final int maxPlatformThreads;
+
+    public ThreadingConfig(@Value("${spring.threads.virtual.enabled:false}") boolean virtualRequested,
+                           @Value("${server.tomcat.threads.max:200}") int maxPlatformThreads) {
+        this.virtualRequested = virtualRequested;
+        this.maxPlatformThreads = maxPlatformThreads;
+    }
+
+    boolean isVirtual() {
+        return virtualRequested && Runtime.version().feature() >= VIRTUAL_THREADS_SINCE;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void logExecutionMode() {
+        if (isVirtual()) {
+            log.info("Handling requests on virtual threads");
+        } else if (virtualRequested) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads (needs {}+); "
+                    + "handling requests on up to {} platform threads", Runtime.version().feature(),
+                    VIRTUAL_THREADS_SINCE, maxPlatformThreads);
+        } else {
+            log.info("Handling requests on up to {} platform threads", maxPlatformThreads);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.conectividadcba.config;
+
+import com.conectividadcba.web.EntityProtobufConverter;
+import com.conectividadcba.web.ResponseCacheInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final ResponseCacheInterceptor responseCacheInterceptor;
+
+    @Autowired
+    public WebConfig(ResponseCacheInterceptor responseCacheInterceptor) {
+        this.responseCacheInterceptor = responseCacheInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(responseCacheInterceptor).addPathPatterns("/api/**");
+    }
+
+    // Last, so that JSON is still chosen when the client accepts anything.
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new EntityProtobufConverter());
+    }
+}
@@ -0,0 +1,35 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.models.ConnectivityGapReport;
+import com.conectividadcba.services.ConnectivityGapService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/analysis")
+@CrossOrigin(origins = "*")
+public class AnalysisController {
+    private final ConnectivityGapService connectivityGapService;
+
+    @Autowired
+    public AnalysisController(ConnectivityGapService connectivityGapService) {
+        this.connectivityGapService = connectivityGapService;
+    }
+
+    /**
+     * Starlink and external-provider entities ranked by distance to their nearest fiber entity,
+     * each with its {@code k} nearest fiber entities, plus per-department summaries. Only the
+     * {@code limit} largest gaps are listed.
+     */
+    @GetMapping("/connectivity-gaps")
+    public ResponseEntity<ConnectivityGapReport> getConnectivityGaps(
+            @RequestParam(defaultValue = "1") int k,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (k < 1 || k > ConnectivityGapService.MAX_K || limit < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(connectivityGapService.getConnectivityGaps(k, limit));
+    }
+}
@@ -0,0 +1,37 @@
+package com.conectividadcba.controllers;
+
+final class BoundingBoxParser {
+
+    private BoundingBoxParser() {}
+
+    /**
+     * Parses {@code minLng,minLat,maxLng,maxLat}; returns null if the value is malformed or the box
+     * is empty or inverted.
+     */
+    static double[] parse(String bbox) {
+        if (bbox == null) {
+            return null;
+        }
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        for (double value : box) {
+            if (!Double.isFinite(value)) {
+                return null;
+            }
+        }
+        if (box[0] >= box[2] || box[1] >= box[3]) {
+            return null;
+        }
+        return box;
+    }
+}
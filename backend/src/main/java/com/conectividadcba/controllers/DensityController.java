@@ -0,0 +1,40 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.models.DensityGrid;
+import com.conectividadcba.repositories.EntityQuery;
+import com.conectividadcba.services.DensityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/density")
+@CrossOrigin(origins = "*")
+public class DensityController {
+    private final DensityService densityService;
+
+    @Autowired
+    public DensityController(DensityService densityService) {
+        this.densityService = densityService;
+    }
+
+    /**
+     * {@code bbox} is {@code minLng,minLat,maxLng,maxLat}, the order produced by Leaflet's
+     * {@code LatLngBounds.toBBoxString()}. Takes the criteria of {@code /api/entities/filter} to
+     * count only the matching entities.
+     */
+    @GetMapping
+    public ResponseEntity<DensityGrid> getDensity(
+            EntityQuery query,
+            @RequestParam String bbox,
+            @RequestParam(defaultValue = "100") int resolution,
+            @RequestParam(defaultValue = "1") double bandwidth) {
+
+        double[] box = BoundingBoxParser.parse(bbox);
+        if (box == null || resolution < 1 || resolution > densityService.getMaxResolution()
+                || bandwidth < 0 || bandwidth > 10) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(densityService.getDensity(query, box[1], box[0], box[3], box[2], resolution, resolution, bandwidth));
+    }
+}
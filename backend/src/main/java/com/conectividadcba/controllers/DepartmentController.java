@@ -1,10 +1,21 @@
 package com.conectividadcba.controllers;
 
+import com.conectividadcba.geo.DepartmentBoundary;
 import com.conectividadcba.models.Department;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.services.DepartmentBoundaryService;
+import com.conectividadcba.services.DepartmentGeometryService;
 import com.conectividadcba.services.DepartmentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -15,12 +26,18 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/departments")
 public class DepartmentController {
+    private static final MediaType GEO_JSON = MediaType.parseMediaType("application/geo+json");
 
     private final DepartmentService departmentService;
+    private final DepartmentBoundaryService departmentBoundaryService;
+    private final DepartmentGeometryService departmentGeometryService;
 
     @Autowired
-    public DepartmentController(DepartmentService departmentService) {
+    public DepartmentController(DepartmentService departmentService, DepartmentBoundaryService departmentBoundaryService,
+                                DepartmentGeometryService departmentGeometryService) {
         this.departmentService = departmentService;
+        this.departmentBoundaryService = departmentBoundaryService;
+        this.departmentGeometryService = departmentGeometryService;
     }
 
     @GetMapping
@@ -35,4 +52,61 @@ public class DepartmentController {
             })
             .collect(Collectors.toList());
     }
+
+    @GetMapping("/locate")
+    public ResponseEntity<Map<String, Object>> locate(@RequestParam double lat, @RequestParam double lng) {
+        return departmentBoundaryService.locate(lat, lng)
+            .map(boundary -> {
+                Map<String, Object> map = new HashMap<>();
+                map.put("id", boundary.getDepartmentId());
+                map.put("name", departmentName(boundary));
+                return map;
+            })
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/locate")
+    public List<Long> locateAll(@RequestBody List<Entity.Coordinates> coordinates) {
+        return departmentBoundaryService.locateAll(coordinates);
+    }
+
+    /**
+     * Department outlines as GeoJSON, simplified with {@code method} {@code dp} (Douglas-Peucker,
+     * which keeps every dropped position within {@code tolerance} degrees of the outline) or
+     * {@code vw} (Visvalingam-Whyatt, which drops positions whose effective area is below
+     * {@code tolerance} squared).
+     */
+    @GetMapping("/geometry")
+    public ResponseEntity<byte[]> getGeometry(
+            @RequestParam(defaultValue = "0") double tolerance,
+            @RequestParam(defaultValue = "dp") String method,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        DepartmentGeometryService.Method simplification;
+        if (method.equalsIgnoreCase("dp")) {
+            simplification = DepartmentGeometryService.Method.DOUGLAS_PEUCKER;
+        } else if (method.equalsIgnoreCase("vw")) {
+            simplification = DepartmentGeometryService.Method.VISVALINGAM;
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!(tolerance >= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return PayloadResponses.serve(departmentGeometryService.getGeometry(tolerance, simplification),
+                GEO_JSON, ifNoneMatch, acceptEncoding);
+    }
+
+    private String departmentName(DepartmentBoundary boundary) {
+        if (boundary.getDepartmentId() == null) {
+            return boundary.getName();
+        }
+        return departmentService.getAllDepartments().stream()
+            .filter(dept -> dept.getId().equals(boundary.getDepartmentId()))
+            .map(Department::getName)
+            .findFirst()
+            .orElse(boundary.getName());
+    }
 }
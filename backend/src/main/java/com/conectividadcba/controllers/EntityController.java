@@ -1,27 +1,139 @@
 package com.conectividadcba.controllers;
 
+import com.conectividadcba.models.BulkUpsertResult;
 import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.EntityChanges;
+import com.conectividadcba.models.EntityCluster;
+import com.conectividadcba.services.ClusterService;
+import com.conectividadcba.services.EntityChangeService;
+import com.conectividadcba.repositories.DuplicateEntityException;
+import com.conectividadcba.repositories.EntityCursor;
+import com.conectividadcba.repositories.EntityQuery;
+import com.conectividadcba.repositories.EntitySort;
 import com.conectividadcba.services.EntityService;
+import com.conectividadcba.web.EntityProtobufConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/entities")
 @CrossOrigin(origins = "*")
 public class EntityController {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     private final EntityService entityService;
+    private final ClusterService clusterService;
+    private final EntityChangeService entityChangeService;
+    private final ObjectWriter entityWriter;
 
     @Autowired
-    public EntityController(EntityService entityService) {
+    public EntityController(EntityService entityService, ClusterService clusterService,
+                            EntityChangeService entityChangeService, ObjectMapper objectMapper) {
         this.entityService = entityService;
+        this.clusterService = clusterService;
+        this.entityChangeService = entityChangeService;
+        this.entityWriter = objectMapper.writer();
     }
 
+    /**
+     * All entities, optionally paged and projected: {@code after} is the cursor from the previous
+     * page's {@code next} link (or the id of its last entity), {@code sort} a field name
+     * ({@code -} prefix for descending) and
+     * {@code fields} a comma-separated sparse fieldset. When more results remain, the response has
+     * a {@code Link} header with {@code rel="next"}.
+     */
     @GetMapping
-    public List<Entity> getAllEntities() {
-        return entityService.getAllEntities();
+    public ResponseEntity<MappingJacksonValue> getAllEntities(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+
+        return page(null, after, limit, sort, fields);
+    }
+
+    /**
+     * All entities as newline-delimited JSON, written while iterating the repository instead of
+     * being serialized into one buffer. Selected by {@code stream=true} or by
+     * {@code Accept: application/x-ndjson}; {@code fields} works as for the JSON array.
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllEntities(@RequestParam(required = false) String fields) {
+        Set<String> projection = null;
+        if (fields != null) {
+            projection = EntityFields.parse(fields);
+            if (projection == null) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return NdjsonResponses.stream(entityWriter.with(EntityFields.filters(projection)), entityService.getAllEntities());
+    }
+
+    @GetMapping(produces = NdjsonResponses.NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllEntitiesByAccept(@RequestParam(required = false) String fields) {
+        return streamAllEntities(fields);
+    }
+
+    /**
+     * Entities inserted, replaced or deleted after the version named by the cursor {@code since},
+     * at most one change per entity, or a {@code resync} marker when the change log no longer
+     * reaches back that far or the cursor is from another run.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<EntityChanges> getChanges(@RequestParam String since) {
+        Long version = entityChangeService.parseCursor(since);
+        if (version == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(entityChangeService.getChangesSince(version));
+    }
+
+    /**
+     * Server-Sent Events with coalesced batches of changes ({@code changes} events) from the
+     * cursor {@code since}, or from the current version when omitted; {@code resync} events ask
+     * the client to reload. Event ids are cursors, so a reconnecting {@code EventSource} resumes
+     * from its {@code Last-Event-ID}, which takes precedence over the {@code since} of the URL it
+     * reconnects to. Selected by {@code stream=true} or by {@code Accept: text/event-stream}.
+     */
+    @GetMapping(value = "/changes", params = "stream=true")
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        String from = lastEventId != null ? lastEventId : since;
+        Long version = from == null ? null : entityChangeService.parseCursor(from);
+        if (from != null && version == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(entityChangeService.subscribe(version));
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChangesByAccept(
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return streamChanges(since, lastEventId);
     }
 
     @GetMapping("/{id}")
@@ -31,6 +143,62 @@ public class EntityController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Creates an entity; the id is assigned when missing and the department is derived from the
+     * coordinates when missing.
+     */
+    @PostMapping
+    public ResponseEntity<Entity> createEntity(@RequestBody Entity entity) {
+        Entity created;
+        try {
+            created = entityService.createEntity(entity);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (DuplicateEntityException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(created.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(created);
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Entity> replaceEntity(@PathVariable Long id, @RequestBody Entity entity) {
+        if (entity.getId() != null && !entity.getId().equals(id)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return write(() -> entityService.replaceEntity(id, entity));
+    }
+
+    /**
+     * Merges the given properties into the entity, e.g. {@code {"connectionType": "Fibra"}}.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Entity> updateEntity(@PathVariable Long id, @RequestBody Map<String, Object> changes) {
+        return write(() -> entityService.updateEntity(id, changes));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteEntity(@PathVariable Long id) {
+        return entityService.deleteEntity(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Inserts or replaces the given entities by id, all in one new data version.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkUpsertResult> upsertEntities(@RequestBody List<Entity> entities) {
+        try {
+            return ResponseEntity.ok(entityService.upsertEntities(entities));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/schools")
     public List<Entity> getSchools() {
         return entityService.getSchools();
@@ -46,24 +214,164 @@ public class EntityController {
         return entityService.getAllDepartmentIds();
     }
 
+    /**
+     * Typeahead search by name: every word of {@code q} must start a word of the name, accents
+     * and case ignored. Results are ranked and accept the same {@code fields} as
+     * {@link #getAllEntities}.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<MappingJacksonValue> searchEntities(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String fields) {
+
+        Set<String> projection = null;
+        if (fields != null) {
+            projection = EntityFields.parse(fields);
+            if (projection == null) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        MappingJacksonValue body = new MappingJacksonValue(entityService.searchEntities(q, limit));
+        body.setFilters(EntityFields.filters(projection));
+        return ResponseEntity.ok(body);
+    }
+
+    @GetMapping("/bbox")
+    public ResponseEntity<List<Entity>> getEntitiesInBoundingBox(
+            @RequestParam double minLat,
+            @RequestParam double minLng,
+            @RequestParam double maxLat,
+            @RequestParam double maxLng,
+            HttpServletRequest request) {
+
+        if (minLat > maxLat || minLng > maxLng) {
+            return ResponseEntity.badRequest().build();
+        }
+        // A viewport's entities come in index order; protobuf may reorder them to encode smaller.
+        request.setAttribute(EntityProtobufConverter.UNORDERED_ATTRIBUTE, Boolean.TRUE);
+        return ResponseEntity.ok(entityService.getEntitiesInBoundingBox(minLat, minLng, maxLat, maxLng));
+    }
+
+    @GetMapping("/near")
+    public ResponseEntity<List<Entity>> getEntitiesNear(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "10") double radiusKm,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        if (radiusKm < 0 || limit < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(entityService.getEntitiesNear(lat, lng, radiusKm, limit));
+    }
+
+    @GetMapping("/clusters")
+    public ResponseEntity<List<EntityCluster>> getClusters(@RequestParam String bbox, @RequestParam int zoom) {
+        double[] box = BoundingBoxParser.parse(bbox);
+        if (box == null || zoom < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(clusterService.getClusters(box[1], box[0], box[3], box[2], zoom));
+    }
+
+    @GetMapping("/clusters/{clusterId}/entities")
+    public ResponseEntity<List<Entity>> getClusterEntities(
+            @PathVariable int clusterId,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") int offset) {
+
+        if (limit < 1 || offset < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Entity> entities = clusterService.getClusterEntities(clusterId, limit, offset);
+        if (entities.isEmpty() && offset == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(entities);
+    }
+
+    /**
+     * Entities matching all given criteria at once: {@code name}, {@code departmentId},
+     * {@code type}, {@code connectionType}, {@code level} and the inclusive ranges
+     * {@code minStudentCount}/{@code maxStudentCount} and {@code minCapacity}/{@code maxCapacity}.
+     * Takes the same {@code after}, {@code limit}, {@code sort} and {@code fields} parameters as
+     * {@link #getAllEntities}.
+     */
     @GetMapping("/filter")
-    public List<Entity> filterEntities(
-            @RequestParam(required = false) String name,
-            @RequestParam(required = false) Long departmentId,
-            @RequestParam(required = false) String type) {
-        
-        if (name != null && !name.isEmpty()) {
-            return entityService.getEntitiesByName(name);
-        } else if (departmentId != null) {
-            return entityService.getEntitiesByDepartmentId(departmentId);
-        } else if (type != null && !type.isEmpty()) {
-            if (type.equalsIgnoreCase("school")) {
-                return entityService.getSchools();
-            } else if (type.equalsIgnoreCase("learning_center")) {
-                return entityService.getLearningCenters();
+    public ResponseEntity<MappingJacksonValue> filterEntities(
+            EntityQuery query,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String fields) {
+
+        return page(query, after, limit, sort, fields);
+    }
+
+    private ResponseEntity<MappingJacksonValue> page(EntityQuery query, String after, Integer limit,
+                                                     String sort, String fields) {
+        Set<String> projection = null;
+        if (fields != null) {
+            projection = EntityFields.parse(fields);
+            if (projection == null) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            return ResponseEntity.badRequest().build();
+        }
+        String sortField = sort == null ? EntitySort.ID.getField() : sort;
+        boolean descending = sortField.startsWith("-");
+        EntitySort entitySort = EntitySort.fromField(descending ? sortField.substring(1) : sortField);
+        if (entitySort == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        EntityCursor cursor = null;
+        if (after != null) {
+            cursor = EntityCursor.parse(entitySort, after, entityService::getEntityById);
+            if (cursor == null) {
+                return ResponseEntity.badRequest().build();
             }
         }
-        
-        return entityService.getAllEntities();
+
+        List<Entity> entities;
+        String next = null;
+        if (after == null && limit == null && sort == null) {
+            // Unpaged and unsorted: insertion order, and the shared list when nothing is filtered.
+            entities = query == null ? entityService.getAllEntities() : entityService.findEntities(query);
+        } else {
+            int pageSize = limit == null ? Integer.MAX_VALUE - 1 : limit;
+            entities = entityService.getEntityPage(query, entitySort, descending, cursor, pageSize + 1);
+            if (entities.size() > pageSize) {
+                entities = entities.subList(0, pageSize);
+                EntityCursor last = EntityCursor.after(entitySort, entities.get(pageSize - 1));
+                next = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("after", last.encode(entitySort))
+                        .build()
+                        .toUriString();
+            }
+        }
+
+        MappingJacksonValue body = new MappingJacksonValue(entities);
+        body.setFilters(EntityFields.filters(projection));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (next != null) {
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(body);
+    }
+
+    private static ResponseEntity<Entity> write(Supplier<Optional<Entity>> update) {
+        try {
+            return update.get()
+                    .map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 }
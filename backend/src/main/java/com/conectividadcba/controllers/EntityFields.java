@@ -0,0 +1,42 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.models.Entity;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+final class EntityFields {
+    private static final Set<String> KNOWN = Set.of(
+            "id", "name", "type", "coordinates", "description", "departmentId", "connectionType",
+            "level", "studentCount", "specialization", "capacity");
+
+    private EntityFields() {}
+
+    /**
+     * Parses a sparse fieldset such as {@code id,coordinates,connectionType}; returns null if it is
+     * empty or names a property entities do not have.
+     */
+    static Set<String> parse(String fields) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!KNOWN.contains(name)) {
+                return null;
+            }
+            result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * Filters for serializing only {@code fields}, or every property when null.
+     */
+    static FilterProvider filters(Set<String> fields) {
+        return new SimpleFilterProvider().addFilter(Entity.FIELDS_FILTER, fields == null
+                ? SimpleBeanPropertyFilter.serializeAll()
+                : SimpleBeanPropertyFilter.filterOutAllExcept(fields));
+    }
+}
@@ -0,0 +1,56 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.importer.ImportFormat;
+import com.conectividadcba.models.ImportReport;
+import com.conectividadcba.services.ImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping("/api/import")
+@CrossOrigin(origins = "*")
+public class ImportController {
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Imports an uploaded CSV or GeoJSON file. The format comes from {@code format} or else from
+     * the file name; {@code dryRun=true} only validates. Rejected rows are listed in the report
+     * and do not fail the request.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportReport> importFile(
+            @RequestParam MultipartFile file,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean dryRun) throws IOException {
+
+        ImportFormat importFormat = format != null
+                ? ImportFormat.fromName(format)
+                : ImportFormat.fromFileName(file.getOriginalFilename());
+        if (importFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Spooled to disk so that the importer can map it.
+        Path upload = Files.createTempFile("import-", importFormat.getExtension());
+        try {
+            file.transferTo(upload);
+            return ResponseEntity.ok(importService.importFile(upload, importFormat, dryRun));
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return ResponseEntity.badRequest().build();
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.models.Catchment;
+import com.conectividadcba.models.NearestLearningCenter;
+import com.conectividadcba.services.CatchmentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/learning-centers")
+@CrossOrigin(origins = "*")
+public class LearningCenterController {
+    private final CatchmentService catchmentService;
+
+    @Autowired
+    public LearningCenterController(CatchmentService catchmentService) {
+        this.catchmentService = catchmentService;
+    }
+
+    /**
+     * The part of the province closer to this learning center than to any other, as a GeoJSON
+     * MultiPolygon, with the schools inside it.
+     */
+    @GetMapping("/{id}/catchment")
+    public ResponseEntity<Catchment> getCatchment(@PathVariable Long id) {
+        return catchmentService.getCatchment(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The learning center that serves the given point, i.e. the nearest one.
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<NearestLearningCenter> getNearest(@RequestParam double lat, @RequestParam double lng) {
+        if (!(Math.abs(lat) <= 90) || !(Math.abs(lng) <= 180)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return catchmentService.getNearest(lat, lng)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
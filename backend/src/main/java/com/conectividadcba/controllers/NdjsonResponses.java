@@ -0,0 +1,41 @@
+package com.conectividadcba.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+final class NdjsonResponses {
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    // Items written between explicit flushes, so the first bytes leave early.
+    private static final int FLUSH_EVERY = 256;
+
+    private NdjsonResponses() {}
+
+    /**
+     * Writes one JSON document per line straight to the response as {@code items} is iterated;
+     * nothing is buffered beyond the servlet's own output buffer.
+     */
+    static ResponseEntity<StreamingResponseBody> stream(ObjectWriter writer, Iterable<?> items) {
+        // On by default, it would flush after every item and leave FLUSH_EVERY without effect.
+        ObjectWriter itemWriter = writer.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = itemWriter.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                int written = 0;
+                for (Object item : items) {
+                    itemWriter.writeValue(generator, item);
+                    generator.writeRaw('\n');
+                    if (++written % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
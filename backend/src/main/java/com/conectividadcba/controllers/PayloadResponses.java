@@ -0,0 +1,36 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.util.CompressedPayload;
+import com.conectividadcba.util.HttpCaching;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+final class PayloadResponses {
+
+    private PayloadResponses() {}
+
+    /**
+     * Serves a precomputed payload: 304 when {@code If-None-Match} already names the representation
+     * the client would get, otherwise the gzip bytes when the client accepts them and the plain
+     * bytes if not.
+     */
+    static ResponseEntity<byte[]> serve(CompressedPayload payload, MediaType contentType,
+                                        String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = HttpCaching.acceptsGzip(acceptEncoding);
+        String eTag = gzip ? payload.getGzipETag() : payload.getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (HttpCaching.matches(ifNoneMatch, eTag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(contentType);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(payload.getGzipBody(), headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(payload.getBody(), headers, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,23 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.models.EntityStats;
+import com.conectividadcba.services.StatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/stats")
+@CrossOrigin(origins = "*")
+public class StatsController {
+    private final StatsService statsService;
+
+    @Autowired
+    public StatsController(StatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    @GetMapping
+    public EntityStats getStats() {
+        return statsService.getStats();
+    }
+}
@@ -0,0 +1,24 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.repositories.EntityStoreUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers every write the entity store could not make durable with 503, whichever endpoint
+ * made it.
+ */
+@RestControllerAdvice
+public class StoreUnavailableHandler {
+    private static final Logger log = LoggerFactory.getLogger(StoreUnavailableHandler.class);
+
+    @ExceptionHandler(EntityStoreUnavailableException.class)
+    public ResponseEntity<Void> storeUnavailable(EntityStoreUnavailableException e) {
+        log.error("Entity store unavailable", e);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+}
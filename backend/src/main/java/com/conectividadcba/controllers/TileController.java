@@ -0,0 +1,33 @@
+package com.conectividadcba.controllers;
+
+import com.conectividadcba.services.TileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/tiles")
+@CrossOrigin(origins = "*")
+public class TileController {
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final TileService tileService;
+
+    @Autowired
+    public TileController(TileService tileService) {
+        this.tileService = tileService;
+    }
+
+    @GetMapping("/{z}/{x}/{y}.mvt")
+    public ResponseEntity<byte[]> getTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        if (z < 0 || z > TileService.MAX_ZOOM || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z)) {
+            return ResponseEntity.badRequest().build();
+        }
+        byte[] tile = tileService.getTile(z, x, y);
+        if (tile.length == 0) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok().contentType(MVT).body(tile);
+    }
+}
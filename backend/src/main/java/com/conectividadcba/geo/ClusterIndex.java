@@ -0,0 +1,252 @@
+package com.conectividadcba.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical point clustering in the style of supercluster. Points are projected to Web
+ * Mercator and greedily merged zoom by zoom, from {@code maxZoom} down to {@code minZoom}, each
+ * level holding its own k-d tree. A viewport query is then a range search in the tree of a single
+ * zoom level. Every point carries a small category code (e.g. a dictionary-encoded connection type)
+ * and clusters keep per-category counts.
+ */
+public final class ClusterIndex {
+    private final int minZoom;
+    private final int maxZoom;
+    private final double radius;
+    private final double extent;
+    private final int categoryCount;
+    private final int numPoints;
+    private final List<List<Cluster>> levels = new ArrayList<>();
+    private final List<KdTree> trees = new ArrayList<>();
+
+    /**
+     * @param categories    category code per point, in {@code [0, categoryCount)}, or -1 for none
+     * @param radiusPixels  cluster radius in pixels, relative to {@code extent}
+     * @param extent        tile extent in pixels
+     */
+    public ClusterIndex(double[] lats, double[] lngs, int[] categories, int categoryCount,
+                        int radiusPixels, int extent, int minZoom, int maxZoom) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.radius = radiusPixels;
+        this.extent = extent;
+        this.categoryCount = categoryCount;
+        this.numPoints = lats.length;
+        for (int z = 0; z <= maxZoom + 1; z++) {
+            levels.add(List.of());
+            trees.add(null);
+        }
+
+        List<Cluster> points = new ArrayList<>();
+        for (int i = 0; i < lats.length; i++) {
+            if (Double.isNaN(lats[i]) || Double.isNaN(lngs[i])) {
+                continue;
+            }
+            int[] counts = new int[categoryCount];
+            if (categories[i] >= 0) {
+                counts[categories[i]] = 1;
+            }
+            points.add(new Cluster(WebMercator.lngToX(lngs[i]), WebMercator.latToY(lats[i]), i, 1, counts, false));
+        }
+        setLevel(maxZoom + 1, points);
+
+        for (int z = maxZoom; z >= minZoom; z--) {
+            setLevel(z, cluster(levels.get(z + 1), trees.get(z + 1), z));
+        }
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Clusters and unclustered points visible in the box at the given zoom. Above {@code maxZoom}
+     * every result is a single point.
+     */
+    public List<Cluster> getClusters(double minLat, double minLng, double maxLat, double maxLng, int zoom) {
+        int z = Math.max(minZoom, Math.min(zoom, maxZoom + 1));
+        List<Cluster> level = levels.get(z);
+        List<Cluster> result = new ArrayList<>();
+        trees.get(z).range(WebMercator.lngToX(minLng), WebMercator.latToY(maxLat),
+                WebMercator.lngToX(maxLng), WebMercator.latToY(minLat), i -> result.add(level.get(i)));
+        return result;
+    }
+
+    /**
+     * Direct children of a cluster, one zoom level below where it was formed; empty if the id does
+     * not name a cluster.
+     */
+    public List<Cluster> getChildren(int clusterId) {
+        int originId = originId(clusterId);
+        int originZoom = originZoom(clusterId);
+        if (originZoom < minZoom + 1 || originZoom > maxZoom + 1 || originId >= levels.get(originZoom).size()) {
+            return List.of();
+        }
+        List<Cluster> level = levels.get(originZoom);
+        Cluster origin = level.get(originId);
+        double r = radius / (extent * Math.pow(2, originZoom - 1));
+        List<Cluster> children = new ArrayList<>();
+        trees.get(originZoom).within(origin.x, origin.y, r, i -> {
+            Cluster candidate = level.get(i);
+            if (candidate.parentId == clusterId) {
+                children.add(candidate);
+            }
+        });
+        return children;
+    }
+
+    /**
+     * Point ids of the cluster's leaves, skipping the first {@code offset} and returning at most
+     * {@code limit}.
+     */
+    public List<Integer> getLeaves(int clusterId, int limit, int offset) {
+        List<Integer> leaves = new ArrayList<>();
+        appendLeaves(leaves, clusterId, limit, offset, 0);
+        return leaves;
+    }
+
+    /**
+     * Lowest zoom at which the cluster splits into more than one child.
+     */
+    public int getExpansionZoom(int clusterId) {
+        int zoom = originZoom(clusterId) - 1;
+        while (zoom <= maxZoom) {
+            List<Cluster> children = getChildren(clusterId);
+            zoom++;
+            if (children.size() != 1 || !children.get(0).cluster) {
+                break;
+            }
+            clusterId = children.get(0).id;
+        }
+        return zoom;
+    }
+
+    private int appendLeaves(List<Integer> result, int clusterId, int limit, int offset, int skipped) {
+        for (Cluster child : getChildren(clusterId)) {
+            if (child.cluster) {
+                if (skipped + child.numPoints <= offset) {
+                    skipped += child.numPoints;
+                } else {
+                    skipped = appendLeaves(result, child.id, limit, offset, skipped);
+                }
+            } else if (skipped < offset) {
+                skipped++;
+            } else {
+                result.add(child.id);
+            }
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return skipped;
+    }
+
+    private List<Cluster> cluster(List<Cluster> points, KdTree tree, int zoom) {
+        double r = radius / (extent * Math.pow(2, zoom));
+        List<Cluster> clusters = new ArrayList<>();
+        List<Integer> neighbors = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            Cluster p = points.get(i);
+            if (p.zoom <= zoom) {
+                continue;
+            }
+            p.zoom = zoom;
+
+            neighbors.clear();
+            tree.within(p.x, p.y, r, neighbors::add);
+            int count = p.numPoints;
+            for (int n : neighbors) {
+                Cluster b = points.get(n);
+                if (b.zoom > zoom) {
+                    count += b.numPoints;
+                }
+            }
+
+            if (count == p.numPoints) {
+                clusters.add(p);
+                continue;
+            }
+
+            double wx = p.x * p.numPoints;
+            double wy = p.y * p.numPoints;
+            int[] counts = p.categoryCounts.clone();
+            int id = (i << 5) + (zoom + 1) + numPoints;
+            for (int n : neighbors) {
+                Cluster b = points.get(n);
+                if (b.zoom <= zoom) {
+                    continue;
+                }
+                b.zoom = zoom;
+                wx += b.x * b.numPoints;
+                wy += b.y * b.numPoints;
+                for (int c = 0; c < categoryCount; c++) {
+                    counts[c] += b.categoryCounts[c];
+                }
+                b.parentId = id;
+            }
+            p.parentId = id;
+            clusters.add(new Cluster(wx / count, wy / count, id, count, counts, true));
+        }
+        return clusters;
+    }
+
+    private void setLevel(int zoom, List<Cluster> clusters) {
+        double[] xs = new double[clusters.size()];
+        double[] ys = new double[clusters.size()];
+        for (int i = 0; i < clusters.size(); i++) {
+            xs[i] = clusters.get(i).x;
+            ys[i] = clusters.get(i).y;
+        }
+        levels.set(zoom, clusters);
+        trees.set(zoom, new KdTree(xs, ys));
+    }
+
+    private int originId(int clusterId) {
+        return (clusterId - numPoints) >> 5;
+    }
+
+    private int originZoom(int clusterId) {
+        return (clusterId - numPoints) % 32;
+    }
+
+    /**
+     * Either a cluster ({@link #isCluster()}, {@link #getId()} is the cluster id) or a single point
+     * ({@link #getId()} is the point's index in the input arrays).
+     */
+    public static final class Cluster {
+        private final double x;
+        private final double y;
+        private final int id;
+        private final int numPoints;
+        private final int[] categoryCounts;
+        private final boolean cluster;
+        private int zoom = Integer.MAX_VALUE;
+        private int parentId = -1;
+
+        private Cluster(double x, double y, int id, int numPoints, int[] categoryCounts, boolean cluster) {
+            this.x = x;
+            this.y = y;
+            this.id = id;
+            this.numPoints = numPoints;
+            this.categoryCounts = categoryCounts;
+            this.cluster = cluster;
+        }
+
+        public boolean isCluster() { return cluster; }
+
+        public int getId() { return id; }
+
+        public int getNumPoints() { return numPoints; }
+
+        public double getLat() { return WebMercator.yToLat(y); }
+
+        public double getLng() { return WebMercator.xToLng(x); }
+
+        public int getCategoryCount(int category) { return categoryCounts[category]; }
+    }
+}
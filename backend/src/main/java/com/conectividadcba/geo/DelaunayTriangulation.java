@@ -0,0 +1,415 @@
+package com.conectividadcba.geo;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Planar Delaunay triangulation built one point at a time (Lawson's algorithm: split the
+ * triangle that contains the point, then flip edges until every triangle passes the in-circle
+ * test), so adding a point only touches the triangles around it. Triangles live in flat
+ * half-edge arrays: half-edge {@code e} starts at vertex {@code triangles[e]}, belongs to triangle
+ * {@code e / 3}, and {@code halfedges[e]} is its twin in the neighbouring triangle.
+ *
+ * <p>Three far-away vertices enclose the given extent, so every added point lies inside the
+ * triangulation and has a bounded Voronoi cell. They are hidden from callers: vertex ids are the
+ * positions of the points in the order they were added. Not thread-safe.
+ *
+ * <p>The orientation and in-circle tests are exact: a floating-point result too close to zero to
+ * trust its sign (Shewchuk's error bounds) is computed again in {@link BigDecimal}, so collinear
+ * and cocircular points, as on a grid, neither corrupt the triangulation nor send the point
+ * location in circles. Point location still gives up walking after as many steps as there are
+ * triangles and scans them all instead.
+ */
+public final class DelaunayTriangulation {
+    private static final int SUPER = 3;
+    // Distance of the enclosing vertices, in extents; far enough that no point of the extent is
+    // closer to them than to an added point.
+    private static final double SUPER_SCALE = 100;
+    private static final double EPSILON = Math.ulp(1.0) / 2;
+    private static final double ORIENT_BOUND = (3 + 16 * EPSILON) * EPSILON;
+    private static final double IN_CIRCLE_BOUND = (10 + 96 * EPSILON) * EPSILON;
+
+    private double[] coords;
+    private int[] outgoing;
+    private int vertexCount;
+    private int[] triangles;
+    private int[] halfedges;
+    private int triangleCount;
+    private int[] stack = new int[64];
+    private int lastTriangle;
+    // Steps a point location walks before scanning every triangle; 0 for as many as there are.
+    private final int maxWalk;
+
+    public DelaunayTriangulation(double minX, double minY, double maxX, double maxY) {
+        this(minX, minY, maxX, maxY, 0);
+    }
+
+    DelaunayTriangulation(double minX, double minY, double maxX, double maxY, int maxWalk) {
+        this.maxWalk = maxWalk;
+        double cx = (minX + maxX) / 2;
+        double cy = (minY + maxY) / 2;
+        double r = Math.max(Math.max(maxX - minX, maxY - minY), 1) * SUPER_SCALE;
+        coords = new double[2 * 16];
+        outgoing = new int[16];
+        triangles = new int[3 * 32];
+        halfedges = new int[3 * 32];
+        addVertex(cx - 2 * r, cy - r);
+        addVertex(cx + 2 * r, cy - r);
+        addVertex(cx, cy + 2 * r);
+        setTriangle(newTriangle(), 0, 1, 2, -1, -1, -1);
+    }
+
+    /**
+     * Number of added points, duplicates excluded.
+     */
+    public int size() {
+        return vertexCount - SUPER;
+    }
+
+    public double x(int vertex) {
+        return coords[2 * (vertex + SUPER)];
+    }
+
+    public double y(int vertex) {
+        return coords[2 * (vertex + SUPER) + 1];
+    }
+
+    /**
+     * Adds a point and returns its vertex id, or the id of the vertex already at the same position.
+     * The search for the triangle that contains it starts where the previous point went, which
+     * suits points added in a spatially coherent order.
+     */
+    public int add(double x, double y) {
+        return insert(x, y, lastTriangle);
+    }
+
+    /**
+     * Like {@link #add(double, double)}, starting the search at {@code near}, a vertex close to the
+     * point.
+     */
+    public int add(double x, double y, int near) {
+        return insert(x, y, outgoing[near + SUPER] / 3);
+    }
+
+    private int insert(double x, double y, int start) {
+        int e = locate(x, y, start);
+        int t = e / 3;
+        for (int i = 0; i < 3; i++) {
+            int v = triangles[3 * t + i];
+            if (coords[2 * v] == x && coords[2 * v + 1] == y) {
+                return v - SUPER;
+            }
+        }
+        int p = addVertex(x, y);
+        int a = triangles[e];
+        int b = triangles[next(e)];
+        if (orient(a, b, p) == 0 && halfedges[e] != -1) {
+            splitEdge(e, p);
+        } else {
+            splitTriangle(t, p);
+        }
+        return p - SUPER;
+    }
+
+    /**
+     * Calls {@code visitor} with the Delaunay neighbours of a vertex, counter-clockwise. The
+     * enclosing vertices are skipped.
+     */
+    public void neighbors(int vertex, IntConsumer visitor) {
+        int start = outgoing[vertex + SUPER];
+        int e = start;
+        do {
+            int neighbor = triangles[next(e)];
+            if (neighbor >= SUPER) {
+                visitor.accept(neighbor - SUPER);
+            }
+            e = halfedges[prev(e)];
+        } while (e != start && e != -1);
+    }
+
+    /**
+     * The Voronoi cell of a vertex as a flat counter-clockwise {@code [x0, y0, x1, y1, ...]}
+     * ring: the circumcenters of the triangles around it.
+     */
+    public double[] cell(int vertex) {
+        int start = outgoing[vertex + SUPER];
+        double[] ring = new double[16];
+        int n = 0;
+        int e = start;
+        do {
+            if (n + 2 > ring.length) {
+                ring = Arrays.copyOf(ring, ring.length * 2);
+            }
+            circumcenter(e / 3, ring, n);
+            n += 2;
+            e = halfedges[prev(e)];
+        } while (e != start && e != -1);
+        return Arrays.copyOf(ring, n);
+    }
+
+    /**
+     * The vertex nearest to {@code (x, y)}, found by walking from {@code start} to ever closer
+     * Delaunay neighbours. In a Delaunay triangulation a vertex that is not the nearest always
+     * has a nearer neighbour, so the walk cannot get stuck; a good start keeps it short.
+     */
+    public int nearest(double x, double y, int start) {
+        if (size() == 0) {
+            return -1;
+        }
+        int current = start + SUPER;
+        double best = distance2(current, x, y);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int first = outgoing[current];
+            int e = first;
+            do {
+                int neighbor = triangles[next(e)];
+                if (neighbor >= SUPER) {
+                    double d = distance2(neighbor, x, y);
+                    if (d < best) {
+                        best = d;
+                        current = neighbor;
+                        moved = true;
+                        break;
+                    }
+                }
+                e = halfedges[prev(e)];
+            } while (e != first && e != -1);
+        }
+        return current - SUPER;
+    }
+
+    // Walks from triangle t towards the point; returns a half-edge of the triangle that contains
+    // it, the edge the point lies on if it lies on one.
+    private int locate(double x, double y, int t) {
+        int steps = 0;
+        int limit = maxWalk > 0 ? maxWalk : triangleCount;
+        walk:
+        while (steps <= limit) {
+            // Starting at a different edge each step keeps the walk from cycling.
+            int offset = steps++ % 3;
+            int onEdge = -1;
+            for (int i = 0; i < 3; i++) {
+                int e = 3 * t + (i + offset) % 3;
+                double o = orient(triangles[e], triangles[next(e)], x, y);
+                if (o < 0 && halfedges[e] != -1) {
+                    t = halfedges[e] / 3;
+                    continue walk;
+                }
+                if (o == 0) {
+                    onEdge = e;
+                }
+            }
+            lastTriangle = t;
+            return onEdge >= 0 ? onEdge : 3 * t;
+        }
+        return scan(x, y);
+    }
+
+    // The same answer as the walk, by testing every triangle.
+    private int scan(double x, double y) {
+        triangles:
+        for (int t = 0; t < triangleCount; t++) {
+            int onEdge = -1;
+            for (int e = 3 * t; e < 3 * t + 3; e++) {
+                double o = orient(triangles[e], triangles[next(e)], x, y);
+                if (o < 0 && halfedges[e] != -1) {
+                    continue triangles;
+                }
+                if (o == 0) {
+                    onEdge = e;
+                }
+            }
+            lastTriangle = t;
+            return onEdge >= 0 ? onEdge : 3 * t;
+        }
+        throw new IllegalStateException("No triangle contains (" + x + ", " + y + ")");
+    }
+
+    private void splitTriangle(int t, int p) {
+        int a = triangles[3 * t], b = triangles[3 * t + 1], c = triangles[3 * t + 2];
+        int ab = halfedges[3 * t], bc = halfedges[3 * t + 1], ca = halfedges[3 * t + 2];
+        int t1 = newTriangle();
+        int t2 = newTriangle();
+        setTriangle(t, a, b, p, ab, -1, -1);
+        setTriangle(t1, b, c, p, bc, -1, -1);
+        setTriangle(t2, c, a, p, ca, -1, -1);
+        link(3 * t + 1, 3 * t1 + 2);
+        link(3 * t1 + 1, 3 * t2 + 2);
+        link(3 * t2 + 1, 3 * t + 2);
+        legalize(3 * t);
+        legalize(3 * t1);
+        legalize(3 * t2);
+    }
+
+    // The point lies on edge e (a to b) shared by triangles abc and bad: both become two.
+    private void splitEdge(int e, int p) {
+        int f = halfedges[e];
+        int t = e / 3, u = f / 3;
+        int a = triangles[e], b = triangles[next(e)], c = triangles[prev(e)], d = triangles[prev(f)];
+        int bc = halfedges[next(e)], ca = halfedges[prev(e)];
+        int ad = halfedges[next(f)], db = halfedges[prev(f)];
+        int t3 = newTriangle();
+        int t4 = newTriangle();
+        setTriangle(t, c, a, p, ca, -1, -1);
+        setTriangle(u, b, c, p, bc, -1, -1);
+        setTriangle(t3, a, d, p, ad, -1, -1);
+        setTriangle(t4, d, b, p, db, -1, -1);
+        link(3 * t + 1, 3 * t3 + 2);
+        link(3 * t + 2, 3 * u + 1);
+        link(3 * u + 2, 3 * t4 + 1);
+        link(3 * t3 + 1, 3 * t4 + 2);
+        legalize(3 * t);
+        legalize(3 * u);
+        legalize(3 * t3);
+        legalize(3 * t4);
+    }
+
+    // Every edge on the stack is the first half-edge of a triangle whose third vertex is the new
+    // point; flipping it keeps that shape for the two edges it exposes.
+    private void legalize(int edge) {
+        int top = 0;
+        stack[top++] = edge;
+        while (top > 0) {
+            int e = stack[--top];
+            int f = halfedges[e];
+            if (f == -1) {
+                continue;
+            }
+            int t = e / 3, u = f / 3;
+            int a = triangles[e], b = triangles[e + 1], p = triangles[e + 2];
+            int d = triangles[prev(f)];
+            if (!inCircle(a, b, p, d)) {
+                continue;
+            }
+            int bp = halfedges[e + 1], pa = halfedges[e + 2];
+            int ad = halfedges[next(f)], db = halfedges[prev(f)];
+            setTriangle(t, a, d, p, ad, -1, pa);
+            setTriangle(u, d, b, p, db, bp, -1);
+            link(3 * t + 1, 3 * u + 2);
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[top++] = 3 * t;
+            stack[top++] = 3 * u;
+        }
+    }
+
+    private int addVertex(double x, double y) {
+        if (vertexCount == outgoing.length) {
+            outgoing = Arrays.copyOf(outgoing, vertexCount * 2);
+            coords = Arrays.copyOf(coords, vertexCount * 4);
+        }
+        coords[2 * vertexCount] = x;
+        coords[2 * vertexCount + 1] = y;
+        return vertexCount++;
+    }
+
+    private int newTriangle() {
+        if (3 * triangleCount == triangles.length) {
+            triangles = Arrays.copyOf(triangles, triangles.length * 2);
+            halfedges = Arrays.copyOf(halfedges, halfedges.length * 2);
+        }
+        return triangleCount++;
+    }
+
+    private void setTriangle(int t, int i0, int i1, int i2, int h0, int h1, int h2) {
+        triangles[3 * t] = i0;
+        triangles[3 * t + 1] = i1;
+        triangles[3 * t + 2] = i2;
+        outgoing[i0] = 3 * t;
+        outgoing[i1] = 3 * t + 1;
+        outgoing[i2] = 3 * t + 2;
+        link(3 * t, h0);
+        link(3 * t + 1, h1);
+        link(3 * t + 2, h2);
+        lastTriangle = t;
+    }
+
+    private void link(int e, int twin) {
+        halfedges[e] = twin;
+        if (twin != -1) {
+            halfedges[twin] = e;
+        }
+    }
+
+    private void circumcenter(int t, double[] out, int offset) {
+        int a = triangles[3 * t], b = triangles[3 * t + 1], c = triangles[3 * t + 2];
+        double ax = coords[2 * a], ay = coords[2 * a + 1];
+        double bx = coords[2 * b] - ax, by = coords[2 * b + 1] - ay;
+        double cx = coords[2 * c] - ax, cy = coords[2 * c + 1] - ay;
+        double bl = bx * bx + by * by;
+        double cl = cx * cx + cy * cy;
+        double d = 0.5 / (bx * cy - by * cx);
+        out[offset] = ax + (cy * bl - by * cl) * d;
+        out[offset + 1] = ay + (bx * cl - cx * bl) * d;
+    }
+
+    private double orient(int a, int b, int c) {
+        return orient(a, b, coords[2 * c], coords[2 * c + 1]);
+    }
+
+    // Positive when (x, y) is left of a to b, zero when exactly on the line.
+    private double orient(int a, int b, double x, double y) {
+        double ax = coords[2 * a], ay = coords[2 * a + 1];
+        double bx = coords[2 * b], by = coords[2 * b + 1];
+        double left = (bx - ax) * (y - ay);
+        double right = (by - ay) * (x - ax);
+        double det = left - right;
+        if (Math.abs(det) > ORIENT_BOUND * (Math.abs(left) + Math.abs(right))) {
+            return det;
+        }
+        BigDecimal exact = exact(bx, ax).multiply(exact(y, ay)).subtract(exact(by, ay).multiply(exact(x, ax)));
+        return exact.signum();
+    }
+
+    // True when d lies strictly inside the circumcircle of the counter-clockwise triangle abp.
+    private boolean inCircle(int a, int b, int p, int d) {
+        double dx = coords[2 * d], dy = coords[2 * d + 1];
+        double ax = coords[2 * a] - dx, ay = coords[2 * a + 1] - dy;
+        double bx = coords[2 * b] - dx, by = coords[2 * b + 1] - dy;
+        double px = coords[2 * p] - dx, py = coords[2 * p + 1] - dy;
+        double bxpy = bx * py, pxby = px * by;
+        double pxay = px * ay, axpy = ax * py;
+        double axby = ax * by, bxay = bx * ay;
+        double al = ax * ax + ay * ay;
+        double bl = bx * bx + by * by;
+        double pl = px * px + py * py;
+        double det = al * (bxpy - pxby) + bl * (pxay - axpy) + pl * (axby - bxay);
+        double permanent = (Math.abs(bxpy) + Math.abs(pxby)) * al + (Math.abs(pxay) + Math.abs(axpy)) * bl
+                + (Math.abs(axby) + Math.abs(bxay)) * pl;
+        if (Math.abs(det) > IN_CIRCLE_BOUND * permanent) {
+            return det > 0;
+        }
+        BigDecimal eax = exact(coords[2 * a], dx), eay = exact(coords[2 * a + 1], dy);
+        BigDecimal ebx = exact(coords[2 * b], dx), eby = exact(coords[2 * b + 1], dy);
+        BigDecimal epx = exact(coords[2 * p], dx), epy = exact(coords[2 * p + 1], dy);
+        BigDecimal eal = eax.multiply(eax).add(eay.multiply(eay));
+        BigDecimal ebl = ebx.multiply(ebx).add(eby.multiply(eby));
+        BigDecimal epl = epx.multiply(epx).add(epy.multiply(epy));
+        return eal.multiply(ebx.multiply(epy).subtract(epx.multiply(eby)))
+                .add(ebl.multiply(epx.multiply(eay).subtract(eax.multiply(epy))))
+                .add(epl.multiply(eax.multiply(eby).subtract(ebx.multiply(eay))))
+                .signum() > 0;
+    }
+
+    // The difference of two doubles, without rounding.
+    private static BigDecimal exact(double a, double b) {
+        return new BigDecimal(a).subtract(new BigDecimal(b));
+    }
+
+    private double distance2(int v, double x, double y) {
+        double dx = coords[2 * v] - x, dy = coords[2 * v + 1] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static int next(int e) {
+        return e % 3 == 2 ? e - 2 : e + 1;
+    }
+
+    private static int prev(int e) {
+        return e % 3 == 0 ? e + 2 : e - 1;
+    }
+}
@@ -0,0 +1,83 @@
+package com.conectividadcba.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One department polygon from the province GeoJSON. {@code departmentId} refers to the ids used by
+ * the rest of the API and is null when the feature has no matching department.
+ */
+public class DepartmentBoundary {
+    private final long featureId;
+    private final String name;
+    private final Long departmentId;
+    private final List<List<double[]>> polygons;
+    private final List<double[]> rings;
+    private final PreparedPolygon polygon;
+    private final double centroidLat;
+    private final double centroidLng;
+
+    /**
+     * @param polygons one entry per polygon of the feature, each a list of rings with the outer
+     *                 ring first
+     */
+    public DepartmentBoundary(long featureId, String name, Long departmentId, List<List<double[]>> polygons) {
+        this.featureId = featureId;
+        this.name = name;
+        this.departmentId = departmentId;
+        List<double[]> allRings = new ArrayList<>();
+        List<List<double[]>> copies = new ArrayList<>();
+        for (List<double[]> rings : polygons) {
+            copies.add(List.copyOf(rings));
+            allRings.addAll(rings);
+        }
+        this.polygons = List.copyOf(copies);
+        this.rings = List.copyOf(allRings);
+        this.polygon = new PreparedPolygon(allRings);
+
+        // Area-weighted centroid of the rings; holes wound opposite to their outer ring subtract.
+        double area = 0, cx = 0, cy = 0;
+        for (double[] ring : allRings) {
+            int n = ring.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double cross = ring[2 * j] * ring[2 * i + 1] - ring[2 * i] * ring[2 * j + 1];
+                area += cross;
+                cx += (ring[2 * j] + ring[2 * i]) * cross;
+                cy += (ring[2 * j + 1] + ring[2 * i + 1]) * cross;
+            }
+        }
+        if (area != 0) {
+            this.centroidLng = cx / (3 * area);
+            this.centroidLat = cy / (3 * area);
+        } else {
+            this.centroidLng = (polygon.getMinLng() + polygon.getMaxLng()) / 2;
+            this.centroidLat = (polygon.getMinLat() + polygon.getMaxLat()) / 2;
+        }
+    }
+
+    public long getFeatureId() { return featureId; }
+
+    public String getName() { return name; }
+
+    public Long getDepartmentId() { return departmentId; }
+
+    /**
+     * Rings as flat {@code [lng0, lat0, lng1, lat1, ...]} arrays, outer ring first.
+     */
+    public List<double[]> getRings() { return rings; }
+
+    /**
+     * The same rings grouped by polygon, as in the source geometry.
+     */
+    public List<List<double[]>> getPolygons() { return polygons; }
+
+    public PreparedPolygon getPolygon() { return polygon; }
+
+    public double getCentroidLat() { return centroidLat; }
+
+    public double getCentroidLng() { return centroidLng; }
+
+    public boolean contains(double lat, double lng) {
+        return polygon.contains(lat, lng);
+    }
+}
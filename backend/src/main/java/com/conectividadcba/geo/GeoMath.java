@@ -0,0 +1,37 @@
+package com.conectividadcba.geo;
+
+public final class GeoMath {
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private GeoMath() {}
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        return haversineToKm(haversine(lat1, lng1, lat2, lng2));
+    }
+
+    /**
+     * Haversine of the central angle between two points. It grows monotonically with distance,
+     * so it can be compared directly without the final {@code asin}.
+     */
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double cosLat1 = Math.cos(Math.toRadians(lat1));
+        double cosLat2 = Math.cos(Math.toRadians(lat2));
+        return hav(Math.toRadians(lat2 - lat1)) + cosLat1 * cosLat2 * hav(Math.toRadians(lng2 - lng1));
+    }
+
+    public static double haversineToKm(double h) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(Math.min(1, h)));
+    }
+
+    public static double kmToHaversine(double km) {
+        if (km >= Math.PI * EARTH_RADIUS_KM) {
+            return 1;
+        }
+        return hav(km / EARTH_RADIUS_KM);
+    }
+
+    static double hav(double theta) {
+        double s = Math.sin(theta / 2);
+        return s * s;
+    }
+}
@@ -0,0 +1,46 @@
+package com.conectividadcba.geo;
+
+public final class HilbertCurve {
+    public static final int ORDER = 16;
+    public static final int SIDE = 1 << ORDER;
+
+    private HilbertCurve() {}
+
+    /**
+     * Position along a Hilbert curve of order 16 of the grid cell {@code (x, y)}, where both
+     * coordinates are in {@code [0, 65535]}.
+     */
+    public static long index(int x, int y) {
+        long d = 0;
+        for (int s = SIDE >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) != 0 ? 1 : 0;
+            int ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Hilbert position of a coordinate after scaling the given extent onto the curve's grid.
+     */
+    public static long index(double x, double y, double minX, double minY, double maxX, double maxY) {
+        return index(toGrid(x, minX, maxX), toGrid(y, minY, maxY));
+    }
+
+    private static int toGrid(double value, double min, double max) {
+        if (max <= min) {
+            return 0;
+        }
+        int cell = (int) ((value - min) / (max - min) * (SIDE - 1));
+        return Math.max(0, Math.min(SIDE - 1, cell));
+    }
+}
@@ -0,0 +1,154 @@
+package com.conectividadcba.geo;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static 2D k-d tree over planar points, stored as flat arrays sorted in place. Item ids are the
+ * positions of the points in the arrays passed to the constructor.
+ */
+public final class KdTree {
+    private static final int NODE_SIZE = 64;
+
+    private final int[] ids;
+    private final double[] coords;
+
+    public KdTree(double[] xs, double[] ys) {
+        int n = xs.length;
+        this.ids = new int[n];
+        this.coords = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            coords[2 * i] = xs[i];
+            coords[2 * i + 1] = ys[i];
+        }
+        sort(0, n - 1, 0);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public void range(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        search(minX, minY, maxX, maxY, Double.NaN, Double.NaN, 0, visitor);
+    }
+
+    public void within(double qx, double qy, double r, IntConsumer visitor) {
+        search(qx - r, qy - r, qx + r, qy + r, qx, qy, r * r, visitor);
+    }
+
+    // Visits points inside the box; when qx is not NaN, only those within sqrt(r2) of (qx, qy).
+    private void search(double minX, double minY, double maxX, double maxY,
+                        double qx, double qy, double r2, IntConsumer visitor) {
+        if (ids.length == 0) {
+            return;
+        }
+        boolean radial = !Double.isNaN(qx);
+        int[] stack = new int[96];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = ids.length - 1;
+        stack[top++] = 0;
+        while (top > 0) {
+            int axis = stack[--top];
+            int right = stack[--top];
+            int left = stack[--top];
+
+            if (right - left <= NODE_SIZE) {
+                for (int i = left; i <= right; i++) {
+                    if (matches(i, minX, minY, maxX, maxY, radial, qx, qy, r2)) {
+                        visitor.accept(ids[i]);
+                    }
+                }
+                continue;
+            }
+
+            int m = (left + right) >> 1;
+            if (matches(m, minX, minY, maxX, maxY, radial, qx, qy, r2)) {
+                visitor.accept(ids[m]);
+            }
+            double x = coords[2 * m], y = coords[2 * m + 1];
+            if (top + 6 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (axis == 0 ? minX <= x : minY <= y) {
+                stack[top++] = left;
+                stack[top++] = m - 1;
+                stack[top++] = 1 - axis;
+            }
+            if (axis == 0 ? maxX >= x : maxY >= y) {
+                stack[top++] = m + 1;
+                stack[top++] = right;
+                stack[top++] = 1 - axis;
+            }
+        }
+    }
+
+    private boolean matches(int i, double minX, double minY, double maxX, double maxY,
+                            boolean radial, double qx, double qy, double r2) {
+        double x = coords[2 * i], y = coords[2 * i + 1];
+        if (radial) {
+            double dx = x - qx, dy = y - qy;
+            return dx * dx + dy * dy <= r2;
+        }
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    private void sort(int left, int right, int axis) {
+        if (right - left <= NODE_SIZE) {
+            return;
+        }
+        int m = (left + right) >> 1;
+        select(m, left, right, axis);
+        sort(left, m - 1, 1 - axis);
+        sort(m + 1, right, 1 - axis);
+    }
+
+    // Hoare-style quickselect that leaves the k-th smallest coordinate on the axis at position k.
+    private void select(int k, int left, int right, int axis) {
+        while (right > left) {
+            double t = coords[2 * k + axis];
+            int i = left;
+            int j = right;
+            swap(left, k);
+            if (coords[2 * right + axis] > t) {
+                swap(left, right);
+            }
+            while (i < j) {
+                swap(i, j);
+                i++;
+                j--;
+                while (coords[2 * i + axis] < t) {
+                    i++;
+                }
+                while (coords[2 * j + axis] > t) {
+                    j--;
+                }
+            }
+            if (coords[2 * left + axis] == t) {
+                swap(left, j);
+            } else {
+                j++;
+                swap(j, right);
+            }
+            if (j <= k) {
+                left = j + 1;
+            }
+            if (k <= j) {
+                right = j - 1;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double x = coords[2 * i];
+        coords[2 * i] = coords[2 * j];
+        coords[2 * j] = x;
+        double y = coords[2 * i + 1];
+        coords[2 * i + 1] = coords[2 * j + 1];
+        coords[2 * j + 1] = y;
+    }
+}
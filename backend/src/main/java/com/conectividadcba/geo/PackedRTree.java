@@ -0,0 +1,277 @@
+package com.conectividadcba.geo;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static R-tree over points, packed bottom-up after sorting the points along a Hilbert curve.
+ * Nodes live in flat arrays (leaf items first, root last), so the tree is cheap to build and
+ * has no per-node objects. Item ids are the caller's indexes into its own arrays.
+ */
+public final class PackedRTree {
+    private static final int NODE_SIZE = 16;
+
+    private final int numItems;
+    // minLng, minLat, maxLng, maxLat per node
+    private final double[] boxes;
+    // item id for leaf items, position of the first child for inner nodes
+    private final int[] indices;
+    private final int[] levelBounds;
+
+    /**
+     * Builds the tree over the points at positions {@code 0..lats.length-1}; points whose
+     * latitude or longitude is NaN are left out.
+     */
+    public PackedRTree(double[] lats, double[] lngs) {
+        int count = 0;
+        double minLat = Double.POSITIVE_INFINITY, minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY, maxLng = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < lats.length; i++) {
+            if (!Double.isNaN(lats[i]) && !Double.isNaN(lngs[i])) {
+                count++;
+                minLat = Math.min(minLat, lats[i]);
+                maxLat = Math.max(maxLat, lats[i]);
+                minLng = Math.min(minLng, lngs[i]);
+                maxLng = Math.max(maxLng, lngs[i]);
+            }
+        }
+        this.numItems = count;
+
+        // Sort by Hilbert value with the id packed into the low bits, avoiding a comparator. The
+        // sign bit is flipped so that unsigned 32-bit Hilbert values sort correctly as longs.
+        long[] order = new long[count];
+        int k = 0;
+        for (int i = 0; i < lats.length; i++) {
+            if (!Double.isNaN(lats[i]) && !Double.isNaN(lngs[i])) {
+                long h = HilbertCurve.index(lngs[i], lats[i], minLng, minLat, maxLng, maxLat);
+                order[k++] = ((h ^ 0x80000000L) << 32) | i;
+            }
+        }
+        Arrays.sort(order);
+
+        int[] bounds = new int[8];
+        int levels = 0;
+        int numNodes = count;
+        int levelSize = count;
+        bounds[levels++] = numNodes;
+        do {
+            levelSize = (levelSize + NODE_SIZE - 1) / NODE_SIZE;
+            numNodes += levelSize;
+            if (levels == bounds.length) {
+                bounds = Arrays.copyOf(bounds, levels * 2);
+            }
+            bounds[levels++] = numNodes;
+        } while (levelSize > 1);
+        this.levelBounds = Arrays.copyOf(bounds, levels);
+        this.boxes = new double[numNodes * 4];
+        this.indices = new int[numNodes];
+
+        for (int pos = 0; pos < count; pos++) {
+            int id = (int) order[pos];
+            indices[pos] = id;
+            setBox(pos, lngs[id], lats[id], lngs[id], lats[id]);
+        }
+
+        int nodePos = count;
+        int levelStart = 0;
+        for (int level = 0; level < levelBounds.length - 1; level++) {
+            int levelEnd = levelBounds[level];
+            for (int pos = levelStart; pos < levelEnd; pos += NODE_SIZE) {
+                double nMinX = Double.POSITIVE_INFINITY, nMinY = Double.POSITIVE_INFINITY;
+                double nMaxX = Double.NEGATIVE_INFINITY, nMaxY = Double.NEGATIVE_INFINITY;
+                int end = Math.min(pos + NODE_SIZE, levelEnd);
+                for (int child = pos; child < end; child++) {
+                    nMinX = Math.min(nMinX, boxes[4 * child]);
+                    nMinY = Math.min(nMinY, boxes[4 * child + 1]);
+                    nMaxX = Math.max(nMaxX, boxes[4 * child + 2]);
+                    nMaxY = Math.max(nMaxY, boxes[4 * child + 3]);
+                }
+                indices[nodePos] = pos;
+                setBox(nodePos++, nMinX, nMinY, nMaxX, nMaxY);
+            }
+            levelStart = levelEnd;
+        }
+    }
+
+    public int size() {
+        return numItems;
+    }
+
+    /**
+     * Calls {@code visitor} with the id of every point inside the box (edges inclusive).
+     */
+    public void search(double minLat, double minLng, double maxLat, double maxLng, IntConsumer visitor) {
+        if (numItems == 0) {
+            return;
+        }
+        int[] stack = new int[levelBounds.length * NODE_SIZE];
+        int top = 0;
+        stack[top++] = indices.length - 1;
+        while (top > 0) {
+            int node = stack[--top];
+            int childStart = indices[node];
+            int childEnd = Math.min(childStart + NODE_SIZE, childLevelEnd(node));
+            for (int child = childStart; child < childEnd; child++) {
+                if (boxes[4 * child + 2] < minLng || boxes[4 * child + 3] < minLat
+                        || boxes[4 * child] > maxLng || boxes[4 * child + 1] > maxLat) {
+                    continue;
+                }
+                if (child < numItems) {
+                    visitor.accept(indices[child]);
+                } else {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of up to {@code limit} points within {@code maxDistanceKm} great-circle
+     * distance of the query point, nearest first. Nodes are visited best-first using the exact
+     * minimum great-circle distance to their bounding box.
+     */
+    public int[] nearest(double lat, double lng, int limit, double maxDistanceKm) {
+        if (numItems == 0 || limit <= 0) {
+            return new int[0];
+        }
+        double maxHaversine = GeoMath.kmToHaversine(maxDistanceKm);
+        double cosLat = Math.cos(Math.toRadians(lat));
+        int[] result = new int[Math.min(limit, numItems)];
+        int found = 0;
+
+        Heap queue = new Heap();
+        int node = indices.length - 1;
+        while (true) {
+            if (node >= numItems) {
+                int childStart = indices[node];
+                int childEnd = Math.min(childStart + NODE_SIZE, childLevelEnd(node));
+                for (int child = childStart; child < childEnd; child++) {
+                    double distance = boxHaversine(lat, lng, cosLat, child);
+                    if (distance <= maxHaversine) {
+                        queue.push(child, distance);
+                    }
+                }
+            }
+            while (!queue.isEmpty() && queue.peek() < numItems) {
+                result[found++] = indices[queue.pop()];
+                if (found == result.length) {
+                    return result;
+                }
+            }
+            if (queue.isEmpty()) {
+                return Arrays.copyOf(result, found);
+            }
+            node = queue.pop();
+        }
+    }
+
+    private int childLevelEnd(int node) {
+        int level = 0;
+        while (levelBounds[level] <= node) {
+            level++;
+        }
+        return levelBounds[level - 1];
+    }
+
+    private void setBox(int node, double minX, double minY, double maxX, double maxY) {
+        boxes[4 * node] = minX;
+        boxes[4 * node + 1] = minY;
+        boxes[4 * node + 2] = maxX;
+        boxes[4 * node + 3] = maxY;
+    }
+
+    private double boxHaversine(double lat, double lng, double cosLat, int node) {
+        double minLng = boxes[4 * node], minLat = boxes[4 * node + 1];
+        double maxLng = boxes[4 * node + 2], maxLat = boxes[4 * node + 3];
+
+        if (lng >= minLng && lng <= maxLng) {
+            if (lat < minLat) {
+                return GeoMath.hav(Math.toRadians(minLat - lat));
+            }
+            if (lat > maxLat) {
+                return GeoMath.hav(Math.toRadians(lat - maxLat));
+            }
+            return 0;
+        }
+
+        // West or east of the box: the closest point lies on the nearer meridian edge, either at
+        // the latitude where the great circle to that meridian peaks or at one of the corners.
+        double havDLng = Math.min(GeoMath.hav(Math.toRadians(minLng - lng)), GeoMath.hav(Math.toRadians(maxLng - lng)));
+        double extremumLat = vertexLat(lat, havDLng);
+        if (extremumLat > minLat && extremumLat < maxLat) {
+            return partialHaversine(havDLng, cosLat, lat, extremumLat);
+        }
+        return Math.min(partialHaversine(havDLng, cosLat, lat, minLat), partialHaversine(havDLng, cosLat, lat, maxLat));
+    }
+
+    private static double partialHaversine(double havDLng, double cosLat1, double lat1, double lat2) {
+        return GeoMath.hav(Math.toRadians(lat2 - lat1)) + cosLat1 * Math.cos(Math.toRadians(lat2)) * havDLng;
+    }
+
+    private static double vertexLat(double lat, double havDLng) {
+        double cosDLng = 1 - 2 * havDLng;
+        if (cosDLng <= 0) {
+            return lat > 0 ? 90 : -90;
+        }
+        return Math.toDegrees(Math.atan(Math.tan(Math.toRadians(lat)) / cosDLng));
+    }
+
+    private static final class Heap {
+        private int[] values = new int[64];
+        private double[] keys = new double[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int peek() {
+            return values[0];
+        }
+
+        void push(int value, double key) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                values[pos] = values[parent];
+                keys[pos] = keys[parent];
+                pos = parent;
+            }
+            values[pos] = value;
+            keys[pos] = key;
+        }
+
+        int pop() {
+            int top = values[0];
+            int lastValue = values[--size];
+            double lastKey = keys[size];
+            int pos = 0;
+            int half = size >> 1;
+            while (pos < half) {
+                int child = 2 * pos + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                values[pos] = values[child];
+                keys[pos] = keys[child];
+                pos = child;
+            }
+            values[pos] = lastValue;
+            keys[pos] = lastKey;
+            return top;
+        }
+    }
+}
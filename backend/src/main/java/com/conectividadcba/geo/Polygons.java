@@ -0,0 +1,170 @@
+package com.conectividadcba.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operations on flat {@code [x0, y0, x1, y1, ...]} rings, implicitly closed.
+ */
+public final class Polygons {
+    private Polygons() {}
+
+    /**
+     * Signed area, positive for counter-clockwise rings.
+     */
+    public static double area(double[] ring) {
+        int n = ring.length / 2;
+        double sum = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            sum += ring[2 * j] * ring[2 * i + 1] - ring[2 * i] * ring[2 * j + 1];
+        }
+        return sum / 2;
+    }
+
+    /**
+     * The outline of rings that tile a region edge to edge, such as the departments of the
+     * province: every edge that two rings share (with the same vertices) cancels out and the rest
+     * is chained into rings. Rings smaller than {@code minArea}, slivers left by borders that do
+     * not quite match, are dropped.
+     */
+    public static List<double[]> dissolve(List<double[]> rings, double minArea) {
+        Map<Point, List<Point>> adjacent = new HashMap<>();
+        Map<Edge, Integer> counts = new HashMap<>();
+        for (double[] ring : rings) {
+            int n = ring.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                Point a = new Point(ring[2 * j], ring[2 * j + 1]);
+                Point b = new Point(ring[2 * i], ring[2 * i + 1]);
+                if (!a.equals(b)) {
+                    counts.merge(new Edge(a, b), 1, Integer::sum);
+                }
+            }
+        }
+        for (Map.Entry<Edge, Integer> edge : counts.entrySet()) {
+            if (edge.getValue() % 2 == 1) {
+                adjacent.computeIfAbsent(edge.getKey().a, p -> new ArrayList<>()).add(edge.getKey().b);
+                adjacent.computeIfAbsent(edge.getKey().b, p -> new ArrayList<>()).add(edge.getKey().a);
+            }
+        }
+
+        List<double[]> result = new ArrayList<>();
+        for (Map.Entry<Point, List<Point>> start : adjacent.entrySet()) {
+            // Each walk removes the edges it follows, so pinched outlines come out as separate rings.
+            while (!start.getValue().isEmpty()) {
+                double[] ring = new double[16];
+                int n = 0;
+                Point current = start.getKey();
+                boolean closed = true;
+                do {
+                    if (n + 2 > ring.length) {
+                        ring = Arrays.copyOf(ring, ring.length * 2);
+                    }
+                    ring[n++] = current.x;
+                    ring[n++] = current.y;
+                    List<Point> next = adjacent.get(current);
+                    if (next.isEmpty()) {
+                        // A vertex on one side of a border but not the other; the chain is open.
+                        closed = false;
+                        break;
+                    }
+                    Point to = next.remove(next.size() - 1);
+                    adjacent.get(to).remove(current);
+                    current = to;
+                } while (!current.equals(start.getKey()));
+                ring = Arrays.copyOf(ring, n);
+                if (closed && Math.abs(area(ring)) >= minArea) {
+                    result.add(ring);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clips a ring to a convex counter-clockwise ring (Sutherland-Hodgman). Parts of a concave
+     * ring that the clip separates stay joined along the clip boundary by edges that enclose no
+     * area. Returns an empty array when nothing is left.
+     */
+    public static double[] clip(double[] ring, double[] convex) {
+        double[] input = ring;
+        int n = convex.length / 2;
+        for (int i = 0, j = n - 1; i < n && input.length > 0; j = i++) {
+            double ax = convex[2 * j], ay = convex[2 * j + 1];
+            double bx = convex[2 * i], by = convex[2 * i + 1];
+            double[] output = new double[input.length + 16];
+            int size = 0;
+            int m = input.length / 2;
+            double px = input[2 * (m - 1)], py = input[2 * (m - 1) + 1];
+            double pSide = side(ax, ay, bx, by, px, py);
+            for (int k = 0; k < m; k++) {
+                double qx = input[2 * k], qy = input[2 * k + 1];
+                double qSide = side(ax, ay, bx, by, qx, qy);
+                if (size + 4 > output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                if ((qSide >= 0) != (pSide >= 0)) {
+                    double t = pSide / (pSide - qSide);
+                    output[size++] = px + t * (qx - px);
+                    output[size++] = py + t * (qy - py);
+                }
+                if (qSide >= 0) {
+                    output[size++] = qx;
+                    output[size++] = qy;
+                }
+                px = qx;
+                py = qy;
+                pSide = qSide;
+            }
+            input = Arrays.copyOf(output, size);
+        }
+        return input.length >= 6 ? input : new double[0];
+    }
+
+    // Positive when (x, y) is left of a to b.
+    private static double side(double ax, double ay, double bx, double by, double x, double y) {
+        return (bx - ax) * (y - ay) - (by - ay) * (x - ax);
+    }
+
+    private static final class Point {
+        private final double x, y;
+
+        private Point(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Point && ((Point) o).x == x && ((Point) o).y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(x) * 31 + Double.hashCode(y);
+        }
+    }
+
+    // Undirected: a and b are stored in a fixed order.
+    private static final class Edge {
+        private final Point a, b;
+
+        private Edge(Point p, Point q) {
+            boolean swap = p.x > q.x || (p.x == q.x && p.y > q.y);
+            this.a = swap ? q : p;
+            this.b = swap ? p : q;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Edge && ((Edge) o).a.equals(a) && ((Edge) o).b.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            return a.hashCode() * 31 + b.hashCode();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.conectividadcba.geo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Polygon (or multi-polygon) prepared for repeated point-in-polygon tests. Edges of all rings are
+ * bucketed into horizontal bands, so a ray cast only has to look at the edges that span the
+ * query latitude instead of every vertex. Rings are flat {@code [lng0, lat0, lng1, lat1, ...]}
+ * arrays; holes are handled by the even-odd rule.
+ */
+public final class PreparedPolygon {
+    private static final int EDGES_PER_BAND = 4;
+
+    private final double minLat, minLng, maxLat, maxLng;
+    private final double[] edges; // lng1, lat1, lng2, lat2 per edge
+    private final int edgeCount;
+    private final int bandCount;
+    private final double bandHeight;
+    private final int[] bandStart;
+    private final int[] bandEdges;
+
+    public PreparedPolygon(List<double[]> rings) {
+        int total = 0;
+        double bMinLat = Double.POSITIVE_INFINITY, bMinLng = Double.POSITIVE_INFINITY;
+        double bMaxLat = Double.NEGATIVE_INFINITY, bMaxLng = Double.NEGATIVE_INFINITY;
+        for (double[] ring : rings) {
+            total += ring.length / 2;
+            for (int i = 0; i < ring.length; i += 2) {
+                bMinLng = Math.min(bMinLng, ring[i]);
+                bMaxLng = Math.max(bMaxLng, ring[i]);
+                bMinLat = Math.min(bMinLat, ring[i + 1]);
+                bMaxLat = Math.max(bMaxLat, ring[i + 1]);
+            }
+        }
+        this.minLat = bMinLat;
+        this.minLng = bMinLng;
+        this.maxLat = bMaxLat;
+        this.maxLng = bMaxLng;
+
+        // Each ring is closed implicitly, so a ring of n vertices contributes n edges (a
+        // repeated closing vertex just yields one zero-length edge that never crosses a ray).
+        double[] e = new double[total * 4];
+        int count = 0;
+        for (double[] ring : rings) {
+            int n = ring.length / 2;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                e[4 * count] = ring[2 * i];
+                e[4 * count + 1] = ring[2 * i + 1];
+                e[4 * count + 2] = ring[2 * j];
+                e[4 * count + 3] = ring[2 * j + 1];
+                count++;
+            }
+        }
+        this.edges = e;
+        this.edgeCount = count;
+
+        this.bandCount = Math.max(1, count / EDGES_PER_BAND);
+        this.bandHeight = (maxLat - minLat) / bandCount;
+        int[] counts = new int[bandCount + 1];
+        for (int i = 0; i < count; i++) {
+            int from = band(Math.min(e[4 * i + 1], e[4 * i + 3]));
+            int to = band(Math.max(e[4 * i + 1], e[4 * i + 3]));
+            for (int b = from; b <= to; b++) {
+                counts[b + 1]++;
+            }
+        }
+        for (int b = 0; b < bandCount; b++) {
+            counts[b + 1] += counts[b];
+        }
+        this.bandStart = counts;
+        this.bandEdges = new int[counts[bandCount]];
+        int[] fill = Arrays.copyOf(counts, bandCount);
+        for (int i = 0; i < count; i++) {
+            int from = band(Math.min(e[4 * i + 1], e[4 * i + 3]));
+            int to = band(Math.max(e[4 * i + 1], e[4 * i + 3]));
+            for (int b = from; b <= to; b++) {
+                bandEdges[fill[b]++] = i;
+            }
+        }
+    }
+
+    public boolean contains(double lat, double lng) {
+        if (lat < minLat || lat > maxLat || lng < minLng || lng > maxLng) {
+            return false;
+        }
+        int b = band(lat);
+        boolean inside = false;
+        for (int k = bandStart[b]; k < bandStart[b + 1]; k++) {
+            int i = bandEdges[k];
+            double x1 = edges[4 * i], y1 = edges[4 * i + 1];
+            double x2 = edges[4 * i + 2], y2 = edges[4 * i + 3];
+            if ((y1 > lat) != (y2 > lat) && lng < (x2 - x1) * (lat - y1) / (y2 - y1) + x1) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Whether an edge may pass through the box, i.e. the bounding box of some edge overlaps it.
+     * When none does, the box is either inside the polygon or outside it as a whole.
+     */
+    public boolean edgesOverlap(double minLat, double minLng, double maxLat, double maxLng) {
+        if (maxLat < this.minLat || minLat > this.maxLat || maxLng < this.minLng || minLng > this.maxLng) {
+            return false;
+        }
+        int to = band(maxLat);
+        for (int b = band(minLat); b <= to; b++) {
+            for (int k = bandStart[b]; k < bandStart[b + 1]; k++) {
+                int i = bandEdges[k];
+                double x1 = edges[4 * i], y1 = edges[4 * i + 1];
+                double x2 = edges[4 * i + 2], y2 = edges[4 * i + 3];
+                if (Math.max(x1, x2) >= minLng && Math.min(x1, x2) <= maxLng
+                        && Math.max(y1, y2) >= minLat && Math.min(y1, y2) <= maxLat) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public double getMinLat() { return minLat; }
+    public double getMinLng() { return minLng; }
+    public double getMaxLat() { return maxLat; }
+    public double getMaxLng() { return maxLng; }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    private int band(double lat) {
+        if (bandHeight <= 0) {
+            return 0;
+        }
+        int b = (int) ((lat - minLat) / bandHeight);
+        return Math.max(0, Math.min(bandCount - 1, b));
+    }
+}
@@ -0,0 +1,149 @@
+package com.conectividadcba.geo;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Line and ring simplification over flat {@code [x0, y0, x1, y1, ...]} coordinate arrays.
+ */
+public final class Simplifier {
+
+    private Simplifier() {}
+
+    /**
+     * Douglas-Peucker simplification: keeps the end points and every vertex that lies farther than
+     * {@code tolerance} from the simplified line. Runs iteratively, so long rings cannot overflow
+     * the stack.
+     */
+    public static double[] douglasPeucker(double[] points, double tolerance) {
+        int n = points.length / 2;
+        if (n <= 2 || tolerance <= 0) {
+            return points;
+        }
+        double sqTolerance = tolerance * tolerance;
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            double maxSqDist = 0;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                double sqDist = sqSegmentDistance(points, i, first, last);
+                if (sqDist > maxSqDist) {
+                    maxSqDist = sqDist;
+                    index = i;
+                }
+            }
+            if (maxSqDist > sqTolerance) {
+                keep[index] = true;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+        int kept = 0;
+        for (boolean k : keep) {
+            if (k) {
+                kept++;
+            }
+        }
+        double[] result = new double[kept * 2];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                result[j++] = points[2 * i];
+                result[j++] = points[2 * i + 1];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visvalingam-Whyatt simplification: repeatedly removes the vertex whose triangle with its two
+     * neighbours has the smallest area, until every remaining interior vertex spans at least
+     * {@code minArea}. The end points are always kept.
+     */
+    public static double[] visvalingam(double[] points, double minArea) {
+        int n = points.length / 2;
+        if (n <= 2 || minArea <= 0) {
+            return points;
+        }
+        int[] prev = new int[n];
+        int[] next = new int[n];
+        double[] areas = new double[n];
+        // Entries are {area, vertex}; stale ones are skipped by comparing with areas[vertex].
+        PriorityQueue<double[]> queue = new PriorityQueue<>(n, (a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < n; i++) {
+            prev[i] = i - 1;
+            next[i] = i + 1;
+        }
+        for (int i = 1; i < n - 1; i++) {
+            areas[i] = triangleArea(points, i - 1, i, i + 1);
+            queue.add(new double[]{areas[i], i});
+        }
+        int kept = n;
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int i = (int) entry[1];
+            if (entry[0] != areas[i] || next[i] < 0) {
+                continue;
+            }
+            if (entry[0] >= minArea) {
+                break;
+            }
+            int p = prev[i], q = next[i];
+            next[p] = q;
+            prev[q] = p;
+            next[i] = -1;
+            kept--;
+            if (p > 0) {
+                areas[p] = triangleArea(points, prev[p], p, q);
+                queue.add(new double[]{areas[p], p});
+            }
+            if (q < n - 1) {
+                areas[q] = triangleArea(points, p, q, next[q]);
+                queue.add(new double[]{areas[q], q});
+            }
+        }
+        double[] result = new double[kept * 2];
+        int j = 0;
+        for (int i = 0; i >= 0 && i < n; i = next[i]) {
+            result[j++] = points[2 * i];
+            result[j++] = points[2 * i + 1];
+        }
+        return result;
+    }
+
+    private static double triangleArea(double[] p, int a, int b, int c) {
+        return Math.abs((p[2 * a] - p[2 * c]) * (p[2 * b + 1] - p[2 * a + 1])
+                - (p[2 * a] - p[2 * b]) * (p[2 * c + 1] - p[2 * a + 1])) / 2;
+    }
+
+    private static double sqSegmentDistance(double[] p, int i, int a, int b) {
+        double x = p[2 * a], y = p[2 * a + 1];
+        double dx = p[2 * b] - x, dy = p[2 * b + 1] - y;
+        if (dx != 0 || dy != 0) {
+            double t = ((p[2 * i] - x) * dx + (p[2 * i + 1] - y) * dy) / (dx * dx + dy * dy);
+            if (t > 1) {
+                x = p[2 * b];
+                y = p[2 * b + 1];
+            } else if (t > 0) {
+                x += dx * t;
+                y += dy * t;
+            }
+        }
+        dx = p[2 * i] - x;
+        dy = p[2 * i + 1] - y;
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,293 @@
+package com.conectividadcba.geo;
+
+import com.conectividadcba.util.ProtobufWriter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes Mapbox Vector Tiles (spec version 2). Geometries are given in tile pixel coordinates
+ * ({@code 0..extent}, y pointing down) and polygons are clipped to the tile plus a buffer here.
+ */
+public final class VectorTileEncoder {
+    private static final int POINT = 1;
+    private static final int POLYGON = 3;
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int CLOSE_PATH = 7;
+
+    private final int extent;
+    private final int buffer;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+    // Geometry commands are relative to the previous point of the same feature.
+    private int cursorX;
+    private int cursorY;
+
+    public VectorTileEncoder(int extent, int buffer) {
+        this.extent = extent;
+        this.buffer = buffer;
+    }
+
+    public void addPoint(String layer, long id, double x, double y, Map<String, Object> properties) {
+        if (x < -buffer || x > extent + buffer || y < -buffer || y > extent + buffer) {
+            return;
+        }
+        int[] geometry = {command(MOVE_TO, 1), zigZag((int) Math.round(x)), zigZag((int) Math.round(y))};
+        layer(layer).addFeature(id, POINT, geometry, geometry.length, properties);
+    }
+
+    /**
+     * Adds a polygon feature made of one or more polygons, each a list of rings given as flat
+     * {@code [x0, y0, x1, y1, ...]} arrays in tile pixels, the outer ring first. Rings are clipped,
+     * snapped to integers and re-oriented as the spec requires; a polygon whose outer ring has
+     * nothing left inside the buffered tile is dropped, and so is the feature if none remains.
+     */
+    public void addPolygon(String layer, long id, List<List<double[]>> polygons, Map<String, Object> properties) {
+        int[] geometry = new int[64];
+        int length = 0;
+        for (List<double[]> rings : polygons) {
+            boolean exterior = true;
+            for (double[] ring : rings) {
+                int[] snapped = snap(clip(ring, -buffer, -buffer, extent + buffer, extent + buffer));
+                int n = snapped.length / 2;
+                long area = n < 3 ? 0 : signedArea(snapped);
+                if (area == 0) {
+                    if (exterior) {
+                        break;
+                    }
+                    continue;
+                }
+                // Exterior rings must have positive area in tile coordinates, interior ones negative.
+                if ((area > 0) != exterior) {
+                    reverse(snapped);
+                }
+                if (length + 2 * n + 4 > geometry.length) {
+                    geometry = Arrays.copyOf(geometry, Math.max(geometry.length * 2, length + 2 * n + 4));
+                }
+                length = appendRing(geometry, length, snapped, n);
+                exterior = false;
+            }
+        }
+        if (length > 0) {
+            layer(layer).addFeature(id, POLYGON, geometry, length, properties);
+        }
+    }
+
+    public boolean isEmpty() {
+        return layers.values().stream().allMatch(l -> l.features.isEmpty());
+    }
+
+    public byte[] encode() {
+        ProtobufWriter tile = new ProtobufWriter(4096);
+        ProtobufWriter layerWriter = new ProtobufWriter(4096);
+        for (Layer layer : layers.values()) {
+            if (layer.features.isEmpty()) {
+                continue;
+            }
+            layerWriter.reset();
+            layer.writeTo(layerWriter, extent);
+            tile.writeMessage(3, layerWriter);
+        }
+        return tile.toByteArray();
+    }
+
+    private int appendRing(int[] geometry, int length, int[] ring, int n) {
+        if (length == 0) {
+            cursorX = 0;
+            cursorY = 0;
+        }
+        geometry[length++] = command(MOVE_TO, 1);
+        geometry[length++] = zigZag(ring[0] - cursorX);
+        geometry[length++] = zigZag(ring[1] - cursorY);
+        cursorX = ring[0];
+        cursorY = ring[1];
+        geometry[length++] = command(LINE_TO, n - 1);
+        for (int i = 1; i < n; i++) {
+            geometry[length++] = zigZag(ring[2 * i] - cursorX);
+            geometry[length++] = zigZag(ring[2 * i + 1] - cursorY);
+            cursorX = ring[2 * i];
+            cursorY = ring[2 * i + 1];
+        }
+        geometry[length++] = command(CLOSE_PATH, 1);
+        return length;
+    }
+
+    private Layer layer(String name) {
+        return layers.computeIfAbsent(name, Layer::new);
+    }
+
+    /**
+     * Rounds to integer coordinates, dropping consecutive duplicates and the closing vertex.
+     */
+    private static int[] snap(double[] ring) {
+        int n = ring.length / 2;
+        int[] result = new int[ring.length];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int x = (int) Math.round(ring[2 * i]);
+            int y = (int) Math.round(ring[2 * i + 1]);
+            if (count > 0 && result[2 * count - 2] == x && result[2 * count - 1] == y) {
+                continue;
+            }
+            result[2 * count] = x;
+            result[2 * count + 1] = y;
+            count++;
+        }
+        if (count > 1 && result[0] == result[2 * count - 2] && result[1] == result[2 * count - 1]) {
+            count--;
+        }
+        return Arrays.copyOf(result, 2 * count);
+    }
+
+    /**
+     * Sutherland-Hodgman clipping of a ring against an axis-aligned box.
+     */
+    static double[] clip(double[] ring, double minX, double minY, double maxX, double maxY) {
+        double[] result = ring;
+        for (int edge = 0; edge < 4 && result.length > 0; edge++) {
+            result = clipEdge(result, edge, edge % 2 == 0 ? (edge == 0 ? minX : maxX) : (edge == 1 ? minY : maxY));
+        }
+        return result;
+    }
+
+    // edge 0: x >= bound, 1: y >= bound, 2: x <= bound, 3: y <= bound
+    private static double[] clipEdge(double[] ring, int edge, double bound) {
+        int n = ring.length / 2;
+        double[] out = new double[ring.length * 2 + 4];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            double ax = ring[2 * ((i + n - 1) % n)], ay = ring[2 * ((i + n - 1) % n) + 1];
+            double bx = ring[2 * i], by = ring[2 * i + 1];
+            boolean aIn = inside(ax, ay, edge, bound);
+            boolean bIn = inside(bx, by, edge, bound);
+            if (bIn) {
+                if (!aIn) {
+                    count = intersect(out, count, ax, ay, bx, by, edge, bound);
+                }
+                out[2 * count] = bx;
+                out[2 * count + 1] = by;
+                count++;
+            } else if (aIn) {
+                count = intersect(out, count, ax, ay, bx, by, edge, bound);
+            }
+        }
+        return Arrays.copyOf(out, 2 * count);
+    }
+
+    private static boolean inside(double x, double y, int edge, double bound) {
+        switch (edge) {
+            case 0: return x >= bound;
+            case 1: return y >= bound;
+            case 2: return x <= bound;
+            default: return y <= bound;
+        }
+    }
+
+    private static int intersect(double[] out, int count, double ax, double ay, double bx, double by, int edge, double bound) {
+        double t;
+        if (edge % 2 == 0) {
+            t = (bound - ax) / (bx - ax);
+            out[2 * count] = bound;
+            out[2 * count + 1] = ay + t * (by - ay);
+        } else {
+            t = (bound - ay) / (by - ay);
+            out[2 * count] = ax + t * (bx - ax);
+            out[2 * count + 1] = bound;
+        }
+        return count + 1;
+    }
+
+    private static long signedArea(int[] ring) {
+        int n = ring.length / 2;
+        long sum = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            sum += (long) ring[2 * j] * ring[2 * i + 1] - (long) ring[2 * i] * ring[2 * j + 1];
+        }
+        return sum;
+    }
+
+    private static void reverse(int[] ring) {
+        int n = ring.length / 2;
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int x = ring[2 * i], y = ring[2 * i + 1];
+            ring[2 * i] = ring[2 * j];
+            ring[2 * i + 1] = ring[2 * j + 1];
+            ring[2 * j] = x;
+            ring[2 * j + 1] = y;
+        }
+    }
+
+    private static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static final class Layer {
+        private final String name;
+        private final List<ProtobufWriter> features = new ArrayList<>();
+        private final Map<String, Integer> keys = new LinkedHashMap<>();
+        private final Map<Object, Integer> values = new HashMap<>();
+        private final List<Object> valueList = new ArrayList<>();
+
+        private Layer(String name) {
+            this.name = name;
+        }
+
+        private void addFeature(long id, int type, int[] geometry, int length, Map<String, Object> properties) {
+            int[] tags = new int[properties.size() * 2];
+            int tagCount = 0;
+            for (Map.Entry<String, Object> property : properties.entrySet()) {
+                if (property.getValue() == null) {
+                    continue;
+                }
+                tags[tagCount++] = keys.computeIfAbsent(property.getKey(), k -> keys.size());
+                tags[tagCount++] = values.computeIfAbsent(property.getValue(), v -> {
+                    valueList.add(v);
+                    return valueList.size() - 1;
+                });
+            }
+            ProtobufWriter feature = new ProtobufWriter(length * 2 + tagCount * 2 + 16);
+            feature.writeVarintField(1, id);
+            feature.writePackedVarints(2, tags, tagCount);
+            feature.writeVarintField(3, type);
+            feature.writePackedVarints(4, geometry, length);
+            features.add(feature);
+        }
+
+        private void writeTo(ProtobufWriter out, int extent) {
+            out.writeVarintField(15, 2);
+            out.writeStringField(1, name);
+            for (ProtobufWriter feature : features) {
+                out.writeMessage(2, feature);
+            }
+            for (String key : keys.keySet()) {
+                out.writeStringField(3, key);
+            }
+            ProtobufWriter value = new ProtobufWriter(32);
+            for (Object v : valueList) {
+                value.reset();
+                if (v instanceof String) {
+                    value.writeStringField(1, (String) v);
+                } else if (v instanceof Double || v instanceof Float) {
+                    value.writeDoubleField(3, ((Number) v).doubleValue());
+                } else if (v instanceof Number) {
+                    value.writeTag(6, ProtobufWriter.VARINT);
+                    value.writeSignedVarint(((Number) v).longValue());
+                } else if (v instanceof Boolean) {
+                    value.writeVarintField(7, (Boolean) v ? 1 : 0);
+                } else {
+                    value.writeStringField(1, v.toString());
+                }
+                out.writeMessage(4, value);
+            }
+            out.writeVarintField(5, extent);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.conectividadcba.geo;
+
+/**
+ * Spherical Web Mercator projection onto the unit square: x grows eastwards and y southwards, so
+ * that tile {@code (x, y)} at zoom {@code z} covers {@code [x, x + 1] / 2^z} and
+ * {@code [y, y + 1] / 2^z}.
+ */
+public final class WebMercator {
+
+    private WebMercator() {}
+
+    public static double lngToX(double lng) {
+        return lng / 360 + 0.5;
+    }
+
+    public static double latToY(double lat) {
+        double sin = Math.sin(Math.toRadians(lat));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    public static double xToLng(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    public static double yToLat(double y) {
+        double y2 = (180 - y * 360) * Math.PI / 180;
+        return 360 * Math.atan(Math.exp(y2)) / Math.PI - 90;
+    }
+}
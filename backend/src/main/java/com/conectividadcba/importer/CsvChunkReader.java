@@ -0,0 +1,212 @@
+package com.conectividadcba.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a UTF-8 CSV file (RFC 4180 quoting; comma, semicolon or tab separated) held in a byte
+ * buffer, typically a memory-mapped file. {@link #split} cuts the data into chunks at record
+ * boundaries in one byte scan, after which {@link #parse} can run on every chunk concurrently:
+ * it only uses absolute reads of the shared buffer.
+ */
+public final class CsvChunkReader {
+    private final ByteBuffer data;
+    private final byte delimiter;
+    private final int dataStart;
+    private final int[] columns;
+
+    /**
+     * Reads the header line.
+     *
+     * @throws IllegalArgumentException if the header lacks a name, type or coordinate column
+     */
+    public CsvChunkReader(ByteBuffer data) {
+        this.data = data;
+        int start = 0;
+        if (data.limit() >= 3 && data.get(0) == (byte) 0xEF && data.get(1) == (byte) 0xBB && data.get(2) == (byte) 0xBF) {
+            start = 3;
+        }
+        int headerEnd = nextRecord(start, data.limit());
+        byte[] header = new byte[headerEnd - start];
+        data.get(start, header);
+        this.delimiter = detectDelimiter(header);
+        this.dataStart = headerEnd;
+
+        List<String> names = new ArrayList<>();
+        new RecordParser(header).read(0, header.length, names);
+        this.columns = new int[names.size()];
+        boolean[] present = new boolean[ImportColumn.values().length];
+        for (int i = 0; i < names.size(); i++) {
+            ImportColumn column = ImportColumn.fromHeader(names.get(i));
+            columns[i] = column == null ? -1 : column.ordinal();
+            if (column != null) {
+                present[column.ordinal()] = true;
+            }
+        }
+        for (ImportColumn required : new ImportColumn[]{ImportColumn.NAME, ImportColumn.TYPE, ImportColumn.LAT, ImportColumn.LNG}) {
+            if (!present[required.ordinal()]) {
+                throw new IllegalArgumentException("The CSV header has no " + required.name().toLowerCase() + " column");
+            }
+        }
+    }
+
+    /**
+     * Cuts the rows after the header into chunks of about {@code targetBytes}, never inside a
+     * record (quoted fields may contain line breaks).
+     */
+    public List<Chunk> split(int targetBytes) {
+        List<Chunk> chunks = new ArrayList<>();
+        int limit = data.limit();
+        int chunkStart = dataStart;
+        int chunkFirstRow = 1;
+        int row = 1;
+        boolean quoted = false;
+        for (int i = dataStart; i < limit; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                row++;
+                if (i + 1 - chunkStart >= targetBytes) {
+                    chunks.add(new Chunk(chunkStart, i + 1, chunkFirstRow));
+                    chunkStart = i + 1;
+                    chunkFirstRow = row;
+                }
+            }
+        }
+        if (chunkStart < limit) {
+            chunks.add(new Chunk(chunkStart, limit, chunkFirstRow));
+        }
+        return chunks;
+    }
+
+    /**
+     * Parses the records of a chunk, skipping blank lines.
+     */
+    public List<ImportRecord> parse(Chunk chunk) {
+        byte[] bytes = new byte[chunk.end - chunk.start];
+        data.get(chunk.start, bytes);
+        RecordParser parser = new RecordParser(bytes);
+        List<ImportRecord> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        int row = chunk.firstRow;
+        for (int pos = 0; pos < bytes.length; row++) {
+            pos = parser.read(pos, bytes.length, fields);
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue;
+            }
+            String[] values = new String[ImportColumn.values().length];
+            for (int i = 0; i < fields.size() && i < columns.length; i++) {
+                if (columns[i] >= 0) {
+                    values[columns[i]] = fields.get(i);
+                }
+            }
+            records.add(new ImportRecord(row, values));
+        }
+        return records;
+    }
+
+    private int nextRecord(int from, int limit) {
+        boolean quoted = false;
+        for (int i = from; i < limit; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (b == '\n' && !quoted) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    private static byte detectDelimiter(byte[] header) {
+        int commas = 0, semicolons = 0, tabs = 0;
+        boolean quoted = false;
+        for (byte b : header) {
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                commas += b == ',' ? 1 : 0;
+                semicolons += b == ';' ? 1 : 0;
+                tabs += b == '\t' ? 1 : 0;
+            }
+        }
+        if (semicolons > commas && semicolons >= tabs) {
+            return ';';
+        }
+        return tabs > commas ? (byte) '\t' : (byte) ',';
+    }
+
+    /**
+     * A range of whole records, {@code firstRow} being the row number of its first one.
+     */
+    public static final class Chunk {
+        private final int start;
+        private final int end;
+        private final int firstRow;
+
+        private Chunk(int start, int end, int firstRow) {
+            this.start = start;
+            this.end = end;
+            this.firstRow = firstRow;
+        }
+    }
+
+    private final class RecordParser {
+        private final byte[] bytes;
+        private byte[] scratch = new byte[256];
+
+        private RecordParser(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        // Reads the fields of the record at pos and returns the position after its line break.
+        private int read(int pos, int end, List<String> fields) {
+            fields.clear();
+            while (true) {
+                if (pos < end && bytes[pos] == '"') {
+                    pos++;
+                    int length = 0;
+                    while (pos < end) {
+                        byte b = bytes[pos++];
+                        if (b == '"') {
+                            if (pos < end && bytes[pos] == '"') {
+                                pos++;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (length == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, length * 2);
+                        }
+                        scratch[length++] = b;
+                    }
+                    fields.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+                    while (pos < end && bytes[pos] != delimiter && bytes[pos] != '\n' && bytes[pos] != '\r') {
+                        pos++;
+                    }
+                } else {
+                    int start = pos;
+                    while (pos < end && bytes[pos] != delimiter && bytes[pos] != '\n' && bytes[pos] != '\r') {
+                        pos++;
+                    }
+                    fields.add(new String(bytes, start, pos - start, StandardCharsets.UTF_8).trim());
+                }
+                if (pos < end && bytes[pos] == delimiter) {
+                    pos++;
+                    continue;
+                }
+                if (pos < end && bytes[pos] == '\r') {
+                    pos++;
+                }
+                if (pos < end && bytes[pos] == '\n') {
+                    pos++;
+                }
+                return pos;
+            }
+        }
+    }
+}
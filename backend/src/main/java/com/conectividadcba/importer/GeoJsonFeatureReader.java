@@ -0,0 +1,108 @@
+package com.conectividadcba.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the features of a GeoJSON FeatureCollection out of a byte buffer, a batch at a time, so
+ * that only the batches in flight are held as trees. Each feature needs a Point geometry; its
+ * properties are matched to {@link ImportColumn}s like CSV headers.
+ */
+public final class GeoJsonFeatureReader implements Closeable {
+    private final JsonParser parser;
+    private int row;
+    private boolean done;
+
+    /**
+     * @throws IllegalArgumentException if the document is not a FeatureCollection
+     */
+    public GeoJsonFeatureReader(ObjectMapper objectMapper, ByteBuffer data) throws IOException {
+        this.parser = objectMapper.createParser(new ByteBufferInputStream(data));
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("A GeoJSON FeatureCollection must be a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("features".equals(field) && value == JsonToken.START_ARRAY) {
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalArgumentException("The GeoJSON document has no features array");
+    }
+
+    /**
+     * Reads up to {@code max} features; empty once the collection is exhausted.
+     */
+    public List<ImportRecord> next(int max) throws IOException {
+        List<ImportRecord> records = new ArrayList<>();
+        while (!done && records.size() < max) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                done = true;
+                break;
+            }
+            records.add(toRecord(++row, parser.readValueAsTree()));
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private static ImportRecord toRecord(int row, JsonNode feature) {
+        String[] values = new String[ImportColumn.values().length];
+        for (Map.Entry<String, JsonNode> property : iterable(feature.path("properties"))) {
+            ImportColumn column = ImportColumn.fromHeader(property.getKey());
+            if (column != null && !property.getValue().isNull() && property.getValue().isValueNode()) {
+                values[column.ordinal()] = property.getValue().asText();
+            }
+        }
+        JsonNode geometry = feature.path("geometry");
+        JsonNode position = geometry.path("coordinates");
+        if ("Point".equals(geometry.path("type").asText()) && position.size() >= 2) {
+            values[ImportColumn.LNG.ordinal()] = position.get(0).asText();
+            values[ImportColumn.LAT.ordinal()] = position.get(1).asText();
+        }
+        return new ImportRecord(row, values);
+    }
+
+    private static Iterable<Map.Entry<String, JsonNode>> iterable(JsonNode node) {
+        return node::fields;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+    }
+}
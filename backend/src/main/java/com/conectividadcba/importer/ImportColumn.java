@@ -0,0 +1,48 @@
+package com.conectividadcba.importer;
+
+import com.conectividadcba.util.TextNormalizer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The entity attributes an import file can carry. Headers (CSV) and property names (GeoJSON) are
+ * matched ignoring case, accents and separators, in English or as the ministry registry names them.
+ */
+public enum ImportColumn {
+    ID("id"),
+    NAME("name", "nombre"),
+    TYPE("type", "tipo"),
+    LAT("lat", "latitude", "latitud"),
+    LNG("lng", "lon", "long", "longitude", "longitud"),
+    DESCRIPTION("description", "descripcion"),
+    DEPARTMENT_ID("departmentid", "departamentoid", "iddepartamento"),
+    CONNECTION_TYPE("connectiontype", "conexion", "tipoconexion", "tipodeconexion"),
+    LEVEL("level", "nivel"),
+    STUDENT_COUNT("studentcount", "matricula", "alumnos"),
+    SPECIALIZATION("specialization", "especialidad"),
+    CAPACITY("capacity", "capacidad");
+
+    private static final Map<String, ImportColumn> BY_ALIAS = new HashMap<>();
+
+    static {
+        for (ImportColumn column : values()) {
+            for (String alias : column.aliases) {
+                BY_ALIAS.put(alias, column);
+            }
+        }
+    }
+
+    private final String[] aliases;
+
+    ImportColumn(String... aliases) {
+        this.aliases = aliases;
+    }
+
+    /**
+     * The column a header names, e.g. "Tipo de conexión" or "connection_type"; null if none.
+     */
+    public static ImportColumn fromHeader(String header) {
+        return BY_ALIAS.get(TextNormalizer.fold(header).replaceAll("[^a-z0-9]", ""));
+    }
+}
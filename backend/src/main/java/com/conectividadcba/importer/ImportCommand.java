@@ -0,0 +1,53 @@
+package com.conectividadcba.importer;
+
+import com.conectividadcba.models.ImportReport;
+import com.conectividadcba.services.ImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Command-line import: files given as {@code --import=<path>} are imported at startup, e.g.
+ * <pre>
+ * java -jar conectividad-cba.jar --import=escuelas.csv --import=centros.geojson
+ * </pre>
+ * {@code --import.dry-run} only validates them, and {@code --spring.main.web-application-type=none}
+ * exits once they are processed instead of starting the server.
+ */
+@Component
+public class ImportCommand implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(ImportCommand.class);
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportCommand(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("import")) {
+            return;
+        }
+        boolean dryRun = args.containsOption("import.dry-run");
+        for (String file : args.getOptionValues("import")) {
+            ImportFormat format = ImportFormat.fromFileName(file);
+            if (format == null) {
+                throw new IllegalArgumentException("Cannot tell the format of " + file + " from its extension");
+            }
+            ImportReport report = importService.importFile(Path.of(file), format, dryRun);
+            log.info("Imported {}: {} rows, {} created, {} updated, {} rejected in {} ms{}", file, report.getRows(),
+                    report.getCreated(), report.getUpdated(), report.getRejected(), report.getElapsedMillis(),
+                    dryRun ? " (dry run)" : "");
+            for (ImportReport.RowError error : report.getErrors()) {
+                log.warn("{} row {}: {}", file, error.getRow(), error.getMessage());
+            }
+        }
+    }
+}
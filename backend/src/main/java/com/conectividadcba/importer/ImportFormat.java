@@ -0,0 +1,47 @@
+package com.conectividadcba.importer;
+
+import java.util.Locale;
+
+public enum ImportFormat {
+    CSV(".csv"),
+    GEOJSON(".geojson");
+
+    private final String extension;
+
+    ImportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * The format named by a request parameter, e.g. {@code csv}; null if unknown.
+     */
+    public static ImportFormat fromName(String name) {
+        for (ImportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The format implied by a file name's extension; null if there is none.
+     */
+    public static ImportFormat fromFileName(String fileName) {
+        if (fileName == null) {
+            return null;
+        }
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".csv") || lower.endsWith(".txt")) {
+            return CSV;
+        }
+        if (lower.endsWith(".geojson") || lower.endsWith(".json")) {
+            return GEOJSON;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.conectividadcba.importer;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.conectividadcba.util.TextNormalizer;
+
+/**
+ * One row of an import file, with its values laid out by {@link ImportColumn} ordinal.
+ */
+public final class ImportRecord {
+    private final int row;
+    private final String[] values;
+
+    ImportRecord(int row, String[] values) {
+        this.row = row;
+        this.values = values;
+    }
+
+    /**
+     * 1-based position of the record among the data rows (CSV) or features (GeoJSON) of the file.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    public String get(ImportColumn column) {
+        String value = values[column.ordinal()];
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Builds the school or learning center this record describes.
+     *
+     * @throws IllegalArgumentException if a required value is missing or malformed
+     */
+    public Entity toEntity() {
+        String name = required(ImportColumn.NAME);
+        Entity.EntityType type = type(required(ImportColumn.TYPE));
+        Entity.Coordinates coordinates = new Entity.Coordinates(
+                coordinate(ImportColumn.LAT, 90), coordinate(ImportColumn.LNG, 180));
+        Long id = longValue(ImportColumn.ID);
+        Long departmentId = longValue(ImportColumn.DEPARTMENT_ID);
+        String description = get(ImportColumn.DESCRIPTION);
+        String connectionType = get(ImportColumn.CONNECTION_TYPE);
+        if (type == Entity.EntityType.SCHOOL) {
+            return new School(id, name, coordinates, description, departmentId,
+                    get(ImportColumn.LEVEL), count(ImportColumn.STUDENT_COUNT), connectionType);
+        }
+        return new LearningCenter(id, name, coordinates, description, departmentId,
+                get(ImportColumn.SPECIALIZATION), count(ImportColumn.CAPACITY), connectionType);
+    }
+
+    private String required(ImportColumn column) {
+        String value = get(column);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + column.name().toLowerCase());
+        }
+        return value;
+    }
+
+    private static Entity.EntityType type(String value) {
+        switch (TextNormalizer.fold(value).replaceAll("[^a-z]", "")) {
+            case "school":
+            case "escuela":
+                return Entity.EntityType.SCHOOL;
+            case "learningcenter":
+            case "centro":
+            case "centrodeaprendizaje":
+                return Entity.EntityType.LEARNING_CENTER;
+            default:
+                throw new IllegalArgumentException("Unknown type '" + value + "'");
+        }
+    }
+
+    private double coordinate(ImportColumn column, double limit) {
+        String value = required(column);
+        double coordinate;
+        try {
+            // Spreadsheets exported with a Spanish locale write "-31,42".
+            coordinate = Double.parseDouble(value.indexOf('.') < 0 ? value.replace(',', '.') : value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed " + column.name().toLowerCase() + " '" + value + "'");
+        }
+        if (!(Math.abs(coordinate) <= limit)) {
+            throw new IllegalArgumentException(column.name().toLowerCase() + " out of range: " + value);
+        }
+        return coordinate;
+    }
+
+    private Long longValue(ImportColumn column) {
+        String value = get(column);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed " + column.name().toLowerCase() + " '" + value + "'");
+        }
+    }
+
+    private int count(ImportColumn column) {
+        Long value = longValue(column);
+        if (value == null) {
+            return 0;
+        }
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(column.name().toLowerCase() + " out of range: " + value);
+        }
+        return value.intValue();
+    }
+}
@@ -0,0 +1,22 @@
+package com.conectividadcba.models;
+
+/**
+ * Outcome of a bulk upsert, which is committed as the single data version {@code version}.
+ */
+public class BulkUpsertResult {
+    private final int created;
+    private final int updated;
+    private final long version;
+
+    public BulkUpsertResult(int created, int updated, long version) {
+        this.created = created;
+        this.updated = updated;
+        this.version = version;
+    }
+
+    public int getCreated() { return created; }
+
+    public int getUpdated() { return updated; }
+
+    public long getVersion() { return version; }
+}
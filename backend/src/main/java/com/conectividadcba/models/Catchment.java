@@ -0,0 +1,58 @@
+package com.conectividadcba.models;
+
+import java.util.List;
+
+/**
+ * The area a learning center serves: the part of the province closer to it than to any other
+ * learning center, and the schools it is the nearest learning center of (also those just outside
+ * the province outline). {@code neighborIds} are the learning centers with adjacent Voronoi cells.
+ * {@code geometry} is a GeoJSON MultiPolygon in {@code [lng, lat]} positions.
+ */
+public class Catchment {
+    private final long learningCenterId;
+    private final String name;
+    private final long version;
+    private final double areaKm2;
+    private final List<Long> neighborIds;
+    private final List<Long> schoolIds;
+    private final Geometry geometry;
+
+    public Catchment(long learningCenterId, String name, long version, double areaKm2, List<Long> neighborIds,
+                     List<Long> schoolIds, Geometry geometry) {
+        this.learningCenterId = learningCenterId;
+        this.name = name;
+        this.version = version;
+        this.areaKm2 = areaKm2;
+        this.neighborIds = neighborIds;
+        this.schoolIds = schoolIds;
+        this.geometry = geometry;
+    }
+
+    public long getLearningCenterId() { return learningCenterId; }
+
+    public String getName() { return name; }
+
+    public long getVersion() { return version; }
+
+    public double getAreaKm2() { return areaKm2; }
+
+    public List<Long> getNeighborIds() { return neighborIds; }
+
+    public int getSchoolCount() { return schoolIds.size(); }
+
+    public List<Long> getSchoolIds() { return schoolIds; }
+
+    public Geometry getGeometry() { return geometry; }
+
+    public static class Geometry {
+        private final List<List<List<double[]>>> coordinates;
+
+        public Geometry(List<List<List<double[]>>> coordinates) {
+            this.coordinates = coordinates;
+        }
+
+        public String getType() { return "MultiPolygon"; }
+
+        public List<List<List<double[]>>> getCoordinates() { return coordinates; }
+    }
+}
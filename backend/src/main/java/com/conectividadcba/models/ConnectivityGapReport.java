@@ -0,0 +1,123 @@
+package com.conectividadcba.models;
+
+import java.util.List;
+
+/**
+ * How far entities without fiber are from fiber: for every entity on a gap connection type, its
+ * {@code k} nearest fiber entities by great-circle distance. {@code gaps} is ranked by distance to
+ * the nearest fiber entity, farthest first, and {@code departments} summarizes those distances per
+ * department, largest mean first.
+ */
+public class ConnectivityGapReport {
+    private final long version;
+    private final int k;
+    private final long fiberCount;
+    private final long gapCount;
+    private final long elapsedMillis;
+    private final List<Gap> gaps;
+    private final List<DepartmentSummary> departments;
+
+    public ConnectivityGapReport(long version, int k, long fiberCount, long gapCount, long elapsedMillis,
+                                 List<Gap> gaps, List<DepartmentSummary> departments) {
+        this.version = version;
+        this.k = k;
+        this.fiberCount = fiberCount;
+        this.gapCount = gapCount;
+        this.elapsedMillis = elapsedMillis;
+        this.gaps = gaps;
+        this.departments = departments;
+    }
+
+    public long getVersion() { return version; }
+
+    public int getK() { return k; }
+
+    public long getFiberCount() { return fiberCount; }
+
+    public long getGapCount() { return gapCount; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public List<Gap> getGaps() { return gaps; }
+
+    public List<DepartmentSummary> getDepartments() { return departments; }
+
+    public static class Gap {
+        private final long id;
+        private final String name;
+        private final String connectionType;
+        private final Long departmentId;
+        private final double distanceKm;
+        private final List<Neighbor> nearestFiber;
+
+        public Gap(long id, String name, String connectionType, Long departmentId, double distanceKm,
+                   List<Neighbor> nearestFiber) {
+            this.id = id;
+            this.name = name;
+            this.connectionType = connectionType;
+            this.departmentId = departmentId;
+            this.distanceKm = distanceKm;
+            this.nearestFiber = nearestFiber;
+        }
+
+        public long getId() { return id; }
+
+        public String getName() { return name; }
+
+        public String getConnectionType() { return connectionType; }
+
+        public Long getDepartmentId() { return departmentId; }
+
+        /**
+         * Distance to the nearest fiber entity.
+         */
+        public double getDistanceKm() { return distanceKm; }
+
+        public List<Neighbor> getNearestFiber() { return nearestFiber; }
+    }
+
+    public static class Neighbor {
+        private final long id;
+        private final double distanceKm;
+
+        public Neighbor(long id, double distanceKm) {
+            this.id = id;
+            this.distanceKm = distanceKm;
+        }
+
+        public long getId() { return id; }
+
+        public double getDistanceKm() { return distanceKm; }
+    }
+
+    public static class DepartmentSummary {
+        private final Long departmentId;
+        private final long gapCount;
+        private final double meanDistanceKm;
+        private final double medianDistanceKm;
+        private final double maxDistanceKm;
+        private final long farthestId;
+
+        public DepartmentSummary(Long departmentId, long gapCount, double meanDistanceKm, double medianDistanceKm,
+                                 double maxDistanceKm, long farthestId) {
+            this.departmentId = departmentId;
+            this.gapCount = gapCount;
+            this.meanDistanceKm = meanDistanceKm;
+            this.medianDistanceKm = medianDistanceKm;
+            this.maxDistanceKm = maxDistanceKm;
+            this.farthestId = farthestId;
+        }
+
+        public Long getDepartmentId() { return departmentId; }
+
+        public long getGapCount() { return gapCount; }
+
+        public double getMeanDistanceKm() { return meanDistanceKm; }
+
+        public double getMedianDistanceKm() { return medianDistanceKm; }
+
+        public double getMaxDistanceKm() { return maxDistanceKm; }
+
+        public long getFarthestId() { return farthestId; }
+    }
+}
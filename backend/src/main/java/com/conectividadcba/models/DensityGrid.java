@@ -0,0 +1,47 @@
+package com.conectividadcba.models;
+
+/**
+ * Smoothed entity density over a bounding box, quantized to one byte per cell. Cells are stored
+ * row by row starting at the south-west corner: cell {@code (x, y)} is {@code values[y * width + x]}
+ * and spans {@code minLng + x * (maxLng - minLng) / width} eastwards and
+ * {@code minLat + y * (maxLat - minLat) / height} northwards. A byte value {@code v} stands for a
+ * density of {@code v / 255 * maxValue}; {@code values} is serialized as Base64.
+ */
+public class DensityGrid {
+    private final int width;
+    private final int height;
+    private final double minLat;
+    private final double minLng;
+    private final double maxLat;
+    private final double maxLng;
+    private final float maxValue;
+    private final byte[] values;
+
+    public DensityGrid(int width, int height, double minLat, double minLng, double maxLat, double maxLng,
+                       float maxValue, byte[] values) {
+        this.width = width;
+        this.height = height;
+        this.minLat = minLat;
+        this.minLng = minLng;
+        this.maxLat = maxLat;
+        this.maxLng = maxLng;
+        this.maxValue = maxValue;
+        this.values = values;
+    }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    public double getMinLat() { return minLat; }
+
+    public double getMinLng() { return minLng; }
+
+    public double getMaxLat() { return maxLat; }
+
+    public double getMaxLng() { return maxLng; }
+
+    public float getMaxValue() { return maxValue; }
+
+    public byte[] getValues() { return values; }
+}
@@ -1,6 +1,23 @@
 package com.conectividadcba.models;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+/**
+ * Serialized through the {@value #FIELDS_FILTER} property filter, which passes every property
+ * unless a request asks for a sparse fieldset. When read, {@code type} selects the subclass.
+ */
+@JsonFilter(Entity.FIELDS_FILTER)
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.EXISTING_PROPERTY, property = "type",
+        visible = true, defaultImpl = Entity.class)
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = School.class, name = "SCHOOL"),
+        @JsonSubTypes.Type(value = LearningCenter.class, name = "LEARNING_CENTER")
+})
 public class Entity {
+    public static final String FIELDS_FILTER = "entityFields";
+
     private Long id;
     private String name;
     private EntityType type;
@@ -18,6 +35,7 @@ public class Entity {
         this.coordinates = coordinates;
         this.description = description;
         this.departmentId = departmentId;
+        this.connectionType = connectionType;
     }
 
     // Getters and setters
@@ -0,0 +1,32 @@
+package com.conectividadcba.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One committed write: {@code entity} was inserted or replaced ({@code UPSERT}), or the entity
+ * with {@code id} was removed ({@code DELETE}), in data version {@code version}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntityChange {
+    public enum Operation { UPSERT, DELETE }
+
+    private final long version;
+    private final long id;
+    private final Operation operation;
+    private final Entity entity;
+
+    public EntityChange(long version, long id, Operation operation, Entity entity) {
+        this.version = version;
+        this.id = id;
+        this.operation = operation;
+        this.entity = entity;
+    }
+
+    public long getVersion() { return version; }
+
+    public long getId() { return id; }
+
+    public Operation getOperation() { return operation; }
+
+    public Entity getEntity() { return entity; }
+}
@@ -0,0 +1,38 @@
+package com.conectividadcba.models;
+
+import java.util.List;
+
+/**
+ * What changed between data versions {@code since} and {@code version}, at most one change per
+ * entity. {@code cursor} names {@code version} within this run of the server; it is what to ask
+ * for changes since next, and the id of the event carrying these changes. With {@code resync}
+ * the change log no longer reaches back to {@code since}, or the cursor asked for came from
+ * another run (whose versions may repeat these), {@code changes} is empty and the client has to
+ * reload the full list; asking for changes since {@code cursor} afterwards is safe, because
+ * applying a change the reload already contained has no effect.
+ */
+public class EntityChanges {
+    private final long since;
+    private final long version;
+    private final String cursor;
+    private final boolean resync;
+    private final List<EntityChange> changes;
+
+    public EntityChanges(long since, long version, String cursor, boolean resync, List<EntityChange> changes) {
+        this.since = since;
+        this.version = version;
+        this.cursor = cursor;
+        this.resync = resync;
+        this.changes = changes;
+    }
+
+    public long getSince() { return since; }
+
+    public long getVersion() { return version; }
+
+    public String getCursor() { return cursor; }
+
+    public boolean isResync() { return resync; }
+
+    public List<EntityChange> getChanges() { return changes; }
+}
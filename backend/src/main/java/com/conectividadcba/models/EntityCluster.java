@@ -0,0 +1,45 @@
+package com.conectividadcba.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * A map marker at a given zoom: either a cluster of entities (with {@code id},
+ * {@code expansionZoom} and per-connection-type counts) or a single {@code entity}.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EntityCluster {
+    private final Integer id;
+    private final double lat;
+    private final double lng;
+    private final int count;
+    private final Map<String, Integer> connectionTypes;
+    private final Integer expansionZoom;
+    private final Entity entity;
+
+    public EntityCluster(Integer id, double lat, double lng, int count, Map<String, Integer> connectionTypes,
+                         Integer expansionZoom, Entity entity) {
+        this.id = id;
+        this.lat = lat;
+        this.lng = lng;
+        this.count = count;
+        this.connectionTypes = connectionTypes;
+        this.expansionZoom = expansionZoom;
+        this.entity = entity;
+    }
+
+    public Integer getId() { return id; }
+
+    public double getLat() { return lat; }
+
+    public double getLng() { return lng; }
+
+    public int getCount() { return count; }
+
+    public Map<String, Integer> getConnectionTypes() { return connectionTypes; }
+
+    public Integer getExpansionZoom() { return expansionZoom; }
+
+    public Entity getEntity() { return entity; }
+}
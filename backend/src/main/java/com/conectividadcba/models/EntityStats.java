@@ -0,0 +1,67 @@
+package com.conectividadcba.models;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the aggregate counters: totals over all entities, counts per entity type and per
+ * connection type, and the same figures broken down by department. {@code studentCount} sums
+ * schools and {@code capacity} sums learning centers.
+ */
+public class EntityStats {
+    private final long count;
+    private final long studentCount;
+    private final long capacity;
+    private final Map<String, Long> types;
+    private final Map<String, Long> connectionTypes;
+    private final List<DepartmentStats> departments;
+
+    public EntityStats(long count, long studentCount, long capacity, Map<String, Long> types,
+                       Map<String, Long> connectionTypes, List<DepartmentStats> departments) {
+        this.count = count;
+        this.studentCount = studentCount;
+        this.capacity = capacity;
+        this.types = types;
+        this.connectionTypes = connectionTypes;
+        this.departments = departments;
+    }
+
+    public long getCount() { return count; }
+
+    public long getStudentCount() { return studentCount; }
+
+    public long getCapacity() { return capacity; }
+
+    public Map<String, Long> getTypes() { return types; }
+
+    public Map<String, Long> getConnectionTypes() { return connectionTypes; }
+
+    public List<DepartmentStats> getDepartments() { return departments; }
+
+    public static class DepartmentStats {
+        private final long departmentId;
+        private final long count;
+        private final long studentCount;
+        private final long capacity;
+        private final Map<String, Long> connectionTypes;
+
+        public DepartmentStats(long departmentId, long count, long studentCount, long capacity,
+                               Map<String, Long> connectionTypes) {
+            this.departmentId = departmentId;
+            this.count = count;
+            this.studentCount = studentCount;
+            this.capacity = capacity;
+            this.connectionTypes = connectionTypes;
+        }
+
+        public long getDepartmentId() { return departmentId; }
+
+        public long getCount() { return count; }
+
+        public long getStudentCount() { return studentCount; }
+
+        public long getCapacity() { return capacity; }
+
+        public Map<String, Long> getConnectionTypes() { return connectionTypes; }
+    }
+}
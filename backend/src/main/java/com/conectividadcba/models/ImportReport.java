@@ -0,0 +1,61 @@
+package com.conectividadcba.models;
+
+import java.util.List;
+
+/**
+ * Outcome of importing one file: how many rows were read, written and rejected, and why the
+ * first rejected rows failed. {@code version} is the data version the import committed, or null
+ * for a dry run.
+ */
+public class ImportReport {
+    private final String format;
+    private final int rows;
+    private final int created;
+    private final int updated;
+    private final int rejected;
+    private final Long version;
+    private final long elapsedMillis;
+    private final List<RowError> errors;
+
+    public ImportReport(String format, int rows, int created, int updated, int rejected, Long version,
+                        long elapsedMillis, List<RowError> errors) {
+        this.format = format;
+        this.rows = rows;
+        this.created = created;
+        this.updated = updated;
+        this.rejected = rejected;
+        this.version = version;
+        this.elapsedMillis = elapsedMillis;
+        this.errors = errors;
+    }
+
+    public String getFormat() { return format; }
+
+    public int getRows() { return rows; }
+
+    public int getCreated() { return created; }
+
+    public int getUpdated() { return updated; }
+
+    public int getRejected() { return rejected; }
+
+    public Long getVersion() { return version; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public List<RowError> getErrors() { return errors; }
+
+    public static class RowError {
+        private final int row;
+        private final String message;
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+
+        public String getMessage() { return message; }
+    }
+}
@@ -0,0 +1,18 @@
+package com.conectividadcba.models;
+
+/**
+ * The learning center whose catchment contains a point, with its great-circle distance.
+ */
+public class NearestLearningCenter {
+    private final Entity learningCenter;
+    private final double distanceKm;
+
+    public NearestLearningCenter(Entity learningCenter, double distanceKm) {
+        this.learningCenter = learningCenter;
+        this.distanceKm = distanceKm;
+    }
+
+    public Entity getLearningCenter() { return learningCenter; }
+
+    public double getDistanceKm() { return distanceKm; }
+}
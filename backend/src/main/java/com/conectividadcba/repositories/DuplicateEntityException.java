@@ -0,0 +1,10 @@
+package com.conectividadcba.repositories;
+
+/**
+ * An insert of an id that is already taken.
+ */
+public class DuplicateEntityException extends IllegalStateException {
+    public DuplicateEntityException(long id) {
+        super("Entity " + id + " already exists");
+    }
+}
@@ -0,0 +1,206 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * An {@link IndexedEntityRepository} that survives restarts without an external database. Every
+ * batch of writes is appended to an {@link EntityWriteAheadLog} before its version is published,
+ * so the log never misses a version readers have seen, and the calls return once the log is on
+ * disk; concurrent writers share one {@code fsync}. Reads may see a write a few milliseconds
+ * before it is durable, but no write is acknowledged before.
+ *
+ * <p>The log is compacted into a snapshot ({@link EntitySnapshotFile}) in the same directory
+ * every {@code compactSeconds}, or sooner once the current segment passes {@code compactBytes},
+ * and on close. Startup maps the snapshot and replays only the log written after it, as one
+ * index rebuild, so recovery time is bounded by the compaction interval instead of the history.
+ * A record torn by a crash at the end of the log is dropped; a log that is damaged anywhere else
+ * or misses a version fails the startup and is left as it is.
+ */
+public class DurableEntityRepository extends IndexedEntityRepository implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(DurableEntityRepository.class);
+    static final String SNAPSHOT_FILE = "entities.snapshot";
+
+    private final Path directory;
+    private final Path snapshotFile;
+    private final long compactBytes;
+    private final EntityWriteAheadLog writeAheadLog;
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "wal-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long compactedVersion;
+
+    private DurableEntityRepository(EntitySnapshotFile.Contents contents, Path directory, boolean fsync,
+                                    long compactSeconds, long compactBytes) throws IOException {
+        super(contents);
+        this.directory = directory;
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.compactBytes = compactBytes;
+        this.compactedVersion = contents.dataVersion;
+        List<EntityWriteAheadLog.Record> records = EntityWriteAheadLog.read(directory);
+        replay(records);
+        if (getDataVersion() != compactedVersion) {
+            writeSnapshot();
+        }
+        // Everything in the old segments is now in the snapshot.
+        EntityWriteAheadLog.deleteSegmentsBefore(directory, Long.MAX_VALUE);
+        this.writeAheadLog = new EntityWriteAheadLog(directory, getDataVersion() + 1, fsync);
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, compactSeconds, compactSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens the store in {@code directory}, creating the directory and a first snapshot from
+     * {@code seed} when it holds none yet.
+     *
+     * @param fsync          force every group commit to disk; without it a crash of the host (not
+     *                       just of the process) can lose the last writes
+     * @param compactSeconds interval between compactions
+     * @param compactBytes   size of the current log segment that triggers an early compaction
+     */
+    public static DurableEntityRepository open(Path directory, Supplier<IndexedEntityRepository> seed, boolean fsync,
+                                               long compactSeconds, long compactBytes) throws IOException {
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            seed.get().save(snapshot);
+            EntityWriteAheadLog.forceDirectory(directory);
+        }
+        return new DurableEntityRepository(EntitySnapshotFile.read(snapshot), directory, fsync,
+                compactSeconds, compactBytes);
+    }
+
+    @Override
+    void commit(EntityWrite write) {
+        writeAheadLog.checkWritable();
+        super.commit(write);
+        if (write.position > 0) {
+            sync(write.position);
+        }
+    }
+
+    // The whole batch is one record; its writers then share the sync that covers it.
+    @Override
+    void beforePublish(List<EntityWrite> batch, long version) {
+        long position = writeAheadLog.append(EntityWriteAheadLog.record(version, batch));
+        batch.forEach(write -> write.position = position);
+    }
+
+    /**
+     * Writes a snapshot of the current version and drops the log segments it covers. Writers are
+     * only held up while the log switches to a new segment, not while the snapshot is written.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            long version;
+            synchronized (this) {
+                version = getDataVersion();
+                if (version == compactedVersion) {
+                    return;
+                }
+                writeAheadLog.roll(version + 1);
+            }
+            // May be newer than version; replay skips what the snapshot already holds.
+            writeSnapshot();
+            EntityWriteAheadLog.deleteSegmentsBefore(directory, version + 1);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        try {
+            compact();
+        } finally {
+            writeAheadLog.close();
+        }
+    }
+
+    private void sync(long position) {
+        try {
+            writeAheadLog.sync(position);
+        } catch (IOException e) {
+            throw new EntityStoreUnavailableException("Could not write to the write-ahead log in " + directory, e);
+        }
+        if (writeAheadLog.segmentBytes() > compactBytes && compactionScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                compactionScheduled.set(false);
+                compactQuietly();
+            });
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long start = System.nanoTime();
+        long version = save(snapshotFile);
+        EntityWriteAheadLog.forceDirectory(directory);
+        compactedVersion = version;
+        log.info("Compacted write-ahead log into snapshot of version {} in {} ms", version,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not compact write-ahead log in {}", directory, e);
+        }
+    }
+
+    // Applies the records after the snapshot's version on a copy of the data set, then swaps it in.
+    // A missing version means lost writes: startup fails rather than discard the records after it.
+    private void replay(List<EntityWriteAheadLog.Record> records) throws IOException {
+        long start = System.nanoTime();
+        long version = getDataVersion();
+        Map<Long, Entity> entities = null;
+        int applied = 0;
+        for (EntityWriteAheadLog.Record record : records) {
+            if (record.version <= version) {
+                continue;
+            }
+            if (record.version != version + 1) {
+                throw new IOException("Write-ahead log in " + directory + " skips from version " + version + " to "
+                        + record.version + "; restore the missing segment, or move away the later ones to start"
+                        + " without them");
+            }
+            if (entities == null) {
+                entities = new LinkedHashMap<>();
+                for (Entity entity : findAll()) {
+                    entities.put(entity.getId(), entity);
+                }
+            }
+            // Same positions as a live write: replaced entities stay in place, new ones go last.
+            for (EntityWriteAheadLog.Operation operation : record.operations) {
+                if (operation.upsert == null) {
+                    entities.remove(operation.deletedId);
+                } else {
+                    entities.put(operation.upsert.getId(), operation.upsert);
+                }
+            }
+            version = record.version;
+            applied++;
+        }
+        if (entities != null) {
+            reset(entities.values(), version);
+            log.info("Replayed {} write-ahead log records up to version {} in {} ms", applied, version,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.EntityChange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ring buffer of the most recent changes, oldest first. Once a change is overwritten, clients
+ * that have not seen its version can no longer catch up from the log.
+ */
+final class EntityChangeLog {
+    private final EntityChange[] ring;
+    private int start;
+    private int size;
+    // Every change after this version is still in the log.
+    private long completeSince;
+
+    EntityChangeLog(int capacity, long version) {
+        this.ring = new EntityChange[capacity];
+        this.completeSince = version;
+    }
+
+    synchronized void append(EntityChange change) {
+        if (size == ring.length) {
+            completeSince = Math.max(completeSince, ring[start].getVersion());
+            ring[start] = change;
+            start = (start + 1) % ring.length;
+        } else {
+            ring[(start + size) % ring.length] = change;
+            size++;
+        }
+    }
+
+    /**
+     * Drops every change, up to and including those of {@code version}.
+     */
+    synchronized void clear(long version) {
+        start = 0;
+        size = 0;
+        completeSince = version;
+        Arrays.fill(ring, null);
+    }
+
+    /**
+     * Changes with {@code since < version <= until}, or null if some of them were dropped.
+     */
+    synchronized List<EntityChange> between(long since, long until) {
+        if (since < completeSince || since > until) {
+            return null;
+        }
+        List<EntityChange> changes = new ArrayList<>();
+        // Versions only grow, so scan back from the newest change.
+        int first = size;
+        while (first > 0 && ring[(start + first - 1) % ring.length].getVersion() > since) {
+            first--;
+        }
+        for (int i = first; i < size; i++) {
+            EntityChange change = ring[(start + i) % ring.length];
+            if (change.getVersion() > until) {
+                break;
+            }
+            changes.add(change);
+        }
+        return changes;
+    }
+}
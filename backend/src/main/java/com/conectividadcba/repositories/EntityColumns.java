@@ -0,0 +1,243 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Entities stored as parallel primitive arrays, one slot per ordinal, instead of as object
+ * graphs. Low-cardinality strings (connection type, level, specialization) and department ids
+ * are dictionary-encoded into {@code short} codes, repeated descriptions share one instance, and
+ * subclass fields live in shared columns ({@code details} is the level of a school or the
+ * specialization of a learning center, {@code counts} its student count or capacity).
+ * {@link #get} materializes a fresh entity on every call; nothing holds on to it. Views also
+ * expose the columns as {@link EntityRows}, for readers that need no entity at all.
+ */
+final class EntityColumns {
+    private static final byte ENTITY = 0;
+    private static final byte SCHOOL = 1;
+    private static final byte LEARNING_CENTER = 2;
+    private static final Entity.EntityType[] TYPES = Entity.EntityType.values();
+
+    private final long[] ids;
+    private final byte[] kinds;
+    private final byte[] types;
+    private final double[] lats;
+    private final double[] lngs;
+    private final short[] departments;
+    private final short[] connectionTypes;
+    private final short[] details;
+    private final int[] counts;
+    private final String[] names;
+    private final String[] descriptions;
+    private final long[] departmentIds;
+    private final String[] dictionary;
+    private final long maxId;
+    private final List<Entity> all;
+
+    EntityColumns(Entity[] entities) {
+        int n = entities.length;
+        ids = new long[n];
+        kinds = new byte[n];
+        types = new byte[n];
+        lats = new double[n];
+        lngs = new double[n];
+        departments = new short[n];
+        connectionTypes = new short[n];
+        details = new short[n];
+        counts = new int[n];
+        names = new String[n];
+        descriptions = new String[n];
+
+        Map<Long, Short> departmentCodes = new HashMap<>();
+        Map<String, Short> stringCodes = new HashMap<>();
+        Map<String, String> sharedDescriptions = new HashMap<>();
+        long max = 0;
+        for (int i = 0; i < n; i++) {
+            Entity entity = entities[i];
+            ids[i] = entity.getId();
+            max = Math.max(max, ids[i]);
+            types[i] = entity.getType() == null ? -1 : (byte) entity.getType().ordinal();
+            Entity.Coordinates coordinates = entity.getCoordinates();
+            lats[i] = coordinates == null ? Double.NaN : coordinates.getLat();
+            lngs[i] = coordinates == null ? Double.NaN : coordinates.getLng();
+            departments[i] = entity.getDepartmentId() == null ? -1 : code(departmentCodes, entity.getDepartmentId());
+            connectionTypes[i] = entity.getConnectionType() == null ? -1 : code(stringCodes, entity.getConnectionType());
+            names[i] = entity.getName();
+            descriptions[i] = entity.getDescription() == null
+                    ? null : sharedDescriptions.computeIfAbsent(entity.getDescription(), d -> d);
+
+            String detail = null;
+            if (entity instanceof School) {
+                kinds[i] = SCHOOL;
+                detail = ((School) entity).getLevel();
+                counts[i] = ((School) entity).getStudentCount();
+            } else if (entity instanceof LearningCenter) {
+                kinds[i] = LEARNING_CENTER;
+                detail = ((LearningCenter) entity).getSpecialization();
+                counts[i] = ((LearningCenter) entity).getCapacity();
+            }
+            details[i] = detail == null ? -1 : code(stringCodes, detail);
+        }
+        this.maxId = max;
+        this.departmentIds = new long[departmentCodes.size()];
+        departmentCodes.forEach((id, code) -> departmentIds[code] = id);
+        this.dictionary = new String[stringCodes.size()];
+        stringCodes.forEach((value, code) -> dictionary[code] = value);
+        this.all = new View(null);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    long maxId() {
+        return maxId;
+    }
+
+    long id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    double lat(int ordinal) {
+        return lats[ordinal];
+    }
+
+    double lng(int ordinal) {
+        return lngs[ordinal];
+    }
+
+    /**
+     * A new entity holding the values of the ordinal.
+     */
+    Entity get(int ordinal) {
+        Entity.Coordinates coordinates = Double.isNaN(lats[ordinal])
+                ? null : new Entity.Coordinates(lats[ordinal], lngs[ordinal]);
+        Long departmentId = departments[ordinal] < 0 ? null : departmentIds[departments[ordinal]];
+        String connectionType = connectionTypes[ordinal] < 0 ? null : dictionary[connectionTypes[ordinal]];
+        String detail = details[ordinal] < 0 ? null : dictionary[details[ordinal]];
+        switch (kinds[ordinal]) {
+            case SCHOOL:
+                return new School(ids[ordinal], names[ordinal], coordinates, descriptions[ordinal], departmentId,
+                        detail, counts[ordinal], connectionType);
+            case LEARNING_CENTER:
+                return new LearningCenter(ids[ordinal], names[ordinal], coordinates, descriptions[ordinal], departmentId,
+                        detail, counts[ordinal], connectionType);
+            default:
+                return new Entity(ids[ordinal], names[ordinal], types[ordinal] < 0 ? null : TYPES[types[ordinal]],
+                        coordinates, descriptions[ordinal], departmentId, connectionType);
+        }
+    }
+
+    /**
+     * Unmodifiable list of every entity, in ordinal order, materialized element by element.
+     */
+    List<Entity> all() {
+        return all;
+    }
+
+    /**
+     * Unmodifiable list of the entities at the given ordinals, materialized element by element.
+     * The array is kept, not copied.
+     */
+    List<Entity> view(int[] ordinals) {
+        return new View(ordinals);
+    }
+
+    private static short code(Map<Long, Short> codes, long value) {
+        return codes.computeIfAbsent(value, v -> nextCode(codes.size(), "department ids"));
+    }
+
+    private static short code(Map<String, Short> codes, String value) {
+        return codes.computeIfAbsent(value, v -> nextCode(codes.size(), "distinct connection types, levels and specializations"));
+    }
+
+    private static short nextCode(int size, String what) {
+        if (size > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("More than " + (Short.MAX_VALUE + 1) + " " + what);
+        }
+        return (short) size;
+    }
+
+    private final class View extends AbstractList<Entity> implements RandomAccess, EntityRows {
+        private final int[] ordinals;
+
+        private View(int[] ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        public Entity get(int index) {
+            return EntityColumns.this.get(ordinal(index));
+        }
+
+        @Override
+        public int size() {
+            return ordinals == null ? ids.length : ordinals.length;
+        }
+
+        @Override
+        public long id(int row) {
+            return ids[ordinal(row)];
+        }
+
+        @Override
+        public Entity.EntityType type(int row) {
+            byte type = types[ordinal(row)];
+            return type < 0 ? null : TYPES[type];
+        }
+
+        @Override
+        public String name(int row) {
+            return names[ordinal(row)];
+        }
+
+        @Override
+        public String description(int row) {
+            return descriptions[ordinal(row)];
+        }
+
+        @Override
+        public double lat(int row) {
+            return lats[ordinal(row)];
+        }
+
+        @Override
+        public double lng(int row) {
+            return lngs[ordinal(row)];
+        }
+
+        @Override
+        public long departmentId(int row) {
+            short code = departments[ordinal(row)];
+            return code < 0 ? -1 : departmentIds[code];
+        }
+
+        @Override
+        public String connectionType(int row) {
+            short code = connectionTypes[ordinal(row)];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        @Override
+        public String detail(int row) {
+            short code = details[ordinal(row)];
+            return code < 0 ? null : dictionary[code];
+        }
+
+        @Override
+        public int count(int row) {
+            return counts[ordinal(row)];
+        }
+
+        private int ordinal(int row) {
+            return ordinals == null ? row : ordinals[row];
+        }
+    }
+}
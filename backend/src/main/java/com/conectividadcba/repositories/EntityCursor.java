@@ -0,0 +1,81 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Position in a sort order: the sort key and the id of the last entity of a page. The next page
+ * starts at the first entity ordered after {@code (key, id)}, so it resumes at the same place even
+ * when that entity was deleted or its key changed in the meantime.
+ * <p>
+ * As a request parameter a cursor is {@code <id>.<key>} with the key in unpadded base64url, or
+ * just {@code <id>} when sorting by id.
+ */
+public final class EntityCursor {
+    // Prefixed to a non-null key before encoding, so that an empty payload means a null key.
+    private static final String KEY_PREFIX = "k";
+
+    private final Comparable<?> key;
+    private final long id;
+
+    private EntityCursor(Comparable<?> key, long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * The cursor that resumes right after {@code entity} in {@code sort} order.
+     */
+    public static EntityCursor after(EntitySort sort, Entity entity) {
+        return new EntityCursor(sort.key(entity), entity.getId());
+    }
+
+    /**
+     * Reads a cursor produced by {@link #encode}. A bare id under a sort other than id, as clients
+     * wrote before cursors carried the key, resumes after that entity's current key, which needs
+     * the entity to still exist. Returns null for a malformed cursor or a missing entity.
+     */
+    public static EntityCursor parse(EntitySort sort, String token, Function<Long, Optional<Entity>> entities) {
+        int dot = token.indexOf('.');
+        try {
+            long id = Long.parseLong(dot < 0 ? token : token.substring(0, dot));
+            if (dot < 0) {
+                return sort == EntitySort.ID
+                        ? new EntityCursor(id, id)
+                        : entities.apply(id).map(entity -> after(sort, entity)).orElse(null);
+            }
+            String payload = new String(Base64.getUrlDecoder().decode(token.substring(dot + 1)),
+                    StandardCharsets.UTF_8);
+            if (payload.isEmpty()) {
+                return new EntityCursor(null, id);
+            }
+            if (!payload.startsWith(KEY_PREFIX)) {
+                return null;
+            }
+            return new EntityCursor(sort.parseKey(payload.substring(KEY_PREFIX.length())), id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String encode(EntitySort sort) {
+        if (sort == EntitySort.ID) {
+            return Long.toString(id);
+        }
+        String payload = key == null ? "" : KEY_PREFIX + key;
+        return id + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Comparable<?> getKey() {
+        return key;
+    }
+
+    long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,507 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.geo.PackedRTree;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.conectividadcba.util.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable set of lookup structures over a fixed collection of entities. Every entity gets a
+ * dense ordinal (its position in insertion order) and is stored column-wise in
+ * {@link EntityColumns}; ids resolve to ordinals through a primitive hash map, the secondary
+ * indexes are ordinal arrays and bitmaps, and returned lists materialize entities as they are
+ * read. Coordinates are indexed in a packed R-tree for bounding-box and nearest queries.
+ */
+public final class EntityIndex {
+    private final EntityColumns columns;
+    private final LongIntHashMap ordinalsById;
+    private final NameSearchIndex names;
+    private final Map<Entity.EntityType, int[]> byType = new EnumMap<>(Entity.EntityType.class);
+    private final Map<Long, int[]> byDepartment = new HashMap<>();
+    private final Map<String, int[]> byConnectionType = new HashMap<>();
+    private final PackedRTree spatialIndex;
+    // Bitmaps over ordinals for the filter engine; shared, so only ever read or cloned.
+    private final Map<Entity.EntityType, BitSet> typeBits = new EnumMap<>(Entity.EntityType.class);
+    private final Map<Long, BitSet> departmentBits = new HashMap<>();
+    private final Map<String, BitSet> connectionTypeBits = new HashMap<>();
+    private final Map<String, BitSet> levelBits = new HashMap<>();
+    private final RangeIndex studentCounts;
+    private final RangeIndex capacities;
+    // Per sort: ordinals in sort order, and each ordinal's position in that order.
+    private final int[][] sortOrders = new int[EntitySort.values().length][];
+    private final int[][] sortRanks = new int[EntitySort.values().length][];
+
+    public EntityIndex(Collection<? extends Entity> source) {
+        this(source, new int[EntitySort.values().length][], null);
+    }
+
+    /**
+     * Builds the index reusing structures derived earlier from the same entities in the same
+     * order, e.g. read from a snapshot: sort orders (null ones are computed) and the folded
+     * names of {@link #foldedName} (null to fold them here).
+     */
+    EntityIndex(Collection<? extends Entity> source, int[][] presortedOrders, String[] foldedNames) {
+        // The objects are only read while building; afterwards the columns are all that is kept.
+        Entity[] entities = source.toArray(new Entity[0]);
+        this.ordinalsById = new LongIntHashMap(entities.length);
+        String[] rawNames = new String[entities.length];
+        List<int[]> studentCountValues = new ArrayList<>();
+        List<int[]> capacityValues = new ArrayList<>();
+        Map<String, List<String>> levelKeysByLevel = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < entities.length; ordinal++) {
+            Entity entity = entities[ordinal];
+            if (entity.getId() == null) {
+                throw new IllegalArgumentException("Entity without id: " + entity.getName());
+            }
+            if (ordinalsById.put(entity.getId(), ordinal) >= 0) {
+                throw new IllegalArgumentException("Duplicate entity id: " + entity.getId());
+            }
+            rawNames[ordinal] = entity.getName();
+
+            if (entity.getType() != null) {
+                typeBits.computeIfAbsent(entity.getType(), k -> new BitSet()).set(ordinal);
+            }
+            if (entity.getDepartmentId() != null) {
+                departmentBits.computeIfAbsent(entity.getDepartmentId(), k -> new BitSet()).set(ordinal);
+            }
+            if (entity.getConnectionType() != null) {
+                connectionTypeBits.computeIfAbsent(connectionTypeKey(entity.getConnectionType()), k -> new BitSet())
+                        .set(ordinal);
+            }
+            if (entity instanceof School) {
+                School school = (School) entity;
+                studentCountValues.add(new int[]{school.getStudentCount(), ordinal});
+                for (String level : levelKeysByLevel.computeIfAbsent(school.getLevel(), EntityIndex::levelKeys)) {
+                    levelBits.computeIfAbsent(level, k -> new BitSet()).set(ordinal);
+                }
+            } else if (entity instanceof LearningCenter) {
+                capacityValues.add(new int[]{((LearningCenter) entity).getCapacity(), ordinal});
+            }
+        }
+        this.columns = new EntityColumns(entities);
+        this.studentCounts = new RangeIndex(studentCountValues);
+        this.capacities = new RangeIndex(capacityValues);
+        typeBits.forEach((type, bits) -> byType.put(type, bits.stream().toArray()));
+        departmentBits.forEach((departmentId, bits) -> byDepartment.put(departmentId, bits.stream().toArray()));
+        connectionTypeBits.forEach((key, bits) -> byConnectionType.put(key, bits.stream().toArray()));
+
+        double[] lats = new double[entities.length];
+        double[] lngs = new double[entities.length];
+        for (int ordinal = 0; ordinal < entities.length; ordinal++) {
+            lats[ordinal] = columns.lat(ordinal);
+            lngs[ordinal] = columns.lng(ordinal);
+        }
+        this.spatialIndex = new PackedRTree(lats, lngs);
+        this.names = foldedNames != null && foldedNames.length == entities.length
+                ? NameSearchIndex.ofFoldedNames(foldedNames)
+                : new NameSearchIndex(rawNames);
+
+        for (EntitySort sort : EntitySort.values()) {
+            int[] order = presortedOrders[sort.ordinal()];
+            if (order == null || order.length != entities.length) {
+                order = sort(entities, sort);
+            }
+            int[] ranks = new int[entities.length];
+            for (int rank = 0; rank < order.length; rank++) {
+                ranks[order[rank]] = rank;
+            }
+            sortOrders[sort.ordinal()] = order;
+            sortRanks[sort.ordinal()] = ranks;
+        }
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * Largest id in the index, 0 when it is empty.
+     */
+    public long maxId() {
+        return columns.maxId();
+    }
+
+    String foldedName(int ordinal) {
+        return names.foldedName(ordinal);
+    }
+
+    /**
+     * Ordinals in the given sort order; shared, so never to be modified.
+     */
+    int[] sortOrder(EntitySort sort) {
+        return sortOrders[sort.ordinal()];
+    }
+
+    public List<Entity> all() {
+        return columns.all();
+    }
+
+    public Entity get(int ordinal) {
+        return columns.get(ordinal);
+    }
+
+    /**
+     * Returns the ordinal of the entity with the given id, or -1 if there is none.
+     */
+    public int ordinalOf(long id) {
+        return ordinalsById.get(id);
+    }
+
+    public Entity byId(long id) {
+        int ordinal = ordinalsById.get(id);
+        return ordinal < 0 ? null : columns.get(ordinal);
+    }
+
+    public List<Entity> byType(Entity.EntityType type) {
+        return view(typeOrdinals(type));
+    }
+
+    public List<Entity> byDepartment(Long departmentId) {
+        return view(departmentOrdinals(departmentId));
+    }
+
+    public List<Entity> byConnectionType(String connectionType) {
+        return view(connectionTypeOrdinals(connectionType));
+    }
+
+    /**
+     * Accent- and case-insensitive substring match over names that were folded once at build
+     * time, so the scan itself does not allocate per entity.
+     */
+    public List<Entity> nameContains(String fragment) {
+        return select(nameMatches(fragment));
+    }
+
+    /**
+     * Typeahead search: entities whose name has a word starting with each query token, ignoring
+     * accents and case, best matches first.
+     */
+    public List<Entity> searchByName(String query, int limit) {
+        return columns.view(names.search(query, limit));
+    }
+
+    public List<Entity> withinBounds(double minLat, double minLng, double maxLat, double maxLng) {
+        return columns.view(boundsOrdinals(minLat, minLng, maxLat, maxLng));
+    }
+
+    public List<Entity> nearest(double lat, double lng, double radiusKm, int limit) {
+        return columns.view(nearestOrdinals(lat, lng, radiusKm, limit));
+    }
+
+    // Ordinal forms of the lookups above, ascending unless said otherwise; shared arrays are
+    // never to be modified.
+
+    int[] typeOrdinals(Entity.EntityType type) {
+        return byType.get(type);
+    }
+
+    int[] departmentOrdinals(Long departmentId) {
+        return byDepartment.get(departmentId);
+    }
+
+    int[] connectionTypeOrdinals(String connectionType) {
+        return byConnectionType.get(connectionTypeKey(connectionType));
+    }
+
+    BitSet nameMatches(String fragment) {
+        String needle = foldFragment(fragment);
+        BitSet matches = new BitSet(columns.size());
+        for (int ordinal = 0; ordinal < columns.size(); ordinal++) {
+            if (names.nameContains(ordinal, needle)) {
+                matches.set(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Search results as ranks, best first; see {@link NameSearchIndex#rank}.
+     */
+    long[] searchRanks(String query, int limit) {
+        return names.rank(query, limit);
+    }
+
+    // In R-tree order.
+    int[] boundsOrdinals(double minLat, double minLng, double maxLat, double maxLng) {
+        IntList ordinals = new IntList();
+        spatialIndex.search(minLat, minLng, maxLat, maxLng, ordinals::add);
+        return ordinals.toArray();
+    }
+
+    // Nearest first.
+    int[] nearestOrdinals(double lat, double lng, double radiusKm, int limit) {
+        return spatialIndex.nearest(lat, lng, limit, radiusKm);
+    }
+
+    /**
+     * Ordinals of the entities matching every criterion of the query, or null when the query has
+     * none. Each indexed criterion contributes a bitmap; they are intersected smallest first,
+     * stopping as soon as the intersection is empty, and the name substring test only runs on the
+     * surviving ordinals.
+     */
+    public BitSet match(EntityQuery query) {
+        return match(query, null);
+    }
+
+    /**
+     * {@link #match} within a bounding box, never null: the R-tree picks the candidates first, so
+     * the name test and the rest of the data set are only visited inside the box.
+     */
+    BitSet matchWithinBounds(EntityQuery query, double minLat, double minLng, double maxLat, double maxLng) {
+        BitSet within = new BitSet(columns.size());
+        spatialIndex.search(minLat, minLng, maxLat, maxLng, within::set);
+        return match(query, within);
+    }
+
+    private BitSet match(EntityQuery query, BitSet within) {
+        if (query == null || query.isEmpty()) {
+            return within;
+        }
+        List<BitSet> bitmaps = new ArrayList<>();
+        if (within != null) {
+            bitmaps.add(within);
+        }
+        if (!EntityQuery.isBlank(query.getType())) {
+            Entity.EntityType type = null;
+            for (Entity.EntityType candidate : Entity.EntityType.values()) {
+                if (candidate.name().equalsIgnoreCase(query.getType().trim())) {
+                    type = candidate;
+                }
+            }
+            bitmaps.add(type == null ? null : typeBits.get(type));
+        }
+        if (query.getDepartmentId() != null) {
+            bitmaps.add(departmentBits.get(query.getDepartmentId()));
+        }
+        if (!EntityQuery.isBlank(query.getConnectionType())) {
+            bitmaps.add(connectionTypeBits.get(connectionTypeKey(query.getConnectionType().trim())));
+        }
+        if (!EntityQuery.isBlank(query.getLevel())) {
+            bitmaps.add(levelBits.get(TextNormalizer.fold(query.getLevel())));
+        }
+        if (query.getMinStudentCount() != null || query.getMaxStudentCount() != null) {
+            bitmaps.add(studentCounts.between(query.getMinStudentCount(), query.getMaxStudentCount()));
+        }
+        if (query.getMinCapacity() != null || query.getMaxCapacity() != null) {
+            bitmaps.add(capacities.between(query.getMinCapacity(), query.getMaxCapacity()));
+        }
+        if (bitmaps.contains(null)) {
+            return new BitSet();
+        }
+
+        BitSet result;
+        if (bitmaps.isEmpty()) {
+            result = new BitSet(columns.size());
+            result.set(0, columns.size());
+        } else {
+            bitmaps.sort(Comparator.comparingInt(BitSet::cardinality));
+            result = (BitSet) bitmaps.get(0).clone();
+            for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+                result.and(bitmaps.get(i));
+            }
+        }
+        if (!EntityQuery.isBlank(query.getName())) {
+            String needle = foldFragment(query.getName());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+                if (!names.nameContains(ordinal, needle)) {
+                    result.clear(ordinal);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Entities of the given ordinals, in ordinal order.
+     */
+    public List<Entity> select(BitSet ordinals) {
+        return columns.view(ordinals.stream().toArray());
+    }
+
+    /**
+     * Up to {@code limit} entities in the given order that come strictly after {@code after}
+     * (from the start when null). The cursor's entity need not be in the index any more: the page
+     * starts where its key and id fall in the order. When {@code selected} is not null only those
+     * ordinals are returned: small selections are sorted by their precomputed ranks, large ones
+     * are tested while walking the sort order from the cursor.
+     */
+    public List<Entity> page(BitSet selected, EntitySort sort, boolean descending, EntityCursor after, int limit) {
+        return columns.view(pageOrdinals(selected, sort, descending, after, limit));
+    }
+
+    // In page order.
+    int[] pageOrdinals(BitSet selected, EntitySort sort, boolean descending, EntityCursor after, int limit) {
+        int[] order = sortOrders[sort.ordinal()];
+        int[] ranks = sortRanks[sort.ordinal()];
+        int start = descending ? order.length - 1 : 0;
+        if (after != null) {
+            // Ranks before this one are ordered before the cursor; the cursor itself, if present,
+            // is at this rank, which the ascending walk skips.
+            int before = seek(order, sort, after);
+            boolean present = before < order.length && sort.compare(columns.get(order[before]), after) == 0;
+            start = descending ? before - 1 : (present ? before + 1 : before);
+        }
+        int step = descending ? -1 : 1;
+        int count = selected == null ? order.length : selected.cardinality();
+        IntList result = new IntList();
+
+        if (selected != null && count < order.length / 16) {
+            int[] selectedRanks = new int[count];
+            int i = 0;
+            for (int ordinal = selected.nextSetBit(0); ordinal >= 0; ordinal = selected.nextSetBit(ordinal + 1)) {
+                selectedRanks[i++] = ranks[ordinal];
+            }
+            Arrays.sort(selectedRanks);
+            int from = Arrays.binarySearch(selectedRanks, start);
+            if (from < 0) {
+                from = descending ? -from - 2 : -from - 1;
+            }
+            for (i = from; i >= 0 && i < selectedRanks.length && result.size() < limit; i += step) {
+                result.add(order[selectedRanks[i]]);
+            }
+        } else {
+            for (int rank = start; rank >= 0 && rank < order.length && result.size() < limit; rank += step) {
+                if (selected == null || selected.get(order[rank])) {
+                    result.add(order[rank]);
+                }
+            }
+        }
+        return result.toArray();
+    }
+
+    // Binary search for the number of ranks ordered before the cursor.
+    private int seek(int[] order, EntitySort sort, EntityCursor cursor) {
+        int low = 0, high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sort.compare(columns.get(order[mid]), cursor) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Entities of the given ordinals, in that order; none when null. The array is kept, not
+     * copied.
+     */
+    List<Entity> view(int[] ordinals) {
+        return ordinals == null ? List.of() : columns.view(ordinals);
+    }
+
+    private static int[] sort(Entity[] entities, EntitySort sort) {
+        Integer[] boxed = new Integer[entities.length];
+        for (int ordinal = 0; ordinal < entities.length; ordinal++) {
+            boxed[ordinal] = ordinal;
+        }
+        Arrays.sort(boxed, sort.ordinalComparator(entities));
+        int[] order = new int[entities.length];
+        for (int rank = 0; rank < order.length; rank++) {
+            order[rank] = boxed[rank];
+        }
+        return order;
+    }
+
+    private static String foldFragment(String fragment) {
+        return String.join(" ", NameSearchIndex.tokenize(fragment));
+    }
+
+    private static String connectionTypeKey(String connectionType) {
+        return connectionType == null ? "" : connectionType.toLowerCase(Locale.ROOT);
+    }
+
+    // "Inicial, Primario y Secundario" is indexed under each of the three levels.
+    private static List<String> levelKeys(String level) {
+        List<String> keys = new ArrayList<>();
+        for (String part : TextNormalizer.fold(level).split(",| y ")) {
+            if (!part.isBlank()) {
+                keys.add(part.trim());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Growable array of ordinals.
+     */
+    private static final class IntList {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * Integer attribute values sorted together with their ordinals, for inclusive range queries.
+     */
+    private static final class RangeIndex {
+        private final int[] values;
+        private final int[] ordinals;
+
+        private RangeIndex(List<int[]> pairs) {
+            // Sorted as value and ordinal packed into one long, which keeps equal values in ordinal order.
+            long[] packed = new long[pairs.size()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = (long) pairs.get(i)[0] << 32 | pairs.get(i)[1];
+            }
+            Arrays.sort(packed);
+            this.values = new int[packed.length];
+            this.ordinals = new int[packed.length];
+            for (int i = 0; i < packed.length; i++) {
+                values[i] = (int) (packed[i] >> 32);
+                ordinals[i] = (int) packed[i];
+            }
+        }
+
+        private BitSet between(Integer min, Integer max) {
+            int from = min == null ? 0 : lowerBound(min);
+            int to = max == null ? values.length : (max == Integer.MAX_VALUE ? values.length : lowerBound(max + 1));
+            BitSet result = new BitSet();
+            for (int i = from; i < to; i++) {
+                result.set(ordinals[i]);
+            }
+            return result;
+        }
+
+        private int lowerBound(int value) {
+            int low = 0, high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
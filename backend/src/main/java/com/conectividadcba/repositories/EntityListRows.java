@@ -0,0 +1,85 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+
+import java.util.List;
+
+/**
+ * {@link EntityRows} over a list of entity objects, read through their getters.
+ */
+final class EntityListRows implements EntityRows {
+    private final List<? extends Entity> entities;
+
+    EntityListRows(List<? extends Entity> entities) {
+        this.entities = entities;
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+
+    @Override
+    public long id(int row) {
+        Long id = entities.get(row).getId();
+        return id == null ? 0 : id;
+    }
+
+    @Override
+    public Entity.EntityType type(int row) {
+        return entities.get(row).getType();
+    }
+
+    @Override
+    public String name(int row) {
+        return entities.get(row).getName();
+    }
+
+    @Override
+    public String description(int row) {
+        return entities.get(row).getDescription();
+    }
+
+    @Override
+    public double lat(int row) {
+        Entity.Coordinates coordinates = entities.get(row).getCoordinates();
+        return coordinates == null ? Double.NaN : coordinates.getLat();
+    }
+
+    @Override
+    public double lng(int row) {
+        Entity.Coordinates coordinates = entities.get(row).getCoordinates();
+        return coordinates == null ? Double.NaN : coordinates.getLng();
+    }
+
+    @Override
+    public long departmentId(int row) {
+        Long departmentId = entities.get(row).getDepartmentId();
+        return departmentId == null ? -1 : departmentId;
+    }
+
+    @Override
+    public String connectionType(int row) {
+        return entities.get(row).getConnectionType();
+    }
+
+    @Override
+    public String detail(int row) {
+        Entity entity = entities.get(row);
+        if (entity instanceof School) {
+            return ((School) entity).getLevel();
+        }
+        return entity instanceof LearningCenter ? ((LearningCenter) entity).getSpecialization() : null;
+    }
+
+    @Override
+    public int count(int row) {
+        Entity entity = entities.get(row);
+        if (entity instanceof School) {
+            return ((School) entity).getStudentCount();
+        }
+        return entity instanceof LearningCenter ? ((LearningCenter) entity).getCapacity() : 0;
+    }
+}
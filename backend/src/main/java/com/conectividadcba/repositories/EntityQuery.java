@@ -0,0 +1,88 @@
+package com.conectividadcba.repositories;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Conjunction of optional criteria over entities; unset (null) criteria match everything. Range
+ * bounds are inclusive, and a {@code studentCount} range only matches schools, a
+ * {@code capacity} range only learning centers.
+ */
+public class EntityQuery {
+    /**
+     * Names of the criteria, as properties and as request parameters, in a fixed order.
+     */
+    public static final List<String> CRITERIA = List.of("name", "departmentId", "type", "connectionType", "level",
+            "minStudentCount", "maxStudentCount", "minCapacity", "maxCapacity");
+
+    private String name;
+    private Long departmentId;
+    private String type;
+    private String connectionType;
+    private String level;
+    private Integer minStudentCount;
+    private Integer maxStudentCount;
+    private Integer minCapacity;
+    private Integer maxCapacity;
+
+    public EntityQuery() {}
+
+    /**
+     * True when no criterion is set, i.e. the query matches every entity.
+     */
+    public boolean isEmpty() {
+        return isBlank(name) && departmentId == null && isBlank(type) && isBlank(connectionType)
+                && isBlank(level) && minStudentCount == null && maxStudentCount == null
+                && minCapacity == null && maxCapacity == null;
+    }
+
+    /**
+     * The names of the set criteria in {@link #CRITERIA} order joined with {@code +}, or
+     * {@code none}; identifies the shape of a query without its values, e.g. as a metrics tag.
+     */
+    public String criteriaKey() {
+        StringJoiner key = new StringJoiner("+");
+        key.setEmptyValue("none");
+        Object[] values = {isBlank(name) ? null : name, departmentId, isBlank(type) ? null : type,
+                isBlank(connectionType) ? null : connectionType, isBlank(level) ? null : level,
+                minStudentCount, maxStudentCount, minCapacity, maxCapacity};
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                key.add(CRITERIA.get(i));
+            }
+        }
+        return key.toString();
+    }
+
+    static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // Getters and setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getDepartmentId() { return departmentId; }
+    public void setDepartmentId(Long departmentId) { this.departmentId = departmentId; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getConnectionType() { return connectionType; }
+    public void setConnectionType(String connectionType) { this.connectionType = connectionType; }
+
+    public String getLevel() { return level; }
+    public void setLevel(String level) { this.level = level; }
+
+    public Integer getMinStudentCount() { return minStudentCount; }
+    public void setMinStudentCount(Integer minStudentCount) { this.minStudentCount = minStudentCount; }
+
+    public Integer getMaxStudentCount() { return maxStudentCount; }
+    public void setMaxStudentCount(Integer maxStudentCount) { this.maxStudentCount = maxStudentCount; }
+
+    public Integer getMinCapacity() { return minCapacity; }
+    public void setMinCapacity(Integer minCapacity) { this.minCapacity = minCapacity; }
+
+    public Integer getMaxCapacity() { return maxCapacity; }
+    public void setMaxCapacity(Integer maxCapacity) { this.maxCapacity = maxCapacity; }
+}
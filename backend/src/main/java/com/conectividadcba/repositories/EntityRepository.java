@@ -1,13 +1,94 @@
 package com.conectividadcba.repositories;
 
 import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.EntityChange;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 public interface EntityRepository {
+    /**
+     * Version of the data set, increased on every change; responses derived from the repository
+     * can be cached and validated against it.
+     */
+    long getDataVersion();
+
+    /**
+     * Registers a listener for every entity change from now on; see {@link EntityWriteListener}.
+     */
+    void addWriteListener(EntityWriteListener listener);
+
     List<Entity> findAll();
+
+    /**
+     * Every entity and the data version they belong to; unlike {@link #getDataVersion()} followed
+     * by {@link #findAll()}, no write can land in between.
+     */
+    VersionedEntities findAllVersioned();
+
+    /**
+     * Inserts or replaces each entity by id as one new version of the data set; entities without
+     * an id are assigned the next free one. Returns that version and the replaced entity for each
+     * input, or null where it was inserted.
+     */
+    SavedEntities saveAll(List<? extends Entity> entities);
+
+    /**
+     * Inserts the entity as a new version of the data set, assigning the next free id when it has
+     * none.
+     *
+     * @throws DuplicateEntityException if an entity with its id already exists
+     */
+    void insert(Entity entity);
+
+    /**
+     * Replaces the entity with what {@code change} makes of the current one, as a new version of
+     * the data set, and returns the replacement. The change runs under the same lock as every
+     * other write, so none lands between reading the entity and replacing it. It must not modify
+     * its argument. Empty, with nothing written, if there is no entity with that id.
+     *
+     * @throws RuntimeException whatever {@code change} throws; nothing is written then either
+     */
+    Optional<Entity> update(Long id, UnaryOperator<Entity> change);
+
+    /**
+     * Removes the entity as a new version of the data set, returning it if it existed.
+     */
+    Optional<Entity> deleteById(Long id);
+
+    /**
+     * Every change committed after data version {@code version} up to the current one, oldest
+     * first; empty if the change log no longer reaches back that far.
+     */
+    Optional<List<EntityChange>> findChangesSince(long version);
     Optional<Entity> findById(Long id);
     List<Entity> findByType(String type);
     List<Entity> findByDepartmentId(Long departmentId);
+    List<Entity> findByConnectionType(String connectionType);
     List<Entity> findByName(String name);
+
+    /**
+     * Typeahead name search, ranked, ignoring accents and case.
+     */
+    List<Entity> searchByName(String query, int limit);
+    List<Entity> findWithinBounds(double minLat, double minLng, double maxLat, double maxLng);
+    List<Entity> findNearest(double lat, double lng, double radiusKm, int limit);
+
+    /**
+     * Entities matching every criterion of the query, in insertion order.
+     */
+    List<Entity> findByQuery(EntityQuery query);
+
+    /**
+     * {@link #findByQuery} restricted to a bounding box, looked up through the spatial index
+     * first; {@code query} may be null.
+     */
+    List<Entity> findByQueryWithinBounds(EntityQuery query, double minLat, double minLng, double maxLat,
+                                         double maxLng);
+
+    /**
+     * Keyset pagination: up to {@code limit} entities matching {@code query} (all when null) in
+     * {@code sort} order that come after the cursor {@code after} (from the start when null).
+     */
+    List<Entity> findPage(EntityQuery query, EntitySort sort, boolean descending, EntityCursor after, int limit);
 }
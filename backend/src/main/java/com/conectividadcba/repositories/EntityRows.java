@@ -0,0 +1,54 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+
+import java.util.List;
+
+/**
+ * Field-by-field access to a list of entities by position, for encoders that would otherwise
+ * materialize every entity just to read it. Lists returned by {@link IndexedEntityRepository}
+ * implement it over their columns; {@link #of} adapts any other list.
+ */
+public interface EntityRows {
+
+    int size();
+
+    long id(int row);
+
+    /**
+     * The type, or null when unset.
+     */
+    Entity.EntityType type(int row);
+
+    String name(int row);
+
+    String description(int row);
+
+    /**
+     * The latitude, or NaN when the entity has no coordinates.
+     */
+    double lat(int row);
+
+    double lng(int row);
+
+    /**
+     * The department id, or -1 when unset.
+     */
+    long departmentId(int row);
+
+    String connectionType(int row);
+
+    /**
+     * The level of a school or the specialization of a learning center, null for other entities.
+     */
+    String detail(int row);
+
+    /**
+     * The student count of a school or the capacity of a learning center, 0 for other entities.
+     */
+    int count(int row);
+
+    static EntityRows of(List<? extends Entity> entities) {
+        return entities instanceof EntityRows ? (EntityRows) entities : new EntityListRows(entities);
+    }
+}
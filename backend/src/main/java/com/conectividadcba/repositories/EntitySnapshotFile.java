@@ -0,0 +1,338 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary, column-oriented snapshot of an {@link EntityIndex}. Layout (big-endian):
+ * <pre>
+ * "CCBASNAP" formatVersion:int dataVersion:long count:int
+ * dictionary: size:int (length:int utf8)*      connection types, levels and specializations
+ * ids:long[count] kinds:byte[count] types:byte[count]
+ * lats:double[count] lngs:double[count] departmentIds:long[count]
+ * connectionTypes:int[count] details:int[count] counts:int[count]    dictionary codes, -1 for null
+ * names, descriptions, folded names: lengths:int[count] (-1 for null) utf8 bytes
+ * sorts: size:int (field:string order:int[count])*
+ * crc32:long                                                          over everything before it
+ * </pre>
+ * {@code details} holds the level of a school or the specialization of a learning center, and
+ * {@code counts} its student count or capacity. The sort orders and the folded names of the
+ * name search index are stored so that loading neither re-sorts nor re-normalizes text.
+ *
+ * <p>Files are read through a read-only memory mapping, so the bulk of a load is a few array copies
+ * out of the page cache.
+ */
+final class EntitySnapshotFile {
+    private static final byte[] MAGIC = "CCBASNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_DEPARTMENT = Long.MIN_VALUE;
+    private static final byte ENTITY = 0;
+    private static final byte SCHOOL = 1;
+    private static final byte LEARNING_CENTER = 2;
+
+    private EntitySnapshotFile() {}
+
+    /**
+     * Writes the snapshot next to {@code file} and moves it into place, so readers never see a
+     * partial file.
+     */
+    static void write(Path file, EntityIndex index, long dataVersion) throws IOException {
+        List<Entity> entities = index.all();
+        int count = entities.size();
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> codes = new HashMap<>();
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (FileOutputStream raw = new FileOutputStream(temp.toFile())) {
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(raw, 1 << 16), crc));
+                int[] connectionTypes = new int[count];
+                int[] details = new int[count];
+                for (int i = 0; i < count; i++) {
+                    Entity entity = entities.get(i);
+                    connectionTypes[i] = code(entity.getConnectionType(), dictionary, codes);
+                    details[i] = code(detail(entity), dictionary, codes);
+                }
+
+                out.write(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(dataVersion);
+                out.writeInt(count);
+                out.writeInt(dictionary.size());
+                for (String value : dictionary) {
+                    writeString(out, value);
+                }
+                for (Entity entity : entities) {
+                    out.writeLong(entity.getId());
+                }
+                for (Entity entity : entities) {
+                    out.writeByte(entity instanceof School ? SCHOOL
+                            : entity instanceof LearningCenter ? LEARNING_CENTER : ENTITY);
+                }
+                for (Entity entity : entities) {
+                    out.writeByte(entity.getType() == null ? -1 : entity.getType().ordinal());
+                }
+                for (Entity entity : entities) {
+                    out.writeDouble(entity.getCoordinates() == null ? Double.NaN : entity.getCoordinates().getLat());
+                }
+                for (Entity entity : entities) {
+                    out.writeDouble(entity.getCoordinates() == null ? Double.NaN : entity.getCoordinates().getLng());
+                }
+                for (Entity entity : entities) {
+                    out.writeLong(entity.getDepartmentId() == null ? NO_DEPARTMENT : entity.getDepartmentId());
+                }
+                for (int code : connectionTypes) {
+                    out.writeInt(code);
+                }
+                for (int code : details) {
+                    out.writeInt(code);
+                }
+                for (Entity entity : entities) {
+                    out.writeInt(entity instanceof School ? ((School) entity).getStudentCount()
+                            : entity instanceof LearningCenter ? ((LearningCenter) entity).getCapacity() : 0);
+                }
+                List<byte[]> names = new ArrayList<>(count);
+                List<byte[]> descriptions = new ArrayList<>(count);
+                for (Entity entity : entities) {
+                    names.add(entity.getName() == null ? null : entity.getName().getBytes(StandardCharsets.UTF_8));
+                    descriptions.add(entity.getDescription() == null
+                            ? null : entity.getDescription().getBytes(StandardCharsets.UTF_8));
+                }
+                List<byte[]> foldedNames = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    foldedNames.add(index.foldedName(i).getBytes(StandardCharsets.UTF_8));
+                }
+                writeStrings(out, names);
+                writeStrings(out, descriptions);
+                writeStrings(out, foldedNames);
+                out.writeInt(EntitySort.values().length);
+                for (EntitySort sort : EntitySort.values()) {
+                    writeString(out, sort.getField());
+                    for (int ordinal : index.sortOrder(sort)) {
+                        out.writeInt(ordinal);
+                    }
+                }
+                out.flush();
+                // The checksum itself is written past the checked stream.
+                new DataOutputStream(raw).writeLong(crc.getValue());
+                // On disk before the move, so a crash never leaves a renamed but empty snapshot.
+                raw.getFD().sync();
+            }
+            if (Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                // Temp files are owner-only; other processes on the host should be able to map it.
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps and decodes a snapshot.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot of this format version or
+     *                     fails its checksum
+     */
+    static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE || channel.size() < MAGIC.length + 28) {
+                throw new IOException("Not an entity snapshot: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            crc.update(data.slice(0, data.limit() - 8));
+            if (crc.getValue() != data.getLong(data.limit() - 8)) {
+                throw new IOException("Entity snapshot is corrupt: " + file);
+            }
+            byte[] magic = new byte[MAGIC.length];
+            data.get(magic);
+            int formatVersion = data.getInt();
+            if (!Arrays.equals(magic, MAGIC) || formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported entity snapshot format in " + file);
+            }
+            long dataVersion = data.getLong();
+            int count = data.getInt();
+            String[] dictionary = new String[data.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(data);
+            }
+
+            long[] ids = new long[count];
+            data.asLongBuffer().get(ids);
+            skip(data, 8L * count);
+            byte[] kinds = new byte[count];
+            data.get(kinds);
+            byte[] types = new byte[count];
+            data.get(types);
+            double[] lats = new double[count];
+            data.asDoubleBuffer().get(lats);
+            skip(data, 8L * count);
+            double[] lngs = new double[count];
+            data.asDoubleBuffer().get(lngs);
+            skip(data, 8L * count);
+            long[] departmentIds = new long[count];
+            data.asLongBuffer().get(departmentIds);
+            skip(data, 8L * count);
+            int[] connectionTypes = readInts(data, count);
+            int[] details = readInts(data, count);
+            int[] counts = readInts(data, count);
+            String[] names = readStrings(data, count);
+            String[] descriptions = readStrings(data, count);
+            String[] foldedNames = readStrings(data, count);
+
+            Entity.EntityType[] typeValues = Entity.EntityType.values();
+            List<Entity> entities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Entity.Coordinates coordinates = Double.isNaN(lats[i])
+                        ? null : new Entity.Coordinates(lats[i], lngs[i]);
+                Long departmentId = departmentIds[i] == NO_DEPARTMENT ? null : departmentIds[i];
+                String connectionType = connectionTypes[i] < 0 ? null : dictionary[connectionTypes[i]];
+                String detail = details[i] < 0 ? null : dictionary[details[i]];
+                Entity entity;
+                if (kinds[i] == SCHOOL) {
+                    entity = new School(ids[i], names[i], coordinates, descriptions[i], departmentId, detail,
+                            counts[i], connectionType);
+                } else if (kinds[i] == LEARNING_CENTER) {
+                    entity = new LearningCenter(ids[i], names[i], coordinates, descriptions[i], departmentId,
+                            detail, counts[i], connectionType);
+                } else {
+                    entity = new Entity(ids[i], names[i], types[i] < 0 ? null : typeValues[types[i]], coordinates,
+                            descriptions[i], departmentId, connectionType);
+                }
+                entities.add(entity);
+            }
+
+            int[][] sortOrders = new int[EntitySort.values().length][];
+            int sortCount = data.getInt();
+            for (int s = 0; s < sortCount; s++) {
+                EntitySort sort = EntitySort.fromField(readString(data));
+                int[] order = readInts(data, count);
+                if (sort != null && isPermutation(order)) {
+                    sortOrders[sort.ordinal()] = order;
+                }
+            }
+            return new Contents(new EntityIndex(entities, sortOrders, foldedNames), dataVersion);
+        } catch (RuntimeException e) {
+            // Buffer underflows and bad dictionary codes of a file that passed the checksum.
+            throw new IOException("Malformed entity snapshot: " + file, e);
+        }
+    }
+
+    private static String detail(Entity entity) {
+        if (entity instanceof School) {
+            return ((School) entity).getLevel();
+        }
+        if (entity instanceof LearningCenter) {
+            return ((LearningCenter) entity).getSpecialization();
+        }
+        return null;
+    }
+
+    private static int code(String value, List<String> dictionary, Map<String, Integer> codes) {
+        if (value == null) {
+            return -1;
+        }
+        return codes.computeIfAbsent(value, v -> {
+            dictionary.add(v);
+            return dictionary.size() - 1;
+        });
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<byte[]> values) throws IOException {
+        for (byte[] value : values) {
+            out.writeInt(value == null ? -1 : value.length);
+        }
+        for (byte[] value : values) {
+            if (value != null) {
+                out.write(value);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.getInt()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String[] readStrings(ByteBuffer data, int count) {
+        int[] lengths = readInts(data, count);
+        String[] values = new String[count];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] >= 0) {
+                if (lengths[i] > bytes.length) {
+                    bytes = new byte[Math.max(lengths[i], bytes.length * 2)];
+                }
+                data.get(bytes, 0, lengths[i]);
+                values[i] = new String(bytes, 0, lengths[i], StandardCharsets.UTF_8);
+            }
+        }
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer data, int count) {
+        int[] values = new int[count];
+        data.asIntBuffer().get(values);
+        skip(data, 4L * count);
+        return values;
+    }
+
+    private static void skip(ByteBuffer data, long bytes) {
+        data.position(Math.toIntExact(data.position() + bytes));
+    }
+
+    private static boolean isPermutation(int[] order) {
+        BitSet seen = new BitSet(order.length);
+        for (int ordinal : order) {
+            if (ordinal < 0 || ordinal >= order.length || seen.get(ordinal)) {
+                return false;
+            }
+            seen.set(ordinal);
+        }
+        return true;
+    }
+
+    static final class Contents {
+        final EntityIndex index;
+        final long dataVersion;
+
+        private Contents(EntityIndex index, long dataVersion) {
+            this.index = index;
+            this.dataVersion = dataVersion;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.util.TextNormalizer;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * Orders the repository can page through. Every order ends with the entity id, so it is total and
+ * a key with an id ({@link EntityCursor}) is enough to resume after any entity. Null keys sort
+ * last.
+ */
+public enum EntitySort {
+    ID("id", Entity::getId, Long::valueOf),
+    NAME("name", entity -> TextNormalizer.fold(entity.getName()), Function.identity()),
+    TYPE("type", Entity::getType, Entity.EntityType::valueOf),
+    DEPARTMENT_ID("departmentId", Entity::getDepartmentId, Long::valueOf),
+    CONNECTION_TYPE("connectionType", entity -> entity.getConnectionType() == null
+            ? null : TextNormalizer.fold(entity.getConnectionType()), Function.identity());
+
+    private final String field;
+    private final Function<Entity, ? extends Comparable<?>> key;
+    // Reads a key back from its toString(), as written into cursors.
+    private final Function<String, ? extends Comparable<?>> keyParser;
+    private final Comparator<Entity> comparator;
+
+    <T extends Comparable<? super T>> EntitySort(String field, Function<Entity, T> key,
+                                                 Function<String, T> keyParser) {
+        this.field = field;
+        this.key = key;
+        this.keyParser = keyParser;
+        this.comparator = Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Entity::getId);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public Comparator<Entity> comparator() {
+        return comparator;
+    }
+
+    Comparable<?> key(Entity entity) {
+        return key.apply(entity);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code text} is not a key of this sort
+     */
+    Comparable<?> parseKey(String text) {
+        return keyParser.apply(text);
+    }
+
+    /**
+     * Compares {@code entity} with the position of {@code cursor} in this order.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    int compare(Entity entity, EntityCursor cursor) {
+        Comparator<Comparable> byKey = Comparator.nullsLast(Comparator.naturalOrder());
+        int result = byKey.compare(key.apply(entity), cursor.getKey());
+        return result != 0 ? result : Long.compare(entity.getId(), cursor.getId());
+    }
+
+    /**
+     * Orders ordinals of {@code entities} the way {@link #comparator()} orders the entities, with
+     * every key computed once up front rather than on each comparison (folding a name is far
+     * slower than comparing it).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Comparator<Integer> ordinalComparator(Entity[] entities) {
+        Comparable[] keys = new Comparable[entities.length];
+        long[] ids = new long[entities.length];
+        for (int ordinal = 0; ordinal < entities.length; ordinal++) {
+            keys[ordinal] = key.apply(entities[ordinal]);
+            ids[ordinal] = entities[ordinal].getId();
+        }
+        Comparator<Comparable> byKey = Comparator.nullsLast(Comparator.naturalOrder());
+        return (a, b) -> {
+            int result = byKey.compare(keys[a], keys[b]);
+            return result != 0 ? result : Long.compare(ids[a], ids[b]);
+        };
+    }
+
+    /**
+     * Looks up a sort by its JSON field name; null if there is none.
+     */
+    public static EntitySort fromField(String field) {
+        for (EntitySort sort : values()) {
+            if (sort.field.equals(field)) {
+                return sort;
+            }
+        }
+        return null;
+    }
+}
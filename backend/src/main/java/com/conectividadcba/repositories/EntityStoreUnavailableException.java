@@ -0,0 +1,14 @@
+package com.conectividadcba.repositories;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A write the store could not make durable, or refused because an earlier one could not be: the
+ * fault is in the storage, not in the write.
+ */
+public class EntityStoreUnavailableException extends UncheckedIOException {
+    public EntityStoreUnavailableException(String message, IOException cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,55 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * One caller's write, queued for {@link IndexedEntityRepository#commit}: either entities to insert
+ * or replace, a single entity to insert only if its id is free, a change to an entity that is only
+ * made if it exists, or the id of an entity to delete. The applying thread fills in the outcome.
+ */
+final class EntityWrite {
+    // Null for a delete, and for an update until it is applied (and after, if the entity is gone).
+    List<? extends Entity> upserts;
+    final boolean insert;
+    final long deleteId;
+    // Null unless this is an update.
+    final UnaryOperator<Entity> update;
+    final long updateId;
+
+    // Written by the applying thread under the repository's monitor.
+    boolean applied;
+    long version;
+    List<Entity> previous;
+    Entity removed;
+    RuntimeException failure;
+    // Log position that has to be durable before the write is acknowledged, 0 if none.
+    long position;
+
+    private EntityWrite(List<? extends Entity> upserts, boolean insert, long deleteId, UnaryOperator<Entity> update,
+                        long updateId) {
+        this.upserts = upserts;
+        this.insert = insert;
+        this.deleteId = deleteId;
+        this.update = update;
+        this.updateId = updateId;
+    }
+
+    static EntityWrite upsert(List<? extends Entity> entities) {
+        return new EntityWrite(entities, false, 0, null, 0);
+    }
+
+    static EntityWrite insert(Entity entity) {
+        return new EntityWrite(List.of(entity), true, 0, null, 0);
+    }
+
+    static EntityWrite update(long id, UnaryOperator<Entity> change) {
+        return new EntityWrite(null, false, 0, change, id);
+    }
+
+    static EntityWrite delete(long id) {
+        return new EntityWrite(null, false, id, null, 0);
+    }
+}
@@ -0,0 +1,509 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of entity writes, one record per data version (one batch of writes), in segment
+ * files named after the first version they hold ({@code wal-<version>.log}). Record layout
+ * (big-endian):
+ * <pre>
+ * length:int crc32:int payload                  crc32 over the payload
+ * payload: version:long count:int (op:byte (entity | id:long))*     op 0 = upsert, 1 = delete
+ * entity: kind:byte id:long type:byte lat:double lng:double departmentId:long count:int
+ *         connectionType name description detail          strings as length:int (-1 for null) utf8
+ * </pre>
+ * Appends only fill a memory buffer. {@link #sync} makes them durable with group commit: the
+ * first caller to need it writes everything appended so far with one write and one
+ * {@code fsync}, while later callers queue up behind it and are usually covered by the next one.
+ * After an I/O error the log refuses further appends, since what is in memory is no longer
+ * covered by it.
+ */
+final class EntityWriteAheadLog implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(EntityWriteAheadLog.class);
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final byte UPSERT = 0;
+    private static final byte DELETE = 1;
+    private static final byte ENTITY = 0;
+    private static final byte SCHOOL = 1;
+    private static final byte LEARNING_CENTER = 2;
+    private static final long NO_DEPARTMENT = Long.MIN_VALUE;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final Object lock = new Object();
+    // Guarded by lock. Positions count bytes appended since the log was opened, across segments.
+    private FileOutputStream segment;
+    private long segmentBytes;
+    private byte[] pending = new byte[1 << 16];
+    private byte[] spare = new byte[1 << 16];
+    private int pendingLength;
+    private long appended;
+    private long durable;
+    private boolean flushing;
+    private IOException failure;
+
+    /**
+     * Opens a new segment starting at {@code firstVersion}; existing segments are left alone.
+     */
+    EntityWriteAheadLog(Path directory, long firstVersion, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segment = openSegment(firstVersion);
+    }
+
+    /**
+     * Buffers a record and returns the position {@link #sync} has to reach for it to be durable.
+     */
+    long append(byte[] payload) {
+        synchronized (lock) {
+            checkWritable();
+            int length = HEADER_BYTES + payload.length;
+            if (pendingLength + length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer.wrap(pending, pendingLength, HEADER_BYTES).putInt(payload.length).putInt((int) crc.getValue());
+            System.arraycopy(payload, 0, pending, pendingLength + HEADER_BYTES, payload.length);
+            pendingLength += length;
+            appended += length;
+            segmentBytes += length;
+            return appended;
+        }
+    }
+
+    /**
+     * Returns once everything up to {@code position} is written (and forced to disk when fsync is
+     * on), writing it itself unless another caller already is.
+     */
+    void sync(long position) throws IOException {
+        while (true) {
+            byte[] batch;
+            int length;
+            long end;
+            FileOutputStream target;
+            synchronized (lock) {
+                while (flushing && durable < position) {
+                    awaitFlush();
+                }
+                if (durable >= position) {
+                    return;
+                }
+                checkWritable();
+                batch = pending;
+                length = pendingLength;
+                end = appended;
+                target = segment;
+                pending = spare;
+                pendingLength = 0;
+                flushing = true;
+            }
+            IOException error = null;
+            try {
+                write(target, batch, length);
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (lock) {
+                spare = batch;
+                flushing = false;
+                if (error == null) {
+                    durable = end;
+                } else {
+                    failure = error;
+                }
+                lock.notifyAll();
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Makes everything appended so far durable in the current segment and starts a new one at
+     * {@code firstVersion}. Callers hold off writes meanwhile, so that the new segment starts
+     * exactly there.
+     */
+    void roll(long firstVersion) throws IOException {
+        synchronized (lock) {
+            while (flushing) {
+                awaitFlush();
+            }
+            checkWritable();
+            try {
+                write(segment, pending, pendingLength);
+                segment.close();
+                segment = openSegment(firstVersion);
+            } catch (IOException e) {
+                failure = e;
+                lock.notifyAll();
+                throw e;
+            }
+            pendingLength = 0;
+            durable = appended;
+            segmentBytes = 0;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Bytes appended to the current segment.
+     */
+    long segmentBytes() {
+        synchronized (lock) {
+            return segmentBytes;
+        }
+    }
+
+    /**
+     * Deletes the segments in {@code directory} that start before {@code firstVersion}, i.e. all
+     * but the current one after a {@link #roll} to it.
+     */
+    static void deleteSegmentsBefore(Path directory, long firstVersion) throws IOException {
+        for (Path segment : segments(directory)) {
+            if (firstVersion(segment) < firstVersion) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            while (flushing) {
+                try {
+                    awaitFlush();
+                } catch (InterruptedIOException e) {
+                    break;
+                }
+            }
+            try {
+                if (failure == null) {
+                    write(segment, pending, pendingLength);
+                    durable = appended;
+                    pendingLength = 0;
+                }
+            } finally {
+                segment.close();
+                failure = new IOException("Write-ahead log is closed");
+            }
+        }
+    }
+
+    /**
+     * The record of a batch applied as {@code version}: the upserted entities and the ids actually
+     * deleted by its writes that did not fail, in order.
+     */
+    static byte[] record(long version, List<EntityWrite> batch) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int count = 0;
+            for (EntityWrite write : batch) {
+                if (write.failure == null) {
+                    count += write.upserts != null ? write.upserts.size() : write.removed != null ? 1 : 0;
+                }
+            }
+            out.writeLong(version);
+            out.writeInt(count);
+            for (EntityWrite write : batch) {
+                if (write.failure != null) {
+                    continue;
+                }
+                if (write.upserts != null) {
+                    for (Entity entity : write.upserts) {
+                        out.writeByte(UPSERT);
+                        writeEntity(out, entity);
+                    }
+                } else if (write.removed != null) {
+                    out.writeByte(DELETE);
+                    out.writeLong(write.deleteId);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Every record of the segments in {@code directory}, oldest first. The newest segment may end
+     * in a torn record, the write a crash cut short: it is dropped with a warning. Any other
+     * unreadable record, or a torn one in an older segment, means the log lost acknowledged
+     * writes and fails the read, so that nothing after it gets discarded.
+     *
+     * @throws IOException if a segment cannot be read or is corrupt anywhere but at its end
+     */
+    static List<Record> read(Path directory) throws IOException {
+        List<Record> records = new ArrayList<>();
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            byte[] bytes = Files.readAllBytes(segment);
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (data.hasRemaining()) {
+                int start = data.position();
+                String problem = readNext(data, records);
+                if (problem == null) {
+                    continue;
+                }
+                if (i == segments.size() - 1 && isTornTail(bytes, start)) {
+                    log.warn("Dropping {} bytes at the end of {} from offset {}, a write cut short: {}",
+                            bytes.length - start, segment, start, problem);
+                    return records;
+                }
+                throw new IOException("Write-ahead log segment " + segment + " is corrupt at offset " + start
+                        + " (" + problem + "); the " + (bytes.length - start) + " bytes from there and "
+                        + (segments.size() - 1 - i) + " later segments are not replayed. Restore or move away the"
+                        + " segments from this one on to start without them");
+            }
+        }
+        return records;
+    }
+
+    // Reads the record at the buffer's position into records; returns what is wrong with it instead.
+    private static String readNext(ByteBuffer data, List<Record> records) {
+        if (data.remaining() < HEADER_BYTES) {
+            return "incomplete header";
+        }
+        int length = data.getInt();
+        int checksum = data.getInt();
+        if (length < 12 || length > data.remaining()) {
+            return "bad length " + length;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), data.position(), length);
+        if ((int) crc.getValue() != checksum) {
+            return "checksum mismatch";
+        }
+        ByteBuffer payload = data.slice(data.position(), length);
+        data.position(data.position() + length);
+        try {
+            records.add(readRecord(payload));
+            return null;
+        } catch (RuntimeException e) {
+            return "unreadable payload: " + e;
+        }
+    }
+
+    // A record at start that a crash can have left behind: one that runs into the end of the file
+    // or is followed only by zeros, as a file extended before its data reached the disk.
+    private static boolean isTornTail(byte[] bytes, int start) {
+        if (bytes.length - start < HEADER_BYTES) {
+            return true;
+        }
+        long end = start + HEADER_BYTES + (long) ByteBuffer.wrap(bytes, start, 4).getInt();
+        if (end > bytes.length) {
+            return true;
+        }
+        if (end == bytes.length) {
+            // Complete but unreadable is damage, not a cut.
+            return !hasValidChecksum(bytes, start);
+        }
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValidChecksum(byte[] bytes, int start) {
+        ByteBuffer header = ByteBuffer.wrap(bytes, start, HEADER_BYTES);
+        int length = header.getInt();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, start + HEADER_BYTES, length);
+        return (int) crc.getValue() == header.getInt();
+    }
+
+    private static Record readRecord(ByteBuffer payload) {
+        long version = payload.getLong();
+        int count = payload.getInt();
+        List<Operation> operations = new ArrayList<>(Math.min(count, payload.remaining()));
+        for (int i = 0; i < count; i++) {
+            operations.add(payload.get() == DELETE
+                    ? new Operation(null, payload.getLong())
+                    : new Operation(readEntity(payload), 0));
+        }
+        return new Record(version, operations);
+    }
+
+    private static void writeEntity(DataOutputStream out, Entity entity) throws IOException {
+        String detail = null;
+        int count = 0;
+        byte kind = ENTITY;
+        if (entity instanceof School) {
+            kind = SCHOOL;
+            detail = ((School) entity).getLevel();
+            count = ((School) entity).getStudentCount();
+        } else if (entity instanceof LearningCenter) {
+            kind = LEARNING_CENTER;
+            detail = ((LearningCenter) entity).getSpecialization();
+            count = ((LearningCenter) entity).getCapacity();
+        }
+        Entity.Coordinates coordinates = entity.getCoordinates();
+        out.writeByte(kind);
+        out.writeLong(entity.getId());
+        out.writeByte(entity.getType() == null ? -1 : entity.getType().ordinal());
+        out.writeDouble(coordinates == null ? Double.NaN : coordinates.getLat());
+        out.writeDouble(coordinates == null ? Double.NaN : coordinates.getLng());
+        out.writeLong(entity.getDepartmentId() == null ? NO_DEPARTMENT : entity.getDepartmentId());
+        out.writeInt(count);
+        writeString(out, entity.getConnectionType());
+        writeString(out, entity.getName());
+        writeString(out, entity.getDescription());
+        writeString(out, detail);
+    }
+
+    private static Entity readEntity(ByteBuffer in) {
+        byte kind = in.get();
+        long id = in.getLong();
+        byte type = in.get();
+        double lat = in.getDouble();
+        double lng = in.getDouble();
+        long department = in.getLong();
+        int count = in.getInt();
+        String connectionType = readString(in);
+        String name = readString(in);
+        String description = readString(in);
+        String detail = readString(in);
+        Entity.Coordinates coordinates = Double.isNaN(lat) ? null : new Entity.Coordinates(lat, lng);
+        Long departmentId = department == NO_DEPARTMENT ? null : department;
+        switch (kind) {
+            case SCHOOL:
+                return new School(id, name, coordinates, description, departmentId, detail, count, connectionType);
+            case LEARNING_CENTER:
+                return new LearningCenter(id, name, coordinates, description, departmentId, detail, count, connectionType);
+            default:
+                return new Entity(id, name, type < 0 ? null : Entity.EntityType.values()[type], coordinates,
+                        description, departmentId, connectionType);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // A stream rather than a FileChannel: an interrupted writer would close the channel for all.
+    private void write(FileOutputStream target, byte[] batch, int length) throws IOException {
+        target.write(batch, 0, length);
+        if (fsync) {
+            target.getFD().sync();
+        }
+    }
+
+    private FileOutputStream openSegment(long firstVersion) throws IOException {
+        Path file = directory.resolve(String.format(Locale.ROOT, "%s%020d%s", PREFIX, firstVersion, SUFFIX));
+        FileOutputStream opened = new FileOutputStream(file.toFile());
+        if (fsync) {
+            forceDirectory(directory);
+        }
+        return opened;
+    }
+
+    private void awaitFlush() throws InterruptedIOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the write-ahead log");
+        }
+    }
+
+    void checkWritable() {
+        if (failure != null) {
+            throw new EntityStoreUnavailableException("Write-ahead log in " + directory + " is unavailable", failure);
+        }
+    }
+
+    /**
+     * Makes a file creation, rename or deletion in {@code directory} durable, where the platform
+     * allows opening directories.
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform; the data files themselves are forced regardless.
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            files.forEach(segments::add);
+        }
+        // Zero-padded versions sort by name.
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long firstVersion(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    static final class Record {
+        final long version;
+        final List<Operation> operations;
+
+        private Record(long version, List<Operation> operations) {
+            this.version = version;
+            this.operations = operations;
+        }
+    }
+
+    static final class Operation {
+        // Null for a delete.
+        final Entity upsert;
+        final long deletedId;
+
+        private Operation(Entity upsert, long deletedId) {
+            this.upsert = upsert;
+            this.deletedId = deletedId;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+
+/**
+ * Receives every entity change a repository commits, under its write lock and before the new
+ * version is visible to readers, so that state derived from the entities never lags behind a
+ * version a reader can see. Implementations must be quick and must not write to the repository.
+ */
+public interface EntityWriteListener {
+
+    /**
+     * One inserted ({@code before} null), replaced or deleted ({@code after} null) entity, in the
+     * order of the writes.
+     */
+    void onWrite(Entity before, Entity after);
+
+    /**
+     * Called once the commit's changes are visible as {@code version}.
+     */
+    default void onPublished(long version) {
+    }
+}
@@ -0,0 +1,402 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.EntityChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory repository that answers every lookup from an {@link EntityIndex} instead of scanning
+ * the entity list. Returned lists are unmodifiable views over the index's columnar storage, and
+ * each read of an element materializes a new entity, so changing one has no effect on the store.
+ *
+ * <p>The index is an immutable snapshot behind a volatile reference. Readers take no locks and
+ * see one consistent version for the whole call; writers are serialized, apply a whole batch on
+ * top of the current snapshot and publish the result in a single swap. A batch only indexes the
+ * entities written since the last full build ({@link LayeredEntityIndex}), so its cost follows
+ * the size of the batch rather than of the data set. Writers that arrive while another one holds
+ * the lock are applied together as one batch and one version. Entities are never modified in
+ * place: an update replaces the row. Every write is also recorded in a change log of the last
+ * {@value #CHANGE_LOG_CAPACITY} changes and passed to the {@link EntityWriteListener}s, before
+ * the new version is published.
+ */
+public class IndexedEntityRepository implements EntityRepository {
+    private static final Logger log = LoggerFactory.getLogger(IndexedEntityRepository.class);
+    static final int CHANGE_LOG_CAPACITY = 10_000;
+
+    private volatile Snapshot snapshot;
+    private final EntityChangeLog changeLog;
+    private final Queue<EntityWrite> queue = new ConcurrentLinkedQueue<>();
+    private final List<EntityWriteListener> listeners = new CopyOnWriteArrayList<>();
+
+    public IndexedEntityRepository(Collection<? extends Entity> entities) {
+        this.snapshot = new Snapshot(new EntityIndex(entities), 1);
+        this.changeLog = new EntityChangeLog(CHANGE_LOG_CAPACITY, 1);
+    }
+
+    IndexedEntityRepository(EntitySnapshotFile.Contents contents) {
+        this.snapshot = new Snapshot(contents.index, contents.dataVersion);
+        this.changeLog = new EntityChangeLog(CHANGE_LOG_CAPACITY, contents.dataVersion);
+    }
+
+    /**
+     * Restores a repository, data version included, from a file written by {@link #save}.
+     *
+     * @throws IOException if the file is missing, corrupt or of another format version
+     */
+    public static IndexedEntityRepository load(Path file) throws IOException {
+        return new IndexedEntityRepository(EntitySnapshotFile.read(file));
+    }
+
+    /**
+     * Writes the current version of the data set to a binary snapshot file, replacing it
+     * atomically, and returns the version written.
+     */
+    public long save(Path file) throws IOException {
+        Snapshot current = snapshot;
+        EntitySnapshotFile.write(file, current.index.merged(), current.version);
+        return current.version;
+    }
+
+    /**
+     * Replaces the whole data set in one step, at the given version; the change log restarts
+     * there, so clients behind it resync. Listeners are not told.
+     */
+    synchronized void reset(Collection<? extends Entity> entities, long version) {
+        changeLog.clear(version);
+        snapshot = new Snapshot(new EntityIndex(entities), version);
+    }
+
+    @Override
+    public void addWriteListener(EntityWriteListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public long getDataVersion() {
+        return snapshot.version;
+    }
+
+    @Override
+    public List<Entity> findAll() {
+        return snapshot.index.all();
+    }
+
+    @Override
+    public VersionedEntities findAllVersioned() {
+        Snapshot current = snapshot;
+        return new VersionedEntities(current.version, current.index.all());
+    }
+
+    @Override
+    public SavedEntities saveAll(List<? extends Entity> entities) {
+        EntityWrite write = EntityWrite.upsert(entities);
+        commit(write);
+        return new SavedEntities(write.version, write.previous);
+    }
+
+    @Override
+    public void insert(Entity entity) {
+        commit(EntityWrite.insert(entity));
+    }
+
+    @Override
+    public Optional<Entity> update(Long id, UnaryOperator<Entity> change) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        EntityWrite write = EntityWrite.update(id, change);
+        commit(write);
+        return write.upserts == null ? Optional.empty() : Optional.of(write.upserts.get(0));
+    }
+
+    @Override
+    public Optional<Entity> deleteById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        EntityWrite write = EntityWrite.delete(id);
+        commit(write);
+        return Optional.ofNullable(write.removed);
+    }
+
+    /**
+     * Queues the write and applies it, together with every other write queued meanwhile, unless a
+     * thread that got the monitor first already has. Concurrent writers share one index build and
+     * one new version instead of taking turns. If the batch fails as a whole, its writes are
+     * applied again one at a time, so that a bad write fails alone.
+     */
+    void commit(EntityWrite write) {
+        queue.add(write);
+        synchronized (this) {
+            if (!write.applied) {
+                List<EntityWrite> batch = new ArrayList<>();
+                for (EntityWrite next; (next = queue.poll()) != null; ) {
+                    batch.add(next);
+                }
+                try {
+                    apply(batch);
+                } catch (RuntimeException e) {
+                    if (batch.size() == 1) {
+                        write.failure = e;
+                    } else {
+                        applyEach(batch);
+                    }
+                }
+                batch.forEach(applied -> applied.applied = true);
+            }
+        }
+        if (write.failure != null) {
+            throw write.failure;
+        }
+    }
+
+    private void applyEach(List<EntityWrite> batch) {
+        for (EntityWrite write : batch) {
+            write.failure = null;
+            try {
+                apply(List.of(write));
+            } catch (RuntimeException e) {
+                write.failure = e;
+            }
+        }
+    }
+
+    /**
+     * Called under the monitor once a batch is ready to be published as {@code version}, before
+     * any of it is visible: in the change log, to listeners or to readers. Throwing fails the batch
+     * with nothing published. Writes that failed on their own carry their {@code failure}. Not
+     * called for batches that changed nothing.
+     */
+    void beforePublish(List<EntityWrite> batch, long version) {}
+
+    // As if the writes ran one after another: replaced entities keep their position, new ones go
+    // last, and ids are assigned in order. An insert of an id that exists fails on its own, an
+    // update of one that does not changes nothing.
+    private void apply(List<EntityWrite> batch) {
+        List<Entity> assigned = new ArrayList<>();
+        try {
+            apply(batch, assigned);
+        } catch (RuntimeException e) {
+            // Nothing was published; the entities go back to how their writers passed them.
+            assigned.forEach(entity -> entity.setId(null));
+            throw e;
+        }
+    }
+
+    private void apply(List<EntityWrite> batch, List<Entity> assigned) {
+        Snapshot current = snapshot;
+        LayeredEntityIndex.Writer writer = null;
+        long nextId = current.maxId + 1;
+        int changes = 0;
+        for (EntityWrite write : batch) {
+            if (write.update != null) {
+                writer = writer == null ? current.index.write() : writer;
+                Entity existing = writer.get(write.updateId);
+                write.upserts = null;
+                if (existing == null) {
+                    continue;
+                }
+                try {
+                    Entity replacement = write.update.apply(existing);
+                    replacement.setId(write.updateId);
+                    write.upserts = List.of(replacement);
+                } catch (RuntimeException e) {
+                    write.failure = e;
+                    continue;
+                }
+            } else if (write.upserts == null) {
+                if (writer == null && current.index.byId(write.deleteId) == null) {
+                    continue;
+                }
+                writer = writer == null ? current.index.write() : writer;
+                write.removed = writer.delete(write.deleteId);
+                changes += write.removed == null ? 0 : 1;
+                continue;
+            }
+            writer = writer == null ? current.index.write() : writer;
+            if (write.insert) {
+                Long id = write.upserts.get(0).getId();
+                if (id != null && writer.contains(id)) {
+                    write.failure = new DuplicateEntityException(id);
+                    continue;
+                }
+            }
+            write.previous = new ArrayList<>(write.upserts.size());
+            for (Entity entity : write.upserts) {
+                if (entity.getId() == null) {
+                    entity.setId(nextId);
+                    assigned.add(entity);
+                }
+                nextId = Math.max(nextId, entity.getId() + 1);
+                write.previous.add(writer.upsert(entity));
+            }
+            // An empty upsert still makes a new version, as it always has.
+            changes += Math.max(1, write.upserts.size());
+        }
+        if (changes == 0) {
+            return;
+        }
+        LayeredEntityIndex nextIndex = writer.build();
+        long version = current.version + 1;
+        beforePublish(batch, version);
+        if (changes > CHANGE_LOG_CAPACITY) {
+            // Would overwrite the whole log anyway; clients have to reload.
+            changeLog.clear(version);
+        } else {
+            for (EntityWrite write : batch) {
+                if (write.failure != null) {
+                    continue;
+                }
+                if (write.upserts == null) {
+                    if (write.removed != null) {
+                        changeLog.append(new EntityChange(version, write.deleteId, EntityChange.Operation.DELETE, null));
+                    }
+                    continue;
+                }
+                for (Entity entity : write.upserts) {
+                    Entity stored = nextIndex.byId(entity.getId());
+                    // Gone again if a later write of the batch deleted it.
+                    if (stored != null) {
+                        changeLog.append(new EntityChange(version, entity.getId(), EntityChange.Operation.UPSERT, stored));
+                    }
+                }
+            }
+        }
+        notifyListeners(batch);
+        snapshot = new Snapshot(nextIndex, version, nextId - 1);
+        batch.forEach(write -> write.version = version);
+        for (EntityWriteListener listener : listeners) {
+            try {
+                listener.onPublished(version);
+            } catch (RuntimeException e) {
+                log.error("Write listener failed after version {}", version, e);
+            }
+        }
+    }
+
+    private void notifyListeners(List<EntityWrite> batch) {
+        for (EntityWrite write : batch) {
+            if (write.failure != null) {
+                continue;
+            }
+            if (write.upserts == null) {
+                if (write.removed != null) {
+                    notifyListeners(write.removed, null);
+                }
+                continue;
+            }
+            for (int i = 0; i < write.upserts.size(); i++) {
+                notifyListeners(write.previous.get(i), write.upserts.get(i));
+            }
+        }
+    }
+
+    // A failing listener must not fail a batch that is already in the change log.
+    private void notifyListeners(Entity before, Entity after) {
+        for (EntityWriteListener listener : listeners) {
+            try {
+                listener.onWrite(before, after);
+            } catch (RuntimeException e) {
+                log.error("Write listener failed on entity {}", (after != null ? after : before).getId(), e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<List<EntityChange>> findChangesSince(long version) {
+        return Optional.ofNullable(changeLog.between(version, snapshot.version));
+    }
+
+    @Override
+    public Optional<Entity> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot.index.byId(id));
+    }
+
+    @Override
+    public List<Entity> findByType(String type) {
+        for (Entity.EntityType candidate : Entity.EntityType.values()) {
+            if (candidate.name().equalsIgnoreCase(type)) {
+                return snapshot.index.byType(candidate);
+            }
+        }
+        return List.of();
+    }
+
+    @Override
+    public List<Entity> findByDepartmentId(Long departmentId) {
+        return snapshot.index.byDepartment(departmentId);
+    }
+
+    @Override
+    public List<Entity> findByConnectionType(String connectionType) {
+        return snapshot.index.byConnectionType(connectionType);
+    }
+
+    @Override
+    public List<Entity> findWithinBounds(double minLat, double minLng, double maxLat, double maxLng) {
+        return snapshot.index.withinBounds(minLat, minLng, maxLat, maxLng);
+    }
+
+    @Override
+    public List<Entity> findNearest(double lat, double lng, double radiusKm, int limit) {
+        return snapshot.index.nearest(lat, lng, radiusKm, limit);
+    }
+
+    @Override
+    public List<Entity> findByQuery(EntityQuery query) {
+        return snapshot.index.query(query);
+    }
+
+    @Override
+    public List<Entity> findByQueryWithinBounds(EntityQuery query, double minLat, double minLng, double maxLat,
+                                                double maxLng) {
+        return snapshot.index.queryWithinBounds(query, minLat, minLng, maxLat, maxLng);
+    }
+
+    @Override
+    public List<Entity> findPage(EntityQuery query, EntitySort sort, boolean descending, EntityCursor after, int limit) {
+        return snapshot.index.page(query, sort, descending, after, limit);
+    }
+
+    @Override
+    public List<Entity> findByName(String name) {
+        return snapshot.index.nameContains(name);
+    }
+
+    @Override
+    public List<Entity> searchByName(String query, int limit) {
+        return snapshot.index.searchByName(query, limit);
+    }
+
+    private static final class Snapshot {
+        private final LayeredEntityIndex index;
+        private final long version;
+        // Never decreases between writes, so a deleted entity's id is not handed out again.
+        private final long maxId;
+
+        private Snapshot(EntityIndex index, long version) {
+            this(new LayeredEntityIndex(index), version, index.maxId());
+        }
+
+        private Snapshot(LayeredEntityIndex index, long version, long maxId) {
+            this.index = index;
+            this.version = version;
+            this.maxId = maxId;
+        }
+    }
+}
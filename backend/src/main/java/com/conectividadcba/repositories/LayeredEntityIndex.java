@@ -0,0 +1,560 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.geo.GeoMath;
+import com.conectividadcba.models.Entity;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * An immutable {@link EntityIndex} plus the writes made since it was built, so a write costs an
+ * index over the recently written entities instead of over all of them. Replaced and deleted
+ * entities are hidden in the base; the current version of every written entity lives in a small
+ * delta index. Reads run against both and merge the results. Once the delta and the hidden
+ * entities outgrow {@link #mergeThreshold} the next write folds everything into a new base.
+ *
+ * <p>Every entity has a position that orders lists as if there were a single index: a base
+ * entity's ordinal, the same position for the entity that replaced it, and positions past the end
+ * of the base for new ones, in order of insertion. Delta ordinals follow positions.
+ */
+final class LayeredEntityIndex {
+    private static final EntityIndex EMPTY = new EntityIndex(List.of());
+
+    private final EntityIndex base;
+    // Base ordinals not replaced or deleted since, or null when that is all of them.
+    private final BitSet visible;
+    private final int hidden;
+    private final EntityIndex delta;
+    private final int[] positions;
+    private final int nextPosition;
+    // Built on first use.
+    private volatile List<Entity> all;
+
+    LayeredEntityIndex(EntityIndex base) {
+        this(base, null, EMPTY, new int[0], base.size());
+    }
+
+    private LayeredEntityIndex(EntityIndex base, BitSet visible, EntityIndex delta, int[] positions,
+                               int nextPosition) {
+        this.base = base;
+        this.visible = visible;
+        this.hidden = visible == null ? 0 : base.size() - visible.cardinality();
+        this.delta = delta;
+        this.positions = positions;
+        this.nextPosition = nextPosition;
+    }
+
+    /**
+     * Size of the delta plus hidden base entities past which a write merges them into the base:
+     * about twice the square root of the size, so merges are rare and their cost spread over
+     * many writes, and bounded so reads never merge much.
+     */
+    static int mergeThreshold(int size) {
+        return Math.max(64, Math.min(2048, (int) (2 * Math.sqrt(size))));
+    }
+
+    int size() {
+        return base.size() - hidden + delta.size();
+    }
+
+    /**
+     * A single index with the same entities in the same order, built if there is a delta.
+     */
+    EntityIndex merged() {
+        return isLayered() ? rebuild() : base;
+    }
+
+    /**
+     * Starts a set of writes on top of this index; the index itself does not change.
+     */
+    Writer write() {
+        return new Writer();
+    }
+
+    List<Entity> all() {
+        if (!isLayered()) {
+            return base.all();
+        }
+        List<Entity> result = all;
+        if (result == null) {
+            result = inOrder(null, null);
+            all = result;
+        }
+        return result;
+    }
+
+    Entity byId(long id) {
+        int ordinal = delta.ordinalOf(id);
+        if (ordinal >= 0) {
+            return delta.get(ordinal);
+        }
+        ordinal = base.ordinalOf(id);
+        return ordinal >= 0 && isVisible(ordinal) ? base.get(ordinal) : null;
+    }
+
+    List<Entity> byType(Entity.EntityType type) {
+        return isLayered()
+                ? inOrder(orNone(base.typeOrdinals(type)), orNone(delta.typeOrdinals(type)))
+                : base.byType(type);
+    }
+
+    List<Entity> byDepartment(Long departmentId) {
+        return isLayered()
+                ? inOrder(orNone(base.departmentOrdinals(departmentId)), orNone(delta.departmentOrdinals(departmentId)))
+                : base.byDepartment(departmentId);
+    }
+
+    List<Entity> byConnectionType(String connectionType) {
+        return isLayered()
+                ? inOrder(orNone(base.connectionTypeOrdinals(connectionType)),
+                        orNone(delta.connectionTypeOrdinals(connectionType)))
+                : base.byConnectionType(connectionType);
+    }
+
+    List<Entity> nameContains(String fragment) {
+        return isLayered()
+                ? inOrder(base.nameMatches(fragment).stream().toArray(), delta.nameMatches(fragment).stream().toArray())
+                : base.nameContains(fragment);
+    }
+
+    /**
+     * Entities matching every criterion of the query, in order.
+     */
+    List<Entity> query(EntityQuery query) {
+        BitSet baseMatches = base.match(query);
+        if (!isLayered()) {
+            return baseMatches == null ? base.all() : base.select(baseMatches);
+        }
+        BitSet deltaMatches = delta.match(query);
+        return inOrder(baseMatches == null ? null : baseMatches.stream().toArray(),
+                deltaMatches == null ? null : deltaMatches.stream().toArray());
+    }
+
+    /**
+     * Entities inside the box matching every criterion of the query (all when null), in order.
+     */
+    List<Entity> queryWithinBounds(EntityQuery query, double minLat, double minLng, double maxLat, double maxLng) {
+        BitSet baseMatches = base.matchWithinBounds(query, minLat, minLng, maxLat, maxLng);
+        if (!isLayered()) {
+            return base.select(baseMatches);
+        }
+        BitSet deltaMatches = delta.matchWithinBounds(query, minLat, minLng, maxLat, maxLng);
+        return inOrder(baseMatches.stream().toArray(), deltaMatches.stream().toArray());
+    }
+
+    // Ranks compare by tier and name length, then by position instead of ordinal.
+    List<Entity> searchByName(String query, int limit) {
+        if (!isLayered()) {
+            return base.searchByName(query, limit);
+        }
+        long[] baseRanks = base.searchRanks(query, widen(limit));
+        long[] deltaRanks = delta.searchRanks(query, limit);
+        int[] refs = new int[Math.min(limit, baseRanks.length + deltaRanks.length)];
+        int count = 0, i = 0, j = 0;
+        while (count < refs.length && (i < baseRanks.length || j < deltaRanks.length)) {
+            if (i < baseRanks.length && !isVisible((int) baseRanks[i])) {
+                i++;
+                continue;
+            }
+            boolean fromBase = j == deltaRanks.length || i < baseRanks.length
+                    && compareRanks(baseRanks[i], (int) baseRanks[i], deltaRanks[j], positions[(int) deltaRanks[j]]) < 0;
+            refs[count++] = fromBase ? (int) baseRanks[i++] : ~(int) deltaRanks[j++];
+        }
+        return new Rows(Arrays.copyOf(refs, count));
+    }
+
+    // Base entities in R-tree order, then the delta ones.
+    List<Entity> withinBounds(double minLat, double minLng, double maxLat, double maxLng) {
+        if (!isLayered()) {
+            return base.withinBounds(minLat, minLng, maxLat, maxLng);
+        }
+        int[] baseOrdinals = base.boundsOrdinals(minLat, minLng, maxLat, maxLng);
+        int[] deltaOrdinals = delta.boundsOrdinals(minLat, minLng, maxLat, maxLng);
+        int[] refs = new int[baseOrdinals.length + deltaOrdinals.length];
+        int count = 0;
+        for (int ordinal : baseOrdinals) {
+            if (isVisible(ordinal)) {
+                refs[count++] = ordinal;
+            }
+        }
+        for (int ordinal : deltaOrdinals) {
+            refs[count++] = ~ordinal;
+        }
+        return new Rows(Arrays.copyOf(refs, count));
+    }
+
+    List<Entity> nearest(double lat, double lng, double radiusKm, int limit) {
+        if (!isLayered()) {
+            return base.nearest(lat, lng, radiusKm, limit);
+        }
+        int[] baseOrdinals = base.nearestOrdinals(lat, lng, radiusKm, widen(limit));
+        int[] deltaOrdinals = delta.nearestOrdinals(lat, lng, radiusKm, limit);
+        EntityRows baseRows = (EntityRows) base.all();
+        EntityRows deltaRows = (EntityRows) delta.all();
+        int[] refs = new int[Math.min(limit, baseOrdinals.length + deltaOrdinals.length)];
+        int count = 0, i = 0, j = 0;
+        while (count < refs.length && (i < baseOrdinals.length || j < deltaOrdinals.length)) {
+            if (i < baseOrdinals.length && !isVisible(baseOrdinals[i])) {
+                i++;
+                continue;
+            }
+            boolean fromBase = j == deltaOrdinals.length || i < baseOrdinals.length
+                    && GeoMath.haversine(lat, lng, baseRows.lat(baseOrdinals[i]), baseRows.lng(baseOrdinals[i]))
+                    <= GeoMath.haversine(lat, lng, deltaRows.lat(deltaOrdinals[j]), deltaRows.lng(deltaOrdinals[j]));
+            refs[count++] = fromBase ? baseOrdinals[i++] : ~deltaOrdinals[j++];
+        }
+        return new Rows(Arrays.copyOf(refs, count));
+    }
+
+    /**
+     * See {@link EntityIndex#page}; a page from each layer, merged in sort order.
+     */
+    List<Entity> page(EntityQuery query, EntitySort sort, boolean descending, EntityCursor after, int limit) {
+        BitSet baseMatches = base.match(query);
+        if (!isLayered()) {
+            return base.page(baseMatches, sort, descending, after, limit);
+        }
+        if (visible != null) {
+            if (baseMatches == null) {
+                baseMatches = visible;
+            } else {
+                baseMatches.and(visible);
+            }
+        }
+        int[] baseOrdinals = base.pageOrdinals(baseMatches, sort, descending, after, limit);
+        int[] deltaOrdinals = delta.pageOrdinals(delta.match(query), sort, descending, after, limit);
+        Comparator<Entity> order = descending ? sort.comparator().reversed() : sort.comparator();
+        int[] refs = new int[Math.min(limit, baseOrdinals.length + deltaOrdinals.length)];
+        int count = 0, i = 0, j = 0;
+        Entity fromBase = null, fromDelta = null;
+        while (count < refs.length) {
+            if (fromBase == null && i < baseOrdinals.length) {
+                fromBase = base.get(baseOrdinals[i]);
+            }
+            if (fromDelta == null && j < deltaOrdinals.length) {
+                fromDelta = delta.get(deltaOrdinals[j]);
+            }
+            if (fromDelta == null || fromBase != null && order.compare(fromBase, fromDelta) < 0) {
+                refs[count++] = baseOrdinals[i++];
+                fromBase = null;
+            } else {
+                refs[count++] = ~deltaOrdinals[j++];
+                fromDelta = null;
+            }
+        }
+        return new Rows(refs);
+    }
+
+    // Reuses what the layers already derived instead of starting over: the folded names, and the
+    // sort orders, merged by inserting each delta entity into the base order at a binary-searched
+    // point. Folding and sorting every name would otherwise be most of the cost of a merge.
+    private EntityIndex rebuild() {
+        Rows rows = (Rows) all();
+        int[] baseRows = new int[base.size()];
+        Arrays.fill(baseRows, -1);
+        int[] deltaRows = new int[delta.size()];
+        String[] foldedNames = new String[rows.refs.length];
+        for (int row = 0; row < rows.refs.length; row++) {
+            int ref = rows.refs[row];
+            if (ref >= 0) {
+                baseRows[ref] = row;
+                foldedNames[row] = base.foldedName(ref);
+            } else {
+                deltaRows[~ref] = row;
+                foldedNames[row] = delta.foldedName(~ref);
+            }
+        }
+        int[][] orders = new int[EntitySort.values().length][];
+        for (EntitySort sort : EntitySort.values()) {
+            orders[sort.ordinal()] = mergeOrders(sort, baseRows, deltaRows, rows.refs.length);
+        }
+        return new EntityIndex(rows, orders, foldedNames);
+    }
+
+    // The rows of both layers in sort order; hidden base entities are skipped.
+    private int[] mergeOrders(EntitySort sort, int[] baseRows, int[] deltaRows, int size) {
+        int[] baseOrder = base.sortOrder(sort);
+        Comparator<Entity> comparator = sort.comparator();
+        int[] order = new int[size];
+        int count = 0, i = 0;
+        for (int deltaOrdinal : delta.sortOrder(sort)) {
+            Entity entity = delta.get(deltaOrdinal);
+            int low = i, high = baseOrder.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(base.get(baseOrder[mid]), entity) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (; i < low; i++) {
+                if (baseRows[baseOrder[i]] >= 0) {
+                    order[count++] = baseRows[baseOrder[i]];
+                }
+            }
+            order[count++] = deltaRows[deltaOrdinal];
+        }
+        for (; i < baseOrder.length; i++) {
+            if (baseRows[baseOrder[i]] >= 0) {
+                order[count++] = baseRows[baseOrder[i]];
+            }
+        }
+        return order;
+    }
+
+    private boolean isLayered() {
+        return visible != null || delta.size() > 0;
+    }
+
+    private boolean isVisible(int baseOrdinal) {
+        return visible == null || visible.get(baseOrdinal);
+    }
+
+    // A limit on base results that still leaves limit visible ones after dropping hidden ones.
+    private int widen(int limit) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) limit + hidden);
+    }
+
+    private static int[] orNone(int[] ordinals) {
+        return ordinals == null ? new int[0] : ordinals;
+    }
+
+    private static int compareRanks(long baseRank, int basePosition, long deltaRank, int deltaPosition) {
+        int result = Long.compare(baseRank >>> 32, deltaRank >>> 32);
+        return result != 0 ? result : Integer.compare(basePosition, deltaPosition);
+    }
+
+    // Merges ascending base and delta ordinals (all of each layer when null) by position,
+    // dropping hidden base ordinals.
+    private List<Entity> inOrder(int[] baseOrdinals, int[] deltaOrdinals) {
+        int baseCount = baseOrdinals == null ? base.size() : baseOrdinals.length;
+        int deltaCount = deltaOrdinals == null ? delta.size() : deltaOrdinals.length;
+        int[] refs = new int[baseCount + deltaCount];
+        int count = 0, i = 0, j = 0;
+        while (i < baseCount || j < deltaCount) {
+            int ordinal = i < baseCount ? (baseOrdinals == null ? i : baseOrdinals[i]) : -1;
+            if (ordinal >= 0 && !isVisible(ordinal)) {
+                i++;
+                continue;
+            }
+            int deltaOrdinal = j < deltaCount ? (deltaOrdinals == null ? j : deltaOrdinals[j]) : -1;
+            if (deltaOrdinal < 0 || ordinal >= 0 && ordinal < positions[deltaOrdinal]) {
+                refs[count++] = ordinal;
+                i++;
+            } else {
+                refs[count++] = ~deltaOrdinal;
+                j++;
+            }
+        }
+        return new Rows(count == refs.length ? refs : Arrays.copyOf(refs, count));
+    }
+
+    /**
+     * Writes applied in order on top of a {@link LayeredEntityIndex}, with the same outcome as on
+     * a single insertion-ordered map by id: a replaced entity keeps its position, a new one goes
+     * last, and so does one deleted and inserted again.
+     */
+    final class Writer {
+        private BitSet nextVisible = visible;
+        private boolean copied;
+        // Current delta entities by id, and their positions.
+        private final Map<Long, Entity> entities = new HashMap<>();
+        private final Map<Long, Integer> entityPositions = new HashMap<>();
+        private int next = nextPosition;
+
+        private Writer() {
+            List<Entity> current = delta.all();
+            for (int ordinal = 0; ordinal < current.size(); ordinal++) {
+                Entity entity = current.get(ordinal);
+                entities.put(entity.getId(), entity);
+                entityPositions.put(entity.getId(), positions[ordinal]);
+            }
+        }
+
+        boolean contains(long id) {
+            if (entities.containsKey(id)) {
+                return true;
+            }
+            int ordinal = base.ordinalOf(id);
+            return ordinal >= 0 && isVisibleNow(ordinal);
+        }
+
+        /**
+         * The entity with this id after the writes so far; null if there is none.
+         */
+        Entity get(long id) {
+            Entity entity = entities.get(id);
+            if (entity != null) {
+                return entity;
+            }
+            int ordinal = base.ordinalOf(id);
+            return ordinal >= 0 && isVisibleNow(ordinal) ? base.get(ordinal) : null;
+        }
+
+        /**
+         * Inserts or replaces the entity by id, which must be set; returns the replaced one.
+         */
+        Entity upsert(Entity entity) {
+            long id = entity.getId();
+            Entity previous = entities.put(id, entity);
+            if (previous != null) {
+                return previous;
+            }
+            int ordinal = base.ordinalOf(id);
+            if (ordinal >= 0 && isVisibleNow(ordinal)) {
+                hide(ordinal);
+                entityPositions.put(id, ordinal);
+                return base.get(ordinal);
+            }
+            entityPositions.put(id, next++);
+            return null;
+        }
+
+        /**
+         * Deletes the entity and returns it; null if there was none.
+         */
+        Entity delete(long id) {
+            Entity removed = entities.remove(id);
+            if (removed != null) {
+                entityPositions.remove(id);
+                return removed;
+            }
+            int ordinal = base.ordinalOf(id);
+            if (ordinal >= 0 && isVisibleNow(ordinal)) {
+                hide(ordinal);
+                return base.get(ordinal);
+            }
+            return null;
+        }
+
+        /**
+         * The index with every write applied, merged into a new base if the layers got too big.
+         *
+         * @throws IllegalArgumentException if an entity cannot be indexed
+         */
+        LayeredEntityIndex build() {
+            Entity[] written = entities.values().toArray(new Entity[0]);
+            Arrays.sort(written, Comparator.comparingInt(entity -> entityPositions.get(entity.getId())));
+            int[] nextPositions = new int[written.length];
+            for (int ordinal = 0; ordinal < written.length; ordinal++) {
+                nextPositions[ordinal] = entityPositions.get(written[ordinal].getId());
+            }
+            EntityIndex nextDelta = written.length == 0 ? EMPTY : new EntityIndex(Arrays.asList(written));
+            LayeredEntityIndex layered = new LayeredEntityIndex(base, nextVisible, nextDelta, nextPositions, next);
+            if (layered.delta.size() + layered.hidden <= mergeThreshold(layered.size())) {
+                return layered;
+            }
+            return new LayeredEntityIndex(layered.rebuild());
+        }
+
+        private boolean isVisibleNow(int ordinal) {
+            return nextVisible == null || nextVisible.get(ordinal);
+        }
+
+        private void hide(int ordinal) {
+            if (!copied) {
+                BitSet bits;
+                if (nextVisible == null) {
+                    bits = new BitSet(base.size());
+                    bits.set(0, base.size());
+                } else {
+                    bits = (BitSet) nextVisible.clone();
+                }
+                nextVisible = bits;
+                copied = true;
+            }
+            nextVisible.clear(ordinal);
+        }
+    }
+
+    /**
+     * Entities of both layers by reference: a base ordinal, or the complement of a delta ordinal.
+     */
+    private final class Rows extends AbstractList<Entity> implements RandomAccess, EntityRows {
+        private final int[] refs;
+        private final EntityRows baseRows = (EntityRows) base.all();
+        private final EntityRows deltaRows = (EntityRows) delta.all();
+
+        private Rows(int[] refs) {
+            this.refs = refs;
+        }
+
+        @Override
+        public Entity get(int index) {
+            int ref = refs[index];
+            return ref >= 0 ? base.get(ref) : delta.get(~ref);
+        }
+
+        @Override
+        public int size() {
+            return refs.length;
+        }
+
+        @Override
+        public long id(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.id(ref) : deltaRows.id(~ref);
+        }
+
+        @Override
+        public Entity.EntityType type(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.type(ref) : deltaRows.type(~ref);
+        }
+
+        @Override
+        public String name(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.name(ref) : deltaRows.name(~ref);
+        }
+
+        @Override
+        public String description(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.description(ref) : deltaRows.description(~ref);
+        }
+
+        @Override
+        public double lat(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.lat(ref) : deltaRows.lat(~ref);
+        }
+
+        @Override
+        public double lng(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.lng(ref) : deltaRows.lng(~ref);
+        }
+
+        @Override
+        public long departmentId(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.departmentId(ref) : deltaRows.departmentId(~ref);
+        }
+
+        @Override
+        public String connectionType(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.connectionType(ref) : deltaRows.connectionType(~ref);
+        }
+
+        @Override
+        public String detail(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.detail(ref) : deltaRows.detail(~ref);
+        }
+
+        @Override
+        public int count(int row) {
+            int ref = refs[row];
+            return ref >= 0 ? baseRows.count(ref) : deltaRows.count(~ref);
+        }
+    }
+}
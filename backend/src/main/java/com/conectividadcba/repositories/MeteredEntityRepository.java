@@ -0,0 +1,201 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.EntityChange;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Times every call to another repository ({@code conectividad.repository}, tagged by method) and
+ * records how many entities each read returned ({@code conectividad.repository.results}).
+ * The {@code criteria} tag is the query's {@link EntityQuery#criteriaKey() criteria} for
+ * {@code findByQuery}, {@code findByQueryWithinBounds} and {@code findPage}, so slow filter
+ * combinations stand out, and
+ * {@code none} for the other methods.
+ */
+public class MeteredEntityRepository implements EntityRepository {
+    private static final String TIMER = "conectividad.repository";
+    private static final String RESULTS = "conectividad.repository.results";
+
+    private final EntityRepository delegate;
+    private final MeterRegistry registry;
+    private final Meters findAll;
+    private final Meters saveAll;
+    private final Meters insert;
+    private final Meters update;
+    private final Meters deleteById;
+    private final Meters findById;
+    private final Meters findChangesSince;
+    private final Meters findByType;
+    private final Meters findByDepartmentId;
+    private final Meters findByConnectionType;
+    private final Meters findByName;
+    private final Meters searchByName;
+    private final Meters findWithinBounds;
+    private final Meters findNearest;
+    // "method:criteria" -> meters; bounded by the number of criteria combinations
+    private final Map<String, Meters> queryMeters = new ConcurrentHashMap<>();
+
+    public MeteredEntityRepository(EntityRepository delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.findAll = new Meters(registry, "findAll", "none", true);
+        this.saveAll = new Meters(registry, "saveAll", "none", false);
+        this.insert = new Meters(registry, "insert", "none", false);
+        this.update = new Meters(registry, "update", "none", false);
+        this.deleteById = new Meters(registry, "deleteById", "none", false);
+        this.findById = new Meters(registry, "findById", "none", false);
+        this.findChangesSince = new Meters(registry, "findChangesSince", "none", false);
+        this.findByType = new Meters(registry, "findByType", "none", true);
+        this.findByDepartmentId = new Meters(registry, "findByDepartmentId", "none", true);
+        this.findByConnectionType = new Meters(registry, "findByConnectionType", "none", true);
+        this.findByName = new Meters(registry, "findByName", "none", true);
+        this.searchByName = new Meters(registry, "searchByName", "none", true);
+        this.findWithinBounds = new Meters(registry, "findWithinBounds", "none", true);
+        this.findNearest = new Meters(registry, "findNearest", "none", true);
+    }
+
+    @Override
+    public long getDataVersion() {
+        return delegate.getDataVersion();
+    }
+
+    @Override
+    public void addWriteListener(EntityWriteListener listener) {
+        delegate.addWriteListener(listener);
+    }
+
+    @Override
+    public List<Entity> findAll() {
+        return findAll.read(delegate::findAll);
+    }
+
+    @Override
+    public VersionedEntities findAllVersioned() {
+        VersionedEntities all = findAll.timer.record(delegate::findAllVersioned);
+        findAll.results.record(all.getEntities().size());
+        return all;
+    }
+
+    @Override
+    public SavedEntities saveAll(List<? extends Entity> entities) {
+        return saveAll.timer.record(() -> delegate.saveAll(entities));
+    }
+
+    @Override
+    public void insert(Entity entity) {
+        insert.timer.record(() -> delegate.insert(entity));
+    }
+
+    @Override
+    public Optional<Entity> update(Long id, UnaryOperator<Entity> change) {
+        return update.timer.record(() -> delegate.update(id, change));
+    }
+
+    @Override
+    public Optional<Entity> deleteById(Long id) {
+        return deleteById.timer.record(() -> delegate.deleteById(id));
+    }
+
+    @Override
+    public Optional<Entity> findById(Long id) {
+        return findById.timer.record(() -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<List<EntityChange>> findChangesSince(long version) {
+        return findChangesSince.timer.record(() -> delegate.findChangesSince(version));
+    }
+
+    @Override
+    public List<Entity> findByType(String type) {
+        return findByType.read(() -> delegate.findByType(type));
+    }
+
+    @Override
+    public List<Entity> findByDepartmentId(Long departmentId) {
+        return findByDepartmentId.read(() -> delegate.findByDepartmentId(departmentId));
+    }
+
+    @Override
+    public List<Entity> findByConnectionType(String connectionType) {
+        return findByConnectionType.read(() -> delegate.findByConnectionType(connectionType));
+    }
+
+    @Override
+    public List<Entity> findByName(String name) {
+        return findByName.read(() -> delegate.findByName(name));
+    }
+
+    @Override
+    public List<Entity> searchByName(String query, int limit) {
+        return searchByName.read(() -> delegate.searchByName(query, limit));
+    }
+
+    @Override
+    public List<Entity> findWithinBounds(double minLat, double minLng, double maxLat, double maxLng) {
+        return findWithinBounds.read(() -> delegate.findWithinBounds(minLat, minLng, maxLat, maxLng));
+    }
+
+    @Override
+    public List<Entity> findNearest(double lat, double lng, double radiusKm, int limit) {
+        return findNearest.read(() -> delegate.findNearest(lat, lng, radiusKm, limit));
+    }
+
+    @Override
+    public List<Entity> findByQuery(EntityQuery query) {
+        return queryMeters("findByQuery", query).read(() -> delegate.findByQuery(query));
+    }
+
+    @Override
+    public List<Entity> findByQueryWithinBounds(EntityQuery query, double minLat, double minLng, double maxLat,
+                                                double maxLng) {
+        return queryMeters("findByQueryWithinBounds", query)
+                .read(() -> delegate.findByQueryWithinBounds(query, minLat, minLng, maxLat, maxLng));
+    }
+
+    @Override
+    public List<Entity> findPage(EntityQuery query, EntitySort sort, boolean descending, EntityCursor after, int limit) {
+        return queryMeters("findPage", query).read(() -> delegate.findPage(query, sort, descending, after, limit));
+    }
+
+    private Meters queryMeters(String method, EntityQuery query) {
+        String criteria = query == null ? "none" : query.criteriaKey();
+        return queryMeters.computeIfAbsent(method + ":" + criteria, k -> new Meters(registry, method, criteria, true));
+    }
+
+    private static final class Meters {
+        private final Timer timer;
+        private final DistributionSummary results;
+
+        private Meters(MeterRegistry registry, String method, String criteria, boolean read) {
+            this.timer = Timer.builder(TIMER)
+                    .tag("method", method)
+                    .tag("criteria", criteria)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.results = !read ? null : DistributionSummary.builder(RESULTS)
+                    .baseUnit("entities")
+                    .tag("method", method)
+                    .tag("criteria", criteria)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(1.0)
+                    .maximumExpectedValue(1_000_000.0)
+                    .register(registry);
+        }
+
+        private List<Entity> read(Supplier<List<Entity>> call) {
+            List<Entity> entities = timer.record(call);
+            results.record(entities.size());
+            return entities;
+        }
+    }
+}
@@ -3,23 +3,21 @@ package com.conectividadcba.repositories;
 import com.conectividadcba.models.Entity;
 import com.conectividadcba.models.LearningCenter;
 import com.conectividadcba.models.School;
-import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
-@Repository
-public class MockEntityRepository implements EntityRepository {
-    private final List<Entity> entities;
+/**
+ * Sample data set, used when there is no snapshot to start from.
+ */
+public class MockEntityRepository extends IndexedEntityRepository {
 
     public MockEntityRepository() {
-        entities = new ArrayList<>();
-        initializeData();
+        super(initializeData());
     }
 
-    private void initializeData() {
+    private static List<Entity> initializeData() {
+        List<Entity> entities = new ArrayList<>();
         String[] connectionTypes = {"Proveedor externo", "Starlink", "Fibra Optica"};
 
         // Keep the first 20 detailed schools
@@ -278,87 +276,56 @@ public class MockEntityRepository implements EntityRepository {
         }
 
         // Add learning centers
-        entities.add(new LearningCenter(101L, "Centro Cultural España Córdoba", 
+        entities.add(new LearningCenter(1001L, "Centro Cultural España Córdoba", 
                 new Entity.Coordinates(-31.4170, -64.1830), 
                 "Centro cultural con actividades educativas y artísticas", 
                 1L, "Cultural", 150, "Fibra Optica"));
         
-        entities.add(new LearningCenter(102L, "Biblioteca Provincial Córdoba", 
+        entities.add(new LearningCenter(1002L, "Biblioteca Provincial Córdoba", 
                 new Entity.Coordinates(-31.4190, -64.1870), 
                 "Biblioteca pública provincial con programas educativos", 
                 1L, "Biblioteca", 200, "Fibra Optica"));
         
-        entities.add(new LearningCenter(103L, "Centro de Capacitación Digital", 
+        entities.add(new LearningCenter(1003L, "Centro de Capacitación Digital", 
                 new Entity.Coordinates(-31.4250, -64.1920), 
                 "Centro de formación en tecnologías digitales", 
                 1L, "Tecnológico", 80, "Fibra Optica"));
         
-        entities.add(new LearningCenter(104L, "Centro de Idiomas Municipal", 
+        entities.add(new LearningCenter(1004L, "Centro de Idiomas Municipal", 
                 new Entity.Coordinates(-31.4210, -64.1850), 
                 "Centro de enseñanza de idiomas", 
                 1L, "Idiomas", 120, "Fibra Optica"));
         
-        entities.add(new LearningCenter(105L, "Centro Educativo Rural La Serranita", 
+        entities.add(new LearningCenter(1005L, "Centro Educativo Rural La Serranita", 
                 new Entity.Coordinates(-31.7320, -64.4530), 
                 "Centro educativo para comunidades rurales", 
                 15L, "Rural", 50, "Starlink"));
         
-        entities.add(new LearningCenter(106L, "Centro de Formación Profesional N°3", 
+        entities.add(new LearningCenter(1006L, "Centro de Formación Profesional N°3", 
                 new Entity.Coordinates(-31.4280, -64.1980), 
                 "Centro de formación en oficios", 
                 1L, "Oficios", 100, "Fibra Optica"));
         
-        entities.add(new LearningCenter(107L, "Centro de Arte y Oficios Tradicionales", 
+        entities.add(new LearningCenter(1007L, "Centro de Arte y Oficios Tradicionales", 
                 new Entity.Coordinates(-31.4150, -64.1910), 
                 "Centro de enseñanza de artes y oficios tradicionales", 
                 1L, "Artístico", 75, "Fibra Optica"));
         
-        entities.add(new LearningCenter(108L, "Centro Tecnológico Comunitario Villa Allende", 
+        entities.add(new LearningCenter(1008L, "Centro Tecnológico Comunitario Villa Allende", 
                 new Entity.Coordinates(-31.2940, -64.2950), 
                 "Centro tecnológico para la comunidad", 
                 7L, "Tecnológico", 90, "Proveedor externo"));
         
-        entities.add(new LearningCenter(109L, "Centro de Educación Ambiental Sierras Chicas", 
+        entities.add(new LearningCenter(1009L, "Centro de Educación Ambiental Sierras Chicas", 
                 new Entity.Coordinates(-31.3210, -64.3580), 
                 "Centro educativo sobre medio ambiente", 
                 7L, "Ambiental", 60, "Proveedor externo"));
         
-        entities.add(new LearningCenter(110L, "Centro de Formación Musical Carlos Guastavino", 
+        entities.add(new LearningCenter(1010L, "Centro de Formación Musical Carlos Guastavino", 
                 new Entity.Coordinates(-31.4230, -64.1840), 
                 "Centro de formación musical", 
                 1L, "Musical", 100, "Fibra Optica"));
-    }
-
-    @Override
-    public List<Entity> findAll() {
-        return new ArrayList<>(entities);
-    }
-
-    @Override
-    public List<Entity> findByDepartmentId(Long departmentId) {
-        return entities.stream()
-                .filter(e -> e.getDepartmentId() != null && e.getDepartmentId().equals(departmentId))
-                .collect(Collectors.toList());
-    }
-
-    @Override
-    public List<Entity> findByType(String type) {
-        return entities.stream()
-                .filter(entity -> entity.getType().name().equalsIgnoreCase(type))
-                .collect(Collectors.toList());
-    }
-
-    @Override
-    public Optional<Entity> findById(Long id) {
-        return entities.stream()
-                .filter(entity -> entity.getId().equals(id))
-                .findFirst();
-    }
 
-    @Override
-    public List<Entity> findByName(String name) {
-        return entities.stream()
-                .filter(entity -> entity.getName().toLowerCase().contains(name.toLowerCase()))
-                .collect(Collectors.toList());
+        return entities;
     }
 }
@@ -0,0 +1,241 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.util.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Typeahead index over entity names. Names are folded once (accents stripped, lower-cased) and
+ * every word, prefixed with a space, is cut into trigrams plus its leading bigram; each gram
+ * keeps a sorted posting list of ordinals. A query token is looked up through the grams of its
+ * own space-prefixed form, the posting lists are intersected smallest first, and the few
+ * survivors are verified and ranked.
+ */
+final class NameSearchIndex {
+    // Low 16 bits of a bigram key; U+FFFF is a noncharacter and never appears in a name.
+    private static final long BIGRAM_MARK = 0xFFFF;
+
+    private final String[] names;
+    private final String[][] words;
+    private final LongIntHashMap slots;
+    private final int[][] postings;
+
+    NameSearchIndex(String[] rawNames) {
+        this(tokenizeAll(rawNames));
+    }
+
+    private NameSearchIndex(String[][] words) {
+        int n = words.length;
+        this.names = new String[n];
+        this.words = words;
+        this.slots = new LongIntHashMap(n * 8);
+        List<int[]> lists = new ArrayList<>();
+        int[] sizes = new int[64];
+        for (int ordinal = 0; ordinal < n; ordinal++) {
+            names[ordinal] = String.join(" ", words[ordinal]);
+            for (String word : words[ordinal]) {
+                for (long gram : grams(word)) {
+                    int slot = slots.get(gram);
+                    if (slot < 0) {
+                        slot = lists.size();
+                        slots.put(gram, slot);
+                        lists.add(new int[4]);
+                        if (slot == sizes.length) {
+                            sizes = Arrays.copyOf(sizes, slot * 2);
+                        }
+                    }
+                    int[] list = lists.get(slot);
+                    int size = sizes[slot];
+                    // Ordinals arrive in increasing order, so a repeat can only be the last entry.
+                    if (size > 0 && list[size - 1] == ordinal) {
+                        continue;
+                    }
+                    if (size == list.length) {
+                        list = Arrays.copyOf(list, size * 2);
+                        lists.set(slot, list);
+                    }
+                    list[size] = ordinal;
+                    sizes[slot] = size + 1;
+                }
+            }
+        }
+        this.postings = new int[lists.size()][];
+        for (int slot = 0; slot < postings.length; slot++) {
+            postings[slot] = Arrays.copyOf(lists.get(slot), sizes[slot]);
+        }
+    }
+
+    /**
+     * Rebuilds an index from names as returned by {@link #foldedName}, skipping the Unicode
+     * normalization of the raw names.
+     */
+    static NameSearchIndex ofFoldedNames(String[] foldedNames) {
+        String[][] words = new String[foldedNames.length][];
+        for (int ordinal = 0; ordinal < words.length; ordinal++) {
+            words[ordinal] = foldedNames[ordinal].isEmpty() ? new String[0] : foldedNames[ordinal].split(" ");
+        }
+        return new NameSearchIndex(words);
+    }
+
+    /**
+     * The name's words, folded and joined by single spaces.
+     */
+    String foldedName(int ordinal) {
+        return names[ordinal];
+    }
+
+    /**
+     * Ordinals of the names in which every query token starts a word, best matches first: the
+     * whole name, then names starting with the query, then names containing it as a phrase, then
+     * the rest; ties go to shorter names.
+     */
+    int[] search(String query, int limit) {
+        long[] ranks = rank(query, limit);
+        int[] result = new int[ranks.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) ranks[i];
+        }
+        return result;
+    }
+
+    /**
+     * The ranking behind {@link #search}: one key per result, best first, holding the match tier
+     * in bits 56 and up, the name length in bits 32 to 47 and the ordinal in the low 32 bits.
+     */
+    long[] rank(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || limit <= 0) {
+            return new long[0];
+        }
+        List<int[]> lists = new ArrayList<>();
+        for (String token : tokens) {
+            for (long gram : grams(token)) {
+                int slot = slots.get(gram);
+                if (slot < 0) {
+                    return new long[0];
+                }
+                lists.add(postings[slot]);
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+
+        String phrase = String.join(" ", tokens);
+        long[] ranked = new long[candidates.length];
+        int count = 0;
+        for (int ordinal : candidates) {
+            if (!matchesAllTokens(words[ordinal], tokens)) {
+                continue;
+            }
+            String name = names[ordinal];
+            int tier;
+            if (name.equals(phrase)) {
+                tier = 0;
+            } else if (name.startsWith(phrase)) {
+                tier = 1;
+            } else if (name.contains(" " + phrase)) {
+                tier = 2;
+            } else {
+                tier = 3;
+            }
+            // Sort key: tier, then name length, then ordinal.
+            ranked[count++] = ((long) tier << 56) | ((long) Math.min(name.length(), 0xFFFF) << 32) | ordinal;
+        }
+        Arrays.sort(ranked, 0, count);
+        return Arrays.copyOf(ranked, Math.min(limit, count));
+    }
+
+    /**
+     * Accent- and case-insensitive substring test against the folded name; the fragment must be
+     * folded the same way, see {@link #tokenize}.
+     */
+    boolean nameContains(int ordinal, String foldedFragment) {
+        return names[ordinal].contains(foldedFragment);
+    }
+
+    // Words are runs of letters and digits, so "N°22 - Río Cuarto" reads as "n 22 rio cuarto".
+    static String[] tokenize(String text) {
+        String folded = TextNormalizer.fold(text);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            boolean inWord = Character.isLetter(codePoint) || isNumber(codePoint);
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            words.add(folded.substring(start));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    // The \p{N} category: decimal digits, letter numbers such as roman numerals, other numbers.
+    private static boolean isNumber(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER
+                || type == Character.OTHER_NUMBER;
+    }
+
+    private static String[][] tokenizeAll(String[] rawNames) {
+        String[][] words = new String[rawNames.length][];
+        for (int ordinal = 0; ordinal < words.length; ordinal++) {
+            words[ordinal] = tokenize(rawNames[ordinal]);
+        }
+        return words;
+    }
+
+    private static boolean matchesAllTokens(String[] nameWords, String[] tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (String word : nameWords) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Grams of " " + word: the leading bigram, then every trigram.
+    private static long[] grams(String word) {
+        String padded = " " + word;
+        long[] result = new long[Math.max(1, padded.length() - 2 + 1)];
+        result[0] = ((long) padded.charAt(0) << 32) | ((long) padded.charAt(1) << 16) | BIGRAM_MARK;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result[i + 1] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+}
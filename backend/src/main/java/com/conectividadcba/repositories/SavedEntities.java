@@ -0,0 +1,24 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+
+import java.util.List;
+
+/**
+ * The outcome of {@link EntityRepository#saveAll}: the data version the write was published as
+ * (newer ones may have followed by the time the caller reads it) and the entity each input
+ * replaced, null where it was inserted.
+ */
+public final class SavedEntities {
+    private final long version;
+    private final List<Entity> previous;
+
+    public SavedEntities(long version, List<Entity> previous) {
+        this.version = version;
+        this.previous = previous;
+    }
+
+    public long getVersion() { return version; }
+
+    public List<Entity> getPrevious() { return previous; }
+}
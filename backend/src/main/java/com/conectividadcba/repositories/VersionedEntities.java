@@ -0,0 +1,22 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+
+import java.util.List;
+
+/**
+ * Every entity of one data version, read from the same state of the repository as the version.
+ */
+public final class VersionedEntities {
+    private final long version;
+    private final List<Entity> entities;
+
+    public VersionedEntities(long version, List<Entity> entities) {
+        this.version = version;
+        this.entities = entities;
+    }
+
+    public long getVersion() { return version; }
+
+    public List<Entity> getEntities() { return entities; }
+}
@@ -0,0 +1,410 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.DelaunayTriangulation;
+import com.conectividadcba.geo.GeoMath;
+import com.conectividadcba.geo.HilbertCurve;
+import com.conectividadcba.geo.PackedRTree;
+import com.conectividadcba.geo.Polygons;
+import com.conectividadcba.geo.PreparedPolygon;
+import com.conectividadcba.models.Catchment;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.NearestLearningCenter;
+import com.conectividadcba.repositories.EntityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Catchment areas of the learning centers: the Voronoi diagram of their positions, clipped to
+ * the province outline, so every school is served by its nearest learning center. The diagram is
+ * kept as a {@link DelaunayTriangulation} in a local equirectangular projection (km) and every
+ * clipped cell is computed ahead of queries.
+ *
+ * <p>A point is located by finding a nearby center in a packed R-tree and walking the
+ * triangulation to the nearest one, O(log n). A new learning center is inserted into the
+ * triangulation and only the cells of its Delaunay neighbours are recomputed; the R-tree is
+ * repacked once a quarter of the centers are newer than it, and until then the walk covers them.
+ * Moving or removing a center rebuilds everything on the next query, from the positions of the
+ * centers this service tracks itself: changes arrive before the repository shows them.
+ */
+@Service
+public class CatchmentService implements EntityChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(CatchmentService.class);
+    private static final double KM_PER_DEGREE = Math.PI * GeoMath.EARTH_RADIUS_KM / 180;
+    private static final double DECIMALS = 1e6;
+
+    private final EntityRepository entityRepository;
+    private final double lat0, lng0, kmPerDegreeLng;
+    // Province polygons in projected coordinates, each outer ring first and then its holes.
+    private final List<List<double[]>> province = new ArrayList<>();
+    private final List<List<PreparedPolygon>> preparedProvince = new ArrayList<>();
+    private final double minX, minY, maxX, maxY;
+
+    // Everything below is guarded by this.
+    // Learning center id -> {lat, lng}, for every center with coordinates.
+    private final Map<Long, double[]> centers = new LinkedHashMap<>();
+    private DelaunayTriangulation triangulation;
+    private final List<long[]> centersByVertex = new ArrayList<>();
+    private final Map<Long, Integer> vertexByCenter = new HashMap<>();
+    private final List<Cell> cells = new ArrayList<>();
+    private PackedRTree tree;
+    private boolean stale = true;
+
+    @Autowired
+    public CatchmentService(EntityRepository entityRepository, DepartmentBoundaryService departmentBoundaryService) {
+        this.entityRepository = entityRepository;
+        double bMinLat = Double.POSITIVE_INFINITY, bMinLng = Double.POSITIVE_INFINITY;
+        double bMaxLat = Double.NEGATIVE_INFINITY, bMaxLng = Double.NEGATIVE_INFINITY;
+        List<double[]> outline = departmentBoundaryService.getProvinceOutline();
+        for (double[] ring : outline) {
+            for (int i = 0; i < ring.length; i += 2) {
+                bMinLng = Math.min(bMinLng, ring[i]);
+                bMaxLng = Math.max(bMaxLng, ring[i]);
+                bMinLat = Math.min(bMinLat, ring[i + 1]);
+                bMaxLat = Math.max(bMaxLat, ring[i + 1]);
+            }
+        }
+        if (outline.isEmpty()) {
+            bMinLat = bMinLng = bMaxLat = bMaxLng = 0;
+        }
+        this.lat0 = (bMinLat + bMaxLat) / 2;
+        this.lng0 = (bMinLng + bMaxLng) / 2;
+        this.kmPerDegreeLng = KM_PER_DEGREE * Math.cos(Math.toRadians(lat0));
+        this.minX = x(bMinLng);
+        this.minY = y(bMinLat);
+        this.maxX = x(bMaxLng);
+        this.maxY = y(bMaxLat);
+        nest(outline);
+        for (Entity entity : entityRepository.findByType(Entity.EntityType.LEARNING_CENTER.name())) {
+            if (entity.getCoordinates() != null) {
+                centers.put(entity.getId(), new double[]{entity.getCoordinates().getLat(),
+                        entity.getCoordinates().getLng()});
+            }
+        }
+        rebuild();
+    }
+
+    /**
+     * The learning center whose catchment contains the point, empty when there are none.
+     */
+    public synchronized Optional<NearestLearningCenter> getNearest(double lat, double lng) {
+        int vertex = locate(lat, lng);
+        if (vertex < 0) {
+            return Optional.empty();
+        }
+        return entityRepository.findById(centersByVertex.get(vertex)[0])
+                .map(center -> new NearestLearningCenter(center, GeoMath.haversineKm(lat, lng,
+                        center.getCoordinates().getLat(), center.getCoordinates().getLng())));
+    }
+
+    /**
+     * The catchment of a learning center, empty when it is not a learning center with
+     * coordinates. Centers at the same position share one catchment.
+     */
+    public synchronized Optional<Catchment> getCatchment(long learningCenterId) {
+        refresh();
+        Integer vertex = vertexByCenter.get(learningCenterId);
+        Optional<Entity> center = entityRepository.findById(learningCenterId);
+        if (vertex == null || center.isEmpty()) {
+            return Optional.empty();
+        }
+        Cell cell = cells.get(vertex);
+        List<Long> neighborIds = new ArrayList<>();
+        triangulation.neighbors(vertex, neighbor -> {
+            for (long id : centersByVertex.get(neighbor)) {
+                neighborIds.add(id);
+            }
+        });
+        // Schools just outside the outline are still served, so search the whole Voronoi cell.
+        List<Long> schoolIds = new ArrayList<>();
+        for (Entity entity : entityRepository.findWithinBounds(cell.minLat, cell.minLng, cell.maxLat, cell.maxLng)) {
+            Entity.Coordinates c = entity.getCoordinates();
+            if (entity.getType() == Entity.EntityType.SCHOOL && c != null
+                    && locate(c.getLat(), c.getLng()) == vertex) {
+                schoolIds.add(entity.getId());
+            }
+        }
+        return Optional.of(new Catchment(learningCenterId, center.get().getName(), entityRepository.getDataVersion(),
+                cell.areaKm2, neighborIds, schoolIds, new Catchment.Geometry(cell.coordinates)));
+    }
+
+    @Override
+    public void onEntityAdded(Entity entity) {
+        if (isLocatedCenter(entity)) {
+            double lat = entity.getCoordinates().getLat();
+            double lng = entity.getCoordinates().getLng();
+            synchronized (this) {
+                double[] previous = centers.put(entity.getId(), new double[]{lat, lng});
+                if (stale) {
+                    return;
+                }
+                if (vertexByCenter.containsKey(entity.getId())) {
+                    // Added twice: a second insertion would give it two vertices. Only a move needs a rebuild.
+                    stale = previous == null || previous[0] != lat || previous[1] != lng;
+                } else {
+                    insert(entity.getId(), lat, lng);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onEntityRemoved(Entity entity) {
+        if (isLocatedCenter(entity)) {
+            synchronized (this) {
+                centers.remove(entity.getId());
+                stale = true;
+            }
+        }
+    }
+
+    @Override
+    public void onEntityUpdated(Entity before, Entity after) {
+        if (isLocatedCenter(before) && isLocatedCenter(after)) {
+            Entity.Coordinates b = before.getCoordinates();
+            Entity.Coordinates a = after.getCoordinates();
+            if (a.getLat() == b.getLat() && a.getLng() == b.getLng()) {
+                return;
+            }
+        }
+        onEntityRemoved(before);
+        onEntityAdded(after);
+    }
+
+    private static boolean isLocatedCenter(Entity entity) {
+        return entity.getType() == Entity.EntityType.LEARNING_CENTER && entity.getCoordinates() != null;
+    }
+
+    private int locate(double lat, double lng) {
+        refresh();
+        if (triangulation.size() == 0) {
+            return -1;
+        }
+        int start = tree.size() == 0 ? 0 : tree.nearest(lat, lng, 1, Double.POSITIVE_INFINITY)[0];
+        return triangulation.nearest(x(lng), y(lat), start);
+    }
+
+    private void refresh() {
+        if (stale) {
+            rebuild();
+        }
+    }
+
+    // Inserts the centers along a Hilbert curve, so each insertion starts next to the previous one.
+    private void rebuild() {
+        long start = System.nanoTime();
+        triangulation = new DelaunayTriangulation(minX, minY, maxX, maxY);
+        centersByVertex.clear();
+        vertexByCenter.clear();
+        cells.clear();
+        long[] ids = new long[centers.size()];
+        double[][] positions = new double[centers.size()][];
+        int count = 0;
+        for (Map.Entry<Long, double[]> center : centers.entrySet()) {
+            ids[count] = center.getKey();
+            positions[count++] = center.getValue();
+        }
+        long[] keys = new long[count];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = HilbertCurve.index(x(positions[i][1]), y(positions[i][0]), minX, minY, maxX, maxY) << 31 | i;
+        }
+        Arrays.sort(keys);
+        for (long key : keys) {
+            int i = (int) (key & Integer.MAX_VALUE);
+            addCenter(ids[i], positions[i][0], positions[i][1], -1);
+        }
+        for (int vertex = 0; vertex < cells.size(); vertex++) {
+            cells.set(vertex, clip(vertex));
+        }
+        pack();
+        stale = false;
+        log.info("Built catchments of {} learning centers in {} ms", count,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void insert(long id, double lat, double lng) {
+        int near = tree.size() == 0 ? -1 : tree.nearest(lat, lng, 1, Double.POSITIVE_INFINITY)[0];
+        int vertex = addCenter(id, lat, lng, near);
+        cells.set(vertex, clip(vertex));
+        triangulation.neighbors(vertex, neighbor -> cells.set(neighbor, clip(neighbor)));
+        if (triangulation.size() - tree.size() > tree.size() / 4) {
+            pack();
+        }
+    }
+
+    // near is a vertex close to the center, or -1 to continue from the previous insertion.
+    private int addCenter(long id, double lat, double lng, int near) {
+        int vertex = near < 0 ? triangulation.add(x(lng), y(lat)) : triangulation.add(x(lng), y(lat), near);
+        if (vertex == centersByVertex.size()) {
+            centersByVertex.add(new long[]{id});
+            cells.add(null);
+        } else {
+            long[] ids = centersByVertex.get(vertex);
+            ids = Arrays.copyOf(ids, ids.length + 1);
+            ids[ids.length - 1] = id;
+            centersByVertex.set(vertex, ids);
+        }
+        vertexByCenter.put(id, vertex);
+        return vertex;
+    }
+
+    private void pack() {
+        int n = triangulation.size();
+        double[] lats = new double[n];
+        double[] lngs = new double[n];
+        for (int vertex = 0; vertex < n; vertex++) {
+            lats[vertex] = lat(triangulation.y(vertex));
+            lngs[vertex] = lng(triangulation.x(vertex));
+        }
+        tree = new PackedRTree(lats, lngs);
+    }
+
+    private Cell clip(int vertex) {
+        double[] cell = triangulation.cell(vertex);
+        double cMinX = Double.POSITIVE_INFINITY, cMinY = Double.POSITIVE_INFINITY;
+        double cMaxX = Double.NEGATIVE_INFINITY, cMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < cell.length; i += 2) {
+            cMinX = Math.min(cMinX, cell[i]);
+            cMaxX = Math.max(cMaxX, cell[i]);
+            cMinY = Math.min(cMinY, cell[i + 1]);
+            cMaxY = Math.max(cMaxY, cell[i + 1]);
+        }
+        double siteX = triangulation.x(vertex), siteY = triangulation.y(vertex);
+        Cell result = new Cell(Math.max(-90, lat(cMinY)), Math.max(-180, lng(cMinX)),
+                Math.min(90, lat(cMaxY)), Math.min(180, lng(cMaxX)));
+        for (int p = 0; p < province.size(); p++) {
+            List<double[]> rings = province.get(p);
+            List<List<double[]>> polygon = new ArrayList<>();
+            for (int r = 0; r < rings.size(); r++) {
+                double[] ring = rings.get(r);
+                double[] clipped;
+                if (preparedProvince.get(p).get(r).edgesOverlap(cMinY, cMinX, cMaxY, cMaxX)) {
+                    clipped = Polygons.clip(ring, cell);
+                } else {
+                    // The ring passes nowhere near the cell: it holds all of it or none.
+                    clipped = preparedProvince.get(p).get(r).contains(siteY, siteX) ? cell : new double[0];
+                }
+                if (clipped.length == 0) {
+                    if (r == 0) {
+                        break;
+                    }
+                    continue;
+                }
+                polygon.add(toPositions(clipped, r == 0));
+                result.add(clipped, r == 0 ? 1 : -1);
+            }
+            if (!polygon.isEmpty()) {
+                result.coordinates.add(polygon);
+            }
+        }
+        return result;
+    }
+
+    // GeoJSON positions, closed, outer rings counter-clockwise and holes clockwise.
+    private List<double[]> toPositions(double[] ring, boolean outer) {
+        boolean reverse = (Polygons.area(ring) > 0) != outer;
+        int n = ring.length / 2;
+        List<double[]> positions = new ArrayList<>(n + 1);
+        for (int k = 0; k < n; k++) {
+            int i = reverse ? n - 1 - k : k;
+            positions.add(new double[]{round(lng(ring[2 * i])), round(lat(ring[2 * i + 1]))});
+        }
+        positions.add(positions.get(0));
+        return positions;
+    }
+
+    // Groups the outline rings into polygons: a ring inside an odd number of others is a hole.
+    private void nest(List<double[]> outline) {
+        List<double[]> rings = new ArrayList<>();
+        for (double[] ring : outline) {
+            double[] projected = new double[ring.length];
+            for (int i = 0; i < ring.length; i += 2) {
+                projected[i] = x(ring[i]);
+                projected[i + 1] = y(ring[i + 1]);
+            }
+            rings.add(projected);
+        }
+        rings.sort(Comparator.comparingDouble(ring -> -Math.abs(Polygons.area(ring))));
+        List<PreparedPolygon> prepared = new ArrayList<>();
+        for (double[] ring : rings) {
+            prepared.add(new PreparedPolygon(List.of(ring)));
+        }
+        int[] polygonOf = new int[rings.size()];
+        for (int i = 0; i < rings.size(); i++) {
+            int depth = 0;
+            int parent = -1;
+            for (int j = 0; j < i; j++) {
+                if (prepared.get(j).contains(rings.get(i)[1], rings.get(i)[0])) {
+                    depth++;
+                    parent = j;
+                }
+            }
+            if (depth % 2 == 0) {
+                polygonOf[i] = province.size();
+                province.add(new ArrayList<>(List.of(rings.get(i))));
+                preparedProvince.add(new ArrayList<>(List.of(prepared.get(i))));
+            } else {
+                polygonOf[i] = polygonOf[parent];
+                province.get(polygonOf[i]).add(rings.get(i));
+                preparedProvince.get(polygonOf[i]).add(prepared.get(i));
+            }
+        }
+    }
+
+    private double x(double lng) {
+        return (lng - lng0) * kmPerDegreeLng;
+    }
+
+    private double y(double lat) {
+        return (lat - lat0) * KM_PER_DEGREE;
+    }
+
+    private double lng(double x) {
+        return lng0 + x / kmPerDegreeLng;
+    }
+
+    private double lat(double y) {
+        return lat0 + y / KM_PER_DEGREE;
+    }
+
+    private static double round(double degrees) {
+        return Math.round(degrees * DECIMALS) / DECIMALS;
+    }
+
+    private final class Cell {
+        private final List<List<List<double[]>>> coordinates = new ArrayList<>();
+        private double areaKm2;
+        // Bounds of the unclipped cell.
+        private final double minLat, minLng, maxLat, maxLng;
+
+        private Cell(double minLat, double minLng, double maxLat, double maxLng) {
+            this.minLat = minLat;
+            this.minLng = minLng;
+            this.maxLat = maxLat;
+            this.maxLng = maxLng;
+        }
+
+        // Area on a sinusoidal projection, which keeps areas where the working projection does not.
+        private void add(double[] ring, int sign) {
+            int n = ring.length / 2;
+            double sum = 0;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double latJ = lat(ring[2 * j + 1]), latI = lat(ring[2 * i + 1]);
+                double xj = (lng(ring[2 * j]) - lng0) * KM_PER_DEGREE * Math.cos(Math.toRadians(latJ));
+                double xi = (lng(ring[2 * i]) - lng0) * KM_PER_DEGREE * Math.cos(Math.toRadians(latI));
+                sum += xj * latI * KM_PER_DEGREE - xi * latJ * KM_PER_DEGREE;
+            }
+            areaKm2 += sign * Math.abs(sum / 2);
+        }
+    }
+}
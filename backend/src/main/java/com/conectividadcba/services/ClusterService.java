@@ -0,0 +1,118 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.ClusterIndex;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.EntityCluster;
+import com.conectividadcba.repositories.EntityRepository;
+import com.conectividadcba.repositories.VersionedEntities;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputes marker clusters for every zoom level, so that a viewport request only touches the
+ * clusters of one zoom and the response size does not grow with the dataset. The clusters are
+ * rebuilt on the first request after the repository's data version changes.
+ */
+@Service
+public class ClusterService {
+    private static final int RADIUS_PIXELS = 40;
+    private static final int EXTENT = 512;
+    private static final int MIN_ZOOM = 0;
+    private static final int MAX_ZOOM = 16;
+
+    private final EntityRepository entityRepository;
+    private volatile Clusters clusters;
+
+    @Autowired
+    public ClusterService(EntityRepository entityRepository) {
+        this.entityRepository = entityRepository;
+        this.clusters = build(entityRepository.findAllVersioned());
+    }
+
+    public List<EntityCluster> getClusters(double minLat, double minLng, double maxLat, double maxLng, int zoom) {
+        Clusters current = current();
+        List<EntityCluster> result = new ArrayList<>();
+        for (ClusterIndex.Cluster cluster : current.index.getClusters(minLat, minLng, maxLat, maxLng, zoom)) {
+            if (cluster.isCluster()) {
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                for (int code = 0; code < current.connectionTypes.size(); code++) {
+                    if (cluster.getCategoryCount(code) > 0) {
+                        counts.put(current.connectionTypes.get(code), cluster.getCategoryCount(code));
+                    }
+                }
+                result.add(new EntityCluster(cluster.getId(), cluster.getLat(), cluster.getLng(), cluster.getNumPoints(),
+                        counts, current.index.getExpansionZoom(cluster.getId()), null));
+            } else {
+                Entity entity = current.entities.get(cluster.getId());
+                result.add(new EntityCluster(null, entity.getCoordinates().getLat(), entity.getCoordinates().getLng(), 1,
+                        null, null, entity));
+            }
+        }
+        return result;
+    }
+
+    public List<Entity> getClusterEntities(int clusterId, int limit, int offset) {
+        Clusters current = current();
+        List<Entity> result = new ArrayList<>();
+        for (int pointId : current.index.getLeaves(clusterId, limit, offset)) {
+            result.add(current.entities.get(pointId));
+        }
+        return result;
+    }
+
+    private Clusters current() {
+        Clusters current = clusters;
+        if (current.version != entityRepository.getDataVersion()) {
+            synchronized (this) {
+                current = clusters;
+                if (current.version != entityRepository.getDataVersion()) {
+                    // Version and entities from one read, so a concurrent write cannot pair them wrongly.
+                    current = build(entityRepository.findAllVersioned());
+                    clusters = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Clusters build(VersionedEntities all) {
+        long version = all.getVersion();
+        List<Entity> entities = all.getEntities();
+        List<String> connectionTypes = new ArrayList<>();
+        double[] lats = new double[entities.size()];
+        double[] lngs = new double[entities.size()];
+        int[] categories = new int[entities.size()];
+        Map<String, Integer> codes = new HashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            Entity entity = entities.get(i);
+            lats[i] = entity.getCoordinates() == null ? Double.NaN : entity.getCoordinates().getLat();
+            lngs[i] = entity.getCoordinates() == null ? Double.NaN : entity.getCoordinates().getLng();
+            categories[i] = entity.getConnectionType() == null ? -1 : codes.computeIfAbsent(entity.getConnectionType(), type -> {
+                connectionTypes.add(type);
+                return connectionTypes.size() - 1;
+            });
+        }
+        ClusterIndex index = new ClusterIndex(lats, lngs, categories, connectionTypes.size(), RADIUS_PIXELS, EXTENT, MIN_ZOOM, MAX_ZOOM);
+        return new Clusters(version, entities, connectionTypes, index);
+    }
+
+    private static final class Clusters {
+        private final long version;
+        private final List<Entity> entities;
+        private final List<String> connectionTypes;
+        private final ClusterIndex index;
+
+        private Clusters(long version, List<Entity> entities, List<String> connectionTypes, ClusterIndex index) {
+            this.version = version;
+            this.entities = entities;
+            this.connectionTypes = connectionTypes;
+            this.index = index;
+        }
+    }
+}
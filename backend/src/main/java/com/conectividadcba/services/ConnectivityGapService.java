@@ -0,0 +1,202 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.GeoMath;
+import com.conectividadcba.geo.PackedRTree;
+import com.conectividadcba.models.ConnectivityGapReport;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.EntityRepository;
+import com.conectividadcba.repositories.VersionedEntities;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Connectivity-gap analysis: the nearest fiber entities of every school connected through
+ * Starlink or an external provider. Fiber entities of any type are packed into an R-tree and all
+ * gap schools are queried against it on the common fork-join pool, one task per department (large
+ * departments split further). Reports are computed once per data version and {@code k}.
+ */
+@Service
+public class ConnectivityGapService {
+    public static final int MAX_K = 10;
+    static final String FIBER = "Fibra Optica";
+    static final Set<String> GAP_TYPES = Set.of("starlink", "proveedor externo");
+    private static final int MAX_TASK_SIZE = 4096;
+
+    private final EntityRepository entityRepository;
+    private final AtomicReference<Reports> reports = new AtomicReference<>(new Reports(-1));
+
+    @Autowired
+    public ConnectivityGapService(EntityRepository entityRepository) {
+        this.entityRepository = entityRepository;
+    }
+
+    /**
+     * The report for {@code k} nearest fiber entities, with only the {@code limit} largest gaps
+     * listed; department summaries always cover every gap.
+     */
+    public ConnectivityGapReport getConnectivityGaps(int k, int limit) {
+        VersionedEntities all = entityRepository.findAllVersioned();
+        long version = all.getVersion();
+        Reports current = reports.updateAndGet(
+                previous -> previous.version >= version ? previous : new Reports(version));
+        // A request that read its entities just before a write whose reports already replaced
+        // these answers from its own version, uncached.
+        ConnectivityGapReport report = current.version == version
+                ? current.get(k, () -> analyze(all, k))
+                : analyze(all, k);
+        if (report.getGaps().size() <= limit) {
+            return report;
+        }
+        return new ConnectivityGapReport(report.getVersion(), report.getK(), report.getFiberCount(),
+                report.getGapCount(), report.getElapsedMillis(), report.getGaps().subList(0, limit),
+                report.getDepartments());
+    }
+
+    private ConnectivityGapReport analyze(VersionedEntities all, int k) {
+        long start = System.nanoTime();
+        long version = all.getVersion();
+        List<Entity> fiber = new ArrayList<>();
+        Map<Long, List<Entity>> gapsByDepartment = new LinkedHashMap<>();
+        long gapCount = 0;
+        for (Entity entity : all.getEntities()) {
+            String connectionType = entity.getConnectionType();
+            if (connectionType == null || entity.getCoordinates() == null) {
+                continue;
+            }
+            if (FIBER.equalsIgnoreCase(connectionType)) {
+                fiber.add(entity);
+            } else if (entity.getType() == Entity.EntityType.SCHOOL
+                    && GAP_TYPES.contains(connectionType.toLowerCase(Locale.ROOT))) {
+                gapsByDepartment.computeIfAbsent(entity.getDepartmentId(), d -> new ArrayList<>()).add(entity);
+                gapCount++;
+            }
+        }
+        if (fiber.isEmpty()) {
+            return new ConnectivityGapReport(version, k, 0, gapCount, elapsedMillis(start), List.of(), List.of());
+        }
+
+        double[] lats = new double[fiber.size()];
+        double[] lngs = new double[fiber.size()];
+        for (int i = 0; i < fiber.size(); i++) {
+            lats[i] = fiber.get(i).getCoordinates().getLat();
+            lngs[i] = fiber.get(i).getCoordinates().getLng();
+        }
+        PackedRTree tree = new PackedRTree(lats, lngs);
+
+        List<Callable<List<ConnectivityGapReport.Gap>>> tasks = new ArrayList<>();
+        for (List<Entity> department : gapsByDepartment.values()) {
+            for (int from = 0; from < department.size(); from += MAX_TASK_SIZE) {
+                List<Entity> part = department.subList(from, Math.min(from + MAX_TASK_SIZE, department.size()));
+                tasks.add(() -> nearestFiber(part, fiber, tree, k));
+            }
+        }
+        List<ConnectivityGapReport.Gap> gaps = new ArrayList<>((int) gapCount);
+        try {
+            for (Future<List<ConnectivityGapReport.Gap>> result : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                gaps.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Connectivity-gap analysis interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Connectivity-gap analysis failed", e.getCause());
+        }
+        gaps.sort(Comparator.comparingDouble(ConnectivityGapReport.Gap::getDistanceKm).reversed());
+        return new ConnectivityGapReport(version, k, fiber.size(), gapCount, elapsedMillis(start),
+                gaps, summarize(gaps));
+    }
+
+    private static List<ConnectivityGapReport.Gap> nearestFiber(List<Entity> entities, List<Entity> fiber,
+                                                                PackedRTree tree, int k) {
+        List<ConnectivityGapReport.Gap> gaps = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            double lat = entity.getCoordinates().getLat();
+            double lng = entity.getCoordinates().getLng();
+            List<ConnectivityGapReport.Neighbor> neighbors = new ArrayList<>(k);
+            for (int i : tree.nearest(lat, lng, k, Double.POSITIVE_INFINITY)) {
+                Entity.Coordinates c = fiber.get(i).getCoordinates();
+                neighbors.add(new ConnectivityGapReport.Neighbor(fiber.get(i).getId(),
+                        GeoMath.haversineKm(lat, lng, c.getLat(), c.getLng())));
+            }
+            gaps.add(new ConnectivityGapReport.Gap(entity.getId(), entity.getName(), entity.getConnectionType(),
+                    entity.getDepartmentId(), neighbors.get(0).getDistanceKm(), neighbors));
+        }
+        return gaps;
+    }
+
+    // Gaps arrive sorted farthest first, so each department's list is too.
+    private static List<ConnectivityGapReport.DepartmentSummary> summarize(List<ConnectivityGapReport.Gap> gaps) {
+        Map<Long, List<ConnectivityGapReport.Gap>> byDepartment = new HashMap<>();
+        for (ConnectivityGapReport.Gap gap : gaps) {
+            byDepartment.computeIfAbsent(gap.getDepartmentId(), d -> new ArrayList<>()).add(gap);
+        }
+        List<ConnectivityGapReport.DepartmentSummary> summaries = new ArrayList<>();
+        for (Map.Entry<Long, List<ConnectivityGapReport.Gap>> department : byDepartment.entrySet()) {
+            List<ConnectivityGapReport.Gap> list = department.getValue();
+            double sum = 0;
+            for (ConnectivityGapReport.Gap gap : list) {
+                sum += gap.getDistanceKm();
+            }
+            int n = list.size();
+            double median = n % 2 == 1 ? list.get(n / 2).getDistanceKm()
+                    : (list.get(n / 2 - 1).getDistanceKm() + list.get(n / 2).getDistanceKm()) / 2;
+            summaries.add(new ConnectivityGapReport.DepartmentSummary(department.getKey(), n, sum / n, median,
+                    list.get(0).getDistanceKm(), list.get(0).getId()));
+        }
+        summaries.sort(Comparator.comparingDouble(ConnectivityGapReport.DepartmentSummary::getMeanDistanceKm).reversed());
+        return summaries;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static final class Reports {
+        private final long version;
+        private final Map<Integer, CompletableFuture<ConnectivityGapReport>> byK = new ConcurrentHashMap<>();
+
+        private Reports(long version) {
+            this.version = version;
+        }
+
+        // The analysis runs outside the map, so concurrent requests for other k neither wait on it
+        // nor run it inside a bin lock; requests for the same k wait for the first one's result.
+        private ConnectivityGapReport get(int k, Supplier<ConnectivityGapReport> analysis) {
+            CompletableFuture<ConnectivityGapReport> future = new CompletableFuture<>();
+            CompletableFuture<ConnectivityGapReport> existing = byK.putIfAbsent(k, future);
+            if (existing == null) {
+                try {
+                    future.complete(analysis.get());
+                } catch (RuntimeException e) {
+                    byK.remove(k, future);
+                    future.completeExceptionally(e);
+                    throw e;
+                }
+                existing = future;
+            }
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.geo.PreparedPolygon;
+import com.conectividadcba.models.DensityGrid;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.EntityQuery;
+import com.conectividadcba.repositories.EntityRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Serves smoothed entity density grids for arbitrary viewports. Entity counts are kept in a
+ * pyramid of rasters over the province extent, one per level from 64x64 to 1024x1024 cells. A
+ * request is binned from the coarsest raster that is still at least twice as fine as its output
+ * cells, so its cost depends on the output resolution and not on the number of entities. Views
+ * finer than the finest raster, and filtered requests, are binned directly from the entities the
+ * repository finds within the padded viewport.
+ * The rasters are updated per entity through {@link #onEntityAdded} and {@link #onEntityRemoved},
+ * under the same lock that requests read them with.
+ */
+@Service
+public class DensityService implements EntityChangeListener {
+    private static final int MIN_LEVEL = 6;
+    private static final int MAX_LEVEL = 10;
+    private static final int MAX_RESOLUTION = 512;
+
+    private final EntityRepository entityRepository;
+    private final double minLat, minLng, maxLat, maxLng;
+    private final int[][] rasters = new int[MAX_LEVEL + 1][];
+
+    @Autowired
+    public DensityService(EntityRepository entityRepository, DepartmentBoundaryService departmentBoundaryService) {
+        this.entityRepository = entityRepository;
+        double bMinLat = Double.POSITIVE_INFINITY, bMinLng = Double.POSITIVE_INFINITY;
+        double bMaxLat = Double.NEGATIVE_INFINITY, bMaxLng = Double.NEGATIVE_INFINITY;
+        for (DepartmentBoundary boundary : departmentBoundaryService.getBoundaries()) {
+            PreparedPolygon polygon = boundary.getPolygon();
+            bMinLat = Math.min(bMinLat, polygon.getMinLat());
+            bMinLng = Math.min(bMinLng, polygon.getMinLng());
+            bMaxLat = Math.max(bMaxLat, polygon.getMaxLat());
+            bMaxLng = Math.max(bMaxLng, polygon.getMaxLng());
+        }
+        this.minLat = bMinLat;
+        this.minLng = bMinLng;
+        this.maxLat = bMaxLat;
+        this.maxLng = bMaxLng;
+
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            rasters[level] = new int[1 << (2 * level)];
+        }
+        for (Entity entity : entityRepository.findAll()) {
+            onEntityAdded(entity);
+        }
+    }
+
+    @Override
+    public void onEntityAdded(Entity entity) {
+        updateCounts(entity, 1);
+    }
+
+    @Override
+    public void onEntityRemoved(Entity entity) {
+        updateCounts(entity, -1);
+    }
+
+    public int getMaxResolution() {
+        return MAX_RESOLUTION;
+    }
+
+    /**
+     * Density over the given box on a {@code width x height} grid, smoothed with a Gaussian kernel
+     * whose standard deviation is {@code bandwidth} output cells.
+     */
+    public DensityGrid getDensity(double minLat, double minLng, double maxLat, double maxLng,
+                                  int width, int height, double bandwidth) {
+        return getDensity(null, minLat, minLng, maxLat, maxLng, width, height, bandwidth);
+    }
+
+    /**
+     * Density of the entities matching {@code query} (all when null or empty).
+     */
+    public DensityGrid getDensity(EntityQuery query, double minLat, double minLng, double maxLat, double maxLng,
+                                  int width, int height, double bandwidth) {
+        double cellLng = (maxLng - minLng) / width;
+        double cellLat = (maxLat - minLat) / height;
+        int radius = (int) Math.ceil(3 * bandwidth);
+
+        // Bin counts into a grid padded by the kernel radius, so that entities just outside the
+        // box still contribute to the cells along its edges.
+        int paddedWidth = width + 2 * radius;
+        int paddedHeight = height + 2 * radius;
+        float[] counts = new float[paddedWidth * paddedHeight];
+        double originLat = minLat - radius * cellLat;
+        double originLng = minLng - radius * cellLng;
+        double endLat = maxLat + radius * cellLat;
+        double endLng = maxLng + radius * cellLng;
+
+        int level = pickLevel(cellLat, cellLng);
+        if (query != null && !query.isEmpty()) {
+            // The rasters count every entity, so a filtered view bins the matching ones itself.
+            List<Entity> matches = entityRepository.findByQueryWithinBounds(query, originLat, originLng, endLat, endLng);
+            for (Entity entity : matches) {
+                Entity.Coordinates c = entity.getCoordinates();
+                addToBin(counts, paddedWidth, paddedHeight, originLat, originLng, cellLat, cellLng, c.getLat(), c.getLng(), 1);
+            }
+        } else if (level < 0) {
+            for (Entity entity : entityRepository.findWithinBounds(originLat, originLng, endLat, endLng)) {
+                Entity.Coordinates c = entity.getCoordinates();
+                addToBin(counts, paddedWidth, paddedHeight, originLat, originLng, cellLat, cellLng, c.getLat(), c.getLng(), 1);
+            }
+        } else {
+            binRaster(counts, paddedWidth, paddedHeight, originLat, originLng, endLat, endLng, cellLat, cellLng, level);
+        }
+
+        float[] smoothed = blur(counts, paddedWidth, paddedHeight, bandwidth, radius);
+
+        float max = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                max = Math.max(max, smoothed[(y + radius) * paddedWidth + x + radius]);
+            }
+        }
+        byte[] values = new byte[width * height];
+        if (max > 0) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    float value = smoothed[(y + radius) * paddedWidth + x + radius];
+                    values[y * width + x] = (byte) Math.round(value / max * 255);
+                }
+            }
+        }
+        return new DensityGrid(width, height, minLat, minLng, maxLat, maxLng, max, values);
+    }
+
+    /**
+     * Adds the counts of raster {@code level} within the padded box to the output bins, holding
+     * the lock so that a concurrent update is not seen half applied.
+     */
+    private synchronized void binRaster(float[] counts, int paddedWidth, int paddedHeight, double originLat,
+                                        double originLng, double endLat, double endLng, double cellLat,
+                                        double cellLng, int level) {
+        int side = 1 << level;
+        int[] raster = rasters[level];
+        double rasterLat = (this.maxLat - this.minLat) / side;
+        double rasterLng = (this.maxLng - this.minLng) / side;
+        int fromRow = Math.max(0, (int) Math.floor((originLat - this.minLat) / rasterLat));
+        int toRow = Math.min(side - 1, (int) Math.floor((endLat - this.minLat) / rasterLat));
+        int fromCol = Math.max(0, (int) Math.floor((originLng - this.minLng) / rasterLng));
+        int toCol = Math.min(side - 1, (int) Math.floor((endLng - this.minLng) / rasterLng));
+        for (int row = fromRow; row <= toRow; row++) {
+            double lat = this.minLat + (row + 0.5) * rasterLat;
+            for (int col = fromCol; col <= toCol; col++) {
+                int count = raster[row * side + col];
+                if (count != 0) {
+                    double lng = this.minLng + (col + 0.5) * rasterLng;
+                    addToBin(counts, paddedWidth, paddedHeight, originLat, originLng, cellLat, cellLng, lat, lng, count);
+                }
+            }
+        }
+    }
+
+    private synchronized void updateCounts(Entity entity, int delta) {
+        Entity.Coordinates c = entity.getCoordinates();
+        if (c == null || c.getLat() < minLat || c.getLat() > maxLat || c.getLng() < minLng || c.getLng() > maxLng) {
+            return;
+        }
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            int side = 1 << level;
+            int row = Math.min(side - 1, (int) ((c.getLat() - minLat) / (maxLat - minLat) * side));
+            int col = Math.min(side - 1, (int) ((c.getLng() - minLng) / (maxLng - minLng) * side));
+            rasters[level][row * side + col] += delta;
+        }
+    }
+
+    /**
+     * Coarsest raster level whose cells are at most half an output cell in both directions, or -1
+     * if even the finest raster is too coarse.
+     */
+    private int pickLevel(double cellLat, double cellLng) {
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            int side = 1 << level;
+            if ((maxLat - minLat) / side <= cellLat / 2 && (maxLng - minLng) / side <= cellLng / 2) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    private static void addToBin(float[] counts, int width, int height, double originLat, double originLng,
+                                 double cellLat, double cellLng, double lat, double lng, int weight) {
+        int x = (int) Math.floor((lng - originLng) / cellLng);
+        int y = (int) Math.floor((lat - originLat) / cellLat);
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            counts[y * width + x] += weight;
+        }
+    }
+
+    private static float[] blur(float[] grid, int width, int height, double sigma, int radius) {
+        if (radius == 0) {
+            return grid;
+        }
+        float[] kernel = new float[2 * radius + 1];
+        for (int i = -radius; i <= radius; i++) {
+            kernel[i + radius] = (float) Math.exp(-(i * i) / (2 * sigma * sigma));
+        }
+        float[] horizontal = new float[grid.length];
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * width;
+            for (int x = 0; x < width; x++) {
+                float value = grid[rowStart + x];
+                if (value == 0) {
+                    continue;
+                }
+                for (int k = Math.max(-radius, -x); k <= Math.min(radius, width - 1 - x); k++) {
+                    horizontal[rowStart + x + k] += value * kernel[k + radius];
+                }
+            }
+        }
+        float[] result = new float[grid.length];
+        for (int y = 0; y < height; y++) {
+            for (int k = Math.max(-radius, -y); k <= Math.min(radius, height - 1 - y); k++) {
+                float weight = kernel[k + radius];
+                int from = y * width;
+                int to = (y + k) * width;
+                for (int x = 0; x < width; x++) {
+                    result[to + x] += horizontal[from + x] * weight;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,154 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.geo.Polygons;
+import com.conectividadcba.models.Department;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.util.TextNormalizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Loads the department polygons of the province GeoJSON once and resolves coordinates to the
+ * department that contains them. The outline of the province is dissolved from them once too.
+ */
+@Service
+public class DepartmentBoundaryService {
+    private static final Logger log = LoggerFactory.getLogger(DepartmentBoundaryService.class);
+    // Outline rings below this fraction of the province are gaps between department borders.
+    private static final double MIN_OUTLINE_AREA = 1e-6;
+
+    private final List<DepartmentBoundary> boundaries;
+    private final List<double[]> outline;
+
+    @Autowired
+    public DepartmentBoundaryService(DepartmentService departmentService, ObjectMapper objectMapper,
+                                     @Value("${conectividad.geo.departments}") Resource geoJson) {
+        Map<String, Long> departmentIds = new HashMap<>();
+        for (Department department : departmentService.getAllDepartments()) {
+            departmentIds.put(TextNormalizer.fold(department.getName()), department.getId());
+        }
+        this.boundaries = List.copyOf(load(geoJson, objectMapper, departmentIds));
+        log.info("Loaded {} department boundaries from {}", boundaries.size(), geoJson.getDescription());
+        this.outline = List.copyOf(dissolve(boundaries));
+    }
+
+    public List<DepartmentBoundary> getBoundaries() {
+        return boundaries;
+    }
+
+    /**
+     * The outline of the province as flat {@code [lng0, lat0, lng1, lat1, ...]} rings, from the
+     * department borders that are not shared with another department.
+     */
+    public List<double[]> getProvinceOutline() {
+        return outline;
+    }
+
+    public Optional<DepartmentBoundary> locate(double lat, double lng) {
+        for (DepartmentBoundary boundary : boundaries) {
+            if (boundary.contains(lat, lng)) {
+                return Optional.of(boundary);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolves the department id of every coordinate; entries outside the province (or in a
+     * department without an id) are null.
+     */
+    public List<Long> locateAll(List<Entity.Coordinates> coordinates) {
+        List<Long> result = new ArrayList<>(coordinates.size());
+        for (Entity.Coordinates point : coordinates) {
+            result.add(point == null ? null : locate(point.getLat(), point.getLng())
+                    .map(DepartmentBoundary::getDepartmentId)
+                    .orElse(null));
+        }
+        return result;
+    }
+
+    private static List<double[]> dissolve(List<DepartmentBoundary> boundaries) {
+        List<double[]> rings = new ArrayList<>();
+        double area = 0;
+        for (DepartmentBoundary boundary : boundaries) {
+            for (double[] ring : boundary.getRings()) {
+                rings.add(ring);
+                area += Math.abs(Polygons.area(ring));
+            }
+        }
+        List<double[]> outline = Polygons.dissolve(rings, area * MIN_OUTLINE_AREA);
+        int vertices = 0;
+        for (double[] ring : outline) {
+            vertices += ring.length / 2;
+        }
+        log.info("Dissolved province outline into {} rings with {} vertices", outline.size(), vertices);
+        return outline;
+    }
+
+    private static List<DepartmentBoundary> load(Resource geoJson, ObjectMapper objectMapper, Map<String, Long> departmentIds) {
+        JsonNode root;
+        try (InputStream in = geoJson.getInputStream()) {
+            root = objectMapper.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read department boundaries from " + geoJson.getDescription(), e);
+        }
+
+        List<DepartmentBoundary> result = new ArrayList<>();
+        for (JsonNode feature : root.path("features")) {
+            JsonNode properties = feature.path("properties");
+            JsonNode geometry = feature.path("geometry");
+            String name = properties.path("departamento").asText();
+            Long departmentId = departmentIds.get(TextNormalizer.fold(name));
+            if (departmentId == null) {
+                log.warn("No department id matches boundary '{}'", name);
+            }
+
+            List<List<double[]>> polygons = new ArrayList<>();
+            switch (geometry.path("type").asText()) {
+                case "Polygon":
+                    polygons.add(readRings(geometry.path("coordinates")));
+                    break;
+                case "MultiPolygon":
+                    for (JsonNode polygon : geometry.path("coordinates")) {
+                        polygons.add(readRings(polygon));
+                    }
+                    break;
+                default:
+                    log.warn("Skipping boundary '{}' with unsupported geometry {}", name, geometry.path("type").asText());
+                    continue;
+            }
+            result.add(new DepartmentBoundary(properties.path("id").asLong(), name, departmentId, polygons));
+        }
+        return result;
+    }
+
+    private static List<double[]> readRings(JsonNode polygon) {
+        List<double[]> rings = new ArrayList<>();
+        for (JsonNode ring : polygon) {
+            double[] points = new double[ring.size() * 2];
+            int i = 0;
+            for (JsonNode position : ring) {
+                points[i++] = position.get(0).asDouble();
+                points[i++] = position.get(1).asDouble();
+            }
+            rings.add(points);
+        }
+        return rings;
+    }
+}
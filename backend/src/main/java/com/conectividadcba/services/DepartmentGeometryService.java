@@ -0,0 +1,190 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.geo.PreparedPolygon;
+import com.conectividadcba.geo.Simplifier;
+import com.conectividadcba.util.CompressedPayload;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Department outlines as compact GeoJSON, simplified at a fixed set of tolerances (in degrees)
+ * with either Douglas-Peucker or Visvalingam-Whyatt. Every variant is serialized and gzipped once
+ * at startup. Features carry their bounding box and area-weighted centroid.
+ */
+@Service
+public class DepartmentGeometryService {
+    private static final Logger log = LoggerFactory.getLogger(DepartmentGeometryService.class);
+
+    private static final double[] TOLERANCES = {0, 0.0001, 0.0005, 0.001, 0.005, 0.01};
+    private static final int MAX_DECIMALS = 6;
+
+    public enum Method { DOUGLAS_PEUCKER, VISVALINGAM }
+
+    private final ObjectMapper objectMapper;
+    private final Map<Method, CompressedPayload[]> payloads = new EnumMap<>(Method.class);
+
+    @Autowired
+    public DepartmentGeometryService(DepartmentBoundaryService departmentBoundaryService, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        List<DepartmentBoundary> boundaries = departmentBoundaryService.getBoundaries();
+        for (Method method : Method.values()) {
+            CompressedPayload[] levels = new CompressedPayload[TOLERANCES.length];
+            // Every level is simplified from the original rings; simplifying the previous level
+            // instead would add up the tolerances of all the levels before it.
+            List<List<List<double[]>>> original = new ArrayList<>();
+            for (DepartmentBoundary boundary : boundaries) {
+                original.add(boundary.getPolygons());
+            }
+            for (int level = 0; level < TOLERANCES.length; level++) {
+                List<List<List<double[]>>> geometry = simplify(original, TOLERANCES[level], method);
+                levels[level] = CompressedPayload.of(serialize(boundaries, geometry, TOLERANCES[level]));
+            }
+            payloads.put(method, levels);
+        }
+        CompressedPayload[] levels = payloads.get(Method.DOUGLAS_PEUCKER);
+        log.info("Department geometry: {} bytes at full resolution, {} gzipped at tolerance {}",
+                levels[0].getBody().length, levels[levels.length - 1].getGzipBody().length,
+                TOLERANCES[TOLERANCES.length - 1]);
+    }
+
+    public double[] getTolerances() {
+        return TOLERANCES.clone();
+    }
+
+    /**
+     * Returns the most simplified variant whose tolerance does not exceed the requested one.
+     */
+    public CompressedPayload getGeometry(double tolerance, Method method) {
+        int level = 0;
+        while (level + 1 < TOLERANCES.length && TOLERANCES[level + 1] <= tolerance) {
+            level++;
+        }
+        return payloads.get(method)[level];
+    }
+
+    private static List<List<List<double[]>>> simplify(List<List<List<double[]>>> geometry, double tolerance, Method method) {
+        List<List<List<double[]>>> result = new ArrayList<>(geometry.size());
+        for (List<List<double[]>> polygons : geometry) {
+            List<List<double[]>> simplifiedPolygons = new ArrayList<>(polygons.size());
+            for (List<double[]> rings : polygons) {
+                List<double[]> simplifiedRings = new ArrayList<>(rings.size());
+                for (double[] ring : rings) {
+                    double[] simplified = method == Method.VISVALINGAM
+                            ? Simplifier.visvalingam(ring, tolerance * tolerance)
+                            : Simplifier.douglasPeucker(ring, tolerance);
+                    // A closed ring needs at least four positions; keep the original ring if not.
+                    simplifiedRings.add(simplified.length >= 8 ? simplified : ring);
+                }
+                simplifiedPolygons.add(simplifiedRings);
+            }
+            result.add(simplifiedPolygons);
+        }
+        return result;
+    }
+
+    private byte[] serialize(List<DepartmentBoundary> boundaries, List<List<List<double[]>>> geometry, double tolerance) {
+        int decimals = decimalsFor(tolerance);
+        double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("type", "FeatureCollection");
+        ArrayNode collectionBbox = root.putArray("bbox");
+        root.put("tolerance", tolerance);
+        ArrayNode features = root.putArray("features");
+        for (int d = 0; d < boundaries.size(); d++) {
+            DepartmentBoundary boundary = boundaries.get(d);
+            PreparedPolygon polygon = boundary.getPolygon();
+            minLng = Math.min(minLng, polygon.getMinLng());
+            minLat = Math.min(minLat, polygon.getMinLat());
+            maxLng = Math.max(maxLng, polygon.getMaxLng());
+            maxLat = Math.max(maxLat, polygon.getMaxLat());
+
+            ObjectNode feature = features.addObject();
+            feature.put("type", "Feature");
+            feature.put("id", boundary.getFeatureId());
+            addBbox(feature.putArray("bbox"), polygon.getMinLng(), polygon.getMinLat(),
+                    polygon.getMaxLng(), polygon.getMaxLat(), decimals);
+
+            ObjectNode properties = feature.putObject("properties");
+            properties.put("id", boundary.getFeatureId());
+            properties.put("departamento", boundary.getName());
+            if (boundary.getDepartmentId() == null) {
+                properties.putNull("departmentId");
+            } else {
+                properties.put("departmentId", boundary.getDepartmentId());
+            }
+            ArrayNode centroid = properties.putArray("centroid");
+            centroid.add(round(boundary.getCentroidLng(), decimals));
+            centroid.add(round(boundary.getCentroidLat(), decimals));
+
+            List<List<double[]>> polygons = geometry.get(d);
+            ObjectNode geometryNode = feature.putObject("geometry");
+            geometryNode.put("type", polygons.size() == 1 ? "Polygon" : "MultiPolygon");
+            ArrayNode coordinates = geometryNode.putArray("coordinates");
+            for (List<double[]> rings : polygons) {
+                ArrayNode polygonNode = polygons.size() == 1 ? coordinates : coordinates.addArray();
+                for (double[] ring : rings) {
+                    addRing(polygonNode.addArray(), ring, decimals);
+                }
+            }
+        }
+        if (!boundaries.isEmpty()) {
+            addBbox(collectionBbox, minLng, minLat, maxLng, maxLat, decimals);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize department geometry", e);
+        }
+    }
+
+    // Rounds positions to the precision the tolerance warrants, dropping repeated positions.
+    private static void addRing(ArrayNode node, double[] ring, int decimals) {
+        double lastLng = Double.NaN, lastLat = Double.NaN;
+        int n = ring.length / 2;
+        for (int i = 0; i < n; i++) {
+            double lng = round(ring[2 * i], decimals);
+            double lat = round(ring[2 * i + 1], decimals);
+            if (lng == lastLng && lat == lastLat && n > 4) {
+                continue;
+            }
+            ArrayNode position = node.addArray();
+            position.add(lng);
+            position.add(lat);
+            lastLng = lng;
+            lastLat = lat;
+        }
+    }
+
+    private static void addBbox(ArrayNode node, double minLng, double minLat, double maxLng, double maxLat, int decimals) {
+        node.add(round(minLng, decimals));
+        node.add(round(minLat, decimals));
+        node.add(round(maxLng, decimals));
+        node.add(round(maxLat, decimals));
+    }
+
+    private static int decimalsFor(double tolerance) {
+        if (tolerance <= 0) {
+            return MAX_DECIMALS;
+        }
+        return Math.max(0, Math.min(MAX_DECIMALS, (int) Math.ceil(-Math.log10(tolerance)) + 2));
+    }
+
+    private static double round(double value, int decimals) {
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
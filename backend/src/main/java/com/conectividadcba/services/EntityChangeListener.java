@@ -0,0 +1,30 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.models.Entity;
+
+/**
+ * Receives every committed entity write, inside the commit and before the new version of the
+ * repository is visible (see {@link com.conectividadcba.repositories.EntityWriteListener}), so a
+ * response cached under a version never mixes it with older derived state. Implementations keep
+ * derived state (counters, rasters) in step without rescanning, and must not read the repository
+ * to do it: it still shows the previous version.
+ */
+public interface EntityChangeListener {
+
+    default void onEntityAdded(Entity entity) {
+    }
+
+    default void onEntityRemoved(Entity entity) {
+    }
+
+    default void onEntityUpdated(Entity before, Entity after) {
+        onEntityRemoved(before);
+        onEntityAdded(after);
+    }
+
+    /**
+     * Called after the writes of a commit are visible as {@code version}.
+     */
+    default void onVersionPublished(long version) {
+    }
+}
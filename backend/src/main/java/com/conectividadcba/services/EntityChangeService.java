@@ -0,0 +1,229 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.models.EntityChange;
+import com.conectividadcba.models.EntityChanges;
+import com.conectividadcba.repositories.EntityRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delta sync over the repository's change log, and Server-Sent Events for clients that stay
+ * connected. Writes are not pushed one by one: the first write after a quiet period schedules a
+ * flush {@code conectividad.changes.coalesce-ms} later, which sends every subscriber one event
+ * with all changes since the version it last received, at most one per entity. Subscribers the
+ * log can no longer catch up get a {@code resync} event instead.
+ * <p>
+ * Versions restart with every run of the server, so clients hold cursors that carry the run's
+ * epoch with the version; a cursor from another run always resyncs.
+ * <p>
+ * Each subscriber has at most one send in flight, on a thread of its own, so it sees its events
+ * in version order and a slow connection only delays itself: flushes that find it still sending
+ * leave it to catch up with one event once that send completes.
+ */
+@Service
+public class EntityChangeService implements EntityChangeListener {
+    private static final String CHANGES_EVENT = "changes";
+    private static final String RESYNC_EVENT = "resync";
+    private static final long HEARTBEAT_SECONDS = 30;
+    // Below every version the change log reaches back to, so it always resyncs.
+    private static final long OTHER_RUN = -1;
+
+    private final EntityRepository entityRepository;
+    private final long coalesceMillis;
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "entity-changes");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "entity-changes-send");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public EntityChangeService(EntityRepository entityRepository,
+                               @Value("${conectividad.changes.coalesce-ms:250}") long coalesceMillis) {
+        this.entityRepository = entityRepository;
+        this.coalesceMillis = coalesceMillis;
+        scheduler.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * The version a cursor {@code <epoch>.<version>} names, a version no change log reaches back
+     * to when it is from another run (or a bare version, whose run is unknown), or null when it
+     * is malformed.
+     */
+    public Long parseCursor(String cursor) {
+        int dot = cursor.indexOf('.');
+        try {
+            long version = Long.parseLong(cursor.substring(dot + 1));
+            if (version < 0) {
+                return null;
+            }
+            return dot > 0 && cursor.substring(0, dot).equals(epoch) ? version : OTHER_RUN;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Changes since data version {@code since} of this run, coalesced to the latest change per
+     * entity.
+     */
+    public EntityChanges getChangesSince(long since) {
+        Optional<List<EntityChange>> changes = entityRepository.findChangesSince(since);
+        if (changes.isEmpty()) {
+            return changes(since, entityRepository.getDataVersion(), true, List.of());
+        }
+        List<EntityChange> list = changes.get();
+        long version = list.isEmpty() ? since : list.get(list.size() - 1).getVersion();
+        return changes(since, version, false, coalesce(list));
+    }
+
+    private EntityChanges changes(long since, long version, boolean resync, List<EntityChange> changes) {
+        return new EntityChanges(since, version, epoch + "." + version, resync, changes);
+    }
+
+    /**
+     * Opens an event stream that starts at data version {@code since} of this run, or at the
+     * current version when null. The first event brings the subscriber up to date (possibly with
+     * no changes, announcing the version it starts from).
+     */
+    public SseEmitter subscribe(Long since) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter, since == null ? entityRepository.getDataVersion() : since);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscriber.sending.set(true);
+        subscribers.add(subscriber);
+        senders.execute(() -> deliver(subscriber, getChangesSince(subscriber.version), true));
+        return emitter;
+    }
+
+    // Not on the writes themselves: a flush scheduled then could run before their version is
+    // visible, and miss them until the next write.
+    @Override
+    public void onVersionPublished(long version) {
+        if (!subscribers.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        // Subscribers at the same version share one delta.
+        Map<Long, EntityChanges> deltas = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            // Set first, so a send completing concurrently either sees it or lets this one start.
+            subscriber.behind = true;
+            if (subscriber.sending.compareAndSet(false, true)) {
+                subscriber.behind = false;
+                EntityChanges delta = deltas.computeIfAbsent(subscriber.version, this::getChangesSince);
+                senders.execute(() -> deliver(subscriber, delta, false));
+            }
+        }
+    }
+
+    private void deliver(Subscriber subscriber, EntityChanges changes, boolean always) {
+        send(subscriber, changes, always);
+        catchUp(subscriber);
+    }
+
+    // Ends a send, catching up first with whatever flushes skipped the subscriber during it.
+    private void catchUp(Subscriber subscriber) {
+        while (true) {
+            subscriber.sending.set(false);
+            if (!subscriber.behind || !subscriber.sending.compareAndSet(false, true)) {
+                return;
+            }
+            subscriber.behind = false;
+            send(subscriber, getChangesSince(subscriber.version), false);
+        }
+    }
+
+    private void send(Subscriber subscriber, EntityChanges changes, boolean always) {
+        if (!always && !changes.isResync() && changes.getChanges().isEmpty()) {
+            return;
+        }
+        try {
+            subscriber.emitter.send(SseEmitter.event()
+                    .name(changes.isResync() ? RESYNC_EVENT : CHANGES_EVENT)
+                    .id(changes.getCursor())
+                    .data(changes));
+            subscriber.version = changes.getVersion();
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    // Also finds the subscribers whose connection is gone. One that is sending needs no heartbeat.
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sending.compareAndSet(false, true)) {
+                senders.execute(() -> {
+                    try {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } catch (IOException | IllegalStateException e) {
+                        subscribers.remove(subscriber);
+                        subscriber.emitter.completeWithError(e);
+                    }
+                    catchUp(subscriber);
+                });
+            }
+        }
+    }
+
+    private static List<EntityChange> coalesce(List<EntityChange> changes) {
+        Map<Long, EntityChange> latest = new LinkedHashMap<>();
+        for (EntityChange change : changes) {
+            // Re-inserting moves the entity to the position of its latest change.
+            latest.remove(change.getId());
+            latest.put(change.getId(), change);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // A flush found it sending and left it to catch up afterwards.
+        private volatile boolean behind;
+        // Only written while sending, and read by whoever set sending.
+        private long version;
+
+        private Subscriber(SseEmitter emitter, long version) {
+            this.emitter = emitter;
+            this.version = version;
+        }
+    }
+}
@@ -1,21 +1,60 @@
 package com.conectividadcba.services;
 
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.models.BulkUpsertResult;
 import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.DuplicateEntityException;
+import com.conectividadcba.repositories.EntityCursor;
+import com.conectividadcba.repositories.EntityQuery;
 import com.conectividadcba.repositories.EntityRepository;
+import com.conectividadcba.repositories.EntitySort;
+import com.conectividadcba.repositories.SavedEntities;
+import com.conectividadcba.repositories.EntityWriteListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
+@Timed(value = "conectividad.service", histogram = true)
 public class EntityService {
     private final EntityRepository entityRepository;
+    private final StatsService statsService;
+    private final DepartmentBoundaryService departmentBoundaryService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public EntityService(EntityRepository entityRepository) {
+    public EntityService(EntityRepository entityRepository, StatsService statsService,
+                         DepartmentBoundaryService departmentBoundaryService,
+                         List<EntityChangeListener> listeners, ObjectMapper objectMapper) {
         this.entityRepository = entityRepository;
+        this.statsService = statsService;
+        this.departmentBoundaryService = departmentBoundaryService;
+        this.objectMapper = objectMapper;
+        entityRepository.addWriteListener(new EntityWriteListener() {
+            @Override
+            public void onWrite(Entity before, Entity after) {
+                for (EntityChangeListener listener : listeners) {
+                    if (before == null) {
+                        listener.onEntityAdded(after);
+                    } else if (after == null) {
+                        listener.onEntityRemoved(before);
+                    } else {
+                        listener.onEntityUpdated(before, after);
+                    }
+                }
+            }
+
+            @Override
+            public void onPublished(long version) {
+                listeners.forEach(listener -> listener.onVersionPublished(version));
+            }
+        });
     }
 
     public List<Entity> getAllEntities() {
@@ -38,15 +77,154 @@ public class EntityService {
         return entityRepository.findByDepartmentId(departmentId);
     }
 
+    public List<Entity> getEntitiesByConnectionType(String connectionType) {
+        return entityRepository.findByConnectionType(connectionType);
+    }
+
     public List<Entity> getEntitiesByName(String name) {
         return entityRepository.findByName(name);
     }
 
+    public List<Entity> searchEntities(String query, int limit) {
+        return entityRepository.searchByName(query, limit);
+    }
+
+    public List<Entity> getEntitiesInBoundingBox(double minLat, double minLng, double maxLat, double maxLng) {
+        return entityRepository.findWithinBounds(minLat, minLng, maxLat, maxLng);
+    }
+
+    public List<Entity> getEntitiesNear(double lat, double lng, double radiusKm, int limit) {
+        return entityRepository.findNearest(lat, lng, radiusKm, limit);
+    }
+
+    public List<Entity> findEntities(EntityQuery query) {
+        return entityRepository.findByQuery(query);
+    }
+
+    /**
+     * One page of the entities matching {@code query}; see {@link EntityRepository#findPage}.
+     */
+    public List<Entity> getEntityPage(EntityQuery query, EntitySort sort, boolean descending, EntityCursor after,
+                                      int limit) {
+        return entityRepository.findPage(query, sort, descending, after, limit);
+    }
+
     public List<Long> getAllDepartmentIds() {
-        return entityRepository.findAll().stream()
-                .map(Entity::getDepartmentId)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return statsService.getDepartmentIds();
+    }
+
+    /**
+     * Inserts a new entity, assigning an id when it has none and a department from its
+     * coordinates when it has none.
+     *
+     * @throws IllegalArgumentException if the entity is invalid
+     * @throws DuplicateEntityException if an entity with the same id already exists
+     */
+    public Entity createEntity(Entity entity) {
+        validate(entity);
+        locateDepartment(entity);
+        entityRepository.insert(entity);
+        return entity;
+    }
+
+    /**
+     * Replaces an existing entity; empty if there is none with that id by the time the write is
+     * applied.
+     *
+     * @throws IllegalArgumentException if the entity is invalid
+     */
+    public Optional<Entity> replaceEntity(Long id, Entity entity) {
+        entity.setId(id);
+        validate(entity);
+        locateDepartment(entity);
+        return entityRepository.update(id, existing -> entity);
+    }
+
+    /**
+     * Applies the given property values on top of a copy of the entity, e.g.
+     * {@code {"connectionType": "Starlink"}}; empty if there is no entity with that id. The copy
+     * is taken while holding the repository's write lock, so concurrent changes to other
+     * properties are kept. Moving the entity assigns its department again from the new
+     * coordinates, unless the changes set one.
+     *
+     * @throws IllegalArgumentException if the changes are invalid or try to change the id
+     */
+    public Optional<Entity> updateEntity(Long id, Map<String, Object> changes) {
+        if (changes.containsKey("id") && !String.valueOf(id).equals(String.valueOf(changes.get("id")))) {
+            throw new IllegalArgumentException("The id of an entity cannot change");
+        }
+        return entityRepository.update(id, existing -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> merged = objectMapper.convertValue(existing, LinkedHashMap.class);
+            merged.putAll(changes);
+            Entity updated = objectMapper.convertValue(merged, Entity.class);
+            updated.setId(id);
+            validate(updated);
+            if (!changes.containsKey("departmentId") && moved(existing, updated)) {
+                // The department came from the old position.
+                updated.setDepartmentId(null);
+            }
+            locateDepartment(updated);
+            return updated;
+        });
+    }
+
+    public boolean deleteEntity(Long id) {
+        return entityRepository.deleteById(id).isPresent();
+    }
+
+    /**
+     * Inserts or replaces all entities by id in one new data version; nothing is written if any
+     * of them is invalid.
+     *
+     * @throws IllegalArgumentException if an entity is invalid
+     */
+    public BulkUpsertResult upsertEntities(List<Entity> entities) {
+        for (Entity entity : entities) {
+            validate(entity);
+        }
+        SavedEntities saved = save(entities);
+        int created = 0;
+        for (Entity entity : saved.getPrevious()) {
+            if (entity == null) {
+                created++;
+            }
+        }
+        return new BulkUpsertResult(created, saved.getPrevious().size() - created, saved.getVersion());
+    }
+
+    private SavedEntities save(List<Entity> entities) {
+        entities.forEach(this::locateDepartment);
+        return entityRepository.saveAll(entities);
+    }
+
+    private static boolean moved(Entity before, Entity after) {
+        Entity.Coordinates b = before.getCoordinates();
+        Entity.Coordinates a = after.getCoordinates();
+        return b == null || a.getLat() != b.getLat() || a.getLng() != b.getLng();
+    }
+
+    private void locateDepartment(Entity entity) {
+        if (entity.getDepartmentId() == null) {
+            departmentBoundaryService.locate(entity.getCoordinates().getLat(), entity.getCoordinates().getLng())
+                    .map(DepartmentBoundary::getDepartmentId)
+                    .ifPresent(entity::setDepartmentId);
+        }
+    }
+
+    private static void validate(Entity entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("Missing entity");
+        }
+        if (entity.getName() == null || entity.getName().isBlank()) {
+            throw new IllegalArgumentException("An entity needs a name");
+        }
+        if (entity.getType() == null) {
+            throw new IllegalArgumentException("An entity needs a type");
+        }
+        Entity.Coordinates coordinates = entity.getCoordinates();
+        if (coordinates == null || !(Math.abs(coordinates.getLat()) <= 90) || !(Math.abs(coordinates.getLng()) <= 180)) {
+            throw new IllegalArgumentException("An entity needs valid coordinates");
+        }
     }
 }
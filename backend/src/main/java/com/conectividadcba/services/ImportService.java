@@ -0,0 +1,170 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.importer.CsvChunkReader;
+import com.conectividadcba.importer.GeoJsonFeatureReader;
+import com.conectividadcba.importer.ImportFormat;
+import com.conectividadcba.importer.ImportRecord;
+import com.conectividadcba.models.BulkUpsertResult;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.ImportReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Imports schools and learning centers from CSV or GeoJSON files. The file is memory-mapped. A
+ * CSV file is first cut into chunks at record boundaries, a single quick scan, and then every
+ * chunk is parsed, validated and located in its department on a fork-join pool. GeoJSON features
+ * are read in batches, and each batch is validated on the pool while the next one is read. Rows
+ * outside every department of the province are rejected. The valid rows are written in one batch
+ * at the end, so the repository builds its indexes once per file instead of once per row.
+ */
+@Service
+public class ImportService {
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int FEATURES_PER_BATCH = 2048;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final EntityService entityService;
+    private final DepartmentBoundaryService departmentBoundaryService;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public ImportService(EntityService entityService, DepartmentBoundaryService departmentBoundaryService,
+                         ObjectMapper objectMapper, @Value("${conectividad.import.parallelism:0}") int parallelism) {
+        this.entityService = entityService;
+        this.departmentBoundaryService = departmentBoundaryService;
+        this.objectMapper = objectMapper;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Imports a file, inserting new entities and replacing those whose id already exists. With
+     * {@code dryRun} the file is only validated.
+     *
+     * @throws IllegalArgumentException if the file as a whole is malformed, e.g. lacks a column
+     */
+    public ImportReport importFile(Path file, ImportFormat format, boolean dryRun) throws IOException {
+        long start = System.nanoTime();
+        List<Future<Batch>> futures = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Import files are limited to 2 GB");
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (format == ImportFormat.CSV) {
+                CsvChunkReader reader = new CsvChunkReader(data);
+                for (CsvChunkReader.Chunk chunk : reader.split(CHUNK_BYTES)) {
+                    futures.add(pool.submit(() -> validate(reader.parse(chunk))));
+                }
+            } else {
+                try (GeoJsonFeatureReader reader = new GeoJsonFeatureReader(objectMapper, data)) {
+                    for (List<ImportRecord> records = reader.next(FEATURES_PER_BATCH); !records.isEmpty();
+                         records = reader.next(FEATURES_PER_BATCH)) {
+                        List<ImportRecord> batch = records;
+                        futures.add(pool.submit(() -> validate(batch)));
+                    }
+                }
+            }
+
+            int rows = 0;
+            int rejected = 0;
+            List<Entity> entities = new ArrayList<>();
+            List<ImportReport.RowError> errors = new ArrayList<>();
+            for (Future<Batch> future : futures) {
+                Batch batch = join(future);
+                rows += batch.rows;
+                rejected += batch.errors.size();
+                entities.addAll(batch.entities);
+                for (ImportReport.RowError error : batch.errors) {
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(error);
+                    }
+                }
+            }
+
+            int created = 0;
+            int updated = 0;
+            Long version = null;
+            if (!dryRun && !entities.isEmpty()) {
+                BulkUpsertResult result = entityService.upsertEntities(entities);
+                created = result.getCreated();
+                updated = result.getUpdated();
+                version = result.getVersion();
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            return new ImportReport(format.name(), rows, created, updated, rejected, version, elapsedMillis, errors);
+        } finally {
+            for (Future<Batch> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private Batch validate(List<ImportRecord> records) {
+        Batch batch = new Batch(records.size());
+        for (ImportRecord record : records) {
+            try {
+                Entity entity = record.toEntity();
+                Optional<DepartmentBoundary> boundary = departmentBoundaryService.locate(
+                        entity.getCoordinates().getLat(), entity.getCoordinates().getLng());
+                if (boundary.isEmpty()) {
+                    throw new IllegalArgumentException("Coordinates outside the province");
+                }
+                if (boundary.get().getDepartmentId() != null) {
+                    entity.setDepartmentId(boundary.get().getDepartmentId());
+                }
+                batch.entities.add(entity);
+            } catch (IllegalArgumentException e) {
+                batch.errors.add(new ImportReport.RowError(record.getRow(), e.getMessage()));
+            }
+        }
+        return batch;
+    }
+
+    private static Batch join(Future<Batch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class Batch {
+        private final int rows;
+        private final List<Entity> entities;
+        private final List<ImportReport.RowError> errors = new ArrayList<>();
+
+        private Batch(int rows) {
+            this.rows = rows;
+            this.entities = new ArrayList<>(rows);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the entity store to the binary snapshot at {@code conectividad.snapshot.path} (disabled
+ * when blank) on shutdown, so that the next start maps it instead of rebuilding or re-importing
+ * the data. The store only starts without reading an existing snapshot when there is none, so
+ * this never replaces one with unrelated data.
+ */
+@Service
+public class SnapshotService {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final IndexedEntityRepository entityRepository;
+    private final Path path;
+
+    @Autowired
+    public SnapshotService(IndexedEntityRepository entityRepository,
+                           @Value("${conectividad.snapshot.path:}") String path) {
+        this.entityRepository = entityRepository;
+        this.path = path.isBlank() ? null : Path.of(path);
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        if (path == null) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long version = entityRepository.save(path);
+            log.info("Wrote snapshot of version {} to {} in {} ms", version, path,
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            log.error("Could not write snapshot to {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.EntityStats;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.conectividadcba.repositories.EntityRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregate counts per department, entity type and connection type. The counters are built once
+ * from the repository and then adjusted per entity through {@link #onEntityAdded},
+ * {@link #onEntityUpdated} and {@link #onEntityRemoved}, so reading them costs
+ * O(departments + connection types) however many entities there are.
+ */
+@Service
+public class StatsService implements EntityChangeListener {
+    private final Counters totals = new Counters();
+    private final Map<String, long[]> types = new TreeMap<>();
+    private final Map<Long, Counters> departments = new TreeMap<>();
+
+    @Autowired
+    public StatsService(EntityRepository entityRepository) {
+        for (Entity entity : entityRepository.findAll()) {
+            onEntityAdded(entity);
+        }
+    }
+
+    @Override
+    public void onEntityAdded(Entity entity) {
+        update(entity, 1);
+    }
+
+    @Override
+    public void onEntityRemoved(Entity entity) {
+        update(entity, -1);
+    }
+
+    @Override
+    public synchronized void onEntityUpdated(Entity before, Entity after) {
+        update(before, -1);
+        update(after, 1);
+    }
+
+    public synchronized EntityStats getStats() {
+        Map<String, Long> typeCounts = new LinkedHashMap<>();
+        types.forEach((type, count) -> typeCounts.put(type, count[0]));
+        List<EntityStats.DepartmentStats> departmentStats = new ArrayList<>(departments.size());
+        departments.forEach((id, counters) -> departmentStats.add(new EntityStats.DepartmentStats(
+                id, counters.count, counters.studentCount, counters.capacity, counters.connectionTypeCounts())));
+        return new EntityStats(totals.count, totals.studentCount, totals.capacity, typeCounts,
+                totals.connectionTypeCounts(), departmentStats);
+    }
+
+    /**
+     * Ids of the departments that currently have at least one entity, ascending.
+     */
+    public synchronized List<Long> getDepartmentIds() {
+        return new ArrayList<>(departments.keySet());
+    }
+
+    private synchronized void update(Entity entity, int delta) {
+        totals.add(entity, delta);
+        if (entity.getType() != null) {
+            long[] count = types.computeIfAbsent(entity.getType().name(), k -> new long[1]);
+            count[0] += delta;
+            if (count[0] == 0) {
+                types.remove(entity.getType().name());
+            }
+        }
+        if (entity.getDepartmentId() != null) {
+            Counters counters = departments.computeIfAbsent(entity.getDepartmentId(), k -> new Counters());
+            counters.add(entity, delta);
+            if (counters.count == 0) {
+                departments.remove(entity.getDepartmentId());
+            }
+        }
+    }
+
+    private static final class Counters {
+        private long count;
+        private long studentCount;
+        private long capacity;
+        private final Map<String, long[]> connectionTypes = new TreeMap<>();
+
+        private void add(Entity entity, int delta) {
+            count += delta;
+            if (entity instanceof School) {
+                studentCount += (long) delta * ((School) entity).getStudentCount();
+            } else if (entity instanceof LearningCenter) {
+                capacity += (long) delta * ((LearningCenter) entity).getCapacity();
+            }
+            String connectionType = entity.getConnectionType();
+            if (connectionType != null) {
+                long[] counter = connectionTypes.computeIfAbsent(connectionType, k -> new long[1]);
+                counter[0] += delta;
+                if (counter[0] == 0) {
+                    connectionTypes.remove(connectionType);
+                }
+            }
+        }
+
+        private Map<String, Long> connectionTypeCounts() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            connectionTypes.forEach((type, counter) -> result.put(type, counter[0]));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.geo.DepartmentBoundary;
+import com.conectividadcba.geo.Simplifier;
+import com.conectividadcba.geo.VectorTileEncoder;
+import com.conectividadcba.geo.WebMercator;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.EntityRepository;
+import com.conectividadcba.util.ByteSizeLruCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders Mapbox Vector Tiles with a "departments" polygon layer and an "entities" point layer.
+ * Department outlines are projected once and simplified per zoom level at startup (one-pixel
+ * Douglas-Peucker tolerance), and encoded tiles are kept in an LRU cache bounded by bytes.
+ */
+@Service
+public class TileService {
+    public static final int MAX_ZOOM = 22;
+    private static final int EXTENT = 4096;
+    private static final int BUFFER = 64;
+    private static final int TILE_PIXELS = 256;
+    // Above this zoom the simplification tolerance is already below the data's own precision.
+    private static final int MAX_SIMPLIFIED_ZOOM = 14;
+    // Rough heap cost of a cache entry besides the tile bytes: key string, map entry, array header.
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final byte[] EMPTY_TILE = new byte[0];
+
+    private final EntityRepository entityRepository;
+    private final List<ProjectedBoundary> boundaries = new ArrayList<>();
+    private final ByteSizeLruCache<String, byte[]> cache;
+    // Web Mercator bounds of all department outlines, to skip them for tiles outside the province
+    private double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+    @Autowired
+    public TileService(EntityRepository entityRepository, DepartmentBoundaryService departmentBoundaryService,
+                       MeterRegistry meterRegistry, @Value("${conectividad.tiles.cache-bytes}") long cacheBytes) {
+        this.entityRepository = entityRepository;
+        this.cache = new ByteSizeLruCache<>(cacheBytes, tile -> tile.length + ENTRY_OVERHEAD);
+        cache.bindTo(meterRegistry, "tiles");
+
+        for (DepartmentBoundary boundary : departmentBoundaryService.getBoundaries()) {
+            ProjectedBoundary projected = new ProjectedBoundary(boundary);
+            boundaries.add(projected);
+            minX = Math.min(minX, projected.minX);
+            maxX = Math.max(maxX, projected.maxX);
+            minY = Math.min(minY, projected.minY);
+            maxY = Math.max(maxY, projected.maxY);
+        }
+    }
+
+    /**
+     * Returns the encoded tile, or an empty array if nothing intersects it. Cached tiles are keyed
+     * by the data version, so a write makes the old ones unreachable and the LRU evicts them.
+     * Empty tiles are not cached: they are the majority at high zoom and cheap to recognize.
+     */
+    public byte[] getTile(int z, int x, int y) {
+        String key = entityRepository.getDataVersion() + ":" + z + "/" + x + "/" + y;
+        byte[] tile = cache.get(key);
+        if (tile == null) {
+            tile = render(z, x, y);
+            if (tile.length > 0) {
+                cache.put(key, tile);
+            }
+        }
+        return tile;
+    }
+
+    private byte[] render(int z, int x, int y) {
+        double scale = Math.pow(2, z);
+        VectorTileEncoder encoder = new VectorTileEncoder(EXTENT, BUFFER);
+
+        int level = Math.min(z, MAX_SIMPLIFIED_ZOOM);
+        double pad = (double) BUFFER / EXTENT;
+        double tileMinX = (x - pad) / scale, tileMaxX = (x + 1 + pad) / scale;
+        double tileMinY = (y - pad) / scale, tileMaxY = (y + 1 + pad) / scale;
+        boolean overlapsProvince = tileMinX <= maxX && tileMaxX >= minX && tileMinY <= maxY && tileMaxY >= minY;
+        for (int d = 0; overlapsProvince && d < boundaries.size(); d++) {
+            ProjectedBoundary department = boundaries.get(d);
+            if (tileMinX > department.maxX || tileMaxX < department.minX
+                    || tileMinY > department.maxY || tileMaxY < department.minY) {
+                continue;
+            }
+            List<List<double[]>> tilePolygons = new ArrayList<>();
+            for (List<double[]> rings : department.polygonsByZoom.get(level)) {
+                List<double[]> tileRings = new ArrayList<>();
+                for (double[] ring : rings) {
+                    double[] pixels = new double[ring.length];
+                    for (int i = 0; i < ring.length; i += 2) {
+                        pixels[i] = (ring[i] * scale - x) * EXTENT;
+                        pixels[i + 1] = (ring[i + 1] * scale - y) * EXTENT;
+                    }
+                    tileRings.add(pixels);
+                }
+                tilePolygons.add(tileRings);
+            }
+            DepartmentBoundary boundary = department.boundary;
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("departmentId", boundary.getDepartmentId());
+            properties.put("name", boundary.getName());
+            encoder.addPolygon("departments", boundary.getFeatureId(), tilePolygons, properties);
+        }
+
+        double minLng = WebMercator.xToLng((x - pad) / scale);
+        double maxLng = WebMercator.xToLng((x + 1 + pad) / scale);
+        double maxLat = WebMercator.yToLat((y - pad) / scale);
+        double minLat = WebMercator.yToLat((y + 1 + pad) / scale);
+        for (Entity entity : entityRepository.findWithinBounds(minLat, minLng, maxLat, maxLng)) {
+            Entity.Coordinates c = entity.getCoordinates();
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("id", entity.getId());
+            properties.put("name", entity.getName());
+            properties.put("type", entity.getType() == null ? null : entity.getType().name());
+            properties.put("connectionType", entity.getConnectionType());
+            properties.put("departmentId", entity.getDepartmentId());
+            encoder.addPoint("entities", entity.getId(),
+                    (WebMercator.lngToX(c.getLng()) * scale - x) * EXTENT,
+                    (WebMercator.latToY(c.getLat()) * scale - y) * EXTENT,
+                    properties);
+        }
+        return encoder.isEmpty() ? EMPTY_TILE : encoder.encode();
+    }
+
+    /**
+     * A department outline in Web Mercator unit coordinates, with its bounds and its polygons
+     * simplified for every zoom level up to {@link #MAX_SIMPLIFIED_ZOOM}.
+     */
+    private static final class ProjectedBoundary {
+        private final DepartmentBoundary boundary;
+        // [zoom][polygon] -> rings, outer ring first
+        private final List<List<List<double[]>>> polygonsByZoom = new ArrayList<>();
+        private double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        private double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+        private ProjectedBoundary(DepartmentBoundary boundary) {
+            this.boundary = boundary;
+            List<List<double[]>> projected = new ArrayList<>();
+            for (List<double[]> rings : boundary.getPolygons()) {
+                List<double[]> projectedRings = new ArrayList<>();
+                for (double[] ring : rings) {
+                    double[] mercator = new double[ring.length];
+                    for (int i = 0; i < ring.length; i += 2) {
+                        mercator[i] = WebMercator.lngToX(ring[i]);
+                        mercator[i + 1] = WebMercator.latToY(ring[i + 1]);
+                        minX = Math.min(minX, mercator[i]);
+                        maxX = Math.max(maxX, mercator[i]);
+                        minY = Math.min(minY, mercator[i + 1]);
+                        maxY = Math.max(maxY, mercator[i + 1]);
+                    }
+                    projectedRings.add(mercator);
+                }
+                projected.add(projectedRings);
+            }
+            for (int z = 0; z <= MAX_SIMPLIFIED_ZOOM; z++) {
+                double tolerance = 1.0 / (TILE_PIXELS * Math.pow(2, z));
+                List<List<double[]>> level = new ArrayList<>();
+                for (List<double[]> rings : projected) {
+                    List<double[]> simplified = new ArrayList<>();
+                    for (double[] ring : rings) {
+                        simplified.add(Simplifier.douglasPeucker(ring, tolerance));
+                    }
+                    level.add(simplified);
+                }
+                polygonsByZoom.add(level);
+            }
+        }
+    }
+}
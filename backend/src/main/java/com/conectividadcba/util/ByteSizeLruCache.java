@@ -0,0 +1,95 @@
+package com.conectividadcba.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Least-recently-used cache bounded by the total number of bytes its values hold rather than by
+ * entry count; {@code sizeOf} reports the size of a value.
+ */
+public class ByteSizeLruCache<K, V> {
+    private final long maxBytes;
+    private final ToIntFunction<? super V> sizeOf;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long currentBytes;
+    private long hits;
+    private long misses;
+
+    public ByteSizeLruCache(long maxBytes, ToIntFunction<? super V> sizeOf) {
+        this.maxBytes = maxBytes;
+        this.sizeOf = sizeOf;
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        int size = sizeOf.applyAsInt(value);
+        if (size > maxBytes) {
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            currentBytes -= sizeOf.applyAsInt(previous);
+        }
+        currentBytes += size;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            currentBytes -= sizeOf.applyAsInt(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getBytes() {
+        return currentBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Publishes hits and misses as {@code cache.gets} and the held bytes as {@code cache.bytes},
+     * tagged with {@code cache=name}; the hit ratio is hits over all gets.
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        FunctionCounter.builder("cache.gets", this, ByteSizeLruCache::getHits)
+                .tag("cache", name)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, ByteSizeLruCache::getMisses)
+                .tag("cache", name)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("cache.bytes", this, ByteSizeLruCache::getBytes)
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
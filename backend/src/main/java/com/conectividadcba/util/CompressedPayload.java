@@ -0,0 +1,78 @@
+package com.conectividadcba.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An immutable response body kept both as-is and gzip-compressed. Bodies built once up front get
+ * the best compression and a strong ETag derived from their content, so they can be revalidated
+ * without being re-sent; bodies compressed while answering a request use {@link #fast}.
+ */
+public final class CompressedPayload {
+    private final byte[] body;
+    private final byte[] gzipBody;
+    private final String eTag;
+
+    private CompressedPayload(byte[] body, byte[] gzipBody, String eTag) {
+        this.body = body;
+        this.gzipBody = gzipBody;
+        this.eTag = eTag;
+    }
+
+    public static CompressedPayload of(byte[] body) {
+        return new CompressedPayload(body, gzip(body, Deflater.BEST_COMPRESSION),
+                "\"" + sha256(body).substring(0, 32) + "\"");
+    }
+
+    /**
+     * Compressed at the fastest level and without a content ETag, for callers that derive their
+     * validators elsewhere.
+     */
+    public static CompressedPayload fast(byte[] body) {
+        return new CompressedPayload(body, gzip(body, Deflater.BEST_SPEED), null);
+    }
+
+    public byte[] getBody() { return body; }
+
+    public byte[] getGzipBody() { return gzipBody; }
+
+    /**
+     * Strong ETag of the uncompressed body, quoted; null for a {@link #fast} payload.
+     */
+    public String getETag() { return eTag; }
+
+    /**
+     * The gzip representation is a different sequence of bytes, so it gets its own strong ETag.
+     */
+    public String getGzipETag() {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    private static byte[] gzip(byte[] body, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
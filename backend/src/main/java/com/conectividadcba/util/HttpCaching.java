@@ -0,0 +1,55 @@
+package com.conectividadcba.util;
+
+import java.util.Locale;
+
+/**
+ * Header parsing shared by the endpoints and filters that serve precompressed, ETag-validated
+ * bodies.
+ */
+public final class HttpCaching {
+
+    private HttpCaching() {}
+
+    /**
+     * True if an {@code If-None-Match} header value names {@code eTag} (or is {@code *}).
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if an {@code Accept-Encoding} header value accepts gzip with a non-zero quality.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equals("gzip")) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,48 @@
+package com.conectividadcba.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+public final class TextNormalizer {
+
+    private TextNormalizer() {}
+
+    /**
+     * Lower-cases and strips accents, so that "Río Cuarto" and "RIO CUARTO" fold to the same key.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isAscii(text)) {
+            // Nothing to decompose; skips the normalizer, which dominates index builds otherwise.
+            return text.toLowerCase(Locale.ROOT).trim();
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); ) {
+            int codePoint = decomposed.codePointAt(i);
+            if (!isMark(codePoint)) {
+                folded.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT).trim();
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The \p{M} category: nonspacing, enclosing and spacing combining marks.
+    private static boolean isMark(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+}
@@ -0,0 +1,104 @@
+package com.conectividadcba.web;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.EntityRows;
+import com.conectividadcba.util.ProtobufWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.List;
+
+/**
+ * Writes lists of entities as {@code application/x-protobuf} with the {@link EntityProtobufEncoder},
+ * for clients that ask for it in {@code Accept}. Entity lists wrapped in a
+ * {@link MappingJacksonValue} are written too; their sparse fieldset does not apply here. Lists keep
+ * their order unless the handler marked its result as unordered with {@link #UNORDERED_ATTRIBUTE}.
+ * Registered after the JSON converters, so JSON stays the default.
+ */
+public class EntityProtobufConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final String PROTOBUF_VALUE = "application/x-protobuf";
+    public static final MediaType PROTOBUF = MediaType.parseMediaType(PROTOBUF_VALUE);
+    /**
+     * Request attribute a handler sets to {@code true} when the order of its entity list carries
+     * no meaning, so rows may be written in the order that encodes smallest.
+     */
+    public static final String UNORDERED_ATTRIBUTE = EntityProtobufConverter.class.getName() + ".unordered";
+
+    public EntityProtobufConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (isEntityList(type) || MappingJacksonValue.class.isAssignableFrom(clazz)) && canWrite(mediaType);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) || MappingJacksonValue.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf input is not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf input is not supported", inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Object value = body instanceof MappingJacksonValue ? ((MappingJacksonValue) body).getValue() : body;
+        // Repository results are entity lists by construction; checking them would materialize them.
+        if (!(value instanceof EntityRows)
+                && !(value instanceof List && ((List<?>) value).stream().allMatch(Entity.class::isInstance))) {
+            throw new HttpMessageNotWritableException("Only lists of entities can be written as protobuf");
+        }
+        ProtobufWriter message = new EntityProtobufEncoder().encode((List<? extends Entity>) value, isUnordered());
+        outputMessage.getHeaders().setContentLength(message.size());
+        message.writeTo(outputMessage.getBody());
+    }
+
+    private static boolean isUnordered() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && Boolean.TRUE.equals(attributes.getAttribute(UNORDERED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+    }
+
+    private static boolean isEntityList(Type type) {
+        if (!(type instanceof ParameterizedType)
+                || !(((ParameterizedType) type).getRawType() instanceof Class)
+                || !List.class.isAssignableFrom((Class<?>) ((ParameterizedType) type).getRawType())) {
+            return false;
+        }
+        Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+        if (element instanceof WildcardType) {
+            element = ((WildcardType) element).getUpperBounds()[0];
+        }
+        return element instanceof Class && Entity.class.isAssignableFrom((Class<?>) element);
+    }
+}
@@ -0,0 +1,264 @@
+package com.conectividadcba.web;
+
+import com.conectividadcba.geo.HilbertCurve;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.repositories.EntityRows;
+import com.conectividadcba.util.ProtobufWriter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a list of entities as one columnar protocol buffers message:
+ *
+ * <pre>
+ * message EntityBatch {
+ *   uint32 scale = 1;                      // coordinate units per degree
+ *   repeated string strings = 2;           // dictionary, referenced 1-based (0 = absent)
+ *   repeated uint64 ids = 3 [packed];
+ *   repeated uint32 types = 4 [packed];    // EntityType ordinal + 1, 0 = absent
+ *   repeated string names = 5;             // "" when absent
+ *   repeated uint32 descriptions = 6 [packed];
+ *   uint32 located = 7;                    // rows with coordinates
+ *   repeated sint64 lats = 8 [packed];     // delta from the previous row, fixed point
+ *   repeated sint64 lngs = 9 [packed];
+ *   repeated uint64 departmentIds = 10 [packed];    // id + 1, 0 = absent
+ *   repeated uint32 connectionTypes = 11 [packed];
+ *   repeated uint32 details = 12 [packed]; // level or specialization
+ *   repeated uint32 counts = 13 [packed];  // student count or capacity
+ *   repeated uint32 missing = 14 [packed]; // rows without coordinates, delta from the previous one
+ * }
+ * </pre>
+ *
+ * Every column holds one value per row, except {@code lats} and {@code lngs} which cover the
+ * {@code located} rows only, in row order. Without {@code missing}, those are the first
+ * {@code located} rows. Rows keep the order of the list, unless it is an unordered result such as
+ * a bounding box query: then rows with coordinates come first, ordered along a Hilbert curve over
+ * their extent so consecutive deltas stay small. Entities are read through {@link EntityRows}, so
+ * repository results are encoded without materializing them. Not thread-safe; use one encoder per
+ * response.
+ */
+public final class EntityProtobufEncoder {
+    public static final int SCALE = 1_000_000;
+
+    private static final int SCALE_FIELD = 1;
+    private static final int STRINGS = 2;
+    private static final int IDS = 3;
+    private static final int TYPES = 4;
+    private static final int NAMES = 5;
+    private static final int DESCRIPTIONS = 6;
+    private static final int LOCATED = 7;
+    private static final int LATS = 8;
+    private static final int LNGS = 9;
+    private static final int DEPARTMENT_IDS = 10;
+    private static final int CONNECTION_TYPES = 11;
+    private static final int DETAILS = 12;
+    private static final int COUNTS = 13;
+    private static final int MISSING = 14;
+
+    // Hilbert keys keep the row in their low bits; rows are ints, so 31 bits suffice.
+    private static final int ROW_BITS = 31;
+    private static final long ROW_MASK = (1L << ROW_BITS) - 1;
+
+    private final ProtobufWriter out = new ProtobufWriter(4096);
+    private final ProtobufWriter column = new ProtobufWriter(4096);
+    private final Map<String, Integer> strings = new HashMap<>();
+    private String[] dictionary = new String[16];
+    // Rows with coordinates in the last encoded list.
+    private int located;
+
+    /**
+     * The encoded message with the rows in list order, valid until the next call.
+     */
+    public ProtobufWriter encode(List<? extends Entity> entities) {
+        return encode(entities, false);
+    }
+
+    /**
+     * The encoded message, valid until the next call. With {@code spatialOrder} the order of the
+     * list is not kept, which makes the coordinates of a large list smaller.
+     */
+    public ProtobufWriter encode(List<? extends Entity> entities, boolean spatialOrder) {
+        EntityRows rows = EntityRows.of(entities);
+        out.reset();
+        strings.clear();
+        int[] order = spatialOrder ? hilbertOrder(rows) : listOrder(rows);
+        int n = order.length;
+
+        out.writeVarintField(SCALE_FIELD, SCALE);
+        for (int row : order) {
+            code(rows.description(row));
+            code(rows.connectionType(row));
+            code(rows.detail(row));
+        }
+        for (int i = 0; i < strings.size(); i++) {
+            out.writeStringField(STRINGS, dictionary[i]);
+        }
+
+        column.reset();
+        for (int row : order) {
+            column.writeVarint(rows.id(row));
+        }
+        writeColumn(IDS, n);
+
+        column.reset();
+        for (int row : order) {
+            Entity.EntityType type = rows.type(row);
+            column.writeVarint(type == null ? 0 : type.ordinal() + 1);
+        }
+        writeColumn(TYPES, n);
+
+        for (int row : order) {
+            String name = rows.name(row);
+            out.writeStringField(NAMES, name == null ? "" : name);
+        }
+
+        column.reset();
+        for (int row : order) {
+            column.writeVarint(code(rows.description(row)));
+        }
+        writeColumn(DESCRIPTIONS, n);
+
+        out.writeVarintField(LOCATED, located);
+        writeCoordinates(LATS, rows, order, true);
+        writeCoordinates(LNGS, rows, order, false);
+
+        column.reset();
+        for (int row : order) {
+            column.writeVarint(rows.departmentId(row) + 1);
+        }
+        writeColumn(DEPARTMENT_IDS, n);
+
+        column.reset();
+        for (int row : order) {
+            column.writeVarint(code(rows.connectionType(row)));
+        }
+        writeColumn(CONNECTION_TYPES, n);
+
+        column.reset();
+        for (int row : order) {
+            column.writeVarint(code(rows.detail(row)));
+        }
+        writeColumn(DETAILS, n);
+
+        column.reset();
+        for (int row : order) {
+            column.writeVarint(rows.count(row) & 0xFFFFFFFFL);
+        }
+        writeColumn(COUNTS, n);
+
+        writeMissing(rows, order);
+        return out;
+    }
+
+    private int[] listOrder(EntityRows rows) {
+        int n = rows.size();
+        int[] order = new int[n];
+        located = 0;
+        for (int row = 0; row < n; row++) {
+            order[row] = row;
+            if (!Double.isNaN(rows.lat(row))) {
+                located++;
+            }
+        }
+        return order;
+    }
+
+    // Rows with coordinates by Hilbert position over their bounding box, then the others in order.
+    private int[] hilbertOrder(EntityRows rows) {
+        int n = rows.size();
+        double minLat = Double.POSITIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        located = 0;
+        for (int row = 0; row < n; row++) {
+            double lat = rows.lat(row);
+            if (!Double.isNaN(lat)) {
+                double lng = rows.lng(row);
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                minLng = Math.min(minLng, lng);
+                maxLng = Math.max(maxLng, lng);
+                located++;
+            }
+        }
+        long[] keys = new long[located];
+        int[] order = new int[n];
+        int k = 0;
+        int unlocated = located;
+        for (int row = 0; row < n; row++) {
+            double lat = rows.lat(row);
+            if (Double.isNaN(lat)) {
+                order[unlocated++] = row;
+            } else {
+                long position = HilbertCurve.index(rows.lng(row), lat, minLng, minLat, maxLng, maxLat);
+                keys[k++] = (position << ROW_BITS) | row;
+            }
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < located; i++) {
+            order[i] = (int) (keys[i] & ROW_MASK);
+        }
+        return order;
+    }
+
+    private void writeCoordinates(int field, EntityRows rows, int[] order, boolean lat) {
+        column.reset();
+        long previous = 0;
+        for (int row : order) {
+            if (Double.isNaN(rows.lat(row))) {
+                continue;
+            }
+            long value = Math.round((lat ? rows.lat(row) : rows.lng(row)) * SCALE);
+            column.writeSignedVarint(value - previous);
+            previous = value;
+        }
+        writeColumn(field, located);
+    }
+
+    // Omitted when the rows without coordinates are the last ones, as in spatial order.
+    private void writeMissing(EntityRows rows, int[] order) {
+        boolean trailing = true;
+        for (int i = 0; i < located && trailing; i++) {
+            trailing = !Double.isNaN(rows.lat(order[i]));
+        }
+        if (trailing) {
+            return;
+        }
+        column.reset();
+        int previous = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (Double.isNaN(rows.lat(order[i]))) {
+                column.writeVarint(i - previous);
+                previous = i;
+            }
+        }
+        writeColumn(MISSING, order.length - located);
+    }
+
+    // A packed repeated field is a length-delimited run of varints, the same bytes as a message.
+    private void writeColumn(int field, int count) {
+        if (count > 0) {
+            out.writeMessage(field, column);
+        }
+    }
+
+    private int code(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = strings.get(value);
+        if (code == null) {
+            code = strings.size() + 1;
+            if (strings.size() == dictionary.length) {
+                dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+            }
+            dictionary[strings.size()] = value;
+            strings.put(value, code);
+        }
+        return code;
+    }
+}
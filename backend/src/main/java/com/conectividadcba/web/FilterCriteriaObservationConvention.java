@@ -0,0 +1,39 @@
+package com.conectividadcba.web;
+
+import com.conectividadcba.repositories.EntityQuery;
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.StringJoiner;
+
+/**
+ * Adds a {@code criteria} tag to {@code http.server.requests}: the names of the criteria given to
+ * {@code /api/entities/filter}, joined as {@link EntityQuery#criteriaKey()} does, and
+ * {@code none} for every other request.
+ */
+@Component
+public class FilterCriteriaObservationConvention extends DefaultServerRequestObservationConvention {
+    private static final String FILTER_PATH = "/api/entities/filter";
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and("criteria", criteria(context.getCarrier()));
+    }
+
+    private static String criteria(HttpServletRequest request) {
+        StringJoiner key = new StringJoiner("+");
+        key.setEmptyValue("none");
+        if (FILTER_PATH.equals(request.getRequestURI())) {
+            for (String criterion : EntityQuery.CRITERIA) {
+                String value = request.getParameter(criterion);
+                if (value != null && !value.isBlank()) {
+                    key.add(criterion);
+                }
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,172 @@
+package com.conectividadcba.web;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Records the body bytes of every API and tile response ({@code conectividad.response.bytes}, tagged by
+ * endpoint pattern and content encoding) as they reach the container: cached and freshly
+ * serialized responses, streams such as NDJSON and Server-Sent Events (recorded when the stream
+ * ends), tiles and the precompressed department geometry alike. Runs outside
+ * {@link ResponseCacheFilter}, so it sees the bytes that filter finally sends.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ResponseBytesFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ResponseBytesFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith("/api/") && !uri.startsWith("/tiles/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CountingResponse counting = new CountingResponse(response);
+        try {
+            chain.doFilter(request, counting);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, counting);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, counting);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, CountingResponse response) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String encoding = response.getHeader(HttpHeaders.CONTENT_ENCODING);
+        DistributionSummary.builder("conectividad.response.bytes")
+                .baseUnit("bytes")
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .tag("encoding", encoding == null ? "identity" : encoding)
+                .register(meterRegistry)
+                .record(response.bytes);
+    }
+
+    /**
+     * Counts what is written through the output stream, and characters written through the
+     * writer as one byte each (nothing in the API writes text that way but error pages).
+     */
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        private volatile long bytes;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        delegate.setWriteListener(listener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new FilterWriter(super.getWriter()) {
+                    @Override
+                    public void write(int c) throws IOException {
+                        super.write(c);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(char[] buffer, int off, int len) throws IOException {
+                        super.write(buffer, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void write(String text, int off, int len) throws IOException {
+                        super.write(text, off, len);
+                        bytes += len;
+                    }
+                });
+            }
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.conectividadcba.web;
+
+import com.conectividadcba.repositories.EntityRepository;
+import com.conectividadcba.util.ByteSizeLruCache;
+import com.conectividadcba.util.CompressedPayload;
+import com.conectividadcba.util.HttpCaching;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serialized GET responses of the API, kept plain and gzipped in a byte-bounded LRU and keyed by
+ * path plus sorted query parameters. ETags are derived from the repository's data version, and
+ * the whole cache is dropped as soon as the version moves on. A revalidation is answered with 304
+ * only once the response is known to be a cacheable 200: from a cached entry, or after the
+ * handler produced one.
+ */
+@Component
+public class ResponseCache {
+    static final String KEY_ATTRIBUTE = ResponseCache.class.getName() + ".key";
+    static final String VERSION_ATTRIBUTE = ResponseCache.class.getName() + ".version";
+    static final String SERVED_ATTRIBUTE = ResponseCache.class.getName() + ".served";
+
+    private static final String CACHE_CONTROL = "no-cache";
+
+    private final EntityRepository entityRepository;
+    private final ByteSizeLruCache<String, CachedResponse> cache;
+    private final long maxBytes;
+    // Distinguishes the ETags of different runs, whose data version counters restart.
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private long cachedVersion;
+
+    @Autowired
+    public ResponseCache(EntityRepository entityRepository, MeterRegistry meterRegistry,
+                         @Value("${conectividad.cache.response-bytes}") long maxBytes) {
+        this.entityRepository = entityRepository;
+        this.cache = new ByteSizeLruCache<>(maxBytes, CachedResponse::size);
+        this.maxBytes = maxBytes;
+        cache.bindTo(meterRegistry, "responses");
+    }
+
+    /**
+     * Cache key of a request, or null if its response must not be cached: anything but a GET
+     * under {@code /api/}, and NDJSON and event streams. Requests accepting protobuf get keys of
+     * their own, since they may be answered with another representation.
+     */
+    String key(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) || !request.getRequestURI().startsWith("/api/")) {
+            return null;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if ("true".equals(request.getParameter("stream"))
+                || (accept != null && (accept.contains("ndjson") || accept.contains("event-stream")))) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : parameter.getValue()) {
+                key.append(separator).append(parameter.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        if (acceptsProtobuf(request)) {
+            key.append('#').append(accept);
+        }
+        return key.toString();
+    }
+
+    long currentVersion() {
+        return entityRepository.getDataVersion();
+    }
+
+    synchronized CachedResponse get(String key, long version) {
+        if (version != cachedVersion) {
+            cache.clear();
+            cachedVersion = version;
+            return null;
+        }
+        return cache.get(key);
+    }
+
+    synchronized void put(String key, long version, CachedResponse response) {
+        if (version == cachedVersion) {
+            cache.put(key, response);
+        }
+    }
+
+    /**
+     * True if a body of this size could be stored at all, checked before compressing it.
+     */
+    boolean fits(int bodyLength) {
+        return bodyLength <= maxBytes;
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getBytes() {
+        return cache.getBytes();
+    }
+
+    String eTag(long version, boolean protobuf, boolean gzip) {
+        return "\"" + epoch + "-" + version + (protobuf ? "-pb" : "") + (gzip ? "-gzip\"" : "\"");
+    }
+
+    /**
+     * Writes a cacheable response, or 304 if the request already holds its current ETag.
+     */
+    void write(CachedResponse cached, long version, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        boolean gzip = HttpCaching.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = eTag(version, acceptsProtobuf(request), gzip);
+        writeValidators(response, eTag);
+        if (HttpCaching.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType);
+        if (cached.link != null) {
+            response.setHeader(HttpHeaders.LINK, cached.link);
+        }
+        byte[] body = gzip ? cached.payload.getGzipBody() : cached.payload.getBody();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsProtobuf(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains("protobuf");
+    }
+
+    private static void writeValidators(HttpServletResponse response, String eTag) {
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    static final class CachedResponse {
+        private final CompressedPayload payload;
+        private final String contentType;
+        private final String link;
+
+        CachedResponse(byte[] body, String contentType, String link) {
+            this.payload = CompressedPayload.fast(body);
+            this.contentType = contentType;
+            this.link = link;
+        }
+
+        private int size() {
+            return payload.getBody().length + payload.getGzipBody().length
+                    + (link == null ? 0 : link.length() * 2) + 128;
+        }
+    }
+}
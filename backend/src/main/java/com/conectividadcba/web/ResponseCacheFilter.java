@@ -0,0 +1,74 @@
+package com.conectividadcba.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Captures cacheable API responses on a miss and stores them in the {@link ResponseCache}; hits
+ * are answered earlier by {@link ResponseCacheInterceptor}, after CORS handling has run. A fresh
+ * response is sent the same way a cached one would be, ETag, 304 and gzip included. Bodies too
+ * large for the cache are passed through as they are, without being compressed.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+    private final ResponseCache responseCache;
+
+    @Autowired
+    public ResponseCacheFilter(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = responseCache.key(request);
+        if (key == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long version = responseCache.currentVersion();
+        request.setAttribute(ResponseCache.KEY_ATTRIBUTE, key);
+        request.setAttribute(ResponseCache.VERSION_ATTRIBUTE, version);
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        if (request.getAttribute(ResponseCache.SERVED_ATTRIBUTE) == null && isCacheable(wrapper)
+                && responseCache.fits(wrapper.getContentSize())) {
+            ResponseCache.CachedResponse cached = new ResponseCache.CachedResponse(
+                    wrapper.getContentAsByteArray(), wrapper.getContentType(), wrapper.getHeader(HttpHeaders.LINK));
+            // Only store what was computed against the version the key was taken for.
+            if (responseCache.currentVersion() == version) {
+                responseCache.put(key, version, cached);
+                wrapper.resetBuffer();
+                responseCache.write(cached, version, request, wrapper);
+            }
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    // Successful JSON or protobuf that did not set its own validators (e.g. the department geometry).
+    private static boolean isCacheable(ContentCachingResponseWrapper response) {
+        if (response.getStatus() != HttpServletResponse.SC_OK || response.getHeader(HttpHeaders.ETAG) != null
+                || response.getContentType() == null) {
+            return false;
+        }
+        try {
+            MediaType contentType = MediaType.parseMediaType(response.getContentType());
+            return MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                    || EntityProtobufConverter.PROTOBUF.isCompatibleWith(contentType);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
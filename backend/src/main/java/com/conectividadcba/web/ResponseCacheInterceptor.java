@@ -0,0 +1,39 @@
+package com.conectividadcba.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Answers requests marked by {@link ResponseCacheFilter} from the {@link ResponseCache} on a hit,
+ * with 304 when the client's ETag is current and the stored bytes otherwise; on a miss the handler
+ * runs.
+ */
+@Component
+public class ResponseCacheInterceptor implements HandlerInterceptor {
+    private final ResponseCache responseCache;
+
+    @Autowired
+    public ResponseCacheInterceptor(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        String key = (String) request.getAttribute(ResponseCache.KEY_ATTRIBUTE);
+        if (key == null) {
+            return true;
+        }
+        long version = (Long) request.getAttribute(ResponseCache.VERSION_ATTRIBUTE);
+        ResponseCache.CachedResponse cached = responseCache.get(key, version);
+        if (cached == null) {
+            return true;
+        }
+        responseCache.write(cached, version, request, response);
+        request.setAttribute(ResponseCache.SERVED_ATTRIBUTE, Boolean.TRUE);
+        return false;
+    }
+}
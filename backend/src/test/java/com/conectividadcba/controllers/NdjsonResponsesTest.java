@@ -0,0 +1,36 @@
+package com.conectividadcba.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NdjsonResponsesTest {
+    @Test
+    void writesOneLinePerItemAndFlushesEveryFewHundred() throws IOException {
+        List<Map<String, Integer>> items = IntStream.range(0, 600).mapToObj(i -> Map.of("id", i)).toList();
+        int[] flushes = {0};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        NdjsonResponses.stream(new ObjectMapper().writer(), items).getBody().writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(600);
+        assertThat(lines[0]).isEqualTo("{\"id\":0}");
+        assertThat(lines[599]).isEqualTo("{\"id\":599}");
+        // After items 256 and 512; not after each one.
+        assertThat(flushes[0]).isEqualTo(2);
+    }
+}
@@ -0,0 +1,152 @@
+package com.conectividadcba.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelaunayTriangulationTest {
+
+    private static double[] randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        double[] points = new double[2 * n];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextDouble() * 10;
+        }
+        return points;
+    }
+
+    // A grid in steps of 0.1, which no double holds exactly: rows of collinear and circles of
+    // cocircular points, as degenerate as input gets.
+    private static double[] gridPoints(int side) {
+        double[] points = new double[2 * side * side];
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                points[2 * (i * side + j)] = i * 0.1;
+                points[2 * (i * side + j) + 1] = j * 0.1;
+            }
+        }
+        return points;
+    }
+
+    private static DelaunayTriangulation triangulate(double[] points, int maxWalk) {
+        DelaunayTriangulation triangulation = new DelaunayTriangulation(0, 0, 10, 10, maxWalk);
+        for (int i = 0; i < points.length; i += 2) {
+            triangulation.add(points[i], points[i + 1]);
+        }
+        return triangulation;
+    }
+
+    /**
+     * Every corner of a Voronoi cell is the center of an empty circle through the cell's site: no
+     * other site is nearer to it.
+     */
+    private static void assertDelaunay(DelaunayTriangulation triangulation) {
+        int n = triangulation.size();
+        for (int v = 0; v < n; v++) {
+            double[] cell = triangulation.cell(v);
+            assertThat(cell.length).isGreaterThanOrEqualTo(6);
+            for (int i = 0; i < cell.length; i += 2) {
+                double radius2 = distance2(triangulation, v, cell[i], cell[i + 1]);
+                for (int u = 0; u < n; u++) {
+                    assertThat(distance2(triangulation, u, cell[i], cell[i + 1]))
+                            .as("site %d inside the circle of a corner of cell %d", u, v)
+                            .isGreaterThanOrEqualTo(radius2 * (1 - 1e-9));
+                }
+            }
+        }
+    }
+
+    private static void assertNearest(DelaunayTriangulation triangulation, long seed) {
+        Random random = new Random(seed);
+        for (int q = 0; q < 500; q++) {
+            double x = random.nextDouble() * 10, y = random.nextDouble() * 10;
+            int found = triangulation.nearest(x, y, random.nextInt(triangulation.size()));
+            double best = Double.POSITIVE_INFINITY;
+            for (int v = 0; v < triangulation.size(); v++) {
+                best = Math.min(best, distance2(triangulation, v, x, y));
+            }
+            assertThat(distance2(triangulation, found, x, y)).isEqualTo(best);
+        }
+    }
+
+    private static double distance2(DelaunayTriangulation triangulation, int v, double x, double y) {
+        double dx = triangulation.x(v) - x, dy = triangulation.y(v) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static List<Set<Integer>> neighbors(DelaunayTriangulation triangulation) {
+        List<Set<Integer>> neighbors = new ArrayList<>();
+        for (int v = 0; v < triangulation.size(); v++) {
+            Set<Integer> set = new TreeSet<>();
+            triangulation.neighbors(v, set::add);
+            neighbors.add(set);
+        }
+        return neighbors;
+    }
+
+    @Test
+    void randomPointsAreTriangulated() {
+        DelaunayTriangulation triangulation = triangulate(randomPoints(400, 1), 0);
+        assertThat(triangulation.size()).isEqualTo(400);
+        assertDelaunay(triangulation);
+        assertNearest(triangulation, 2);
+    }
+
+    @Test
+    void gridPointsAreTriangulated() {
+        DelaunayTriangulation triangulation = triangulate(gridPoints(20), 0);
+        assertThat(triangulation.size()).isEqualTo(400);
+        assertDelaunay(triangulation);
+        assertNearest(triangulation, 3);
+        for (int v = 0; v < triangulation.size(); v++) {
+            Set<Integer> set = new TreeSet<>();
+            triangulation.neighbors(v, set::add);
+            assertThat(set).as("neighbors of %d", v).isNotEmpty().doesNotContain(v);
+        }
+    }
+
+    @Test
+    void collinearPointsAreTriangulated() {
+        DelaunayTriangulation triangulation = new DelaunayTriangulation(0, 0, 10, 10);
+        for (int i = 0; i < 50; i++) {
+            triangulation.add(i * 0.2, i * 0.1);
+        }
+        assertThat(triangulation.size()).isEqualTo(50);
+        assertDelaunay(triangulation);
+        for (int v = 1; v < 49; v++) {
+            Set<Integer> set = new TreeSet<>();
+            triangulation.neighbors(v, set::add);
+            assertThat(set).as("neighbors of %d", v).containsExactlyInAnyOrder(v - 1, v + 1);
+        }
+    }
+
+    @Test
+    void aPointAddedTwiceKeepsItsVertex() {
+        double[] points = randomPoints(100, 4);
+        DelaunayTriangulation triangulation = triangulate(points, 0);
+        for (int i = 0; i < points.length; i += 2) {
+            assertThat(triangulation.add(points[i], points[i + 1])).isEqualTo(i / 2);
+        }
+        assertThat(triangulation.size()).isEqualTo(100);
+        assertDelaunay(triangulation);
+    }
+
+    @Test
+    void aCappedWalkFallsBackToScanning() {
+        double[] points = randomPoints(300, 5);
+        DelaunayTriangulation walked = triangulate(points, 0);
+        DelaunayTriangulation scanned = triangulate(points, 1);
+        assertThat(neighbors(scanned)).isEqualTo(neighbors(walked));
+
+        double[] grid = gridPoints(12);
+        DelaunayTriangulation gridScanned = triangulate(grid, 1);
+        assertThat(gridScanned.size()).isEqualTo(144);
+        assertDelaunay(gridScanned);
+    }
+}
@@ -0,0 +1,105 @@
+package com.conectividadcba.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class PackedRTreeTest {
+    private static final int SIZE = 5000;
+
+    private final double[] lats = new double[SIZE];
+    private final double[] lngs = new double[SIZE];
+
+    PackedRTreeTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            // Points on a coarse grid too, so that ties and points on box edges occur.
+            boolean grid = i % 4 == 0;
+            lats[i] = grid ? -35 + random.nextInt(60) * 0.1 : -35 + random.nextDouble() * 6;
+            lngs[i] = grid ? -66 + random.nextInt(60) * 0.1 : -66 + random.nextDouble() * 6;
+        }
+        lats[7] = Double.NaN;
+        lngs[11] = Double.NaN;
+    }
+
+    @Test
+    void searchFindsExactlyThePointsInTheBox() {
+        PackedRTree tree = new PackedRTree(lats, lngs);
+        assertThat(tree.size()).isEqualTo(SIZE - 2);
+        Random random = new Random(1);
+        for (int q = 0; q < 200; q++) {
+            double minLat = -35.5 + random.nextInt(70) * 0.1;
+            double minLng = -66.5 + random.nextInt(70) * 0.1;
+            double maxLat = minLat + random.nextInt(20) * 0.1;
+            double maxLng = minLng + random.nextInt(20) * 0.1;
+
+            List<Integer> found = new ArrayList<>();
+            tree.search(minLat, minLng, maxLat, maxLng, found::add);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < SIZE; i++) {
+                if (lats[i] >= minLat && lats[i] <= maxLat && lngs[i] >= minLng && lngs[i] <= maxLng) {
+                    expected.add(i);
+                }
+            }
+            assertThat(found).containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void nearestMatchesABruteForceScan() {
+        PackedRTree tree = new PackedRTree(lats, lngs);
+        Random random = new Random(2);
+        for (int q = 0; q < 200; q++) {
+            double lat = -36 + random.nextDouble() * 8;
+            double lng = -67 + random.nextDouble() * 8;
+            int limit = 1 + random.nextInt(20);
+            double maxKm = q % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 100;
+
+            int[] nearest = tree.nearest(lat, lng, limit, maxKm);
+
+            double[] expected = IntStream.range(0, SIZE)
+                    .filter(i -> !Double.isNaN(lats[i]) && !Double.isNaN(lngs[i]))
+                    .mapToDouble(i -> GeoMath.haversineKm(lat, lng, lats[i], lngs[i]))
+                    .filter(d -> d <= maxKm)
+                    .sorted()
+                    .limit(limit)
+                    .toArray();
+            double[] actual = Arrays.stream(nearest)
+                    .mapToDouble(i -> GeoMath.haversineKm(lat, lng, lats[i], lngs[i]))
+                    .toArray();
+            // Ties may come back in any order, so compare distances rather than ids.
+            assertThat(actual).hasSize(expected.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertThat(actual[i]).isCloseTo(expected[i], offset(1e-9));
+            }
+            assertThat(Arrays.stream(nearest).distinct().count()).isEqualTo(nearest.length);
+        }
+    }
+
+    @Test
+    void nearestReturnsPointsInDistanceOrder() {
+        PackedRTree tree = new PackedRTree(lats, lngs);
+        int[] nearest = tree.nearest(-31.4, -64.2, 50, Double.POSITIVE_INFINITY);
+        Integer[] boxed = Arrays.stream(nearest).boxed().toArray(Integer[]::new);
+        assertThat(boxed).isSortedAccordingTo(
+                Comparator.comparingDouble(i -> GeoMath.haversineKm(-31.4, -64.2, lats[i], lngs[i])));
+    }
+
+    @Test
+    void emptyTreeFindsNothing() {
+        PackedRTree tree = new PackedRTree(new double[]{Double.NaN}, new double[]{0});
+        List<Integer> found = new ArrayList<>();
+        tree.search(-90, -180, 90, 180, found::add);
+        assertThat(found).isEmpty();
+        assertThat(tree.nearest(0, 0, 5, Double.POSITIVE_INFINITY)).isEmpty();
+    }
+}
@@ -0,0 +1,42 @@
+package com.conectividadcba.geo;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class PolygonsTest {
+    private static final double[] SQUARE = {0, 0, 2, 0, 2, 2, 0, 2};
+
+    private static double[] square(double x, double y, double side) {
+        return new double[]{x, y, x + side, y, x + side, y + side, x, y + side};
+    }
+
+    @Test
+    void aRingInsideIsKept() {
+        double[] ring = square(0.5, 0.5, 1);
+        assertThat(Polygons.area(Polygons.clip(ring, SQUARE))).isCloseTo(1, offset(1e-12));
+    }
+
+    @Test
+    void aRingOutsideIsDropped() {
+        assertThat(Polygons.clip(square(3, 3, 1), SQUARE)).isEmpty();
+        // Touching along an edge leaves no area either.
+        assertThat(Polygons.area(Polygons.clip(square(2, 0, 1), SQUARE))).isCloseTo(0, offset(1e-12));
+    }
+
+    @Test
+    void aRingAcrossIsCut() {
+        assertThat(Polygons.area(Polygons.clip(square(1, 1, 2), SQUARE))).isCloseTo(1, offset(1e-12));
+        // The clip is the part inside, whichever ring is the larger.
+        assertThat(Polygons.area(Polygons.clip(square(-1, -1, 4), SQUARE))).isCloseTo(4, offset(1e-12));
+    }
+
+    @Test
+    void aConcaveRingIsCut() {
+        // A U open at the top, cut below its arms' tops: two arms joined by the base.
+        double[] u = {0, 0, 3, 0, 3, 3, 2, 3, 2, 1, 1, 1, 1, 3, 0, 3};
+        double[] cut = Polygons.clip(u, square(-1, -1, 3.5));
+        assertThat(Polygons.area(cut)).isCloseTo(2.5 + 1.5 + 0.75, offset(1e-12));
+    }
+}
@@ -0,0 +1,123 @@
+package com.conectividadcba.geo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VectorTileEncoderTest {
+
+    private static double[] square(double min, double max) {
+        return new double[]{min, min, max, min, max, max, min, max, min, min};
+    }
+
+    @Test
+    void everyPolygonOfAFeatureStartsWithAnExteriorRing() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64);
+        // All rings wound the same way; the encoder orients them.
+        encoder.addPolygon("departments", 1, List.of(
+                List.of(square(100, 1000)),
+                List.of(square(2000, 3000), square(2200, 2800))), Map.of());
+
+        List<int[]> rings = rings(geometry(encoder.encode()));
+
+        assertThat(rings).hasSize(3);
+        assertThat(area(rings.get(0))).isPositive();
+        assertThat(area(rings.get(1))).isPositive();
+        assertThat(area(rings.get(2))).isNegative();
+    }
+
+    @Test
+    void dropsOnlyThePolygonsOutsideTheTile() {
+        VectorTileEncoder encoder = new VectorTileEncoder(4096, 64);
+        encoder.addPolygon("departments", 1, List.of(
+                List.of(square(-3000, -2000)),
+                List.of(square(2000, 3000))), Map.of());
+
+        List<int[]> rings = rings(geometry(encoder.encode()));
+
+        assertThat(rings).hasSize(1);
+        assertThat(rings.get(0)).contains(2000, 3000);
+    }
+
+    // Same sign convention as the encoder: positive for exterior rings.
+    private static long area(int[] ring) {
+        int n = ring.length / 2;
+        long sum = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            sum += (long) ring[2 * j] * ring[2 * i + 1] - (long) ring[2 * i] * ring[2 * j + 1];
+        }
+        return sum;
+    }
+
+    // The geometry commands of the only feature of the only layer.
+    private static List<Integer> geometry(byte[] tile) {
+        ByteBuffer layer = field(ByteBuffer.wrap(tile), 3);
+        ByteBuffer feature = field(layer, 2);
+        ByteBuffer packed = field(feature, 4);
+        List<Integer> commands = new ArrayList<>();
+        while (packed.hasRemaining()) {
+            commands.add((int) varint(packed));
+        }
+        return commands;
+    }
+
+    private static List<int[]> rings(List<Integer> geometry) {
+        List<int[]> rings = new ArrayList<>();
+        List<Integer> ring = new ArrayList<>();
+        int x = 0, y = 0;
+        for (int i = 0; i < geometry.size(); ) {
+            int command = geometry.get(i) & 7;
+            int count = geometry.get(i++) >>> 3;
+            if (command == 7) {
+                rings.add(ring.stream().mapToInt(Integer::intValue).toArray());
+                ring = new ArrayList<>();
+                continue;
+            }
+            for (int k = 0; k < count; k++) {
+                x += zigZag(geometry.get(i++));
+                y += zigZag(geometry.get(i++));
+                ring.add(x);
+                ring.add(y);
+            }
+        }
+        return rings;
+    }
+
+    private static ByteBuffer field(ByteBuffer message, int number) {
+        while (message.hasRemaining()) {
+            long key = varint(message);
+            int wireType = (int) (key & 7);
+            if (wireType == 0) {
+                varint(message);
+                continue;
+            }
+            int length = (int) varint(message);
+            ByteBuffer value = message.slice(message.position(), length);
+            message.position(message.position() + length);
+            if (key >>> 3 == number) {
+                return value;
+            }
+        }
+        throw new AssertionError("No field " + number);
+    }
+
+    private static long varint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int zigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
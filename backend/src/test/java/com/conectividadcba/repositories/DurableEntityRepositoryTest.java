@@ -0,0 +1,214 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.School;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.conectividadcba.repositories.IndexedEntityRepositoryTest.inOneBatch;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Recovery after crashes at the points the log and compaction leave behind. A crash is simulated
+ * by opening the directory again without closing the repository that wrote it; every write it
+ * acknowledged is already in the log.
+ */
+class DurableEntityRepositoryTest {
+    @TempDir
+    Path directory;
+
+    private static School school(long id, String name) {
+        return new School(id, name, new Entity.Coordinates(-31.4, -64.2), "", 1L, "Primario", 100, "Starlink");
+    }
+
+    private DurableEntityRepository open() throws IOException {
+        return DurableEntityRepository.open(directory,
+                () -> new IndexedEntityRepository(List.of(school(1, "Uno"), school(2, "Dos"))),
+                false, 3600, Long.MAX_VALUE);
+    }
+
+    private static Map<Long, String> names(EntityRepository repository) {
+        Map<Long, String> names = new HashMap<>();
+        repository.findAll().forEach(entity -> names.put(entity.getId(), entity.getName()));
+        return names;
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wal-*.log")) {
+            files.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    @Test
+    void replaysTheLogAfterACrash() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(2, "Dos bis"), school(3, "Tres")));
+        written.deleteById(1L);
+
+        DurableEntityRepository recovered = open();
+
+        assertThat(recovered.getDataVersion()).isEqualTo(3);
+        assertThat(names(recovered)).isEqualTo(Map.of(2L, "Dos bis", 3L, "Tres"));
+        assertThat(recovered.findAll()).extracting(Entity::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void stopsAtATruncatedRecord() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        written.saveAll(List.of(school(4, "Cuatro")));
+        Path segment = segments().get(segments().size() - 1);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        DurableEntityRepository recovered = open();
+
+        assertThat(recovered.getDataVersion()).isEqualTo(2);
+        assertThat(names(recovered)).containsOnlyKeys(1L, 2L, 3L);
+        // The torn tail is gone, so new writes are not lost behind it on the next start.
+        recovered.saveAll(List.of(school(5, "Cinco")));
+        assertThat(names(open())).containsOnlyKeys(1L, 2L, 3L, 5L);
+    }
+
+    @Test
+    void failsStartupOnAVersionGapAndKeepsTheLog() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        try (EntityWriteAheadLog log = new EntityWriteAheadLog(directory, 4, false)) {
+            log.append(EntityWriteAheadLog.record(4, List.of(EntityWrite.upsert(List.of(school(4, "Cuatro"))))));
+        }
+        List<Path> segments = segments();
+
+        assertThatThrownBy(this::open).isInstanceOf(IOException.class).hasMessageContaining("skips from version 2 to 4");
+        assertThat(segments()).isEqualTo(segments);
+    }
+
+    @Test
+    void failsStartupOnACorruptRecordBeforeTheEndAndKeepsTheLog() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        written.saveAll(List.of(school(4, "Cuatro")));
+        Path segment = segments().get(segments().size() - 1);
+        byte[] before = Files.readAllBytes(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Inside the payload of the first record; the second one is intact.
+            file.seek(20);
+            file.write(file.read() ^ 0xFF);
+        }
+
+        assertThatThrownBy(this::open).isInstanceOf(IOException.class).hasMessageContaining("offset 0");
+        assertThat(segments()).containsExactly(segment);
+        assertThat(Files.size(segment)).isEqualTo(before.length);
+    }
+
+    @Test
+    void failsStartupOnATornRecordInAnOlderSegment() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        Path older = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(older.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        try (EntityWriteAheadLog log = new EntityWriteAheadLog(directory, 3, false)) {
+            log.append(EntityWriteAheadLog.record(3, List.of(EntityWrite.upsert(List.of(school(4, "Cuatro"))))));
+        }
+
+        assertThatThrownBy(this::open).isInstanceOf(IOException.class).hasMessageContaining("1 later segments");
+        assertThat(segments()).hasSize(2);
+    }
+
+    @Test
+    void dropsZerosAfterTheLastRecord() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        Path segment = segments().get(segments().size() - 1);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() + 100);
+        }
+
+        DurableEntityRepository recovered = open();
+
+        assertThat(recovered.getDataVersion()).isEqualTo(2);
+        assertThat(names(recovered)).containsOnlyKeys(1L, 2L, 3L);
+    }
+
+    @Test
+    void recoversFromACrashBetweenRollAndSnapshot() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        // What compaction leaves when it dies after rolling: the old snapshot, the old segment and
+        // a new segment that writers already appended to.
+        try (EntityWriteAheadLog log = new EntityWriteAheadLog(directory, 3, false)) {
+            log.append(EntityWriteAheadLog.record(3, List.of(EntityWrite.upsert(List.of(school(3, "Tres bis"))))));
+            EntityWrite delete = EntityWrite.delete(1);
+            delete.removed = school(1, "Uno");
+            log.append(EntityWriteAheadLog.record(4, List.of(delete)));
+        }
+        assertThat(segments()).hasSize(2);
+
+        DurableEntityRepository recovered = open();
+
+        assertThat(recovered.getDataVersion()).isEqualTo(4);
+        assertThat(names(recovered)).isEqualTo(Map.of(2L, "Dos", 3L, "Tres bis"));
+    }
+
+    @Test
+    void recoversFromACrashBetweenSnapshotAndSegmentDeletion() throws IOException {
+        DurableEntityRepository written = open();
+        written.saveAll(List.of(school(3, "Tres")));
+        written.deleteById(2L);
+        Map<Path, byte[]> before = new HashMap<>();
+        for (Path segment : segments()) {
+            before.put(segment, Files.readAllBytes(segment));
+        }
+        written.compact();
+        for (Map.Entry<Path, byte[]> segment : before.entrySet()) {
+            Files.write(segment.getKey(), segment.getValue());
+        }
+
+        DurableEntityRepository recovered = open();
+
+        assertThat(recovered.getDataVersion()).isEqualTo(3);
+        assertThat(names(recovered)).isEqualTo(Map.of(1L, "Uno", 3L, "Tres"));
+    }
+
+    @Test
+    void failedWritesOfABatchAreNotLogged() throws Exception {
+        DurableEntityRepository written = open();
+
+        List<Throwable> failures = inOneBatch(written,
+                () -> written.insert(school(1, "Duplicada")),
+                () -> written.saveAll(List.of(school(3, "Tres"))));
+
+        assertThat(failures.get(0)).isInstanceOf(DuplicateEntityException.class);
+        assertThat(failures.get(1)).isNull();
+        assertThat(names(open())).isEqualTo(Map.of(1L, "Uno", 2L, "Dos", 3L, "Tres"));
+    }
+
+    @Test
+    void writesFailAsUnavailableOnceTheLogIs() throws IOException {
+        DurableEntityRepository written = open();
+        written.close();
+
+        assertThatThrownBy(() -> written.saveAll(List.of(school(3, "Tres"))))
+                .isInstanceOf(EntityStoreUnavailableException.class);
+        assertThatThrownBy(() -> written.insert(school(1, "Duplicada")))
+                .isInstanceOf(EntityStoreUnavailableException.class);
+        assertThat(written.getDataVersion()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityColumnsTest {
+    private static final List<Entity> ENTITIES = EntitySnapshotFileTest.entities();
+
+    @Test
+    void materializesEveryFieldAndSubtype() {
+        EntityColumns columns = new EntityColumns(ENTITIES.toArray(new Entity[0]));
+
+        assertThat(columns.size()).isEqualTo(4);
+        assertThat(columns.maxId()).isEqualTo(9);
+        assertThat(columns.all()).extracting(Object::getClass)
+                .containsExactly(School.class, LearningCenter.class, Entity.class, School.class);
+        assertThat(columns.all()).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(ENTITIES);
+        assertThat(columns.get(1)).isNotSameAs(columns.get(1));
+    }
+
+    @Test
+    void viewsExposeTheSameValuesAsRows() {
+        EntityColumns columns = new EntityColumns(ENTITIES.toArray(new Entity[0]));
+        List<Entity> view = columns.view(new int[]{3, 1});
+        EntityRows rows = (EntityRows) view;
+
+        assertThat(view).extracting(Entity::getId).containsExactly(9L, 2L);
+        assertThat(rows.size()).isEqualTo(2);
+        assertThat(rows.id(0)).isEqualTo(9);
+        assertThat(rows.type(0)).isEqualTo(Entity.EntityType.SCHOOL);
+        assertThat(rows.name(0)).isNull();
+        assertThat(rows.detail(0)).isNull();
+        assertThat(rows.departmentId(0)).isEqualTo(4);
+        assertThat(rows.type(1)).isEqualTo(Entity.EntityType.LEARNING_CENTER);
+        assertThat(rows.description(1)).isNull();
+        assertThat(rows.departmentId(1)).isEqualTo(-1);
+        assertThat(rows.connectionType(1)).isNull();
+        assertThat(rows.detail(1)).isEqualTo("Carpintería");
+        assertThat(rows.count(1)).isEqualTo(25);
+        assertThat(rows.lat(1)).isEqualTo(-32.1);
+        assertThat(rows.lng(1)).isEqualTo(-63.9);
+    }
+
+    @Test
+    void entitiesWithoutCoordinatesStayWithoutThem() {
+        EntityColumns columns = new EntityColumns(ENTITIES.toArray(new Entity[0]));
+
+        assertThat(columns.get(2).getCoordinates()).isNull();
+        assertThat(Double.isNaN(((EntityRows) columns.all()).lat(2))).isTrue();
+    }
+}
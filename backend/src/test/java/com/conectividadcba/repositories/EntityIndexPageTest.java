@@ -0,0 +1,129 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityIndexPageTest {
+    private static final String[] NAMES = {"Escuela Sarmiento", "Escuela Belgrano", "Centro Norte", "Ñandú", "ábaco"};
+    private static final String[] CONNECTION_TYPES = {"Starlink", "Fibra Optica", null};
+
+    private static List<Entity> entities(int count, long seed) {
+        Random random = new Random(seed);
+        List<Entity> entities = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Entity.Coordinates coordinates = new Entity.Coordinates(-31 - random.nextDouble(), -64 - random.nextDouble());
+            String name = NAMES[random.nextInt(NAMES.length)];
+            Long departmentId = random.nextInt(5) == 0 ? null : (long) random.nextInt(4);
+            String connectionType = CONNECTION_TYPES[random.nextInt(CONNECTION_TYPES.length)];
+            entities.add(random.nextInt(10) == 0
+                    ? new LearningCenter(id, name, coordinates, "", departmentId, "TIC", 20, connectionType)
+                    : new School(id, name, coordinates, "", departmentId, "Primario", 100, connectionType));
+        }
+        return entities;
+    }
+
+    @Test
+    void pagesFollowTheSortOrderInBothDirections() {
+        List<Entity> entities = entities(300, 1);
+        IndexedEntityRepository repository = new IndexedEntityRepository(entities);
+        for (EntitySort sort : EntitySort.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                Comparator<Entity> order = descending ? sort.comparator().reversed() : sort.comparator();
+                List<Long> expected = entities.stream().sorted(order).map(Entity::getId).toList();
+                assertThat(pageThrough(repository, null, sort, descending, 7)).as(sort + " " + descending)
+                        .isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void cursorSurvivesDeletionOfItsEntity() {
+        List<Entity> entities = entities(200, 2);
+        IndexedEntityRepository repository = new IndexedEntityRepository(entities);
+        EntitySort sort = EntitySort.NAME;
+        List<Entity> first = repository.findPage(null, sort, false, null, 50);
+        EntityCursor cursor = EntityCursor.after(sort, first.get(49));
+        repository.deleteById(first.get(49).getId());
+
+        List<Long> rest = repository.findPage(null, sort, false, cursor, 1000).stream().map(Entity::getId).toList();
+        List<Long> expected = entities.stream().sorted(sort.comparator()).skip(50).map(Entity::getId).toList();
+        assertThat(rest).isEqualTo(expected);
+    }
+
+    @Test
+    void cursorResumesAtItsKeyWhenTheEntityMoves() {
+        List<Entity> entities = entities(200, 3);
+        IndexedEntityRepository repository = new IndexedEntityRepository(entities);
+        EntitySort sort = EntitySort.DEPARTMENT_ID;
+        List<Entity> first = repository.findPage(null, sort, false, null, 60);
+        Entity last = first.get(59);
+        EntityCursor cursor = EntityCursor.after(sort, last);
+
+        // Moving the cursor's entity to the start of the order must neither repeat nor skip rows.
+        Entity moved = new School(last.getId(), last.getName(), last.getCoordinates(), "", -1L, "Primario", 100, null);
+        repository.saveAll(List.of(moved));
+
+        List<Long> rest = repository.findPage(null, sort, false, cursor, 1000).stream().map(Entity::getId).toList();
+        List<Long> expected = entities.stream().sorted(sort.comparator()).skip(60).map(Entity::getId).toList();
+        assertThat(rest).isEqualTo(expected);
+    }
+
+    @Test
+    void filteredPagesUseTheSameCursors() {
+        List<Entity> entities = entities(2000, 4);
+        IndexedEntityRepository repository = new IndexedEntityRepository(entities);
+        EntityQuery query = new EntityQuery();
+        query.setType("LEARNING_CENTER");
+        for (boolean descending : new boolean[]{false, true}) {
+            Comparator<Entity> order = descending ? EntitySort.NAME.comparator().reversed() : EntitySort.NAME.comparator();
+            List<Long> expected = entities.stream()
+                    .filter(e -> e.getType() == Entity.EntityType.LEARNING_CENTER)
+                    .sorted(order).map(Entity::getId).toList();
+            assertThat(pageThrough(repository, query, EntitySort.NAME, descending, 9)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void cursorsRoundTripThroughTheirEncoding() {
+        List<Entity> entities = entities(50, 5);
+        Function<Long, Optional<Entity>> none = id -> Optional.empty();
+        for (EntitySort sort : EntitySort.values()) {
+            for (Entity entity : entities) {
+                EntityCursor cursor = EntityCursor.after(sort, entity);
+                EntityCursor parsed = EntityCursor.parse(sort, cursor.encode(sort), none);
+                assertThat(parsed).isNotNull();
+                assertThat(parsed.getId()).isEqualTo(cursor.getId());
+                assertThat(parsed.getKey()).isEqualTo(cursor.getKey());
+            }
+        }
+        assertThat(EntityCursor.parse(EntitySort.NAME, "12", none)).isNull();
+        assertThat(EntityCursor.parse(EntitySort.NAME, "x.abc", none)).isNull();
+        assertThat(EntityCursor.parse(EntitySort.TYPE, "3." + "a2Zvbw", none)).isNull();
+    }
+
+    private static List<Long> pageThrough(IndexedEntityRepository repository, EntityQuery query, EntitySort sort,
+                                          boolean descending, int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        EntityCursor cursor = null;
+        while (true) {
+            List<Entity> page = repository.findPage(query, sort, descending, cursor, pageSize);
+            page.forEach(entity -> ids.add(entity.getId()));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+            cursor = EntityCursor.parse(sort, EntityCursor.after(sort, page.get(pageSize - 1)).encode(sort),
+                    id -> Optional.empty());
+        }
+    }
+}
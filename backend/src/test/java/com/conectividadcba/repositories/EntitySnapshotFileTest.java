@@ -0,0 +1,92 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EntitySnapshotFileTest {
+    @TempDir
+    Path directory;
+
+    static List<Entity> entities() {
+        return List.of(
+                new School(7L, "Escuela Ñandú", new Entity.Coordinates(-31.4, -64.2), "Rural", 3L, "Primario", 120,
+                        "Starlink"),
+                new LearningCenter(2L, "Centro Oficios", new Entity.Coordinates(-32.1, -63.9), null, null,
+                        "Carpintería", 25, null),
+                new Entity(5L, "Sin datos", Entity.EntityType.SCHOOL, null, "Rural", 3L, "Fibra Optica"),
+                new School(9L, null, new Entity.Coordinates(-30.9, -64.5), "", 4L, null, 0, "Starlink"));
+    }
+
+    @Test
+    void readsBackWhatItWrote() throws IOException {
+        Path file = directory.resolve("entities.snap");
+        EntityIndex written = new EntityIndex(entities());
+        EntitySnapshotFile.write(file, written, 42);
+
+        EntitySnapshotFile.Contents read = EntitySnapshotFile.read(file);
+
+        assertThat(read.dataVersion).isEqualTo(42);
+        assertThat(read.index.all()).extracting(Object::getClass)
+                .containsExactly(School.class, LearningCenter.class, Entity.class, School.class);
+        assertThat(read.index.all()).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(entities());
+        for (EntitySort sort : EntitySort.values()) {
+            assertThat(read.index.sortOrder(sort)).as(sort.getField()).isEqualTo(written.sortOrder(sort));
+        }
+        for (int ordinal = 0; ordinal < written.size(); ordinal++) {
+            assertThat(read.index.foldedName(ordinal)).isEqualTo(written.foldedName(ordinal));
+        }
+    }
+
+    @Test
+    void rejectsACorruptFile() throws IOException {
+        Path file = directory.resolve("entities.snap");
+        EntitySnapshotFile.write(file, new EntityIndex(entities()), 1);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> EntitySnapshotFile.read(file)).isInstanceOf(IOException.class)
+                .hasMessageContaining("corrupt");
+    }
+
+    @Test
+    void rejectsATruncatedFile() throws IOException {
+        Path file = directory.resolve("entities.snap");
+        EntitySnapshotFile.write(file, new EntityIndex(entities()), 1);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThatThrownBy(() -> EntitySnapshotFile.read(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void rejectsAnotherFormatVersionEvenWithAValidChecksum() throws IOException {
+        Path file = directory.resolve("entities.snap");
+        EntitySnapshotFile.write(file, new EntityIndex(entities()), 1);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        // The format version follows the 8-byte magic; the checksum is the last 8 bytes.
+        bytes.putInt(8, bytes.getInt(8) + 1);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, bytes.limit() - 8);
+        bytes.putLong(bytes.limit() - 8, crc.getValue());
+        Files.write(file, bytes.array());
+
+        assertThatThrownBy(() -> EntitySnapshotFile.read(file)).isInstanceOf(IOException.class)
+                .hasMessageContaining("Unsupported");
+    }
+}
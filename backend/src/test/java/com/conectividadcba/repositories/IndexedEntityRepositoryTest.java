@@ -0,0 +1,363 @@
+package com.conectividadcba.repositories;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexedEntityRepositoryTest {
+    private static final String[] NAMES = {"Escuela Sarmiento", "Escuela Belgrano", "Centro Norte", "Ñandú", "ábaco",
+            "Escuela Normal Superior"};
+    private static final String[] CONNECTION_TYPES = {"Starlink", "Fibra Optica", null};
+
+    private static Entity entity(Random random, long id) {
+        Entity.Coordinates coordinates = new Entity.Coordinates(-31 - random.nextDouble(), -64 - random.nextDouble());
+        String name = NAMES[random.nextInt(NAMES.length)];
+        Long departmentId = random.nextInt(5) == 0 ? null : (long) random.nextInt(4);
+        String connectionType = CONNECTION_TYPES[random.nextInt(CONNECTION_TYPES.length)];
+        return random.nextInt(5) == 0
+                ? new LearningCenter(id, name, coordinates, "", departmentId, "TIC", random.nextInt(50), connectionType)
+                : new School(id, name, coordinates, "", departmentId, "Primario", random.nextInt(500), connectionType);
+    }
+
+    private static List<Long> ids(List<Entity> entities) {
+        return entities.stream().map(Entity::getId).toList();
+    }
+
+    private static Set<Long> idSet(List<Entity> entities) {
+        return new HashSet<>(ids(entities));
+    }
+
+    /**
+     * Random writes, well past several merges of the delta into the base, must leave every read
+     * answering exactly as a repository built from scratch over the same entities in the same
+     * order.
+     */
+    @Test
+    void readsMatchAFreshIndexAfterRandomWrites() {
+        Random random = new Random(7);
+        Map<Long, Entity> model = new LinkedHashMap<>();
+        for (long id = 1; id <= 300; id++) {
+            model.put(id, entity(random, id));
+        }
+        IndexedEntityRepository repository = new IndexedEntityRepository(new ArrayList<>(model.values()));
+        long nextId = 301;
+        for (int step = 0; step < 1500; step++) {
+            List<Long> existing = new ArrayList<>(model.keySet());
+            int operation = random.nextInt(10);
+            if (operation < 4 && !existing.isEmpty()) {
+                long id = existing.get(random.nextInt(existing.size()));
+                Entity replacement = entity(random, id);
+                repository.saveAll(List.of(replacement));
+                model.put(id, replacement);
+            } else if (operation < 7 && !existing.isEmpty()) {
+                long id = existing.get(random.nextInt(existing.size()));
+                assertThat(repository.deleteById(id)).isPresent();
+                model.remove(id);
+            } else if (operation < 8) {
+                // Any id: deleted before, new or existing.
+                long id = 1 + random.nextInt((int) nextId);
+                Entity entity = entity(random, id);
+                repository.saveAll(List.of(entity));
+                model.put(id, entity);
+                nextId = Math.max(nextId, id + 1);
+            } else {
+                List<Entity> batch = new ArrayList<>();
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    batch.add(entity(random, nextId++));
+                }
+                repository.saveAll(batch);
+                batch.forEach(entity -> model.put(entity.getId(), entity));
+            }
+            if (step % 50 == 0 || step > 1450) {
+                assertSameReads(repository, new IndexedEntityRepository(new ArrayList<>(model.values())), random);
+            }
+        }
+    }
+
+    private static void assertSameReads(IndexedEntityRepository actual, IndexedEntityRepository expected,
+                                        Random random) {
+        assertThat(ids(actual.findAll())).isEqualTo(ids(expected.findAll()));
+        for (long id = 0; id < 400; id += 7) {
+            assertThat(actual.findById(id).map(Entity::getName)).isEqualTo(expected.findById(id).map(Entity::getName));
+        }
+        for (Entity.EntityType type : Entity.EntityType.values()) {
+            assertThat(ids(actual.findByType(type.name()))).isEqualTo(ids(expected.findByType(type.name())));
+        }
+        for (long department = 0; department < 5; department++) {
+            assertThat(ids(actual.findByDepartmentId(department)))
+                    .isEqualTo(ids(expected.findByDepartmentId(department)));
+        }
+        assertThat(ids(actual.findByConnectionType("starlink"))).isEqualTo(ids(expected.findByConnectionType("starlink")));
+        assertThat(ids(actual.findByName("escuela"))).isEqualTo(ids(expected.findByName("escuela")));
+        for (String query : new String[]{"escuela", "nandu", "centro norte", "esc sup"}) {
+            assertThat(ids(actual.searchByName(query, 10))).as(query).isEqualTo(ids(expected.searchByName(query, 10)));
+        }
+
+        EntityQuery query = new EntityQuery();
+        query.setType("SCHOOL");
+        query.setMinStudentCount(100);
+        assertThat(ids(actual.findByQuery(query))).isEqualTo(ids(expected.findByQuery(query)));
+        assertThat(ids(actual.findByQuery(new EntityQuery()))).isEqualTo(ids(expected.findByQuery(new EntityQuery())));
+
+        double lat = -31 - random.nextDouble(), lng = -64 - random.nextDouble();
+        assertThat(ids(actual.findNearest(lat, lng, 50, 15))).isEqualTo(ids(expected.findNearest(lat, lng, 50, 15)));
+        assertThat(idSet(actual.findWithinBounds(lat - 0.2, lng - 0.2, lat + 0.2, lng + 0.2)))
+                .isEqualTo(idSet(expected.findWithinBounds(lat - 0.2, lng - 0.2, lat + 0.2, lng + 0.2)));
+        List<Long> inBox = expected.findByQuery(query).stream()
+                .filter(entity -> Math.abs(entity.getCoordinates().getLat() - lat) <= 0.2
+                        && Math.abs(entity.getCoordinates().getLng() - lng) <= 0.2)
+                .map(Entity::getId).toList();
+        assertThat(ids(actual.findByQueryWithinBounds(query, lat - 0.2, lng - 0.2, lat + 0.2, lng + 0.2)))
+                .isEqualTo(inBox);
+
+        for (EntitySort sort : EntitySort.values()) {
+            // Merges carry the sort orders over from the layers instead of sorting again.
+            assertThat(ids(actual.findPage(null, sort, false, null, 1000)))
+                    .isEqualTo(ids(expected.findPage(null, sort, false, null, 1000)));
+            for (boolean descending : new boolean[]{false, true}) {
+                List<Entity> page = expected.findPage(query, sort, descending, null, 20);
+                assertThat(ids(actual.findPage(query, sort, descending, null, 20))).isEqualTo(ids(page));
+                if (!page.isEmpty()) {
+                    EntityCursor cursor = EntityCursor.after(sort, page.get(page.size() - 1));
+                    assertThat(ids(actual.findPage(null, sort, descending, cursor, 30)))
+                            .isEqualTo(ids(expected.findPage(null, sort, descending, cursor, 30)));
+                }
+            }
+        }
+        // Lists of both layers read through their columns the same as through their entities.
+        EntityRows rows = EntityRows.of(actual.findAll());
+        List<Entity> all = actual.findAll();
+        for (int row = 0; row < rows.size(); row += 13) {
+            assertThat(rows.name(row)).isEqualTo(all.get(row).getName());
+            assertThat(rows.lat(row)).isEqualTo(all.get(row).getCoordinates().getLat());
+        }
+    }
+
+    @Test
+    void listenersSeeEveryWriteBeforeItsVersionIsVisible() {
+        Random random = new Random(3);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1), entity(random, 2)));
+        List<String> events = new ArrayList<>();
+        AtomicLong published = new AtomicLong();
+        repository.addWriteListener(new EntityWriteListener() {
+            @Override
+            public void onWrite(Entity before, Entity after) {
+                events.add((before == null ? "-" : before.getId()) + ">" + (after == null ? "-" : after.getId())
+                        + "@" + repository.getDataVersion());
+            }
+
+            @Override
+            public void onPublished(long version) {
+                published.set(version);
+                assertThat(repository.getDataVersion()).isEqualTo(version);
+            }
+        });
+
+        repository.saveAll(List.of(entity(random, 2), entity(random, 3)));
+        repository.deleteById(1L);
+        repository.deleteById(42L);
+
+        assertThat(events).containsExactly("2>2@1", "->3@1", "1>-@2");
+        assertThat(published.get()).isEqualTo(3);
+    }
+
+    @Test
+    void saveAllReturnsTheVersionOfItsOwnWrite() throws InterruptedException {
+        Random random = new Random(29);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1)));
+        List<SavedEntities> saved = new ArrayList<>(List.of(new SavedEntities(0, null), new SavedEntities(0, null)));
+
+        inOneBatch(repository,
+                () -> saved.set(0, repository.saveAll(List.of(entity(random, 1), entity(random, 2)))),
+                () -> saved.set(1, repository.saveAll(List.of(entity(random, 3)))));
+        repository.deleteById(3L);
+
+        assertThat(saved.get(0).getVersion()).isEqualTo(2);
+        assertThat(saved.get(1).getVersion()).isEqualTo(2);
+        assertThat(saved.get(0).getPrevious().get(0).getId()).isEqualTo(1);
+        assertThat(saved.get(0).getPrevious().get(1)).isNull();
+        assertThat(repository.getDataVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void insertFailsOnAnExistingIdWithoutTouchingTheData() {
+        Random random = new Random(5);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1)));
+        Entity duplicate = entity(random, 1);
+
+        assertThatThrownBy(() -> repository.insert(duplicate)).isInstanceOf(IllegalStateException.class);
+        assertThat(repository.getDataVersion()).isEqualTo(1);
+
+        Entity created = entity(random, 0);
+        created.setId(null);
+        repository.insert(created);
+        assertThat(created.getId()).isEqualTo(2);
+        assertThat(repository.getDataVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void idsOfDeletedEntitiesAreNotHandedOutAgain() {
+        Random random = new Random(9);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1), entity(random, 2)));
+        repository.deleteById(2L);
+        Entity created = entity(random, 0);
+        created.setId(null);
+        repository.saveAll(List.of(created));
+        assertThat(created.getId()).isEqualTo(3);
+    }
+
+    /**
+     * Runs the writes on threads of their own while holding the repository's monitor, so they
+     * queue up in order and are committed as one batch, and returns what each of them threw.
+     */
+    static List<Throwable> inOneBatch(IndexedEntityRepository repository, Runnable... writes)
+            throws InterruptedException {
+        List<Throwable> failures = new ArrayList<>(Collections.nCopies(writes.length, null));
+        List<Thread> threads = new ArrayList<>();
+        synchronized (repository) {
+            for (int i = 0; i < writes.length; i++) {
+                int index = i;
+                Thread thread = new Thread(() -> {
+                    try {
+                        writes[index].run();
+                    } catch (Throwable e) {
+                        failures.set(index, e);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+                // One at a time, so that they queue in order.
+                while (thread.getState() != Thread.State.BLOCKED) {
+                    Thread.sleep(1);
+                }
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return failures;
+    }
+
+    @Test
+    void aFailingWriteFailsAloneInItsBatch() throws InterruptedException {
+        Random random = new Random(13);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1)));
+        Entity first = entity(random, 0);
+        first.setId(null);
+        Entity second = entity(random, 0);
+        second.setId(null);
+        List<Entity> bad = new ArrayList<>();
+        bad.add(null);
+
+        List<Throwable> failures = inOneBatch(repository,
+                () -> repository.saveAll(List.of(first)),
+                () -> repository.saveAll(bad),
+                () -> repository.saveAll(List.of(second)));
+
+        assertThat(failures.get(0)).isNull();
+        assertThat(failures.get(1)).isInstanceOf(NullPointerException.class);
+        assertThat(failures.get(2)).isNull();
+        assertThat(ids(repository.findAll())).containsExactlyInAnyOrder(1L, first.getId(), second.getId());
+        assertThat(first.getId()).isNotEqualTo(second.getId());
+        // One version per write that got through on its own, none for the batch as a whole.
+        assertThat(repository.getDataVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void nothingIsPublishedWhenTheBatchFailsBeforePublishing() {
+        Random random = new Random(17);
+        List<Long> seen = new ArrayList<>();
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1))) {
+            @Override
+            void beforePublish(List<EntityWrite> batch, long version) {
+                seen.add(version);
+                assertThat(getDataVersion()).isEqualTo(version - 1);
+                throw new IllegalStateException("Log unavailable");
+            }
+        };
+        List<String> written = new ArrayList<>();
+        repository.addWriteListener(new EntityWriteListener() {
+            @Override
+            public void onWrite(Entity before, Entity after) {
+                written.add("write");
+            }
+        });
+
+        assertThatThrownBy(() -> repository.saveAll(List.of(entity(random, 2)))).hasMessage("Log unavailable");
+
+        assertThat(seen).containsExactly(2L);
+        assertThat(written).isEmpty();
+        assertThat(repository.getDataVersion()).isEqualTo(1);
+        assertThat(repository.findById(2L)).isEmpty();
+        assertThat(repository.findChangesSince(1)).contains(List.of());
+    }
+
+    private static Entity copy(Entity entity) {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+        return objectMapper.convertValue(entity, Entity.class);
+    }
+
+    @Test
+    void updatesApplyToTheEntityAsItIsWhenTheirTurnComes() throws InterruptedException {
+        Random random = new Random(19);
+        Entity original = entity(random, 1);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(original, entity(random, 2)));
+        List<Optional<Entity>> results = new ArrayList<>(List.of(Optional.empty(), Optional.empty(),
+                Optional.empty()));
+
+        List<Throwable> failures = inOneBatch(repository,
+                () -> results.set(0, repository.update(1L, existing -> {
+                    Entity copy = copy(existing);
+                    copy.setName(existing.getName() + " Anexo");
+                    return copy;
+                })),
+                () -> results.set(1, repository.update(1L, existing -> {
+                    Entity copy = copy(existing);
+                    copy.setDescription("Renovada");
+                    return copy;
+                })),
+                () -> repository.deleteById(2L),
+                () -> results.set(2, repository.update(2L, existing -> existing)));
+
+        assertThat(failures).containsOnlyNulls();
+        Entity updated = repository.findById(1L).orElseThrow();
+        assertThat(updated.getName()).isEqualTo(original.getName() + " Anexo");
+        assertThat(updated.getDescription()).isEqualTo("Renovada");
+        assertThat(results.get(1)).isPresent();
+        // The delete went first: the update does not bring the entity back.
+        assertThat(results.get(2)).isEmpty();
+        assertThat(repository.findById(2L)).isEmpty();
+        assertThat(repository.getDataVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void aFailingUpdateWritesNothing() {
+        Random random = new Random(23);
+        IndexedEntityRepository repository = new IndexedEntityRepository(List.of(entity(random, 1)));
+
+        assertThatThrownBy(() -> repository.update(1L, existing -> {
+            throw new IllegalArgumentException("Invalid");
+        })).hasMessage("Invalid");
+        assertThat(repository.update(5L, existing -> existing)).isEmpty();
+
+        assertThat(repository.getDataVersion()).isEqualTo(1);
+    }
+}
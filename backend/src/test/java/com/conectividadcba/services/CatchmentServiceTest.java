@@ -0,0 +1,70 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.models.Catchment;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatchmentServiceTest {
+    private static final double[][] CENTERS = {{-31.4, -64.2}, {-31.5, -64.0}, {-31.3, -64.4}, {-32.0, -64.1},
+            {-31.0, -64.0}, {-32.5, -63.5}};
+
+    private static LearningCenter center(long id, double lat, double lng) {
+        return new LearningCenter(id, "Centro " + id, new Entity.Coordinates(lat, lng), "", 1L, "TIC", 10, "Starlink");
+    }
+
+    private static CatchmentService service(IndexedEntityRepository repository) {
+        DepartmentBoundaryService boundaries = new DepartmentBoundaryService(new DepartmentService(),
+                new ObjectMapper(), new ClassPathResource("geo/cordoba.json"));
+        return new CatchmentService(repository, boundaries);
+    }
+
+    private static IndexedEntityRepository repository() {
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < CENTERS.length; i++) {
+            entities.add(center(i + 1, CENTERS[i][0], CENTERS[i][1]));
+        }
+        entities.add(new School(100L, "Escuela", new Entity.Coordinates(-31.41, -64.19), "", 1L, "Primario", 50,
+                "Starlink"));
+        return new IndexedEntityRepository(entities);
+    }
+
+    @Test
+    void aCenterAddedTwiceKeepsOneCatchment() {
+        IndexedEntityRepository repository = repository();
+        CatchmentService service = service(repository);
+        // Reads first, so the second add goes to the built triangulation instead of a rebuild.
+        Catchment before = service.getCatchment(2).orElseThrow();
+        Catchment first = service.getCatchment(1).orElseThrow();
+
+        service.onEntityAdded(repository.findById(1L).orElseThrow());
+
+        Catchment after = service.getCatchment(2).orElseThrow();
+        assertThat(after.getNeighborIds()).doesNotHaveDuplicates().isEqualTo(before.getNeighborIds()).contains(1L);
+        assertThat(after.getAreaKm2()).isEqualTo(before.getAreaKm2());
+        Catchment again = service.getCatchment(1).orElseThrow();
+        assertThat(again.getNeighborIds()).isEqualTo(first.getNeighborIds());
+        assertThat(again.getSchoolIds()).containsExactly(100L);
+    }
+
+    @Test
+    void aCenterAddedTwiceAtAnotherPositionMoves() {
+        IndexedEntityRepository repository = repository();
+        CatchmentService service = service(repository);
+        assertThat(service.getNearest(-31.41, -64.19).orElseThrow().getLearningCenter().getId()).isEqualTo(1L);
+
+        service.onEntityAdded(center(1, -32.49, -63.49));
+
+        assertThat(service.getNearest(-31.41, -64.19).orElseThrow().getLearningCenter().getId()).isNotEqualTo(1L);
+        assertThat(service.getCatchment(1).orElseThrow().getSchoolIds()).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.models.ConnectivityGapReport;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.LearningCenter;
+import com.conectividadcba.models.School;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectivityGapServiceTest {
+    private static School school(long id, double lat, double lng, String connectionType) {
+        return new School(id, "Escuela " + id, new Entity.Coordinates(lat, lng), "", 1L, "Primario", 100,
+                connectionType);
+    }
+
+    private static List<Entity> entities() {
+        List<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entities.add(school(i + 1, -31 - i * 0.01, -64 - (i % 20) * 0.01,
+                    i % 3 == 0 ? "Fibra Optica" : "Starlink"));
+        }
+        return entities;
+    }
+
+    @Test
+    void concurrentRequestsShareOneReportPerVersionAndK() throws Exception {
+        ConnectivityGapService service = new ConnectivityGapService(new IndexedEntityRepository(entities()));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<ConnectivityGapReport>> calls = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                int k = 1 + i % 2;
+                calls.add(() -> service.getConnectivityGaps(k, Integer.MAX_VALUE));
+            }
+            Set<ConnectivityGapReport> byK1 = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<ConnectivityGapReport> byK2 = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<ConnectivityGapReport> result : executor.invokeAll(calls)) {
+                ConnectivityGapReport report = result.get();
+                (report.getK() == 1 ? byK1 : byK2).add(report);
+            }
+            assertThat(byK1).hasSize(1);
+            assertThat(byK2).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reportFollowsTheDataVersionOfTheEntitiesItWasComputedFrom() {
+        IndexedEntityRepository repository = new IndexedEntityRepository(entities());
+        ConnectivityGapService service = new ConnectivityGapService(repository);
+        ConnectivityGapReport before = service.getConnectivityGaps(1, 10);
+        assertThat(before.getVersion()).isEqualTo(repository.getDataVersion());
+
+        repository.saveAll(List.of(school(1000, -40, -70, "Starlink")));
+        ConnectivityGapReport after = service.getConnectivityGaps(1, 10);
+
+        assertThat(after.getVersion()).isEqualTo(repository.getDataVersion());
+        assertThat(after.getGapCount()).isEqualTo(before.getGapCount() + 1);
+        assertThat(after.getGaps().get(0).getId()).isEqualTo(1000);
+    }
+
+    @Test
+    void onlySchoolsCountAsGapsButAnyFiberEntityIsATarget() {
+        List<Entity> entities = List.of(
+                school(1, -31, -64, "Starlink"),
+                new LearningCenter(2L, "Centro 2", new Entity.Coordinates(-31.5, -64), "", 1L, "Oficios", 20,
+                        "Starlink"),
+                new LearningCenter(3L, "Centro 3", new Entity.Coordinates(-31.1, -64), "", 1L, "Oficios", 20,
+                        "Fibra Optica"));
+        ConnectivityGapService service = new ConnectivityGapService(new IndexedEntityRepository(entities));
+
+        ConnectivityGapReport report = service.getConnectivityGaps(1, 10);
+
+        assertThat(report.getGapCount()).isEqualTo(1);
+        assertThat(report.getFiberCount()).isEqualTo(1);
+        assertThat(report.getGaps()).extracting(ConnectivityGapReport.Gap::getId).containsExactly(1L);
+    }
+}
@@ -0,0 +1,61 @@
+package com.conectividadcba.services;
+
+import com.conectividadcba.models.EntityChanges;
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.School;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityChangeServiceTest {
+    private final IndexedEntityRepository repository = new IndexedEntityRepository(List.of(school(1), school(2)));
+    private final EntityChangeService service = new EntityChangeService(repository, 0);
+
+    private static School school(long id) {
+        return new School(id, "Escuela " + id, new Entity.Coordinates(-31.4, -64.2), "", 1L, "Primario", 100,
+                "Starlink");
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void cursorsResumeWithinTheRun() {
+        EntityChanges start = service.getChangesSince(repository.getDataVersion());
+        repository.saveAll(List.of(school(3)));
+        repository.deleteById(1L);
+
+        EntityChanges changes = service.getChangesSince(service.parseCursor(start.getCursor()));
+
+        assertThat(changes.isResync()).isFalse();
+        assertThat(changes.getChanges()).extracting(change -> change.getId()).containsExactly(3L, 1L);
+        assertThat(service.parseCursor(changes.getCursor())).isEqualTo(repository.getDataVersion());
+    }
+
+    @Test
+    void cursorsFromAnotherRunResync() {
+        repository.saveAll(List.of(school(3)));
+        String current = service.getChangesSince(repository.getDataVersion()).getCursor();
+        String epoch = current.substring(0, current.indexOf('.'));
+
+        // The same version in a run with other data, and a bare version whose run is unknown.
+        for (String cursor : new String[]{"0" + epoch + ".1", "1"}) {
+            EntityChanges changes = service.getChangesSince(service.parseCursor(cursor));
+            assertThat(changes.isResync()).as(cursor).isTrue();
+            assertThat(changes.getCursor()).isEqualTo(current);
+        }
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : new String[]{"", "abc", "abc.", "abc.x", "abc.-2"}) {
+            assertThat(service.parseCursor(cursor)).as(cursor).isNull();
+        }
+    }
+}
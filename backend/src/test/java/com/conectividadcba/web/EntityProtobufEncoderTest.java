@@ -0,0 +1,142 @@
+package com.conectividadcba.web;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.School;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityProtobufEncoderTest {
+
+    private static List<Entity> entities() {
+        Random random = new Random(11);
+        List<Entity> entities = new ArrayList<>();
+        for (long id = 1; id <= 60; id++) {
+            Entity.Coordinates coordinates = id % 7 == 0 ? null
+                    : new Entity.Coordinates(-31 - random.nextDouble(), -64 - random.nextDouble());
+            entities.add(new School(100 - id, "Escuela " + id, coordinates, "", 1L, "Primario", 10, "Starlink"));
+        }
+        return entities;
+    }
+
+    @Test
+    void keepsTheOrderOfTheListWithCoordinatesOnTheirRows() {
+        List<Entity> entities = entities();
+        Decoded decoded = decode(new EntityProtobufEncoder().encode(entities).toByteArray());
+
+        assertThat(decoded.ids).isEqualTo(entities.stream().map(Entity::getId).toList());
+        assertCoordinates(decoded, entities);
+    }
+
+    @Test
+    void spatialOrderPutsRowsWithoutCoordinatesLast() {
+        List<Entity> entities = entities();
+        Decoded decoded = decode(new EntityProtobufEncoder().encode(entities, true).toByteArray());
+
+        assertThat(decoded.ids).containsExactlyInAnyOrderElementsOf(entities.stream().map(Entity::getId).toList());
+        assertThat(decoded.fields).doesNotContainKey(14);
+        Map<Long, Entity> byId = new HashMap<>();
+        entities.forEach(entity -> byId.put(entity.getId(), entity));
+        assertCoordinates(decoded, decoded.ids.stream().map(byId::get).toList());
+    }
+
+    private static void assertCoordinates(Decoded decoded, List<Entity> expected) {
+        for (int row = 0; row < expected.size(); row++) {
+            Entity.Coordinates coordinates = expected.get(row).getCoordinates();
+            if (coordinates == null) {
+                assertThat(decoded.lats.get(row)).as("row %d", row).isNull();
+            } else {
+                assertThat(decoded.lats.get(row)).isEqualTo(Math.round(coordinates.getLat() * EntityProtobufEncoder.SCALE));
+                assertThat(decoded.lngs.get(row)).isEqualTo(Math.round(coordinates.getLng() * EntityProtobufEncoder.SCALE));
+            }
+        }
+    }
+
+    // Reads the fields the order depends on, as a client would.
+    private static Decoded decode(byte[] message) {
+        ByteBuffer in = ByteBuffer.wrap(message);
+        Map<Integer, List<Long>> fields = new HashMap<>();
+        while (in.hasRemaining()) {
+            long tag = varint(in);
+            int field = (int) (tag >>> 3);
+            List<Long> values = fields.computeIfAbsent(field, f -> new ArrayList<>());
+            if ((tag & 7) == 0) {
+                values.add(varint(in));
+            } else {
+                int length = (int) varint(in);
+                ByteBuffer packed = in.slice().limit(length);
+                in.position(in.position() + length);
+                // Strings and names are skipped; every other length-delimited field is packed.
+                if (field != 2 && field != 5) {
+                    while (packed.hasRemaining()) {
+                        values.add(varint(packed));
+                    }
+                }
+            }
+        }
+        Decoded decoded = new Decoded(fields);
+        int n = fields.get(3).size();
+        boolean[] missing = new boolean[n];
+        if (fields.containsKey(14)) {
+            int row = 0;
+            for (long delta : fields.get(14)) {
+                row += (int) delta;
+                missing[row] = true;
+            }
+        } else {
+            for (int row = fields.get(7).get(0).intValue(); row < n; row++) {
+                missing[row] = true;
+            }
+        }
+        long lat = 0, lng = 0;
+        int located = 0;
+        for (int row = 0; row < n; row++) {
+            decoded.ids.add(fields.get(3).get(row));
+            if (missing[row]) {
+                decoded.lats.add(null);
+                decoded.lngs.add(null);
+            } else {
+                lat += unZigZag(fields.get(8).get(located));
+                lng += unZigZag(fields.get(9).get(located));
+                located++;
+                decoded.lats.add(lat);
+                decoded.lngs.add(lng);
+            }
+        }
+        assertThat(located).isEqualTo(fields.get(7).get(0).intValue());
+        return decoded;
+    }
+
+    private static long varint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Decoded {
+        private final Map<Integer, List<Long>> fields;
+        private final List<Long> ids = new ArrayList<>();
+        private final List<Long> lats = new ArrayList<>();
+        private final List<Long> lngs = new ArrayList<>();
+
+        private Decoded(Map<Integer, List<Long>> fields) {
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.conectividadcba.web;
+
+import com.conectividadcba.models.Entity;
+import com.conectividadcba.models.School;
+import com.conectividadcba.repositories.IndexedEntityRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The filter, the interceptor and a handler wired the way a request passes through them.
+ */
+class ResponseCacheTest {
+    private static final String BODY = "{\"entities\":[" + "{\"id\":1},".repeat(50) + "{\"id\":2}]}";
+
+    private final IndexedEntityRepository repository = new IndexedEntityRepository(List.of(school(1)));
+    private final ResponseCache cache = new ResponseCache(repository, new SimpleMeterRegistry(), 1 << 20);
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(cache);
+    private final ResponseCacheInterceptor interceptor = new ResponseCacheInterceptor(cache);
+    private int handlerCalls;
+
+    private static School school(long id) {
+        return new School(id, "Escuela " + id, new Entity.Coordinates(-31.4, -64.2), "", 1L, "Primario", 100,
+                "Starlink");
+    }
+
+    private MockHttpServletResponse get(String uri, String ifNoneMatch, String acceptEncoding)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain handler = (req, res) -> {
+            try {
+                if (!interceptor.preHandle((HttpServletRequest) req, (HttpServletResponse) res, null)) {
+                    return;
+                }
+            } catch (IOException | ServletException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ServletException(e);
+            }
+            handlerCalls++;
+            res.setContentType("application/json");
+            res.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+        filter.doFilter(request, response, handler);
+        return response;
+    }
+
+    @Test
+    void answersRepeatedRequestsFromTheCacheWithTheSameETag() throws Exception {
+        MockHttpServletResponse first = get("/api/entities", null, null);
+        MockHttpServletResponse second = get("/api/entities", null, null);
+
+        assertThat(handlerCalls).isEqualTo(1);
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(first.getContentAsString()).isEqualTo(BODY);
+        assertThat(second.getContentAsString()).isEqualTo(BODY);
+        assertThat(first.getHeader(HttpHeaders.ETAG)).isNotNull().isEqualTo(second.getHeader(HttpHeaders.ETAG));
+        assertThat(second.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    @Test
+    void revalidatesWithNotModified() throws Exception {
+        String eTag = get("/api/entities", null, null).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse revalidated = get("/api/entities", eTag, null);
+
+        assertThat(revalidated.getStatus()).isEqualTo(304);
+        assertThat(revalidated.getContentAsByteArray()).isEmpty();
+        assertThat(revalidated.getHeader(HttpHeaders.ETAG)).isEqualTo(eTag);
+        assertThat(handlerCalls).isEqualTo(1);
+    }
+
+    @Test
+    void servesTheGzipVariantUnderItsOwnETag() throws Exception {
+        MockHttpServletResponse plain = get("/api/entities", null, null);
+        MockHttpServletResponse gzip = get("/api/entities", null, "gzip, deflate");
+
+        assertThat(gzip.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(plain.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(BODY);
+        }
+        assertThat(gzip.getHeader(HttpHeaders.ETAG)).isNotEqualTo(plain.getHeader(HttpHeaders.ETAG));
+        // The plain representation's ETag does not validate the gzip one.
+        assertThat(get("/api/entities", plain.getHeader(HttpHeaders.ETAG), "gzip").getStatus()).isEqualTo(200);
+        assertThat(get("/api/entities", gzip.getHeader(HttpHeaders.ETAG), "gzip").getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void aWriteInvalidatesCachedResponsesAndTheirETags() throws Exception {
+        String eTag = get("/api/entities", null, null).getHeader(HttpHeaders.ETAG);
+
+        repository.saveAll(List.of(school(2)));
+        MockHttpServletResponse after = get("/api/entities", eTag, null);
+
+        assertThat(after.getStatus()).isEqualTo(200);
+        assertThat(after.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+        assertThat(handlerCalls).isEqualTo(2);
+    }
+
+    @Test
+    void keysSortParametersAndSkipStreamsAndWrites() {
+        MockHttpServletRequest sorted = new MockHttpServletRequest("GET", "/api/entities");
+        sorted.addParameter("type", "SCHOOL");
+        sorted.addParameter("department", "3");
+        MockHttpServletRequest stream = new MockHttpServletRequest("GET", "/api/entities");
+        stream.addParameter("stream", "true");
+
+        assertThat(cache.key(sorted)).isEqualTo("/api/entities?department=3&type=SCHOOL");
+        assertThat(cache.key(stream)).isNull();
+        assertThat(cache.key(new MockHttpServletRequest("POST", "/api/entities"))).isNull();
+        assertThat(cache.key(new MockHttpServletRequest("GET", "/tiles/6/20/37.mvt"))).isNull();
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useEffect, useState, useCallback } from 'react';
+import React, { useEffect, useState, useCallback, useMemo } from 'react';
 import { Entity, Department, api } from './services/api';
 import MapComponent from './components/Map/MapComponent';
 import InfoPanel from './components/InfoPanel/InfoPanel';
@@ -59,6 +59,14 @@ const App: React.FC = () => {
     setFilteredEntities(filtered);
   }, [entities, filters]);
 
+  // The same criteria in the parameter names of the backend's entity filter
+  const densityFilters = useMemo(() => ({
+    name: filters.name,
+    type: filters.type,
+    departmentId: filters.department,
+    connectionType: filters.connectionType,
+  }), [filters]);
+
   // Handle filter changes
   const handleFilterChange = useCallback((key: string, value: string) => {
     setFilters((prev) => ({
@@ -118,6 +126,7 @@ const App: React.FC = () => {
         onEntitySelect={handleEntitySelect}
         baseMap={baseMap}
         showDensityContour={showDensityContour}
+        densityFilters={densityFilters}
       />
     </div>
   );
@@ -2,7 +2,7 @@ import React, { useEffect, useRef } from 'react';
 import L from 'leaflet';
 import * as d3 from 'd3';
 import 'leaflet/dist/leaflet.css';
-import { Entity, Department } from '../../services/api';
+import { Entity, Department, api } from '../../services/api';
 import './MapComponent.css';
 
 interface MapComponentProps {
@@ -12,6 +12,8 @@ interface MapComponentProps {
   onEntitySelect: (entity: Entity | null) => void;
   baseMap: string;
   showDensityContour: boolean;
+  // Criteria of the entity filter, so that the density layer shows the same entities as the markers
+  densityFilters: Record<string, string>;
 }
 
 interface DepartmentGroup {
@@ -26,13 +28,16 @@ const MapComponent: React.FC<MapComponentProps> = ({
   selectedEntity,
   onEntitySelect,
   baseMap,
-  showDensityContour
+  showDensityContour,
+  densityFilters
 }) => {
   const mapRef = useRef<L.Map | null>(null);
   const mapContainerRef = useRef<HTMLDivElement>(null);
   const markersRef = useRef<L.LayerGroup>();
   const currentTileLayerRef = useRef<L.TileLayer>();
   const contourLayerRef = useRef<L.LayerGroup>();
+  const densityRequestRef = useRef<AbortController>();
+  const updateDensityRef = useRef<() => void>();
   const ZOOM_THRESHOLD = 8; // Zoom level at which to switch between grouped and individual markers
 
   // Group entities by department
@@ -171,14 +176,11 @@ const MapComponent: React.FC<MapComponentProps> = ({
     
     // Update contours on zoom and move
     mapRef.current.on('moveend', () => {
-      if (mapRef.current && showDensityContour) {
-        updateDensityContour();
-      }
+      updateDensityRef.current?.();
     });
 
     // Load and display GeoJSON data for departments
-    fetch('/data/cordoba.json')
-      .then(response => response.json())
+    api.getDepartmentGeometry(0.001)
       .then(data => {
         L.geoJSON(data, {
           style: {
@@ -202,49 +204,40 @@ const MapComponent: React.FC<MapComponentProps> = ({
   }, []); // Empty dependency array since this should only run once
 
   // Function to update density contour
-  const updateDensityContour = () => {
-    if (!mapRef.current || !contourLayerRef.current || !showDensityContour || entities.length === 0) return;
-    
-    contourLayerRef.current.clearLayers();
-    
+  const updateDensityContour = async () => {
+    // A newer view or filter supersedes any request still in flight
+    densityRequestRef.current?.abort();
+    densityRequestRef.current = undefined;
+    if (!mapRef.current || !contourLayerRef.current) return;
+    if (!showDensityContour || entities.length === 0) {
+      contourLayerRef.current.clearLayers();
+      return;
+    }
+    const request = new AbortController();
+    densityRequestRef.current = request;
+
     try {
-      // Create a grid of points for density calculation
-      const bounds = mapRef.current.getBounds();
-      const sw = bounds.getSouthWest();
-      const ne = bounds.getNorthEast();
-      
-      const width = 100;
-      const height = 100;
-      const cellSize = (ne.lng - sw.lng) / width;
-      const latCellSize = (ne.lat - sw.lat) / height;
-      
-      const grid = new Array(width * height).fill(0);
-      
-      // Count entities in each grid cell with gaussian smoothing
-      entities.forEach(entity => {
-        // Swap lat/lng for proper geographic mapping
-        const centerX = (entity.coordinates.lat - sw.lat) / latCellSize;
-        const centerY = (entity.coordinates.lng - sw.lng) / cellSize;
-        
-        // Apply gaussian smoothing around each point
-        for (let y = Math.floor(centerY - 3); y <= Math.ceil(centerY + 3); y++) {
-          for (let x = Math.floor(centerX - 3); x <= Math.ceil(centerX + 3); x++) {
-            if (x >= 0 && x < width && y >= 0 && y < height) {
-              const distance = Math.sqrt(Math.pow(x - centerX, 2) + Math.pow(y - centerY, 2));
-              const influence = Math.exp(-distance * distance / 2);
-              grid[y * width + x] += influence;
-            }
-          }
-        }
-      });
+      // The density grid is computed by the backend for the current viewport
+      const density = await api.getDensity(mapRef.current.getBounds().toBBoxString(), 100, densityFilters,
+        request.signal);
+      if (request.signal.aborted) return;
+      const { width, height } = density;
+      const cellSize = (density.maxLng - density.minLng) / width;
+      const latCellSize = (density.maxLat - density.minLat) / height;
+
+      const bytes = atob(density.values);
+      const grid = new Array(width * height);
+      for (let i = 0; i < grid.length; i++) {
+        grid[i] = bytes.charCodeAt(i) / 255 * density.maxValue;
+      }
 
-      // Get max value for threshold calculation
-      const maxValue = Math.max(...grid);
+      contourLayerRef.current.clearLayers();
+      if (density.maxValue === 0) return;
       
       // Create contours from the grid
       const contours = d3.contours()
         .size([width, height])
-        .thresholds(Array.from({ length: 8 }, (_, i) => maxValue * (i + 1) / 10))
+        .thresholds(Array.from({ length: 8 }, (_, i) => density.maxValue * (i + 1) / 10))
         (grid);
 
       // Convert contours to geographic coordinates
@@ -256,8 +249,8 @@ const MapComponent: React.FC<MapComponentProps> = ({
             coordinates: contour.coordinates.map(polygon =>
               polygon.map(ring =>
                 ring.map(point => [
-                  point[1] * cellSize + sw.lng,
-                  point[0] * latCellSize + sw.lat
+                  point[0] * cellSize + density.minLng,
+                  point[1] * latCellSize + density.minLat
                 ])
               )
             )
@@ -276,9 +269,11 @@ const MapComponent: React.FC<MapComponentProps> = ({
         geoJsonLayer.addTo(contourLayerRef.current!);
       });
     } catch (error) {
+      if (request.signal.aborted) return;
       console.error('Error generating contours:', error);
     }
   };
+  updateDensityRef.current = updateDensityContour;
 
   // Update map layers and markers
   useEffect(() => {
@@ -317,7 +312,7 @@ const MapComponent: React.FC<MapComponentProps> = ({
 
     // Update density contour
     updateDensityContour();
-  }, [entities, selectedEntity, baseMap, showDensityContour]);
+  }, [entities, selectedEntity, baseMap, showDensityContour, densityFilters]);
 
   return <div ref={mapContainerRef} className="map-container" />;
 };
@@ -18,6 +18,18 @@ export interface Department {
   name: string;
 }
 
+export interface DensityGrid {
+  width: number;
+  height: number;
+  minLat: number;
+  minLng: number;
+  maxLat: number;
+  maxLng: number;
+  maxValue: number;
+  // Base64, one byte per cell, rows from south to north
+  values: string;
+}
+
 export const api = {
   getEntities: async (): Promise<Entity[]> => {
     try {
@@ -31,6 +43,25 @@ export const api = {
       throw error;
     }
   },
+  // filters are criteria of /api/entities/filter (name, type, departmentId, connectionType); empty ones are skipped
+  getDensity: async (bbox: string, resolution: number, filters: Record<string, string> = {},
+                     signal?: AbortSignal): Promise<DensityGrid> => {
+    try {
+      const params = new URLSearchParams({ bbox, resolution: String(resolution) });
+      Object.entries(filters).forEach(([key, value]) => {
+        if (value) params.append(key, value);
+      });
+      const response = await fetch(`/api/density?${params}`, { signal });
+      if (!response.ok) {
+        throw new Error('Network response was not ok');
+      }
+      return await response.json();
+    } catch (error) {
+      if (signal?.aborted) throw error;
+      console.error('Error fetching density:', error);
+      throw error;
+    }
+  },
   getDepartments: async (): Promise<Department[]> => {
     try {
       const response = await fetch('/api/departments');
@@ -42,5 +73,18 @@ export const api = {
       console.error('Error fetching departments:', error);
       throw error;
     }
+  },
+  // Simplified department outlines as GeoJSON; tolerance is in degrees
+  getDepartmentGeometry: async (tolerance: number): Promise<GeoJSON.FeatureCollection> => {
+    try {
+      const response = await fetch(`/api/departments/geometry?tolerance=${tolerance}`);
+      if (!response.ok) {
+        throw new Error('Network response was not ok');
+      }
+      return await response.json();
+    } catch (error) {
+      console.error('Error fetching department geometry:', error);
+      throw error;
+    }
   }
 };